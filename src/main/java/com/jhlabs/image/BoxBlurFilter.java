@@ -16,6 +16,7 @@ limitations under the License.
 
 package com.jhlabs.image;
 
+import pixelitor.ThreadPool;
 import pixelitor.utils.ProgressTracker;
 
 import java.awt.image.BufferedImage;
@@ -30,6 +31,9 @@ public class BoxBlurFilter extends AbstractBufferedImageOp {
     private int iterations = 1;
     private boolean premultiplyAlpha = true;
 
+    // the number of rows processed by a single task
+    private static final int MIN_ROWS_PER_TASK = 16;
+
     /**
      * Construct a default BoxBlurFilter.
      */
@@ -120,7 +124,6 @@ public class BoxBlurFilter extends AbstractBufferedImageOp {
      * @param pt
      */
     public static void blur(int[] in, int[] out, int width, int height, float radius, ProgressTracker pt) {
-        int widthMinus1 = width - 1;
         int r = (int) radius;
         int tableSize = 2 * r + 1;
 
@@ -134,43 +137,49 @@ public class BoxBlurFilter extends AbstractBufferedImageOp {
             divide[i] = i / tableSize;
         }
 
-        int inIndex = 0;
-
-        for (int y = 0; y < height; y++) {
-            int outIndex = y;
-            int ta = 0, tr = 0, tg = 0, tb = 0;
-
-            for (int i = -r; i <= r; i++) {
-                int rgb = in[inIndex + ImageMath.clamp(i, 0, width - 1)];
-                ta += (rgb >> 24) & 0xff;
-                tr += (rgb >> 16) & 0xff;
-                tg += (rgb >> 8) & 0xff;
-                tb += rgb & 0xff;
+        // the rows are independent, so they are blurred in parallel
+        ThreadPool.runInChunks(height, MIN_ROWS_PER_TASK, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                blurRow(in, out, width, height, r, divide, y);
             }
+        });
 
-            for (int x = 0; x < width; x++) {
-                out[outIndex] = (divide[ta] << 24) | (divide[tr] << 16) | (divide[tg] << 8) | divide[tb];
-
-                int i1 = x + r + 1;
-                if (i1 > widthMinus1) {
-                    i1 = widthMinus1;
-                }
-                int i2 = x - r;
-                if (i2 < 0) {
-                    i2 = 0;
-                }
-                int rgb1 = in[inIndex + i1];
-                int rgb2 = in[inIndex + i2];
-
-                ta += ((rgb1 >> 24) & 0xff) - ((rgb2 >> 24) & 0xff);
-                tr += ((rgb1 & 0xff0000) - (rgb2 & 0xff0000)) >> 16;
-                tg += ((rgb1 & 0xff00) - (rgb2 & 0xff00)) >> 8;
-                tb += (rgb1 & 0xff) - (rgb2 & 0xff);
-                outIndex += height;
+        pt.unitsDone(height);
+    }
+
+    private static void blurRow(int[] in, int[] out, int width, int height, int r, int[] divide, int y) {
+        int widthMinus1 = width - 1;
+        int inIndex = y * width;
+        int outIndex = y;
+        int ta = 0, tr = 0, tg = 0, tb = 0;
+
+        for (int i = -r; i <= r; i++) {
+            int rgb = in[inIndex + ImageMath.clamp(i, 0, width - 1)];
+            ta += (rgb >> 24) & 0xff;
+            tr += (rgb >> 16) & 0xff;
+            tg += (rgb >> 8) & 0xff;
+            tb += rgb & 0xff;
+        }
+
+        for (int x = 0; x < width; x++) {
+            out[outIndex] = (divide[ta] << 24) | (divide[tr] << 16) | (divide[tg] << 8) | divide[tb];
+
+            int i1 = x + r + 1;
+            if (i1 > widthMinus1) {
+                i1 = widthMinus1;
             }
-            inIndex += width;
+            int i2 = x - r;
+            if (i2 < 0) {
+                i2 = 0;
+            }
+            int rgb1 = in[inIndex + i1];
+            int rgb2 = in[inIndex + i2];
 
-            pt.unitDone();
+            ta += ((rgb1 >> 24) & 0xff) - ((rgb2 >> 24) & 0xff);
+            tr += ((rgb1 & 0xff0000) - (rgb2 & 0xff0000)) >> 16;
+            tg += ((rgb1 & 0xff00) - (rgb2 & 0xff00)) >> 8;
+            tb += (rgb1 & 0xff) - (rgb2 & 0xff);
+            outIndex += height;
         }
     }
 
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.image;
+
+import com.jhlabs.math.FFT;
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Convolves packed ARGB pixels with a large kernel in the frequency domain.
+ *
+ * The image is split into overlapping power-of-two tiles (overlap-save),
+ * the tile rows are processed in parallel, and the kernel spectra are
+ * cached, so that repeated runs with the same kernel (for example
+ * while adjusting other settings in the filter dialog) skip the
+ * kernel transform. Two real channels are packed into the real and
+ * imaginary parts of each complex transform, which halves the work.
+ *
+ * Currently only Lens Blur uses it. The other blurs with large radii
+ * don't need it: the Gaussian and box blurs are separable, so their
+ * direct implementations are cheaper, the Convolve filters have at most
+ * 7x7 kernels, and Bokeh is rendered by G'MIC.
+ */
+public class FFTConvolver {
+    private static final int MIN_TILE_SIZE = 128;
+    private static final int MAX_TILE_SIZE = 1024;
+
+    private static final int MAX_CACHED_SPECTRA = 4;
+
+    // access-ordered map, which makes it an LRU cache
+    private static final Map<SpectrumKey, float[][]> spectrumCache =
+        new LinkedHashMap<>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SpectrumKey, float[][]> eldest) {
+                return size() > MAX_CACHED_SPECTRA;
+            }
+        };
+
+    /**
+     * A convolution kernel with a limited radius. Implementations
+     * are used as cache keys, so they must implement equals and hashCode
+     * (records are ideal for this).
+     */
+    public interface Kernel {
+        /**
+         * Returns the radius in pixels outside which all weights are zero.
+         */
+        int getRadius();
+
+        /**
+         * Returns the unnormalized weight at the given offset from the center.
+         */
+        float weightAt(int dx, int dy);
+    }
+
+    private record SpectrumKey(Kernel kernel, int tileSize) {
+    }
+
+    private FFTConvolver() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Convolves the given pixels with the given kernel.
+     * Color channel values above the bloom threshold
+     * are multiplied by the bloom factor before the convolution.
+     *
+     * @return the convolved pixels in a new array
+     */
+    public static int[] convolve(int[] pixels, int width, int height, Kernel kernel,
+                                 float bloom, float bloomThreshold, ProgressTracker pt) {
+        int radius = kernel.getRadius();
+        int tileSize = chooseTileSize(width, height, radius);
+        int step = tileSize - 2 * radius;
+        float[][] spectrum = getSpectrum(kernel, tileSize);
+
+        int[] result = new int[width * height];
+        int numTileRows = (height + step - 1) / step;
+        Future<?>[] futures = new Future[numTileRows];
+        for (int row = 0; row < numTileRows; row++) {
+            int outY = row * step;
+            futures[row] = ThreadPool.submit(() -> {
+                TileBuffers buffers = new TileBuffers(tileSize);
+                for (int outX = 0; outX < width; outX += step) {
+                    convolveTile(pixels, result, width, height, outX, outY, radius,
+                        tileSize, spectrum, bloom, bloomThreshold, buffers);
+                }
+            });
+        }
+        ThreadPool.waitFor(futures, pt);
+
+        return result;
+    }
+
+    /**
+     * Returns the number of progress units used by {@link #convolve}.
+     */
+    public static int countWorkUnits(int width, int height, int radius) {
+        int step = chooseTileSize(width, height, radius) - 2 * radius;
+        return (height + step - 1) / step;
+    }
+
+    /**
+     * Chooses the power-of-two tile size that minimizes the
+     * estimated total cost of the FFTs for the given image and radius.
+     */
+    private static int chooseTileSize(int width, int height, int radius) {
+        int maxNeeded = nextPowerOfTwo(Math.max(width, height) + 2 * radius);
+        int bestSize = -1;
+        double bestCost = Double.MAX_VALUE;
+        for (int size = MIN_TILE_SIZE; size <= MAX_TILE_SIZE; size *= 2) {
+            int step = size - 2 * radius;
+            if (step > 0) {
+                long numTiles = (long) ((width + step - 1) / step) * ((height + step - 1) / step);
+                double cost = numTiles * (double) size * size * Integer.numberOfTrailingZeros(size);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestSize = size;
+                }
+            }
+            if (size >= maxNeeded) {
+                break; // a single tile covers the whole image
+            }
+        }
+        if (bestSize == -1) {
+            // the radius is too big even for the largest tile size, but
+            // a tile never has to be larger than the padded image
+            bestSize = Math.min(nextPowerOfTwo(4 * radius), maxNeeded);
+        }
+        return bestSize;
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        int result = 1;
+        while (result < n) {
+            result *= 2;
+        }
+        return result;
+    }
+
+    private static float[][] getSpectrum(Kernel kernel, int tileSize) {
+        SpectrumKey key = new SpectrumKey(kernel, tileSize);
+        synchronized (spectrumCache) {
+            float[][] spectrum = spectrumCache.get(key);
+            if (spectrum == null) {
+                spectrum = calcSpectrum(kernel, tileSize);
+                spectrumCache.put(key, spectrum);
+            }
+            return spectrum;
+        }
+    }
+
+    /**
+     * Renders the normalized kernel with its center at the origin
+     * (wrapping around the tile edges) and transforms it.
+     */
+    private static float[][] calcSpectrum(Kernel kernel, int size) {
+        int radius = kernel.getRadius();
+        float[][] spectrum = new float[2][size * size];
+        float total = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int row = ((dy + size) % size) * size;
+            for (int dx = -radius; dx <= radius; dx++) {
+                float weight = kernel.weightAt(dx, dy);
+                spectrum[0][row + (dx + size) % size] = weight;
+                total += weight;
+            }
+        }
+        if (total != 0) {
+            float[] real = spectrum[0];
+            for (int i = 0; i < real.length; i++) {
+                real[i] /= total;
+            }
+        }
+
+        FFT fft = new FFT(Integer.numberOfTrailingZeros(size));
+        fft.transform2D(spectrum[0], spectrum[1], size, size, true);
+        return spectrum;
+    }
+
+    private static void convolveTile(int[] pixels, int[] result, int width, int height,
+                                     int outX, int outY, int radius, int size,
+                                     float[][] spectrum, float bloom, float bloomThreshold,
+                                     TileBuffers buffers) {
+        float[] ar = buffers.ar[0];
+        float[] ai = buffers.ar[1];
+        float[] gr = buffers.gb[0];
+        float[] gi = buffers.gb[1];
+
+        // load the tile, duplicating the edge pixels outside the image
+        int tileX = outX - radius;
+        int tileY = outY - radius;
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            int srcY = Math.clamp(tileY + y, 0, height - 1);
+            int rowOffset = srcY * width;
+            for (int x = 0; x < size; x++) {
+                int srcX = Math.clamp(tileX + x, 0, width - 1);
+                int argb = pixels[rowOffset + srcX];
+
+                float r = (argb >> 16) & 0xFF;
+                float g = (argb >> 8) & 0xFF;
+                float b = argb & 0xFF;
+                if (r > bloomThreshold) {
+                    r *= bloom;
+                }
+                if (g > bloomThreshold) {
+                    g *= bloom;
+                }
+                if (b > bloomThreshold) {
+                    b *= bloom;
+                }
+
+                ar[i] = (argb >>> 24);
+                ai[i] = r;
+                gr[i] = g;
+                gi[i] = b;
+                i++;
+            }
+        }
+
+        FFT fft = buffers.fft;
+        fft.transform2D(ar, ai, size, size, true);
+        fft.transform2D(gr, gi, size, size, true);
+
+        // multiply by the kernel spectrum
+        float[] kr = spectrum[0];
+        float[] ki = spectrum[1];
+        for (int j = 0; j < ar.length; j++) {
+            float re = ar[j];
+            float im = ai[j];
+            ar[j] = re * kr[j] - im * ki[j];
+            ai[j] = re * ki[j] + im * kr[j];
+
+            re = gr[j];
+            im = gi[j];
+            gr[j] = re * kr[j] - im * ki[j];
+            gi[j] = re * ki[j] + im * kr[j];
+        }
+
+        fft.transform2D(ar, ai, size, size, false);
+        fft.transform2D(gr, gi, size, size, false);
+
+        // store the valid (not wrapped-around) center of the tile
+        int outWidth = Math.min(size - 2 * radius, width - outX);
+        int outHeight = Math.min(size - 2 * radius, height - outY);
+        for (int y = 0; y < outHeight; y++) {
+            int tileIndex = (y + radius) * size + radius;
+            int resultIndex = (outY + y) * width + outX;
+            for (int x = 0; x < outWidth; x++, tileIndex++, resultIndex++) {
+                int a = toChannel(ar[tileIndex]);
+                int r = toChannel(ai[tileIndex]);
+                int g = toChannel(gr[tileIndex]);
+                int b = toChannel(gi[tileIndex]);
+                result[resultIndex] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    private static int toChannel(float v) {
+        // also clamps the high values due to blooming
+        return Math.clamp((int) (v + 0.5f), 0, 255);
+    }
+
+    /**
+     * The working arrays of a single task, reused for all its tiles.
+     */
+    private static class TileBuffers {
+        final float[][] ar;
+        final float[][] gb;
+        final FFT fft;
+
+        TileBuffers(int size) {
+            ar = new float[2][size * size];
+            gb = new float[2][size * size];
+            fft = new FFT(Integer.numberOfTrailingZeros(size));
+        }
+    }
+}
@@ -35,6 +35,23 @@ public class GaussianFilter extends ConvolveFilter {
      */
     protected float radius;
 
+    /**
+     * Whether the exact kernel must be used even for large radii.
+     */
+    private boolean exact = false;
+
+    /**
+     * From this radius the blur is approximated by three successive
+     * box blurs, which cost the same for every radius. Below it
+     * the exact kernel is cheap enough and noticeably more accurate.
+     */
+    public static final float MIN_APPROXIMATION_RADIUS = 10.0f;
+
+    private static final int BOX_PASSES = 3;
+
+    // the number of rows processed by a single box blur task
+    private static final int MIN_ROWS_PER_TASK = 16;
+
     /**
      * Construct a Gaussian filter.
      */
@@ -64,6 +81,23 @@ public class GaussianFilter extends ConvolveFilter {
         kernel = makeKernel(radius);
     }
 
+    /**
+     * Set whether the exact Gaussian kernel should be used for all radii.
+     * By default large radii are approximated with repeated box blurs.
+     *
+     * @param exact true to always convolve with the exact kernel
+     */
+    public void setExact(boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * Returns true if the blur will be approximated with box blurs.
+     */
+    public boolean isApproximated() {
+        return !exact && radius >= MIN_APPROXIMATION_RADIUS;
+    }
+
     @Override
     public BufferedImage filter(BufferedImage src, BufferedImage dst) {
         int width = src.getWidth();
@@ -80,9 +114,7 @@ public class GaussianFilter extends ConvolveFilter {
         getRGB(src, 0, 0, width, height, inPixels);
 
         if (radius > 0) {
-            int[] outPixels = new int[width * height];
-            convolveAndTranspose(kernel, inPixels, outPixels, width, height, premultiplyAlpha, false, CLAMP_EDGES, pt);
-            convolveAndTranspose(kernel, outPixels, inPixels, height, width, false, premultiplyAlpha, CLAMP_EDGES, pt);
+            blur(inPixels, new int[width * height], width, height, pt);
         }
 
         setRGB(dst, 0, 0, width, height, inPixels);
@@ -92,6 +124,23 @@ public class GaussianFilter extends ConvolveFilter {
         return dst;
     }
 
+    /**
+     * Blurs the pixels in place in both directions, using the exact
+     * kernel or the box blur approximation, depending on the radius.
+     * The temporary array must have the same size as the pixel array.
+     * Requires width + height progress units.
+     */
+    protected void blur(int[] pixels, int[] tmp, int width, int height, ProgressTracker pt) {
+        if (isApproximated()) {
+            int[] boxRadii = boxRadiiFor(radius, BOX_PASSES);
+            boxBlurAndTranspose(boxRadii, pixels, tmp, width, height, premultiplyAlpha, false, pt);
+            boxBlurAndTranspose(boxRadii, tmp, pixels, height, width, false, premultiplyAlpha, pt);
+        } else {
+            convolveAndTranspose(kernel, pixels, tmp, width, height, premultiplyAlpha, false, CLAMP_EDGES, pt);
+            convolveAndTranspose(kernel, tmp, pixels, height, width, false, premultiplyAlpha, CLAMP_EDGES, pt);
+        }
+    }
+
     /**
      * Blur and transpose a block of ARGB pixels.
      *
@@ -178,6 +227,157 @@ public class GaussianFilter extends ConvolveFilter {
         }
     }
 
+    /**
+     * Calculates the radii of the box blurs which, applied one after
+     * the other, have the same variance as the Gaussian kernel of
+     * the given radius (see "Fast Almost-Gaussian Filtering" by P. Kovesi).
+     * Two box widths are mixed, because a single integer
+     * width could only match the variance roughly.
+     */
+    public static int[] boxRadiiFor(float radius, int passes) {
+        double sigma = radius / 3.0;
+        double variance = sigma * sigma;
+
+        // the ideal width of a box if all boxes had the same width
+        double idealWidth = Math.sqrt(12 * variance / passes + 1);
+        int lowerWidth = (int) Math.floor(idealWidth);
+        if (lowerWidth % 2 == 0) {
+            lowerWidth--;
+        }
+        int upperWidth = lowerWidth + 2;
+
+        // the number of passes that should use the lower width
+        int numLower = (int) Math.round(
+            (12 * variance - passes * lowerWidth * lowerWidth - 4 * passes * lowerWidth - 3 * passes)
+                / (-4.0 * lowerWidth - 4));
+        numLower = Math.clamp(numLower, 0, passes);
+
+        int[] radii = new int[passes];
+        for (int i = 0; i < passes; i++) {
+            int boxWidth = i < numLower ? lowerWidth : upperWidth;
+            radii[i] = (boxWidth - 1) / 2;
+        }
+        return radii;
+    }
+
+    /**
+     * Blurs each row with the given box blurs and transposes the result.
+     * The cost per pixel doesn't depend on the box radii. The edges are clamped.
+     */
+    public static void boxBlurAndTranspose(int[] boxRadii, int[] inPixels, int[] outPixels,
+                                           int width, int height,
+                                           boolean premultiply, boolean unpremultiply,
+                                           ProgressTracker pt) {
+        // Clamping the edges in each pass would give more weight to the edge
+        // pixels than a single Gaussian would. Instead, the lines are padded
+        // with the repeated edge pixels, which is exact for the combined kernel.
+        int pad = 0;
+        for (int boxRadius : boxRadii) {
+            pad += boxRadius;
+        }
+        int paddedWidth = width + 2 * pad;
+        int finalPad = pad;
+
+        ThreadPool.runInChunks(height, MIN_ROWS_PER_TASK, (fromRow, toRow) -> {
+            // the four channels are interleaved in these buffers
+            float[] line = new float[4 * paddedWidth];
+            float[] tmp = new float[4 * paddedWidth];
+            for (int y = fromRow; y < toRow; y++) {
+                boxBlurAndTransposeRow(boxRadii, inPixels, outPixels, width, height, finalPad,
+                    premultiply, unpremultiply, line, tmp, y);
+            }
+        });
+        pt.unitsDone(height);
+    }
+
+    private static void boxBlurAndTransposeRow(int[] boxRadii, int[] inPixels, int[] outPixels,
+                                               int width, int height, int pad,
+                                               boolean premultiply, boolean unpremultiply,
+                                               float[] line, float[] tmp, int y) {
+        int ioffset = y * width;
+        for (int x = 0; x < width; x++) {
+            int rgb = inPixels[ioffset + x];
+            int pa = (rgb >> 24) & 0xff;
+            int pr = (rgb >> 16) & 0xff;
+            int pg = (rgb >> 8) & 0xff;
+            int pb = rgb & 0xff;
+            if (premultiply) {
+                float a255 = pa * (1.0f / 255.0f);
+                pr = (int) (pr * a255);
+                pg = (int) (pg * a255);
+                pb = (int) (pb * a255);
+            }
+            int i = 4 * (x + pad);
+            line[i] = pa;
+            line[i + 1] = pr;
+            line[i + 2] = pg;
+            line[i + 3] = pb;
+        }
+        int paddedWidth = width + 2 * pad;
+        int lastStart = 4 * (pad + width - 1);
+        for (int p = 0; p < pad; p++) {
+            System.arraycopy(line, 4 * pad, line, 4 * p, 4);
+            System.arraycopy(line, lastStart, line, 4 * (pad + width + p), 4);
+        }
+
+        float[] in = line;
+        float[] out = tmp;
+        for (int boxRadius : boxRadii) {
+            boxBlurLine(in, out, paddedWidth, boxRadius);
+            float[] swap = in;
+            in = out;
+            out = swap;
+        }
+
+        int index = y;
+        for (int x = 0; x < width; x++) {
+            int i = 4 * (x + pad);
+            float a = in[i];
+            float r = in[i + 1];
+            float g = in[i + 2];
+            float b = in[i + 3];
+            if (unpremultiply && a != 0 && a != 255) {
+                float f = 255.0f / a;
+                r *= f;
+                g *= f;
+                b *= f;
+            }
+
+            int ir = PixelUtils.clamp((int) (r + 0.5));
+            int ig = PixelUtils.clamp((int) (g + 0.5));
+            int ib = PixelUtils.clamp((int) (b + 0.5));
+            int ia = PixelUtils.clamp((int) (a + 0.5));
+            outPixels[index] = (ia << 24) | (ir << 16) | (ig << 8) | ib;
+
+            index += height;
+        }
+    }
+
+    /**
+     * A sliding window box blur of a line with four interleaved channels.
+     */
+    private static void boxBlurLine(float[] in, float[] out, int width, int r) {
+        int last = width - 1;
+        float scale = 1.0f / (2 * r + 1);
+        for (int c = 0; c < 4; c++) {
+            // the initial window is [-r, r], with the clamped
+            // edge pixels counted as many times as they are repeated
+            int inside = Math.min(r, last);
+            double sum = (r + 1) * in[c] + (r - inside) * in[4 * last + c];
+            for (int i = 1; i <= inside; i++) {
+                sum += in[4 * i + c];
+            }
+
+            for (int x = 0; x < width; x++) {
+                out[4 * x + c] = (float) (sum * scale);
+
+                int added = Math.min(x + r + 1, last);
+                int removed = Math.max(x - r, 0);
+                sum += in[4 * added + c] - in[4 * removed + c];
+            }
+        }
+    }
+
     /**
      * Make a Gaussian blur kernel.
      *
@@ -69,8 +69,7 @@ public class UnsharpFilter extends GaussianFilter {
 
         int[] outPixels = new int[width * height];
         if (radius > 0) {
-            convolveAndTranspose(kernel, inPixels, outPixels, width, height, premultiplyAlpha, false, CLAMP_EDGES, pt);
-            convolveAndTranspose(kernel, outPixels, inPixels, height, width, false, premultiplyAlpha, CLAMP_EDGES, pt);
+            blur(inPixels, outPixels, width, height, pt);
         }
 
         // src.getRGB(0, 0, width, height, outPixels, 0, width);
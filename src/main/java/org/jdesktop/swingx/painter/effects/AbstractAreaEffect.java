@@ -27,6 +27,8 @@ import pixelitor.colors.Colors;
 import pixelitor.filters.gui.UserPreset;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Area;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -47,6 +49,9 @@ import java.util.Objects;
 public class AbstractAreaEffect implements AreaEffect {
     private static final boolean debug = false;
 
+    // the width of the antialiased zero-width strokes in Java2D
+    private static final double MIN_PEN_WIDTH = 0.125;
+
     // for compatibility with pixelitor versions before 4.2.0
     @Serial
     private static final long serialVersionUID = -9104855683480422662L;
@@ -156,6 +161,11 @@ public class AbstractAreaEffect implements AreaEffect {
 
     private transient BufferedImage _clipImage = null;
 
+    // if true, this effect is rendered by stroking the shape many times
+    // instead of from a distance field (it's inverted and transient, so
+    // that the deserialized effects use the distance field)
+    private transient boolean strokeRendering;
+
     protected BufferedImage getClipImage(final Rectangle effectBounds) {
         // set up a temp buffer
         if (_clipImage == null ||
@@ -209,6 +219,12 @@ public class AbstractAreaEffect implements AreaEffect {
      */
     protected void paintBorderGlow(Graphics2D g2,
                                    Shape clipShape, int width, int height) {
+        if (!strokeRendering) {
+            Shape shape = AffineTransform.getTranslateInstance(offset.getX(), offset.getY())
+                .createTransformedShape(clipShape);
+            paintDistanceField(g2, shape, AlphaComposite.DstOver);
+            return;
+        }
 
         int steps = getBrushSteps();
         boolean inside = isRenderInsideShape();
@@ -254,6 +270,137 @@ public class AbstractAreaEffect implements AreaEffect {
 
     }
 
+    /**
+     * Paints the effect around the given (already offset) shape
+     * from its distance field, with the given composite.
+     */
+    protected void paintDistanceField(Graphics2D g2, Shape shape, Composite composite) {
+        double extent = getDistanceFieldExtent();
+        Rectangle region = shape.getBounds();
+        int padding = (int) Math.ceil(extent) + 1;
+        region.grow(padding, padding);
+
+        // The field is calculated only for the visible part, plus the padding,
+        // because the outline beyond the padding doesn't affect the visible pixels.
+        // This also keeps the memory bounded for large or mostly hidden shapes.
+        Rectangle visible = getVisibleBounds(g2);
+        if (visible != null) {
+            visible.grow(padding, padding);
+            region = region.intersection(visible);
+            if (region.isEmpty()) {
+                return;
+            }
+        }
+
+        DistanceField field = new DistanceField(shape, region);
+        BufferedImage effectImage = field.render(this::calcDistanceFieldColor, extent);
+
+        Composite savedComposite = g2.getComposite();
+        g2.setComposite(composite);
+        g2.drawImage(effectImage, region.x, region.y, null);
+        g2.setComposite(savedComposite);
+    }
+
+    /**
+     * Returns the bounds (in user space) of the area where the given
+     * graphics can paint, which is limited by its clip and by its device.
+     */
+    private static Rectangle getVisibleBounds(Graphics2D g2) {
+        Rectangle visible = null;
+        try {
+            Rectangle deviceBounds = g2.getDeviceConfiguration().getBounds();
+            visible = g2.getTransform().createInverse()
+                .createTransformedShape(deviceBounds).getBounds();
+        } catch (NoninvertibleTransformException e) {
+            // a degenerate transform, nothing can be painted
+            return new Rectangle();
+        }
+
+        Rectangle clipBounds = g2.getClipBounds();
+        if (clipBounds != null) {
+            visible = visible == null ? clipBounds : visible.intersection(clipBounds);
+        }
+        return visible;
+    }
+
+    /**
+     * Returns the distance from the outline beyond which
+     * the distance field profile doesn't change anymore.
+     */
+    protected double getDistanceFieldExtent() {
+        return effectWidthDouble / 2 + 1;
+    }
+
+    /**
+     * Returns the premultiplied ARGB color at the given signed distance
+     * from the outline (negative inside), calculated by accumulating
+     * the antialiased coverage of the strokes painted by the stroke-based
+     * rendering, so that the two kinds of rendering look the same.
+     */
+    protected int calcDistanceFieldColor(double distance) {
+        double colorAlpha = brushColor.getAlpha() / 255.0;
+        double transparency = 1.0;
+        if (isShouldFillShape() && !isRenderInsideShape()) {
+            transparency = 1 - colorAlpha * edgeCoverage(distance);
+        }
+
+        int steps = getBrushSteps();
+        double strokeAlpha = colorAlpha / steps;
+        double absDistance = Math.abs(distance);
+        for (int i = 0; i < steps; i++) {
+            double brushWidth = i * effectWidthDouble / steps;
+            transparency *= 1 - strokeAlpha * strokeCoverage(brushWidth, absDistance);
+        }
+
+        return premultiply(brushColor, 1 - transparency);
+    }
+
+    /**
+     * The antialiased coverage of a pixel whose center is at the given signed
+     * distance from a straight edge (positive values are outside).
+     */
+    protected static double edgeCoverage(double distance) {
+        return Math.clamp(0.5 - distance, 0.0, 1.0);
+    }
+
+    /**
+     * The antialiased coverage of a pixel by a stroke of the given
+     * width, drawn along an outline at the given distance.
+     */
+    protected static double strokeCoverage(double strokeWidth, double distance) {
+        if (strokeWidth == 0) {
+            // with antialiasing, zero-width strokes are
+            // drawn as lines with the minimal pen width
+            strokeWidth = MIN_PEN_WIDTH;
+        }
+        return edgeCoverage(distance - strokeWidth / 2);
+    }
+
+    /**
+     * Returns the given color as premultiplied ARGB,
+     * with its alpha multiplied by the given coverage.
+     */
+    protected static int premultiply(Color color, double coverage) {
+        double a = coverage * color.getAlpha() / 255.0;
+        int ia = (int) (a * 255 + 0.5);
+        int ir = (int) (color.getRed() * a + 0.5);
+        int ig = (int) (color.getGreen() * a + 0.5);
+        int ib = (int) (color.getBlue() * a + 0.5);
+        return ia << 24 | ir << 16 | ig << 8 | ib;
+    }
+
+    /**
+     * Sets whether this effect is rendered from a distance field
+     * (the default) or by stroking the shape with many strokes.
+     */
+    public void setDistanceFieldRendering(boolean distanceFieldRendering) {
+        strokeRendering = !distanceFieldRendering;
+    }
+
+    public boolean isDistanceFieldRendering() {
+        return !strokeRendering;
+    }
+
     /**
      * Holds value of property brushColor.
      */
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.painter.effects;
+
+import pixelitor.ThreadPool;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.function.DoubleToIntFunction;
+
+/**
+ * The signed distance of each pixel in a region from the outline of
+ * a shape, which is negative inside the shape. The shape is rasterized
+ * only once, and the exact Euclidean distance transform is calculated
+ * in linear time (Felzenszwalb and Huttenlocher), so the effects rendered
+ * from it cost the same for every effect width and shape complexity.
+ */
+final class DistanceField {
+    // the number of profile samples per pixel
+    private static final int PROFILE_RESOLUTION = 16;
+
+    private static final int NONE = -1;
+
+    // the number of rows (or columns) processed by a single task
+    private static final int MIN_ROWS_PER_TASK = 32;
+
+    private final Rectangle region;
+    private final float[] distances;
+
+    DistanceField(Shape shape, Rectangle region) {
+        this.region = region;
+
+        int width = region.width;
+        int height = region.height;
+        float[] coverage = rasterize(shape, region);
+
+        // for each pixel, the signed distance of the center from the edge,
+        // and the segment of the edge within the pixel (relative to its center),
+        // which are only meaningful near the outline
+        float[] edgeDistances = new float[width * height];
+        float[] segments = new float[4 * width * height];
+        ThreadPool.runInChunks(height, MIN_ROWS_PER_TASK, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    float gx = gradient(coverage, width, height, x, y, 1, 0);
+                    float gy = gradient(coverage, width, height, x, y, 0, 1);
+                    edgeDistances[i] = edgeDistance(gx, gy, coverage[i]);
+                    calcSegment(gx, gy, edgeDistances[i], segments, 4 * i);
+                }
+            }
+        });
+
+        // the nearest pixel which is at least partially inside (or outside)
+        int[] nearestCovered = nearestSeeds(coverage, width, height, true);
+        int[] nearestUncovered = nearestSeeds(coverage, width, height, false);
+
+        distances = new float[width * height];
+        ThreadPool.runInChunks(height, MIN_ROWS_PER_TASK, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    float c = coverage[i];
+                    if (c == 0.0f || c == 1.0f) {
+                        boolean inside = c == 1.0f;
+                        int seed = inside ? nearestUncovered[i] : nearestCovered[i];
+                        float dist = distanceVia(seed, x, y, coverage, segments, width, height, inside);
+                        distances[i] = inside ? -dist : dist;
+                    } else {
+                        // the antialiased edge pixels know the edge's position
+                        // from their coverage and the direction of the gradient
+                        distances[i] = edgeDistances[i];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The distance to the outline near the given nearest seed pixel. The
+     * nearest seed center isn't necessarily on the nearest part of the edge,
+     * therefore the edges in the seed's neighbors are also considered.
+     */
+    private static float distanceVia(int seed, int x, int y, float[] coverage, float[] segments,
+                                     int width, int height, boolean inside) {
+        if (seed == NONE) {
+            return Float.MAX_VALUE;
+        }
+        int seedX = seed % width;
+        int seedY = seed / width;
+
+        float min = Float.MAX_VALUE;
+        for (int qy = Math.max(0, seedY - 1); qy <= Math.min(height - 1, seedY + 1); qy++) {
+            for (int qx = Math.max(0, seedX - 1); qx <= Math.min(width - 1, seedX + 1); qx++) {
+                int q = qy * width + qx;
+                if (isSeed(coverage[q], !inside)) {
+                    min = Math.min(min, distanceToEdgeSq(x - qx, y - qy, segments, 4 * q));
+                }
+            }
+        }
+        return (float) Math.sqrt(min);
+    }
+
+    /**
+     * Calculates the endpoints (relative to the pixel's center) of the part of
+     * the pixel's edge line that is within the pixel. Considering only this
+     * segment instead of the whole line keeps the corners of the shape round.
+     */
+    private static void calcSegment(float gx, float gy, float edgeDist, float[] segments, int offset) {
+        float length = (float) Math.sqrt(gx * gx + gy * gy);
+        if (length == 0) {
+            segments[offset] = Float.NaN;
+            return;
+        }
+        float nx = gx / length;
+        float ny = gy / length;
+
+        // the edge points are at (nx, ny) * edgeDist + t * (-ny, nx)
+        float baseX = nx * edgeDist;
+        float baseY = ny * edgeDist;
+
+        // the range of t where the edge is inside the pixel
+        float minT = Float.NEGATIVE_INFINITY;
+        float maxT = Float.POSITIVE_INFINITY;
+        if (ny != 0) {
+            float t1 = (baseX - 0.5f) / ny;
+            float t2 = (baseX + 0.5f) / ny;
+            minT = Math.max(minT, Math.min(t1, t2));
+            maxT = Math.min(maxT, Math.max(t1, t2));
+        }
+        if (nx != 0) {
+            float t1 = (-0.5f - baseY) / nx;
+            float t2 = (0.5f - baseY) / nx;
+            minT = Math.max(minT, Math.min(t1, t2));
+            maxT = Math.min(maxT, Math.max(t1, t2));
+        }
+        if (minT > maxT) {
+            // the line misses the pixel
+            segments[offset] = Float.NaN;
+            return;
+        }
+        segments[offset] = baseX - minT * ny;
+        segments[offset + 1] = baseY + minT * nx;
+        segments[offset + 2] = baseX - maxT * ny;
+        segments[offset + 3] = baseY + maxT * nx;
+    }
+
+    /**
+     * The squared distance from a point (relative to a pixel's center)
+     * to the edge segment within the pixel.
+     */
+    private static float distanceToEdgeSq(int dx, int dy, float[] segments, int offset) {
+        float ax = segments[offset];
+        if (Float.isNaN(ax)) {
+            // the edge is unknown, fall back to the distance from the pixel's square
+            float ox = Math.max(Math.abs(dx) - 0.5f, 0);
+            float oy = Math.max(Math.abs(dy) - 0.5f, 0);
+            return ox * ox + oy * oy;
+        }
+        float ay = segments[offset + 1];
+        float abx = segments[offset + 2] - ax;
+        float aby = segments[offset + 3] - ay;
+        float px = dx - ax;
+        float py = dy - ay;
+        float len2 = abx * abx + aby * aby;
+        float t = len2 > 0 ? Math.clamp((px * abx + py * aby) / len2, 0.0f, 1.0f) : 0.0f;
+        float ex = px - t * abx;
+        float ey = py - t * aby;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * The signed distance from the center of a pixel with the given coverage
+     * to the straight edge crossing it with the given normal, positive if
+     * the center is outside (see "Anti-aliased Euclidean distance transform"
+     * by S. Gustavson and R. Strand).
+     */
+    private static float edgeDistance(float gx, float gy, float c) {
+        if (gx == 0 || gy == 0) {
+            // an axis-aligned (or unknown) edge direction
+            return 0.5f - c;
+        }
+        float length = (float) Math.sqrt(gx * gx + gy * gy);
+        gx = Math.abs(gx / length);
+        gy = Math.abs(gy / length);
+        if (gx < gy) {
+            float tmp = gx;
+            gx = gy;
+            gy = tmp;
+        }
+        float a1 = 0.5f * gy / gx;
+        if (c < a1) {
+            // the edge cuts off a small corner triangle
+            return 0.5f * (gx + gy) - (float) Math.sqrt(2.0f * gx * gy * c);
+        } else if (c < 1.0f - a1) {
+            return (0.5f - c) * gx;
+        } else {
+            return -0.5f * (gx + gy) + (float) Math.sqrt(2.0f * gx * gy * (1.0f - c));
+        }
+    }
+
+    // a Sobel derivative of the coverage in the given direction
+    private static float gradient(float[] coverage, int width, int height, int x, int y, int dirX, int dirY) {
+        float sum = 0;
+        for (int k = -1; k <= 1; k++) {
+            float weight = k == 0 ? 2.0f : 1.0f;
+            // the positions across the derivative's direction
+            int ax = x + k * dirY;
+            int ay = y + k * dirX;
+            sum += weight * (coverageAt(coverage, width, height, ax + dirX, ay + dirY)
+                - coverageAt(coverage, width, height, ax - dirX, ay - dirY));
+        }
+        return sum;
+    }
+
+    private static float coverageAt(float[] coverage, int width, int height, int x, int y) {
+        x = Math.clamp(x, 0, width - 1);
+        y = Math.clamp(y, 0, height - 1);
+        return coverage[y * width + x];
+    }
+
+    /**
+     * Renders an image covering the region, with the color of each
+     * pixel given by the profile (as premultiplied ARGB) of its signed
+     * distance. The profile is sampled only within the given extent,
+     * distances beyond it get the color at the extent.
+     */
+    BufferedImage render(DoubleToIntFunction profile, double extent) {
+        int numSamples = (int) Math.ceil(2 * extent * PROFILE_RESOLUTION) + 1;
+        int[] lut = new int[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            lut[i] = profile.applyAsInt(-extent + i / (double) PROFILE_RESOLUTION);
+        }
+
+        var img = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        int lastIndex = numSamples - 1;
+        for (int i = 0; i < pixels.length; i++) {
+            double pos = (distances[i] + extent) * PROFILE_RESOLUTION;
+            int index = pos >= lastIndex ? lastIndex : (int) Math.max(0, pos + 0.5);
+            pixels[i] = lut[index];
+        }
+        return img;
+    }
+
+    private static float[] rasterize(Shape shape, Rectangle region) {
+        var img = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.translate(-region.x, -region.y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        float[] coverage = new float[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            coverage[i] = (pixels[i] >>> 24) / 255.0f;
+        }
+        return coverage;
+    }
+
+    /**
+     * Finds for each pixel the index of the nearest seed pixel, where the seeds
+     * are the pixels at least partially covered (or not fully covered) by the
+     * shape. The index is NONE if there are no seeds.
+     */
+    private static int[] nearestSeeds(float[] coverage, int width, int height, boolean coveredSeeds) {
+        // first pass: the nearest seed row in each column
+        int[] seedRows = new int[width * height];
+        ThreadPool.runInChunks(width, MIN_ROWS_PER_TASK, (fromColumn, toColumn) -> {
+            for (int x = fromColumn; x < toColumn; x++) {
+                findSeedRows(coverage, width, height, coveredSeeds, seedRows, x);
+            }
+        });
+
+        // second pass: the lower envelope of the parabolas in each row
+        int[] nearest = new int[width * height];
+        ThreadPool.runInChunks(height, MIN_ROWS_PER_TASK, (fromRow, toRow) -> {
+            double[] f = new double[width];
+            int[] v = new int[width];
+            double[] z = new double[width + 1];
+            for (int y = fromRow; y < toRow; y++) {
+                findNearestInRow(seedRows, width, y, nearest, f, v, z);
+            }
+        });
+        return nearest;
+    }
+
+    private static void findSeedRows(float[] coverage, int width, int height,
+                                     boolean coveredSeeds, int[] seedRows, int x) {
+        int last = NONE;
+        for (int y = 0; y < height; y++) {
+            int i = y * width + x;
+            if (isSeed(coverage[i], coveredSeeds)) {
+                last = y;
+            }
+            seedRows[i] = last;
+        }
+        last = NONE;
+        for (int y = height - 1; y >= 0; y--) {
+            int i = y * width + x;
+            if (isSeed(coverage[i], coveredSeeds)) {
+                last = y;
+            }
+            int prev = seedRows[i];
+            if (last != NONE && (prev == NONE || last - y < y - prev)) {
+                seedRows[i] = last;
+            }
+        }
+    }
+
+    private static void findNearestInRow(int[] seedRows, int width, int y, int[] nearest,
+                                         double[] f, int[] v, double[] z) {
+        int rowStart = y * width;
+        int k = -1;
+        for (int q = 0; q < width; q++) {
+            int seedRow = seedRows[rowStart + q];
+            if (seedRow == NONE) {
+                continue;
+            }
+            double dy = seedRow - y;
+            f[q] = dy * dy;
+
+            double s = 0;
+            while (k >= 0) {
+                int p = v[k];
+                s = ((f[q] + q * q) - (f[p] + p * p)) / (2.0 * (q - p));
+                if (s > z[k]) {
+                    break;
+                }
+                k--;
+            }
+            k++;
+            v[k] = q;
+            z[k] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+
+        if (k < 0) {
+            // no seeds can be reached from this row
+            for (int x = 0; x < width; x++) {
+                nearest[rowStart + x] = NONE;
+            }
+            return;
+        }
+        int j = 0;
+        for (int x = 0; x < width; x++) {
+            while (z[j + 1] < x) {
+                j++;
+            }
+            int seedX = v[j];
+            nearest[rowStart + x] = seedRows[rowStart + seedX] * width + seedX;
+        }
+    }
+
+    private static boolean isSeed(float c, boolean coveredSeeds) {
+        return coveredSeeds ? c > 0.0f : c < 1.0f;
+    }
+}
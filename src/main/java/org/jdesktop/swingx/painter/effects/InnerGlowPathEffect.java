@@ -125,6 +125,11 @@ public class InnerGlowPathEffect extends AbstractAreaEffect {
     @Override
     protected void paintBorderGlow(Graphics2D g2,
                                    Shape clipShape, int width, int height) {
+        if (isDistanceFieldRendering()) {
+            paintDistanceField(g2, clipShape, AlphaComposite.DstOver);
+            return;
+        }
+
         g2.setPaint(getBrushColor());
 
         int steps = getBrushSteps();
@@ -26,6 +26,7 @@ import pixelitor.colors.Colors;
 import pixelitor.filters.gui.UserPreset;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.io.Serial;
 
 /**
@@ -93,26 +94,20 @@ public class NeonBorderEffect extends AbstractAreaEffect {
            gfx.draw(clipShape);
        }
         */
+        if (isDistanceFieldRendering()) {
+            Shape shape = AffineTransform.getTranslateInstance(getOffset().getX(), getOffset().getY())
+                .createTransformedShape(clipShape);
+            paintDistanceField(gfx, shape, AlphaComposite.SrcOver);
+            return;
+        }
+
         gfx.translate(getOffset().getX(), getOffset().getY());
         gfx.setComposite(AlphaComposite.SrcOver);
-        int steps = getEffectWidthInt();
-        if (borderPosition == BorderPosition.Centered) {
-            steps = steps / 2;
-        }
+        int steps = getNumSteps();
         for (int i = 0; i < steps; i++) {
             // make the brush width smaller each time until there is nothing left
             float brushWidth = steps + 1 - i;
-            float half = steps / 2.0f;
-
-            if (borderPosition == BorderPosition.Centered) {
-                gfx.setPaint(interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor()));
-            } else {
-                if (i < half) {
-                    gfx.setPaint(interpolateColor((half - i) / half, getEdgeColor(), getCenterColor()));
-                } else {
-                    gfx.setPaint(interpolateColor((i - half) / half, getEdgeColor(), getCenterColor()));
-                }
-            }
+            gfx.setPaint(getStepColor(i, steps));
 
             // to make the effect softer use a different stroke
             gfx.setStroke(new BasicStroke(brushWidth,
@@ -124,6 +119,54 @@ public class NeonBorderEffect extends AbstractAreaEffect {
 
     }
 
+    private int getNumSteps() {
+        int steps = getEffectWidthInt();
+        if (borderPosition == BorderPosition.Centered) {
+            steps = steps / 2;
+        }
+        return steps;
+    }
+
+    private Color getStepColor(int i, int steps) {
+        if (borderPosition == BorderPosition.Centered) {
+            return interpolateColor((float) (steps - i) / steps, getEdgeColor(), getCenterColor());
+        }
+        float half = steps / 2.0f;
+        if (i < half) {
+            return interpolateColor((half - i) / half, getEdgeColor(), getCenterColor());
+        } else {
+            return interpolateColor((i - half) / half, getEdgeColor(), getCenterColor());
+        }
+    }
+
+    @Override
+    protected double getDistanceFieldExtent() {
+        return (getNumSteps() + 1) / 2.0 + 1;
+    }
+
+    @Override
+    protected int calcDistanceFieldColor(double distance) {
+        // the strokes are painted from the widest to the narrowest,
+        // so they are accumulated with the "source over" rule
+        double a = 0, r = 0, g = 0, b = 0;
+        double absDistance = Math.abs(distance);
+        int steps = getNumSteps();
+        for (int i = 0; i < steps; i++) {
+            double coverage = strokeCoverage(steps + 1 - i, absDistance);
+            if (coverage == 0) {
+                continue;
+            }
+            Color color = getStepColor(i, steps);
+            double srcAlpha = coverage * color.getAlpha() / 255.0;
+            a = srcAlpha + a * (1 - srcAlpha);
+            r = color.getRed() * srcAlpha + r * (1 - srcAlpha);
+            g = color.getGreen() * srcAlpha + g * (1 - srcAlpha);
+            b = color.getBlue() * srcAlpha + b * (1 - srcAlpha);
+        }
+        return (int) (a * 255 + 0.5) << 24 | (int) (r + 0.5) << 16
+            | (int) (g + 0.5) << 8 | (int) (b + 0.5);
+    }
+
     private static Color interpolateColor(float t, Color start, Color end) {
         float[] partsS = start.getRGBComponents(null);
         float[] partsE = end.getRGBComponents(null);
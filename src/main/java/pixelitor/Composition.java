@@ -29,11 +29,13 @@ import pixelitor.io.FileFormat;
 import pixelitor.io.FileUtils;
 import pixelitor.io.IOTasks;
 import pixelitor.io.SaveSettings;
+import pixelitor.io.TiledImageSource;
 import pixelitor.layers.*;
 import pixelitor.menus.file.RecentFilesMenu;
 import pixelitor.selection.Selection;
 import pixelitor.selection.SelectionActions;
 import pixelitor.selection.ShapeCombinator;
+import pixelitor.tools.StrokeProcessor;
 import pixelitor.tools.Tools;
 import pixelitor.tools.move.MoveMode;
 import pixelitor.tools.pen.Path;
@@ -68,8 +70,8 @@ import static pixelitor.layers.LayerAdder.Position.ABOVE_ACTIVE;
 import static pixelitor.layers.LayerAdder.Position.BELOW_ACTIVE;
 import static pixelitor.utils.Threads.callInfo;
 import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.calledOutsideEDT;
 import static pixelitor.utils.Threads.onEDT;
-import static pixelitor.utils.Threads.onIOThread;
 import static pixelitor.utils.Utils.createCopyName;
 import static pixelitor.utils.debug.DebugNodes.createBufferedImageNode;
 
@@ -127,9 +129,20 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
     // whether the composition has been modified since the last save
     private transient boolean dirty = false;
 
+    // true for the subsampled preview of a large image, which is shown
+    // (but can't be edited) until the full-resolution image is decoded
+    private transient boolean preview = false;
+
+    // decodes the details of a preview that is too large to be fully loaded
+    private transient TiledImageSource tiledSource;
+
     // cached rendering of all visible layers combined
     private transient BufferedImage compositeImage;
 
+    // the region (in image space) of the cached composite image that
+    // is out of date, or null if the cached image is entirely up to date
+    private transient Rectangle staleRegion;
+
     // the View that shows this composition, if any
     private transient View view;
 
@@ -431,6 +444,37 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
         return dirty;
     }
 
+    public boolean isPreview() {
+        return preview;
+    }
+
+    public void setPreview(boolean preview) {
+        this.preview = preview;
+    }
+
+    public TiledImageSource getTiledSource() {
+        return tiledSource;
+    }
+
+    public void setTiledSource(TiledImageSource tiledSource) {
+        this.tiledSource = tiledSource;
+    }
+
+    /**
+     * Shows a status message and returns true if this composition
+     * is a preview, which can't be edited.
+     */
+    public boolean checkPreview() {
+        if (preview && tiledSource != null) {
+            Messages.showStatusMessage(String.format(
+                "<b>%s</b> is too large to be edited, but its selected regions can be opened.", name));
+        } else if (preview) {
+            Messages.showStatusMessage(String.format(
+                "<b>%s</b> can't be edited until it's fully loaded.", name));
+        }
+        return preview;
+    }
+
     /**
      * Returns true if this composition has unsaved changes that need to be saved.
      */
@@ -497,6 +541,9 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
         }
         removeAllLayerUIs();
         setView(null);
+        if (tiledSource != null) {
+            tiledSource.close();
+        }
     }
 
     /**
@@ -641,6 +688,9 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
     }
 
     public void addExternalImageAsNewLayer(BufferedImage image, String layerName, String editName) {
+        if (checkPreview()) {
+            return;
+        }
         Layer newLayer = ImageLayer.fromExternalImage(image, this, layerName);
         addWithHistory(newLayer, editName);
     }
@@ -1272,7 +1322,16 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
     }
 
     public void repaintRegion(PPoint start, PPoint end, double thickness) {
-        invalidateImageCache();
+        if (calledOutsideEDT()) {
+            // the brush strokes can be drawn on a separate thread
+            onEDT.execute(() -> repaintRegion(start, end, thickness));
+            return;
+        }
+        double minX = Math.min(start.getImX(), end.getImX()) - thickness;
+        double minY = Math.min(start.getImY(), end.getImY()) - thickness;
+        double maxX = Math.max(start.getImX(), end.getImX()) + thickness;
+        double maxY = Math.max(start.getImY(), end.getImY()) + thickness;
+        invalidateImageCache(new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY));
         if (view != null) { // it might not be opened during image reloading
             view.repaintRegion(start, end, thickness);
             view.repaintNavigator(false);
@@ -1280,7 +1339,12 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
     }
 
     public void repaintRegion(PRectangle area) {
-        invalidateImageCache();
+        if (calledOutsideEDT()) {
+            // the brush strokes can be drawn on a separate thread
+            onEDT.execute(() -> repaintRegion(area));
+            return;
+        }
+        invalidateImageCache(area.getIm());
         if (view != null) { // it might not be opened during image reloading
             view.repaintRegion(area);
             view.repaintNavigator(false);
@@ -1529,6 +1593,18 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
      * Returns the cached (canvas-sized) composite image, recalculating it if necessary.
      */
     public BufferedImage getCompositeImage() {
+        // the active brush stroke might be drawing into a layer
+        StrokeProcessor.syncWithActiveStroke();
+
+        if (staleRegion != null) {
+            BufferedImage updated = ImageUtils.recompositeRegion(layerList, compositeImage, staleRegion);
+            if (updated != null) {
+                compositeImage = updated;
+                staleRegion = null;
+            } else {
+                invalidateImageCache();
+            }
+        }
         if (compositeImage == null) {
             compositeImage = ImageUtils.calcComposite(layerList, canvas);
             assert compositeImage != null;
@@ -1556,6 +1632,35 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
             compositeImage.flush();
         }
         compositeImage = null;
+        staleRegion = null;
+    }
+
+    /**
+     * Marks the given image-space area of the cached composite image
+     * as out of date, so that only this area is re-rendered on the next
+     * call to {@link #getCompositeImage()}, if the layers allow it.
+     */
+    private void invalidateImageCache(Rectangle2D imArea) {
+        if (compositeImage == null) {
+            return; // it will be fully recalculated anyway
+        }
+
+        // expand to whole pixels, with a margin for antialiasing
+        int x = (int) Math.floor(imArea.getX()) - 1;
+        int y = (int) Math.floor(imArea.getY()) - 1;
+        int maxX = (int) Math.ceil(imArea.getMaxX()) + 1;
+        int maxY = (int) Math.ceil(imArea.getMaxY()) + 1;
+        Rectangle area = new Rectangle(x, y, maxX - x, maxY - y)
+            .intersection(canvas.getBounds());
+        if (area.isEmpty()) {
+            return;
+        }
+
+        if (staleRegion == null) {
+            staleRegion = area;
+        } else {
+            staleRegion.add(area);
+        }
     }
 
     @Override
@@ -1744,6 +1849,11 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
                                              boolean addToRecentFiles) {
         assert calledOnEDT() : callInfo();
 
+        if (checkPreview()) {
+            // saving the preview would lose the full resolution
+            return CompletableFuture.completedFuture(null);
+        }
+
         // prevent concurrent processing of the same file path
         File targetFile = saveSettings.file();
         String filePath = targetFile.getAbsolutePath();
@@ -1763,8 +1873,7 @@ public class Composition implements Serializable, ImageSource, LayerHolder {
         FileFormat.setLastSaved(format);
         Runnable saveTask = format.createSaveTask(this, saveSettings);
 
-        return CompletableFuture
-            .runAsync(saveTask, onIOThread)
+        return IOTasks.runAsync(targetFile, saveTask)
             .handleAsync((v, e) -> {
                 if (e != null) {
                     Messages.showException(e);
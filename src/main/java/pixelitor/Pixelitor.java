@@ -25,6 +25,7 @@ import pixelitor.gui.*;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.gui.utils.Theme;
 import pixelitor.gui.utils.Themes;
+import pixelitor.io.CommandLineWorkers;
 import pixelitor.io.FileIO;
 import pixelitor.io.IOTasks;
 import pixelitor.tools.util.MeasurementOverlay;
@@ -203,10 +204,20 @@ public class Pixelitor {
     private static CompletableFuture<Void> openCommandLineFilesAsync(String[] args) {
         List<CompletableFuture<Composition>> fileOpeningTasks = new ArrayList<>();
 
+        // the files are read in parallel, but they are
+        // added in the order of the command-line arguments
+        CompletableFuture<Composition> prevOpened = CompletableFuture.completedFuture(null);
+        boolean firstFound = false;
         for (String fileName : args) {
             File file = new File(fileName);
             if (file.exists()) {
-                fileOpeningTasks.add(FileIO.openFileAsync(file, false));
+                // the user is waiting for the first image to appear,
+                // so it's read before the waiting tasks of the others
+                var priority = firstFound ? IOTasks.Priority.NORMAL : IOTasks.Priority.VISIBLE;
+                firstFound = true;
+                // large images are shown with a preview first, like the files opened from the GUI
+                prevOpened = FileIO.openFileAsync(file, priority, prevOpened);
+                fileOpeningTasks.add(prevOpened);
             } else {
                 Messages.showError("File Not Found",
                     format("<html>Unable to locate file: <b>%s</b>", file.getAbsolutePath()));
@@ -278,6 +289,7 @@ public class Pixelitor {
     private static void exit(PixelitorWindow mainWindow) {
         mainWindow.setVisible(false);
         AppPreferences.savePreferences();
+        CommandLineWorkers.stopIdleWorkers();
         System.exit(0);
     }
 
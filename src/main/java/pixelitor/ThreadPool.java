@@ -24,6 +24,8 @@ import pixelitor.utils.ProgressTracker;
 import java.awt.image.BufferedImage;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 /**
  * A thread pool for parallel execution on multiple CPU cores
@@ -37,7 +39,7 @@ public class ThreadPool {
 
             @Override
             public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r, "ImageProcessor-" + threadCount.getAndIncrement());
+                Thread thread = new PoolThread(r, "ImageProcessor-" + threadCount.getAndIncrement());
                 thread.setDaemon(true);
                 return thread;
             }
@@ -115,7 +117,110 @@ public class ThreadPool {
         }
     }
 
+    /**
+     * Splits the index range [0, length) into about one chunk per core,
+     * processes the chunks in parallel, and waits for all of them to finish.
+     * Chunks are never smaller than the given minimum size, so small
+     * ranges are processed by fewer tasks.
+     */
+    public static void runInChunks(int length, int minChunkSize, RangeTask task) {
+        int numChunks = Math.max(1, Math.min(NUM_CORES, length / Math.max(1, minChunkSize)));
+        if (numChunks == 1 || isPoolThread()) {
+            // when called from a pool thread, waiting for other pool
+            // threads could deadlock, so the range is processed inline
+            task.process(0, length);
+            return;
+        }
+        int chunkSize = (length + numChunks - 1) / numChunks;
+
+        Future<?>[] futures = new Future[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            int from = i * chunkSize;
+            int to = Math.min(length, from + chunkSize);
+            futures[i] = pool.submit(() -> task.process(from, to));
+        }
+        waitFor(futures, ProgressTracker.NULL_TRACKER);
+    }
+
+    /**
+     * Runs the tasks with the indices [0, numTasks) in parallel, and waits
+     * for all of them to finish. The calling thread also runs tasks, and
+     * it waits only for the tasks that were already started by other
+     * threads, therefore, unlike runInChunks, this can also be called
+     * from pool threads without the risk of deadlocks.
+     */
+    public static void runIndexed(int numTasks, IntConsumer task) {
+        AtomicInteger nextTask = new AtomicInteger();
+        CountDownLatch allDone = new CountDownLatch(numTasks);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable taskRunner = () -> {
+            int index;
+            while ((index = nextTask.getAndIncrement()) < numTasks) {
+                try {
+                    task.accept(index);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    allDone.countDown();
+                }
+            }
+        };
+
+        int numHelpers = Math.min(NUM_CORES, numTasks) - 1;
+        for (int i = 0; i < numHelpers; i++) {
+            pool.execute(taskRunner);
+        }
+        taskRunner.run();
+
+        try {
+            allDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        // the task can throw only unchecked exceptions
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException re) {
+            throw re;
+        } else if (e != null) {
+            throw (Error) e;
+        }
+    }
+
     public static Executor getExecutor() {
         return pool;
     }
+
+    /**
+     * Returns true if the current thread belongs to this pool.
+     */
+    public static boolean isPoolThread() {
+        return Thread.currentThread() instanceof PoolThread;
+    }
+
+    private static class PoolThread extends Thread {
+        PoolThread(Runnable task, String name) {
+            super(task, name);
+        }
+    }
+
+    /**
+     * A task that processes a range of indices.
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+        /**
+         * Processes the indices from the given start (inclusive)
+         * to the given end (exclusive).
+         */
+        void process(int from, int to);
+    }
+
+    /**
+     * Returns the number of threads in the pool, which is useful
+     * for splitting a task into one chunk per core.
+     */
+    public static int getNumCores() {
+        return NUM_CORES;
+    }
 }
@@ -70,13 +70,13 @@ public class Views {
     private static final List<ViewActivationListener> activationListeners
         = new ArrayList<>();
 
-    public static final Action CLOSE_ALL_ACTION = new ViewEnabledAction(
+    public static final Action CLOSE_ALL_ACTION = ViewEnabledAction.readOnly(
         i18n("close_all"), comp -> warnAndCloseAll());
 
-    public static final Action CLOSE_ACTIVE_ACTION = new ViewEnabledAction(
+    public static final Action CLOSE_ACTIVE_ACTION = ViewEnabledAction.readOnly(
         i18n("close"), comp -> warnAndClose(comp.getView()));
 
-    public static final Action CLOSE_UNMODIFIED_ACTION = new ViewEnabledAction(
+    public static final Action CLOSE_UNMODIFIED_ACTION = ViewEnabledAction.readOnly(
         "Close Unmodified", comp -> warnAndCloseUnmodified());
 
     static {
@@ -28,12 +28,13 @@ import java.io.File;
 
 import static java.awt.BorderLayout.CENTER;
 import static java.awt.BorderLayout.EAST;
+import static java.awt.BorderLayout.SOUTH;
 import static java.awt.BorderLayout.WEST;
 import static pixelitor.gui.utils.BrowseFilesSupport.SelectionMode.DIRECTORY;
 
 /**
  * A panel that can be used to select a directory and optionally
- * specify an output format.
+ * specify an output format or other output options.
  */
 public class DirectoryChooser extends ValidatedPanel {
     private final BrowseFilesSupport directoryBrowser;
@@ -41,7 +42,8 @@ public class DirectoryChooser extends ValidatedPanel {
 
     private DirectoryChooser(String label, String defaultPath,
                              String chooserDialogTitle,
-                             FileFormat defaultOutputFormat) {
+                             FileFormat defaultOutputFormat,
+                             JComponent optionsPanel) {
         directoryBrowser = new BrowseFilesSupport(defaultPath, chooserDialogTitle, DIRECTORY);
         JTextField dirTF = directoryBrowser.getPathTextField();
         JButton browseButton = directoryBrowser.getBrowseButton();
@@ -61,6 +63,9 @@ public class DirectoryChooser extends ValidatedPanel {
             add(new JLabel(label), WEST);
             add(dirTF, CENTER);
             add(browseButton, EAST);
+            if (optionsPanel != null) {
+                add(optionsPanel, SOUTH);
+            }
         }
     }
 
@@ -97,7 +102,15 @@ public class DirectoryChooser extends ValidatedPanel {
     }
 
     public static boolean selectOutputDir() {
-        return selectOutputDir(null);
+        return selectOutputDir((FileFormat) null);
+    }
+
+    /**
+     * Lets the user select the output directory, while the given
+     * panel shows further output options below the directory.
+     */
+    public static boolean selectOutputDir(JComponent optionsPanel) {
+        return selectOutputDir(null, optionsPanel);
     }
 
     /**
@@ -105,9 +118,13 @@ public class DirectoryChooser extends ValidatedPanel {
      * Returns true if a selection was made, false if the operation was canceled.
      */
     public static boolean selectOutputDir(FileFormat defaultFormat) {
+        return selectOutputDir(defaultFormat, null);
+    }
+
+    private static boolean selectOutputDir(FileFormat defaultFormat, JComponent optionsPanel) {
         var chooserPanel = new DirectoryChooser("Output Folder:",
             Dirs.getLastSavePath(),
-            "Select Output Folder", defaultFormat);
+            "Select Output Folder", defaultFormat, optionsPanel);
 
         boolean[] selectionConfirmed = {false};
         new DialogBuilder()
@@ -222,6 +222,9 @@ public class Crop implements CompAction {
     }
 
     private static void selectionCrop(Composition comp) {
+        if (comp.checkPreview()) {
+            return;
+        }
         Selection sel = comp.getSelection();
         if (sel == null) {
             // the menu should be disabled
@@ -17,11 +17,14 @@
 
 package pixelitor.filters;
 
+import pixelitor.ThreadPool;
 import pixelitor.filters.gui.*;
 import pixelitor.filters.gui.IntChoiceParam.Item;
 import pixelitor.filters.gui.RangeParam.RangeParamState;
+import pixelitor.filters.util.DensityHistogram;
 import pixelitor.utils.BoundingBox;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.ProgressTracker;
 import pixelitor.utils.Shapes;
 import pixelitor.utils.StatusBarProgressTracker;
 
@@ -35,7 +38,9 @@ import java.io.Serial;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.JumpableGenerator;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
@@ -62,7 +67,19 @@ public class ChaosGame extends ParametrizedFilter {
     private static final int COLORS_LAST_BUT_ONE = 3;
     private static final int COLORS_LAST_BUT_TWO = 4;
 
+    private static final int PLOT_LAST_HIT = 1;
+    private static final int PLOT_DENSITY = 2;
+
     private static final int NUM_WORK_UNITS = 20;
+
+    // the number of independent walkers in density mode; fixed,
+    // so that the result doesn't depend on the number of cores
+    private static final int NUM_WALKERS = 20;
+
+    // the number of iterations without plotting, which ensures that
+    // the point moves from its random starting position into the fractal
+    private static final int NUM_WARMUP_ITERATIONS = 50;
+
     private static final int ARGB_WHITE = 0xFF_FF_FF_FF;
 
     private final RangeParam numVerticesParam = new RangeParam("Number of Vertices", 3, 3, 10);
@@ -75,6 +92,10 @@ public class ChaosGame extends ParametrizedFilter {
         new Item("Last but One", COLORS_LAST_BUT_ONE),
         new Item("Last but Two", COLORS_LAST_BUT_TWO),
     }, IGNORE_RANDOMIZE);
+    private final IntChoiceParam plotting = new IntChoiceParam("Plotting", new Item[]{
+        new Item("Last Hit", PLOT_LAST_HIT),
+        new Item("Density", PLOT_DENSITY),
+    }, IGNORE_RANDOMIZE);
     private final BooleanParam centerJump = new BooleanParam("Jump to Center");
     private final BooleanParam midpointJump = new BooleanParam("Jump to Midpoints");
     private final BooleanParam restrict = new BooleanParam("No Vertex Repetition");
@@ -88,6 +109,7 @@ public class ChaosGame extends ParametrizedFilter {
             fraction,
             iterations,
             colors,
+            plotting,
             centerJump,
             midpointJump,
             restrict,
@@ -140,8 +162,6 @@ public class ChaosGame extends ParametrizedFilter {
     @Override
     public BufferedImage transform(BufferedImage src, BufferedImage dest) {
         int numIterations = iterations.getValue() * 1_000_000;
-        int workUnit = numIterations / NUM_WORK_UNITS;
-        var pt = new StatusBarProgressTracker(NAME, NUM_WORK_UNITS);
 
         int numVertices = numVerticesParam.getValue();
         int colorsValue = colors.getValue();
@@ -151,56 +171,17 @@ public class ChaosGame extends ParametrizedFilter {
         RandomGenerator random = paramSet.getLastSeedOf("Xoroshiro128PlusPlus");
 
         List<Vertex> vertices = createVertices(numVertices, colorsValue, width, height);
+        Game game = new Game(vertices.toArray(EMPTY_ARRAY), restrict.isChecked(),
+            fraction.getPercentage(), colorsValue, width, height);
 
         int[] destPixels = ImageUtils.getPixels(dest);
-        Arrays.fill(destPixels, ARGB_WHITE); // fill the background with white
-
-        double jumpRatio = fraction.getPercentage();
-        double remainingRatio = 1 - jumpRatio;
-
-        // start at a random location
-        double currentX = random.nextInt(width);
-        double currentY = random.nextInt(height);
-
-        Vertex[] verticesArray = vertices.toArray(EMPTY_ARRAY);
-        int numPoints = vertices.size();
-        boolean restrictRepetition = restrict.isChecked();
-
-        // do 50 iterations without drawing any pixels to ensure that
-        // the point moves from its random starting position into the fractal
-        // (prevents stray pixels from appearing outside the main pattern)
-        Vertex previousVertex = null;
-        Vertex secondPreviousVertex = null;
-        for (int i = 0; i < 50; i++) {
-            Vertex vertex = pickNextVertex(random, verticesArray, numPoints, restrictRepetition, previousVertex);
-            currentX = currentX * jumpRatio + vertex.x * remainingRatio;
-            currentY = currentY * jumpRatio + vertex.y * remainingRatio;
-            secondPreviousVertex = previousVertex;
-            previousVertex = vertex;
-        }
-
-        int counter = 0;
-        for (int i = 0; i < numIterations; i++) {
-            Vertex vertex = pickNextVertex(random, verticesArray, numPoints, restrictRepetition, previousVertex);
-
-            // calculate the new point
-            currentX = currentX * jumpRatio + vertex.x * remainingRatio;
-            currentY = currentY * jumpRatio + vertex.y * remainingRatio;
-
-            // plot the pixel
-            int index = (int) currentX + width * (int) currentY;
-            destPixels[index] = switch (colorsValue) {
-                case COLORS_LAST_BUT_TWO -> secondPreviousVertex.color;
-                case COLORS_LAST_BUT_ONE -> previousVertex.color;
-                default -> vertex.color;
-            };
-            secondPreviousVertex = previousVertex;
-            previousVertex = vertex;
-
-            if (++counter == workUnit) {
-                counter = 0;
-                pt.unitDone();
-            }
+        if (plotting.getValue() == PLOT_DENSITY) {
+            plotDensity(game, (JumpableGenerator) random, numIterations, destPixels);
+        } else {
+            var pt = new StatusBarProgressTracker(NAME, NUM_WORK_UNITS);
+            Arrays.fill(destPixels, ARGB_WHITE); // fill the background with white
+            game.play(random, numIterations, (index, color) -> destPixels[index] = color, pt);
+            pt.finished();
         }
 
         // render the polygon outline and vertices on top of the generated fractal
@@ -208,10 +189,64 @@ public class ChaosGame extends ParametrizedFilter {
             drawPolygon(dest, vertices, numVertices, colorsValue != COLORS_BW);
         }
 
-        pt.finished();
         return dest;
     }
 
+    /**
+     * Plays the game with multiple independent walkers, each starting at its
+     * own random location and using its own non-overlapping random sequence.
+     * The walkers are distributed among the threads, each thread accumulating
+     * the hits into its own histogram, and the histograms are merged at the end.
+     * For large images the number of threads is limited by the memory
+     * needed by the histograms. The result doesn't depend on it.
+     */
+    private static void plotDensity(Game game, JumpableGenerator random,
+                                    int numIterations, int[] destPixels) {
+        RandomGenerator[] walkerRandoms = new RandomGenerator[NUM_WALKERS];
+        for (int i = 0; i < NUM_WALKERS; i++) {
+            walkerRandoms[i] = random.copyAndJump();
+        }
+        int walkerIterations = numIterations / NUM_WALKERS;
+
+        boolean trackColors = game.colorsValue() != COLORS_BW;
+        int maxThreads = ThreadPool.isPoolThread() ? 1 : Math.min(ThreadPool.getNumCores(), NUM_WALKERS);
+        int numThreads = DensityHistogram.calcMaxParallel(game.width(), game.height(), trackColors, maxThreads);
+        int numRounds = (NUM_WALKERS + numThreads - 1) / numThreads;
+        var pt = new StatusBarProgressTracker(NAME, numRounds);
+
+        DensityHistogram[] histograms = new DensityHistogram[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            histograms[i] = new DensityHistogram(game.width(), game.height(), trackColors);
+        }
+
+        // in each round, each thread runs one walker
+        for (int round = 0; round < numRounds; round++) {
+            int firstWalker = round * numThreads;
+            if (numThreads == 1) {
+                game.play(walkerRandoms[firstWalker], walkerIterations,
+                    histograms[0]::hit, ProgressTracker.NULL_TRACKER);
+            } else {
+                int roundSize = Math.min(numThreads, NUM_WALKERS - firstWalker);
+                Future<?>[] futures = new Future[roundSize];
+                for (int thread = 0; thread < roundSize; thread++) {
+                    DensityHistogram histogram = histograms[thread];
+                    RandomGenerator walkerRandom = walkerRandoms[firstWalker + thread];
+                    futures[thread] = ThreadPool.submit(() -> game.play(walkerRandom,
+                        walkerIterations, histogram::hit, ProgressTracker.NULL_TRACKER));
+                }
+                ThreadPool.waitFor(futures, ProgressTracker.NULL_TRACKER);
+            }
+            pt.unitDone();
+        }
+
+        DensityHistogram merged = histograms[0];
+        for (int i = 1; i < numThreads; i++) {
+            merged.merge(histograms[i]);
+        }
+        merged.render(destPixels, ARGB_WHITE);
+        pt.finished();
+    }
+
     /**
      * Picks the next random vertex, optionally applying the no-repetition rule.
      */
@@ -367,6 +402,71 @@ public class ChaosGame extends ParametrizedFilter {
         return false;
     }
 
+    /**
+     * Receives the pixels plotted by the game.
+     */
+    @FunctionalInterface
+    private interface HitSink {
+        void hit(int index, int color);
+    }
+
+    /**
+     * The rules of a game, shared by all walkers.
+     */
+    private record Game(Vertex[] vertices, boolean restrictRepetition,
+                        double jumpRatio, int colorsValue, int width, int height) {
+        /**
+         * Moves a point the given number of times, starting at a random location,
+         * and sends the pixel index and the color of each position to the sink.
+         */
+        void play(RandomGenerator random, int numIterations, HitSink sink, ProgressTracker pt) {
+            double remainingRatio = 1 - jumpRatio;
+            int numPoints = vertices.length;
+            int workUnit = numIterations / NUM_WORK_UNITS;
+
+            // start at a random location
+            double currentX = random.nextInt(width);
+            double currentY = random.nextInt(height);
+
+            // do some iterations without drawing any pixels to ensure that
+            // the point moves from its random starting position into the fractal
+            // (prevents stray pixels from appearing outside the main pattern)
+            Vertex previousVertex = null;
+            Vertex secondPreviousVertex = null;
+            for (int i = 0; i < NUM_WARMUP_ITERATIONS; i++) {
+                Vertex vertex = pickNextVertex(random, vertices, numPoints, restrictRepetition, previousVertex);
+                currentX = currentX * jumpRatio + vertex.x * remainingRatio;
+                currentY = currentY * jumpRatio + vertex.y * remainingRatio;
+                secondPreviousVertex = previousVertex;
+                previousVertex = vertex;
+            }
+
+            int counter = 0;
+            for (int i = 0; i < numIterations; i++) {
+                Vertex vertex = pickNextVertex(random, vertices, numPoints, restrictRepetition, previousVertex);
+
+                // calculate the new point
+                currentX = currentX * jumpRatio + vertex.x * remainingRatio;
+                currentY = currentY * jumpRatio + vertex.y * remainingRatio;
+
+                // plot the pixel
+                int index = (int) currentX + width * (int) currentY;
+                sink.hit(index, switch (colorsValue) {
+                    case COLORS_LAST_BUT_TWO -> secondPreviousVertex.color;
+                    case COLORS_LAST_BUT_ONE -> previousVertex.color;
+                    default -> vertex.color;
+                });
+                secondPreviousVertex = previousVertex;
+                previousVertex = vertex;
+
+                if (++counter == workUnit) {
+                    counter = 0;
+                    pt.unitDone();
+                }
+            }
+        }
+    }
+
     /**
      * An attractor point with double precision and an associated color.
      */
@@ -21,15 +21,13 @@ import com.jhlabs.image.ImageMath;
 import pixelitor.ThreadPool;
 import pixelitor.filters.gui.ColorParam;
 import pixelitor.filters.gui.RangeParam;
+import pixelitor.filters.util.NoiseFieldCache;
 import pixelitor.utils.ImageUtils;
-import pixelitor.utils.ProgressTracker;
-import pixelitor.utils.StatusBarProgressTracker;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
 import java.util.Random;
-import java.util.concurrent.Future;
 
 import static java.awt.Color.BLACK;
 import static java.awt.Color.WHITE;
@@ -45,7 +43,13 @@ public class Clouds extends ParametrizedFilter {
     @Serial
     private static final long serialVersionUID = 201867762435136383L;
 
+    private static final int MIN_PIXELS_PER_TASK = 16_384;
+
     private int[] p;
+    private long seed;
+
+    // the noise doesn't depend on the colors, so it is cached
+    private transient NoiseFieldCache noiseCache;
 
     private final RangeParam scaleParam = new RangeParam(ZOOM, 3, 100, 300);
     private final RangeParam roughnessParam = new RangeParam("Roughness (%)", 0, 50, 100);
@@ -68,85 +72,94 @@ public class Clouds extends ParametrizedFilter {
 
     @Override
     public BufferedImage transform(BufferedImage src, BufferedImage dest) {
-        var pt = new StatusBarProgressTracker(NAME, src.getHeight());
-
         if (p == null) {
             reseed(paramSet.getLastSeed());
         }
+        if (noiseCache == null) {
+            noiseCache = new NoiseFieldCache();
+        }
 
-        renderClouds(dest,
-            scaleParam.getValueAsFloat(),
-            (float) roughnessParam.getPercentage(),
-            color1.getColor(),
-            color2.getColor(),
-            pt);
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+        float scale = scaleParam.getValueAsFloat();
+        float roughness = (float) roughnessParam.getPercentage();
+
+        int[] permutations = p;
+        float[] noise = noiseCache.get(new NoiseKey(seed, scale, roughness, width, height),
+            width, height, NAME, (y, field, offset, rowWidth) ->
+                generateRow(permutations, scale, roughness, y, field, offset, rowWidth));
+
+        applyColors(noise, ImageUtils.getPixels(dest), color1.getColor(), color2.getColor());
 
-        pt.finished();
         return dest;
     }
 
-    private void renderClouds(BufferedImage dest,
-                              float scale, float roughness,
-                              Color c1, Color c2, ProgressTracker pt) {
-        int width = dest.getWidth();
-        int height = dest.getHeight();
-        int[] destPixels = ImageUtils.getPixels(dest);
+    /**
+     * The settings that determine the noise field.
+     */
+    private record NoiseKey(long seed, float scale, float roughness, int width, int height) {
+    }
+
+    private static void applyColors(float[] noise, int[] destPixels, Color c1, Color c2) {
         int[] c1Arr = {c1.getAlpha(), c1.getRed(), c1.getGreen(), c1.getBlue()};
         int[] c2Arr = {c2.getAlpha(), c2.getRed(), c2.getGreen(), c2.getBlue()};
 
-        Future<?>[] rowFutures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable rowTask = () -> processRow(scale, roughness, width, finalY, destPixels, c1Arr, c2Arr);
-            rowFutures[y] = ThreadPool.submit(rowTask);
-        }
-        ThreadPool.waitFor(rowFutures, pt);
+        ThreadPool.runInChunks(noise.length, MIN_PIXELS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                destPixels[i] = ImageUtils.lerpAndPremultiply(noise[i], c1Arr, c2Arr);
+            }
+        });
     }
 
-    private void processRow(float startingScale, float roughness,
-                            int width, int y, int[] destPixels,
-                            int[] color1, int[] color2) {
-        for (int x = 0; x < width; x++) {
-            float scale = startingScale;
-            float noiseValue = 0.0f;
-            float contribution = 1.0f;
-
-            for (int i = 0; i < 8 && contribution > 0.03f && scale > 0; i++) {
-                float scaledX = x / scale;
-                float scaledY = y / scale;
-                float n = perlinNoise2D(scaledX, scaledY);
-                noiseValue += contribution * n;
-                scale /= 2;
-                contribution *= roughness;
+    /**
+     * Calculates a row of the noise field, with values between 0 and 1.
+     * The octaves are added to the whole row one after the other,
+     * because the vertical part of the calculation is the same for the row.
+     */
+    private static void generateRow(int[] p, float startingScale, float roughness,
+                                    int y, float[] field, int offset, int width) {
+        float scale = startingScale;
+        float contribution = 1.0f;
+
+        for (int i = 0; i < 8 && contribution > 0.03f && scale > 0; i++) {
+            float scaledY = y / scale;
+            int gridY = ((int) scaledY) & 255;
+            float relY = scaledY - ((int) scaledY);
+            float v = ImageMath.smootherStep01(relY);
+
+            for (int x = 0; x < width; x++) {
+                float n = perlinNoise2D(p, x / scale, gridY, relY, v);
+                field[offset + x] += contribution * n;
             }
+            scale /= 2;
+            contribution *= roughness;
+        }
 
-            noiseValue = (1.0f + noiseValue) / 2.0f;
+        for (int x = 0; x < width; x++) {
+            float noiseValue = (1.0f + field[offset + x]) / 2.0f;
             if (noiseValue < 0.0f) {
                 noiseValue = 0.0f;
             } else if (noiseValue > 1.0f) {
                 noiseValue = 1.0f;
             }
-
-            destPixels[x + y * width] = ImageUtils.lerpAndPremultiply(
-                noiseValue, color1, color2);
+            field[offset + x] = noiseValue;
         }
     }
 
     /**
      * A 2D version of the algorithm from http://mrl.nyu.edu/~perlin/noise/
+     * The grid cell, the relative coordinate and the fade curve in the
+     * y direction are calculated by the caller, once for each row.
      */
-    private float perlinNoise2D(float x, float y) {
+    private static float perlinNoise2D(int[] p, float x, int gridY, float y, float v) {
         // find unit grid cell containing point + wrap the integer cells at 255
         int gridX = ((int) x) & 255;
-        int gridY = ((int) y) & 255;
 
         // get relative coordinates of point within cell
         x -= ((int) x);
-        y -= ((int) y);
 
-        // compute the fade curves for x and y
+        // compute the fade curve for x
         float u = ImageMath.smootherStep01(x);
-        float v = ImageMath.smootherStep01(y);
 
         // calculate hashed gradient indices
         int a = p[gridX] + gridY;
@@ -183,6 +196,7 @@ public class Clouds extends ParametrizedFilter {
      * between 1 and 256, in random order, and duplicate it
      */
     private void reseed(long newSeed) {
+        seed = newSeed;
         Random random = new Random(newSeed);
         p = new int[512];
         for (int i = 0; i < 256; i++) {
@@ -25,8 +25,10 @@ import pixelitor.filters.gui.*;
 import pixelitor.filters.gui.GroupedRangeParam.GroupedRangeParamState;
 import pixelitor.filters.gui.RangeParam.RangeParamState;
 import pixelitor.particles.Modifier;
-import pixelitor.particles.ParticleSystem;
+import pixelitor.particles.ParticleCanvas;
+import pixelitor.particles.ParticleEngine;
 import pixelitor.particles.SmoothPathParticle;
+import pixelitor.particles.VectorField;
 import pixelitor.tools.shapes.StrokeType;
 import pixelitor.utils.*;
 
@@ -34,14 +36,9 @@ import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import java.util.concurrent.Future;
-import java.util.function.Supplier;
 
 import static net.jafama.FastMath.abs;
-import static net.jafama.FastMath.ceilToInt;
 import static net.jafama.FastMath.cos;
 import static net.jafama.FastMath.exp;
 import static net.jafama.FastMath.min;
@@ -59,9 +56,8 @@ public class FlowField extends ParametrizedFilter {
 
     public static final String NAME = "Flow Field";
 
-    private static final boolean IS_MULTI_THREADED = true;
     private static final int PAD = 100;
-    private static final int PARTICLES_PER_GROUP = 100;
+    private static final int MIN_FIELD_COLUMNS_PER_TASK = 16;
     private static final float QUALITY = 0.8f;
     private static final float SMOOTHNESS = 1224.3649f;
     private static final float LIMITING_ITERATIONS = 100;
@@ -158,37 +154,37 @@ public class FlowField extends ParametrizedFilter {
     private enum ColorSource implements Modifier<FlowFieldParticle> {
         DEFAULT("Default", false) {
             @Override
-            Color getColor(FlowFieldParticle particle) {
+            int getColor(FlowFieldParticle particle) {
                 return particle.startingColor;
             }
         },
         SOURCE_IMAGE("Source Image", true) {
             @Override
             public void initializeColorField(FlowFieldMeta meta) {
-                fill(meta.fieldColors, meta.fieldWidth, meta.fieldHeight, (x, y) -> meta.goldenRatio
+                fillColorField(meta, (x, y) -> meta.goldenRatio
                     .next(colorFromSourceImage(x, y, meta.imgWidth, meta.sourcePixels, meta.fieldDensity)));
             }
 
             @Override
-            Color getColor(FlowFieldParticle particle) {
-                return particle.meta.fieldColors[particle.getFieldX()][particle.getFieldY()];
+            int getColor(FlowFieldParticle particle) {
+                return particle.meta.fieldColors[particle.getFieldIndex()];
             }
         },
         RGB("RGB", false) {
             @Override
-            Color getColor(FlowFieldParticle particle) {
+            int getColor(FlowFieldParticle particle) {
                 return rgbColorFromAcceleration(particle.delta, particle.startingColor);
             }
         },
         HSB_Cycle("HSB Cycle", false) {
             @Override
-            Color getColor(FlowFieldParticle particle) {
+            int getColor(FlowFieldParticle particle) {
                 return hsbColorFromAcceleration(particle.delta, particle.startingColor, 6);
             }
         },
         Warm("Warm", false) {
             @Override
-            Color getColor(FlowFieldParticle particle) {
+            int getColor(FlowFieldParticle particle) {
                 return hsbColorFromAcceleration(particle.delta, particle.startingColor, 400);
             }
         };
@@ -206,10 +202,11 @@ public class FlowField extends ParametrizedFilter {
 
         @Override
         public void modify(FlowFieldParticle particle) {
-            particle.color = getColor(particle);
+            particle.argb = getColor(particle);
         }
 
-        abstract Color getColor(FlowFieldParticle particle);
+        // returns the non-premultiplied ARGB color of the given particle
+        abstract int getColor(FlowFieldParticle particle);
 
         @Override
         public String toString() {
@@ -452,37 +449,25 @@ public class FlowField extends ParametrizedFilter {
         float variantPI = (float) Math.PI * variance;
         float startAngle = (float) (r.nextFloat() * 2 * Math.PI);
 
-        int groupCount = IS_MULTI_THREADED ? ceilToInt(particleCount / (double) PARTICLES_PER_GROUP) : 1;
-        var pt = new StatusBarProgressTracker(NAME, groupCount);
-
-        Graphics2D g2 = dest.createGraphics();
         boolean useColorField = colorRandomness != 0 || colorSource.requiresColorField();
         boolean randomizeWidth = widthRandomness != 0;
 
-        g2.setStroke(stroke);
-        Colors.fillWith(bgColor, g2, imgWidth, imgHeight);
-        g2.setColor(particleColor);
-        if (antialias) {
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        }
-        Graphics2D[] graphicsCopies = new Graphics2D[groupCount];
-        for (int i = 0; i < groupCount; i++) {
-            graphicsCopies[i] = (Graphics2D) g2.create();
-        }
-
-        Color[][] fieldColors = getIf(useColorField, () -> new Color[fieldWidth][fieldHeight]);
-        Stroke[] strokes = getIf(randomizeWidth, () -> new Stroke[100]);
-        Vector2D[][] fieldAccelerations = new Vector2D[fieldWidth][fieldHeight];
-        int[] sourcePixels = getIf(useColorField || inheritSpawnPoints, () -> ImageUtils.getPixels(src));
-
+        int[] fieldColors = useColorField ? new int[fieldWidth * fieldHeight] : null;
+        Stroke[] strokes;
         if (randomizeWidth) {
-            fill(strokes, strokes.length, () -> strokeParam.createStrokeWithRandomWidth(r, widthRandomness));
+            strokes = new Stroke[100];
+            for (int i = 0; i < strokes.length; i++) {
+                strokes[i] = strokeParam.createStrokeWithRandomWidth(r, widthRandomness);
+            }
+        } else {
+            strokes = new Stroke[]{stroke};
         }
+        int[] sourcePixels = useColorField || inheritSpawnPoints ? ImageUtils.getPixels(src) : null;
 
-        initializeAcceleration(multiplierNoise, multiplierSink, multiplierRevolve,
-            zoom, turbulence, fieldWidth, fieldHeight, noise, center, variantPI, startAngle, fieldAccelerations);
+        VectorField fieldAccelerations = initializeAcceleration(multiplierNoise, multiplierSink, multiplierRevolve,
+            zoom, turbulence, fieldWidth, fieldHeight, noise, center, variantPI, startAngle);
 
-        List<Point2D> spawns = null;
+        int[] spawns = null;
         if (inheritSpawnPoints) {
             spawns = initializeSpawnPoints(imgWidth, fieldDensity, sourcePixels);
         }
@@ -494,7 +479,7 @@ public class FlowField extends ParametrizedFilter {
 
         if (useColorField) {
             if (colorRandomness != 0) {
-                fill(fieldColors, fieldWidth, fieldHeight, goldenRatio::next);
+                fillColorField(meta, (x, y) -> goldenRatio.next());
             }
 
             if (colorSource.requiresColorField) {
@@ -502,28 +487,30 @@ public class FlowField extends ParametrizedFilter {
             }
         }
 
-        PositionRandomizer positionRandomizer = new PositionRandomizer(bounds.x, bounds.y, bounds.width, bounds.height, spawns, r);
-        ParticleInitializer particleInitializer = new ParticleInitializer(particleColor, useColorField, fieldColors);
-        ForceModeUpdater forceModeUpdater = new ForceModeUpdater(forceMode, fieldAccelerations);
+        PositionRandomizer positionRandomizer = new PositionRandomizer(bounds, spawns);
+        ParticleInitializer particleInitializer = new ParticleInitializer(particleColor.getRGB(), fieldColors);
+        ForceModeUpdater forceModeUpdater = new ForceModeUpdater(fieldAccelerations);
 
-        ParticleSystem<FlowFieldParticle> particleSystem = ParticleSystem.<FlowFieldParticle>createSystem(particleCount)
-            .setParticleCreator(() -> new FlowFieldParticle(graphicsCopies, randomizeWidth ? strokes[
-                r.nextInt(strokes.length)] : stroke, meta))
+        ParticleEngine<FlowFieldParticle> engine = new ParticleEngine<>(particleCount, r.nextLong(),
+            canvas -> new FlowFieldParticle(canvas, strokes, meta))
             .addModifier(positionRandomizer)
             .addModifier(particleInitializer)
             .addUpdater(forceModeUpdater)
-            .addUpdater(colorSource)
-            .build();
+            .addUpdater(colorSource);
 
-        Future<?>[] futures = particleSystem.iterate(iterationCount, groupCount);
-        ThreadPool.waitFor(futures, pt);
-        particleSystem.flush();
-        pt.finished();
-        for (Graphics2D copy : graphicsCopies) {
-            copy.dispose();
-        }
+        var pt = new StatusBarProgressTracker(NAME, engine.getNumWorkUnits());
+
+        Graphics2D g2 = dest.createGraphics();
+        Colors.fillWith(bgColor, g2, imgWidth, imgHeight);
         g2.dispose();
 
+        engine.render(dest, iterationCount, g -> {
+            if (antialias) {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            }
+        }, pt);
+        pt.finished();
+
         return dest;
     }
 
@@ -532,59 +519,60 @@ public class FlowField extends ParametrizedFilter {
         return false;
     }
 
-    private static void initializeAcceleration(float multiplierNoise, float multiplierSink, float multiplierRevolve, float zoom, int turbulence, int fieldWidth, int fieldHeight, OpenSimplex2F noise, Vector2D center, float variantPI, float startAngle, Vector2D[][] fieldAccelerations) {
-        Vector2D position = new Vector2D();
-        Vector2D noiseForce = new Vector2D();
-        Vector2D sinkForce = new Vector2D();
-        Vector2D revolutionForce = new Vector2D();
-
-        for (int i = 0; i < fieldWidth; i++) {
-            for (int j = 0; j < fieldHeight; j++) {
-                position.set(i, j);
-
-                createSinkForce(position, center, multiplierSink, sinkForce);
-                createRevolveForce(position, center, multiplierRevolve, revolutionForce);
-                createNoiseForce(multiplierNoise, startAngle, variantPI, position.x / zoom,
-                    position.y / zoom, 0, turbulence, noise, noiseForce);
-
-                fieldAccelerations[i][j] = Vector2D.add(revolutionForce, sinkForce, noiseForce);
+    private static VectorField initializeAcceleration(float multiplierNoise, float multiplierSink, float multiplierRevolve, float zoom, int turbulence, int fieldWidth, int fieldHeight, OpenSimplex2F noise, Vector2D center, float variantPI, float startAngle) {
+        VectorField fieldAccelerations = new VectorField(fieldWidth, fieldHeight);
+        ThreadPool.runInChunks(fieldWidth, MIN_FIELD_COLUMNS_PER_TASK, (from, to) -> {
+            Vector2D position = new Vector2D();
+            Vector2D noiseForce = new Vector2D();
+            Vector2D sinkForce = new Vector2D();
+            Vector2D revolutionForce = new Vector2D();
+
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < fieldHeight; j++) {
+                    position.set(i, j);
+
+                    createSinkForce(position, center, multiplierSink, sinkForce);
+                    createRevolveForce(position, center, multiplierRevolve, revolutionForce);
+                    createNoiseForce(multiplierNoise, startAngle, variantPI, position.x / zoom,
+                        position.y / zoom, 0, turbulence, noise, noiseForce);
+
+                    fieldAccelerations.set(i, j,
+                        revolutionForce.x + sinkForce.x + noiseForce.x,
+                        revolutionForce.y + sinkForce.y + noiseForce.y);
+                }
             }
-        }
+        });
+        return fieldAccelerations;
     }
 
-    private static List<Point2D> initializeSpawnPoints(int imgWidth, float fieldDensity, int[] sourcePixels) {
-        List<Point2D> spawns = new ArrayList<>();
+    // returns the field coordinates of the non-transparent source
+    // pixels, with the x and y coordinates stored alternately
+    private static int[] initializeSpawnPoints(int imgWidth, float fieldDensity, int[] sourcePixels) {
+        int count = 0;
+        for (int pixel : sourcePixels) {
+            if ((pixel & 0xFF_00_00_00) != 0) {
+                count++;
+            }
+        }
+        int[] spawns = new int[count * 2];
+        int k = 0;
         for (int i = 0; i < sourcePixels.length; i++) {
             if ((sourcePixels[i] & 0xFF_00_00_00) != 0) {
                 int y = i / imgWidth;
                 int x = i - y * imgWidth;
-                spawns.add(new Point((int) (x * fieldDensity), (int) (y * fieldDensity)));
+                spawns[k++] = (int) (x * fieldDensity);
+                spawns[k++] = (int) (y * fieldDensity);
             }
         }
         return spawns;
     }
 
-    private static <T> T getIf(boolean value, Supplier<T> supplier) {
-        if (value) {
-            return supplier.get();
-        }
-        return null;
-    }
-
-    public static <T> void fill(T[] array, int w, Supplier<T> value) {
-        for (int i = 0; i < w; i++) {
-            array[i] = value.get();
-        }
-    }
-
-    public static <T> void fill(T[][] array, int w, int h, Supplier<T> value) {
-        fill(array, w, h, (x, y) -> value.get());
-    }
-
-    public static <T> void fill(T[][] array, int w, int h, Coord2DFunction<T> value) {
-        for (int i = 0; i < w; i++) {
-            for (int j = 0; j < h; j++) {
-                array[i][j] = value.get(i, j);
+    private static void fillColorField(FlowFieldMeta meta, Coord2DFunction<Color> value) {
+        // filled column by column, because the colors are usually
+        // created by a stateful GoldenRatio generator
+        for (int i = 0; i <= meta.fieldWidth; i++) {
+            for (int j = 0; j <= meta.fieldHeight; j++) {
+                meta.fieldColors[meta.fieldIndex(i, j)] = value.get(i, j).getRGB();
             }
         }
     }
@@ -596,28 +584,36 @@ public class FlowField extends ParametrizedFilter {
         return new Color(sourcePixels[i], true);
     }
 
-    private static Color rgbColorFromAcceleration(Vector2D acc, Color particleColor) {
+    private static int rgbColorFromAcceleration(Vector2D acc, int particleColor) {
         double ra = sigmoidFit(acc.x) / 255, rb = sigmoidFit(acc.y) / 255;
-        return new Color(
-            (float) ra * particleColor.getRed(),
-            (float) rb * particleColor.getGreen(),
-            (float) ra * particleColor.getBlue(),
-            (float) particleColor.getAlpha() / 255.0f);
+        return toARGB(
+            (float) ra * ((particleColor >> 16) & 0xFF),
+            (float) rb * ((particleColor >> 8) & 0xFF),
+            (float) ra * (particleColor & 0xFF),
+            (particleColor >>> 24) / 255.0f);
     }
 
-    private static Color hsbColorFromAcceleration(Vector2D acc, Color particleColor, float dividend) {
+    private static int hsbColorFromAcceleration(Vector2D acc, int particleColor, float dividend) {
         int hsbColor = Color.HSBtoRGB((float) (acc.x + acc.y) / dividend, 0.8f, 1.0f);
         int r = (hsbColor >> 16) & 0xFF;
         int g = (hsbColor >> 8) & 0xFF;
         int b = hsbColor & 0xFF;
-        int a = particleColor.getAlpha();
-        return new Color(
-            r * particleColor.getRed() / 65025.0f,
-            g * particleColor.getGreen() / 65025.0f,
-            b * particleColor.getBlue() / 65025.0f,
+        int a = particleColor >>> 24;
+        return toARGB(
+            r * ((particleColor >> 16) & 0xFF) / 65025.0f,
+            g * ((particleColor >> 8) & 0xFF) / 65025.0f,
+            b * (particleColor & 0xFF) / 65025.0f,
             a / 255.0f);
     }
 
+    // packs float components the same way as the Color(float, float, float, float) constructor
+    private static int toARGB(float r, float g, float b, float a) {
+        return ((int) (a * 255 + 0.5)) << 24
+            | ((int) (r * 255 + 0.5)) << 16
+            | ((int) (g * 255 + 0.5)) << 8
+            | ((int) (b * 255 + 0.5));
+    }
+
     private static double sigmoidFit(double v) {
         return (1 + sigmoid(v)) / 2;
     }
@@ -630,63 +626,89 @@ public class FlowField extends ParametrizedFilter {
         T get(int x, int y);
     }
 
-    private static class PositionRandomizer implements Modifier<FlowFieldParticle> {
-        final Modifier<FlowFieldParticle> modifier;
-
-        public PositionRandomizer(int x, int y, int width, int height, List<Point2D> spawnPoints, Random random) {
-            if (spawnPoints == null || spawnPoints.isEmpty()) {
-                modifier = new RandomizePosition<>(x, y, width, height, random);
-            } else {
-                int size = spawnPoints.size();
-                modifier = particle -> particle.pos.setLocation(spawnPoints.get(random.nextInt(size)));
-            }
-        }
+    /**
+     * Sets the particle's position to a random location within
+     * the bounds or to a random spawn point, if there are any.
+     */
+    private record PositionRandomizer(Rectangle bounds, int[] spawnPoints)
+        implements Modifier<FlowFieldParticle> {
 
         @Override
         public void modify(FlowFieldParticle particle) {
-            modifier.modify(particle);
+            Random random = particle.random;
+            if (spawnPoints == null || spawnPoints.length == 0) {
+                particle.pos.setLocation(
+                    bounds.x + bounds.width * random.nextDouble(),
+                    bounds.y + bounds.height * random.nextDouble());
+            } else {
+                int i = 2 * random.nextInt(spawnPoints.length / 2);
+                particle.pos.setLocation(spawnPoints[i], spawnPoints[i + 1]);
+            }
         }
     }
 
-    private record ParticleInitializer(Color particleColor,
-                                       boolean randomizeColor,
-                                       Color[][] fieldColors) implements Modifier<FlowFieldParticle> {
+    private record ParticleInitializer(int particleColor,
+                                       int[] fieldColors) implements Modifier<FlowFieldParticle> {
 
         @Override
         public void modify(FlowFieldParticle particle) {
             particle.addPoint(particle.pos);
-            int fieldX = particle.getFieldX();
-            int fieldY = particle.getFieldY();
-            particle.startingColor = particle.color = randomizeColor ? fieldColors[fieldX][fieldY] : particleColor;
+            particle.startingColor = particle.argb = fieldColors != null
+                ? fieldColors[particle.getFieldIndex()]
+                : particleColor;
         }
     }
 
-    private record ForceModeUpdater(ForceMode forceMode,
-                                    Vector2D[][] fieldAccelerations) implements Modifier<FlowFieldParticle> {
+    private record ForceModeUpdater(VectorField fieldAccelerations) implements Modifier<FlowFieldParticle> {
         @Override
         public void modify(FlowFieldParticle particle) {
-            particle.delta.set(fieldAccelerations[particle.getFieldX()][particle.getFieldY()]);
+            fieldAccelerations.get(particle.getFieldX(), particle.getFieldY(), particle.delta);
         }
     }
 
+    /**
+     * A reusable particle object, which simulates the particles
+     * of a {@link ParticleEngine} lane one after the other.
+     */
     public static class FlowFieldParticle extends SmoothPathParticle {
         public final Vector2D delta = new Vector2D();
         public final Vector2D acc = new Vector2D();
-        public Color startingColor;
 
-        private final Stroke stroke;
+        // the colors are tracked as ARGB ints, and converted
+        // to a Color object only when the path is drawn
+        public int startingColor;
+        public int argb;
+
+        private final Stroke[] strokes;
+        private Stroke stroke;
         private final FlowFieldMeta meta;
 
-        public FlowFieldParticle(Graphics2D[] gc, Stroke stroke, FlowFieldMeta meta) {
-            super(gc);
+        // reused to avoid allocations in every update
+        private final Vector2D oldVel = new Vector2D();
+        private final Vector2D noiseDelta = new Vector2D();
+
+        public FlowFieldParticle(ParticleCanvas canvas, Stroke[] strokes, FlowFieldMeta meta) {
+            super(canvas);
             this.vel = new Vector2D();
             this.pos = new Point2D.Float();
             this.lastPos = new Point2D.Float();
 
-            this.stroke = stroke;
+            this.strokes = strokes;
+            this.stroke = strokes[0];
             this.meta = meta;
         }
 
+        @Override
+        public void startNew() {
+            super.startNew();
+            vel.set(0, 0);
+            acc.set(0, 0);
+            delta.set(0, 0);
+            if (strokes.length > 1) {
+                stroke = strokes[random.nextInt(strokes.length)];
+            }
+        }
+
         @Override
         public void addPoint(Point2D point) {
             lastPos.setLocation(point);
@@ -695,7 +717,8 @@ public class FlowField extends ParametrizedFilter {
 
         @Override
         public void flush() {
-            getGraphics().setStroke(stroke);
+            color = new Color(argb, true);
+            setStroke(stroke);
             super.flush();
         }
 
@@ -711,13 +734,12 @@ public class FlowField extends ParametrizedFilter {
 
         @Override
         public void update() {
-            Vector2D oldVel = new Vector2D(vel.x, vel.y);
+            oldVel.set(vel);
 
             if (meta.wind != 0) {
                 double sampleX = pos.getX() / meta.zoom;
                 double sampleY = pos.getY() / meta.zoom;
-                double sampleZ = meta.wind * iterationIndex;
-                Vector2D noiseDelta = new Vector2D();
+                double sampleZ = meta.wind * index;
                 createNoiseForce(meta.multiplierNoise, meta.startAngle, meta.variantPI,
                     sampleX, sampleY, sampleZ, meta.turbulence, meta.noise, noiseDelta);
                 delta.add(noiseDelta);
@@ -730,7 +752,7 @@ public class FlowField extends ParametrizedFilter {
             }
 
             if (positionChangedEnough()) {
-                addPoint(Geometry.copyPoint(pos));
+                addPoint(pos);
             }
         }
 
@@ -747,13 +769,25 @@ public class FlowField extends ParametrizedFilter {
         public int getFieldY() {
             return toRange(0, meta.fieldHeight, (int) pos.getY());
         }
+
+        public int getFieldIndex() {
+            return meta.fieldIndex(getFieldX(), getFieldY());
+        }
     }
 
+    /**
+     * The shared settings of a simulation. The field width and height
+     * are the largest valid field coordinates, and the field colors
+     * are stored row by row as ARGB ints.
+     */
     public record FlowFieldMeta(int fieldWidth, int fieldHeight, float fieldDensity, Rectangle bounds,
                                 double tolerance,
                                 float maximumVelocitySq, double wind, double zoom, int turbulence,
                                 OpenSimplex2F noise, float multiplierNoise, float startAngle, float variantPI,
                                 ForceMode forceMode, GoldenRatio goldenRatio,
-                                Color[][] fieldColors, int imgWidth, int[] sourcePixels) {
+                                int[] fieldColors, int imgWidth, int[] sourcePixels) {
+        public int fieldIndex(int x, int y) {
+            return y * (fieldWidth + 1) + x;
+        }
     }
 }
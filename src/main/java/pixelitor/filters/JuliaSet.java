@@ -71,27 +71,16 @@ public class JuliaSet extends ComplexFractal {
 }
 
 class JuliaSetImpl extends ComplexFractalImpl {
-    private double cx;
-    private double cy;
-
     protected JuliaSetImpl() {
-        super(JuliaSet.NAME, -2.0f, 2.0f, -1.2f, 1.2f);
-    }
-
-    @Override
-    public int processPixel(int x, int y, int rgb) {
-        double zx = cxStart + x * xMultiplier;
-        double zy = cyStart + y * yMultiplier;
-
-        return calcIteratedColor(zx, zy, cx, cy);
+        super(JuliaSet.NAME, false, -2.0f, 2.0f, -1.2f, 1.2f);
     }
 
     public void setCx(double cx) {
-        this.cx = cx;
+        this.fixedCx = cx;
     }
 
     public void setCy(double cy) {
-        this.cy = cy;
+        this.fixedCy = cy;
     }
 }
 
@@ -17,6 +17,7 @@
 
 package pixelitor.filters;
 
+import pixelitor.ThreadPool;
 import pixelitor.filters.gui.BooleanParam;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.RangeParam;
@@ -39,6 +40,9 @@ public class KMeans extends ParametrizedFilter {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    // the minimum number of pixels mapped by a single task
+    private static final int MIN_CHUNK_SIZE = 16_384;
+
     private final RangeParam k = new RangeParam(
         "Number of Colors", 2, 5, 10);
     private final RangeParam iterations = new RangeParam(
@@ -83,10 +87,47 @@ public class KMeans extends ParametrizedFilter {
         KMeansClustering kmeans = new KMeansClustering(k.getValue(), numIterations, random);
         int[] centroids = kmeans.cluster(srcPixels, kpp.isChecked(), pt);
 
-        int width = src.getWidth();
-        int length = destPixels.length;
+        if (dither) {
+            ditherToPalette(src.getWidth(), srcPixels, inputPixels, destPixels,
+                centroids, diffusionStrength, ditheringMethod);
+        } else {
+            mapToPalette(srcPixels, destPixels, centroids);
+        }
+
+        pt.unitDone();
+        pt.finished();
 
-        // map each pixel to the nearest color in the palette
+        return dest;
+    }
+
+    /**
+     * Maps each pixel to the nearest color in the palette,
+     * processing chunks of pixels in parallel.
+     */
+    private static void mapToPalette(int[] srcPixels, int[] destPixels, int[] centroids) {
+        ThreadPool.runInChunks(destPixels.length, MIN_CHUNK_SIZE, (from, to) -> {
+            // consecutive pixels often have the same color
+            int lastRGB = 0;
+            int lastOutRGB = centroids[KMeansClustering.findClosestCentroidIndex(0, centroids)];
+            for (int i = from; i < to; i++) {
+                int inRGB = srcPixels[i] & 0x00_FF_FF_FF;
+                if (inRGB != lastRGB) {
+                    lastRGB = inRGB;
+                    lastOutRGB = centroids[KMeansClustering.findClosestCentroidIndex(inRGB, centroids)];
+                }
+                // preserve the original alpha channel
+                destPixels[i] = (srcPixels[i] & 0xFF_00_00_00) | lastOutRGB;
+            }
+        });
+    }
+
+    /**
+     * Maps each pixel to the nearest color in the palette while
+     * diffusing the quantization error, which must be done sequentially.
+     */
+    private static void ditherToPalette(int width, int[] srcPixels, int[] inputPixels, int[] destPixels,
+                                        int[] centroids, double diffusionStrength, int ditheringMethod) {
+        int length = destPixels.length;
         for (int i = 0; i < length; i++) {
             int inRGB = inputPixels[i];
             // preserve the original alpha channel
@@ -96,32 +137,25 @@ public class KMeans extends ParametrizedFilter {
             int closestCentroidIndex = KMeansClustering.findClosestCentroidIndex(inRGB, centroids);
             int outRGB = centroids[closestCentroidIndex];
 
-            if (dither) {
-                // calculate the quantization error
-                int inR = (inRGB >>> 16) & 0xFF;
-                int inG = (inRGB >>> 8) & 0xFF;
-                int inB = inRGB & 0xFF;
+            // calculate the quantization error
+            int inR = (inRGB >>> 16) & 0xFF;
+            int inG = (inRGB >>> 8) & 0xFF;
+            int inB = inRGB & 0xFF;
 
-                int outR = (outRGB >>> 16) & 0xFF;
-                int outG = (outRGB >>> 8) & 0xFF;
-                int outB = outRGB & 0xFF;
+            int outR = (outRGB >>> 16) & 0xFF;
+            int outG = (outRGB >>> 8) & 0xFF;
+            int outB = outRGB & 0xFF;
 
-                double errorR = (inR - outR) * diffusionStrength;
-                double errorG = (inG - outG) * diffusionStrength;
-                double errorB = (inB - outB) * diffusionStrength;
+            double errorR = (inR - outR) * diffusionStrength;
+            double errorG = (inG - outG) * diffusionStrength;
+            double errorB = (inB - outB) * diffusionStrength;
 
-                // distribute the error to neighboring pixels
-                Dithering.ditherRGB(ditheringMethod, inputPixels, i, width, length, errorR, errorG, errorB);
-            }
+            // distribute the error to neighboring pixels
+            Dithering.ditherRGB(ditheringMethod, inputPixels, i, width, length, errorR, errorG, errorB);
 
             // combine the new RGB with the original alpha
             destPixels[i] = alpha | outRGB;
         }
-
-        pt.unitDone();
-        pt.finished();
-
-        return dest;
     }
 
     @Override
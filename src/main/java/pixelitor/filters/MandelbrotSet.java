@@ -59,26 +59,15 @@ public class MandelbrotSet extends ComplexFractal {
 
 class MandelbrotSetImpl extends ComplexFractalImpl {
     protected MandelbrotSetImpl() {
-        super(MandelbrotSet.NAME, -2.2f, 0.7f, -1.2f, 1.2f);
+        super(MandelbrotSet.NAME, true, -2.2f, 0.7f, -1.2f, 1.2f);
     }
 
     @Override
-    public int processPixel(int x, int y, int rgb) {
-        // start with the complex number (0, 0)
-        double zx = 0;
-        double zy = 0;
-
-        // the complex constant c, mapped from image coordinates
-        double cx = cxStart + x * xMultiplier;
-        double cy = cyStart + y * yMultiplier;
-
-        // before going into the escape time algorithm,
-        // first two possible shortcuts:
-
+    protected boolean isKnownInterior(double cx, double cy) {
         // 1. check if the point is in the period-2 bulb
         if (cx < -0.75 && cx > -1.25 && cy < 0.28 && cy > -0.28) { // approx. check
             if ((cx + 1) * (cx + 1) + cy * cy < 1 / 16.0) { // exact check
-                return colors[0];
+                return true;
             }
         }
 
@@ -87,12 +76,9 @@ class MandelbrotSetImpl extends ComplexFractalImpl {
             double cm = cx - 1 / 4.0;
             double cy2 = cy * cy;
             double q = cm * cm + cy2;
-            if (q * (q + cm) < cy2 / 4.0) { // exact check
-                return colors[0];
-            }
+            return q * (q + cm) < cy2 / 4.0; // exact check
         }
-
-        return calcIteratedColor(zx, zy, cx, cy);
+        return false;
     }
 }
 
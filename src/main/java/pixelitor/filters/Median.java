@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import pixelitor.filters.gui.Help;
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.filters.impl.RankFilter;
+import pixelitor.gui.GUIText;
+
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+
+/**
+ * Median filter with an arbitrary radius, which can also
+ * calculate other percentiles, such as the minimum or maximum.
+ */
+public class Median extends ParametrizedFilter {
+    public static final String NAME = "Median";
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 2, 100);
+    private final RangeParam percentile = new RangeParam("Percentile (%)", 0, 50, 100);
+
+    private RankFilter filter;
+
+    public Median() {
+        super(true);
+
+        help = Help.fromWikiURL("https://en.wikipedia.org/wiki/Median_filter");
+
+        initParams(radius, percentile);
+    }
+
+    @Override
+    public BufferedImage transform(BufferedImage src, BufferedImage dest) {
+        if (filter == null) {
+            filter = new RankFilter(NAME);
+        }
+
+        filter.setRadius(radius.getValue());
+        filter.setPercentile(percentile.getPercentage());
+
+        return filter.filter(src, dest);
+    }
+}
@@ -53,7 +53,7 @@ public class Morphology extends ParametrizedFilter {
         new Item("YCbCr/Y", MorphologyFilter.CHANNEL_YCBCR),
         new Item("HSV/V", MorphologyFilter.CHANNEL_HSV),
     });
-    private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 1, 21);
+    private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 1, 100);
     private final IntChoiceParam kernel = new IntChoiceParam("Kernel Shape", new Item[]{
         new Item("Diamond", MorphologyFilter.KERNEL_DIAMOND),
         new Item("Square", MorphologyFilter.KERNEL_SQUARE),
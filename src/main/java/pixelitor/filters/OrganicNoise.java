@@ -17,13 +17,15 @@
 
 package pixelitor.filters;
 
-import com.jhlabs.image.PointFilter;
 import pd.fastnoise.FastNoiseLite;
 import pd.fastnoise.FastNoiseLite.*;
+import pixelitor.ThreadPool;
 import pixelitor.filters.gui.AngleParam;
 import pixelitor.filters.gui.CompositeParam;
 import pixelitor.filters.gui.EnumParam;
 import pixelitor.filters.gui.RangeParam;
+import pixelitor.filters.util.NoiseFieldCache;
+import pixelitor.utils.ImageUtils;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
@@ -34,6 +36,8 @@ import static pixelitor.gui.GUIText.ZOOM;
 public class OrganicNoise extends ParametrizedFilter {
     public static final String NAME = "Organic Noise";
 
+    private static final int MIN_PIXELS_PER_TASK = 16_384;
+
     private final EnumParam<NoiseType> type
         = new EnumParam<>("Noise Type", NoiseType.class);
 
@@ -73,6 +77,10 @@ public class OrganicNoise extends ParametrizedFilter {
 
     private Impl impl;
 
+    // the noise field is cached, so that re-applying
+    // the same settings doesn't recalculate it
+    private transient NoiseFieldCache noiseCache;
+
     public OrganicNoise() {
         super(false);
 
@@ -123,38 +131,92 @@ public class OrganicNoise extends ParametrizedFilter {
         if (impl == null) {
             impl = new Impl();
         }
-
-        impl.setCenter(src.getWidth() / 2.0f, src.getHeight() / 2.0f);
-        impl.setScale((float) zoom.getPercentage());
-        impl.setAngle(angle.getValueInRadians());
-//        impl.setColors(colors.getColor(0), colors.getColor(1));
-        impl.setNoiseType(type.getSelected());
-        impl.setFractalType(fractalType.getSelected());
-        impl.setOctaves(octaves.getValue());
-        impl.setFractalLacunarity((float) lacunarity.getPercentage());
-        impl.setFractalGain((float) gain.getPercentage());
-        impl.setFractalWeightedStrength((float) weightedStrength.getPercentage());
-        impl.setFractalPingPongStrength((float) pingPongStrength.getPercentage());
-
-        impl.setCellularDistanceFunction(cdf.getSelected());
-        impl.setCellularJitter((float) cellularJitter.getPercentage());
-        impl.setCellularReturnType(cellularReturnType.getSelected());
-
-        boolean doDomainWarp = domainWarpType.getSelected() != DomainWarpType.None;
-        impl.setDomainWarp(doDomainWarp);
-        if (doDomainWarp) {
-            impl.setDomainWarpType(domainWarpType.getSelected());
-            impl.setDomainWarpAmp(domainWarpAmp.getValueAsFloat());
-            impl.setDomainWarpFractalType(domainWarpFractalType.getSelected());
+        if (noiseCache == null) {
+            noiseCache = new NoiseFieldCache();
         }
 
-        return impl.filter(src, dest);
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+        var key = new NoiseKey(type.getSelected(),
+            fractalType.getSelected(), octaves.getValue(),
+            (float) lacunarity.getPercentage(), (float) gain.getPercentage(),
+            (float) weightedStrength.getPercentage(), (float) pingPongStrength.getPercentage(),
+            cdf.getSelected(), (float) cellularJitter.getPercentage(), cellularReturnType.getSelected(),
+            (float) zoom.getPercentage(), angle.getValueInRadians(),
+            domainWarpType.getSelected(), domainWarpAmp.getValueAsFloat(), domainWarpFractalType.getSelected(),
+            width, height);
+        key.configure(impl);
+
+        float[] noise = noiseCache.get(key, width, height, NAME, (y, field, offset, rowWidth) -> {
+            for (int x = 0; x < rowWidth; x++) {
+                field[offset + x] = impl.noiseAt(x, y);
+            }
+        });
+
+        int[] destPixels = ImageUtils.getPixels(dest);
+        ThreadPool.runInChunks(noise.length, MIN_PIXELS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                // GetNoise should return floats between -1 and 1, but has errors
+                int v = (int) (127.5 * (noise[i] + 1.0f));
+                if (v < 0) {
+                    v = 0;
+                }
+                if (v > 255) {
+                    v = 255;
+                }
+                destPixels[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        });
+
+        return dest;
+    }
+
+    /**
+     * The settings that determine the noise field. The seed isn't
+     * included, because the cache is invalidated when it changes.
+     */
+    private record NoiseKey(NoiseType type,
+                            FractalType fractalType, int octaves,
+                            float lacunarity, float gain,
+                            float weightedStrength, float pingPongStrength,
+                            CellularDistanceFunction cdf, float cellularJitter, CellularReturnType cellularReturnType,
+                            float scale, double angle,
+                            DomainWarpType domainWarpType, float domainWarpAmp, DomainWarpFractalType domainWarpFractalType,
+                            int width, int height) {
+        // configures the noise generator according to this key
+        void configure(Impl impl) {
+            impl.setCenter(width / 2.0f, height / 2.0f);
+            impl.setScale(scale);
+            impl.setAngle(angle);
+            impl.setNoiseType(type);
+            impl.setFractalType(fractalType);
+            impl.setOctaves(octaves);
+            impl.setFractalLacunarity(lacunarity);
+            impl.setFractalGain(gain);
+            impl.setFractalWeightedStrength(weightedStrength);
+            impl.setFractalPingPongStrength(pingPongStrength);
+
+            impl.setCellularDistanceFunction(cdf);
+            impl.setCellularJitter(cellularJitter);
+            impl.setCellularReturnType(cellularReturnType);
+
+            boolean doDomainWarp = domainWarpType != DomainWarpType.None;
+            impl.setDomainWarp(doDomainWarp);
+            if (doDomainWarp) {
+                impl.setDomainWarpType(domainWarpType);
+                impl.setDomainWarpAmp(domainWarpAmp);
+                impl.setDomainWarpFractalType(domainWarpFractalType);
+            }
+        }
     }
 
     private void setSeed(long seed) {
         if (impl != null) {
             impl.setSeed(seed);
         }
+        if (noiseCache != null) {
+            noiseCache.invalidate();
+        }
     }
 
     @Override
@@ -168,7 +230,7 @@ public class OrganicNoise extends ParametrizedFilter {
     }
 }
 
-class Impl extends PointFilter {
+class Impl {
     private final FastNoiseLite fastNoise;
     private boolean domainWarp;
     private float scale;
@@ -180,12 +242,14 @@ class Impl extends PointFilter {
     private double sin;
 
     protected Impl() {
-        super(OrganicNoise.NAME);
         fastNoise = new FastNoiseLite();
     }
 
-    @Override
-    public int processPixel(int x, int y, int rgb) {
+    /**
+     * Returns the noise value at the given pixel,
+     * which should be (approximately) between -1 and 1.
+     */
+    public float noiseAt(int x, int y) {
         double sampleX = (x - cx) / scale;
         double sampleY = (y - cy) / scale;
 
@@ -203,16 +267,7 @@ class Impl extends PointFilter {
             sampleY = vec.y;
         }
 
-        // GetNoise should return floats between -1 and 1, but has errors
-        float noise = fastNoise.GetNoise(sampleX, sampleY);
-        int v = (int) (127.5 * (noise + 1.0f));
-        if (v < 0) {
-            v = 0;
-        }
-        if (v > 255) {
-            v = 255;
-        }
-        return 0xFF000000 | (v << 16) | (v << 8) | v;
+        return fastNoise.GetNoise(sampleX, sampleY);
     }
 
     public void setNoiseType(NoiseType type) {
@@ -285,8 +340,8 @@ class Impl extends PointFilter {
     }
 
     public void setAngle(double angle) {
-        if (angle != 0) {
-            rotate = true;
+        rotate = angle != 0;
+        if (rotate) {
             cos = Math.cos(angle);
             sin = Math.sin(angle);
         }
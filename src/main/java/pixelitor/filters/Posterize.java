@@ -21,6 +21,7 @@ import pixelitor.filters.gui.EnumParam;
 import pixelitor.filters.gui.GroupedRangeParam;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.RangeParam;
+import pixelitor.filters.lookup.LookupFilter;
 import pixelitor.filters.lookup.RGBLookup;
 import pixelitor.filters.util.ColorSpace;
 import pixelitor.gui.GUIText;
@@ -37,7 +38,7 @@ import static pixelitor.utils.Texts.i18n;
 /**
  * The "Posterize" filter.
  */
-public class Posterize extends ParametrizedFilter {
+public class Posterize extends ParametrizedFilter implements LookupFilter {
     public static final String NAME = i18n("posterize");
 
     @Serial
@@ -114,6 +115,15 @@ public class Posterize extends ParametrizedFilter {
         return dest;
     }
 
+    @Override
+    public RGBLookup getRGBLookup() {
+        if (colorSpace.getSelected() != ColorSpace.SRGB || ditheringAmountParam.isNotZero()) {
+            return null;
+        }
+        return RGBLookup.createForPosterize(
+            levels1.getValue(), levels2.getValue(), levels3.getValue());
+    }
+
     private BufferedImage posterizeOklab(BufferedImage src, BufferedImage dest) {
         int aLevels = levels1.getValue();
         int bLevels = levels2.getValue();
@@ -20,15 +20,14 @@ package pixelitor.filters;
 import com.jhlabs.image.ImageMath;
 import pixelitor.ThreadPool;
 import pixelitor.filters.gui.*;
+import pixelitor.filters.util.NoiseFieldCache;
 import pixelitor.filters.util.NoiseInterpolation;
 import pixelitor.utils.ImageUtils;
-import pixelitor.utils.StatusBarProgressTracker;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
 import java.util.Random;
-import java.util.concurrent.Future;
 
 import static java.awt.Color.BLACK;
 import static java.awt.Color.WHITE;
@@ -44,17 +43,14 @@ public class ValueNoise extends ParametrizedFilter {
     @Serial
     private static final long serialVersionUID = -8523545931426941979L;
 
+    private static final int MIN_PIXELS_PER_TASK = 16_384;
+
     private final Random rand = new Random();
+    private long seed;
     private int r1;
     private int r2;
     private int r3;
 
-    private float cx;
-    private float cy;
-    private boolean rotate;
-    private double cos;
-    private double sin;
-
     private final RangeParam scale = new RangeParam(ZOOM, 5, 100, 300);
     private final AngleParam angleParam = new AngleParam("Rotate", 0);
 
@@ -67,6 +63,9 @@ public class ValueNoise extends ParametrizedFilter {
     private final ColorParam color1 = new ColorParam("Color 1", BLACK, MANUAL_ALPHA_ONLY);
     private final ColorParam color2 = new ColorParam("Color 2", WHITE, MANUAL_ALPHA_ONLY);
 
+    // the noise doesn't depend on the colors, so it is cached
+    private transient NoiseFieldCache noiseCache;
+
     public ValueNoise() {
         super(false);
 
@@ -99,45 +98,47 @@ public class ValueNoise extends ParametrizedFilter {
                 i / 255.0f, colorArray1, colorArray2);
         }
 
-        int[] destPixels = ImageUtils.getPixels(dest);
         int width = dest.getWidth();
         int height = dest.getHeight();
-        cx = width / 2.0f;
-        cy = height / 2.0f;
-
         double angle = angleParam.getValueInRadians();
-        rotate = angle != 0;
-        if (rotate) {
-            cos = Math.cos(angle);
-            sin = Math.sin(angle);
-        }
-
         float frequency = 1.0f / scale.getValueAsFloat();
         float persistence = (float) persistenceParam.getPercentage();
-
-        var pt = new StatusBarProgressTracker(NAME, height);
+        int octaves = details.getValue();
         NoiseInterpolation interp = interpolation.getSelected();
 
-        Future<?>[] rowFutures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable rowTask = () -> processRow(lookupTable, destPixels,
-                width, frequency, persistence, finalY, interp);
-            rowFutures[y] = ThreadPool.submit(rowTask);
+        if (noiseCache == null) {
+            noiseCache = new NoiseFieldCache();
         }
-        ThreadPool.waitFor(rowFutures, pt);
+        var key = new NoiseKey(seed, angle, frequency, persistence, octaves, interp, width, height);
+        float[] noise = noiseCache.get(key, width, height, NAME, (y, field, offset, rowWidth) ->
+            generateRow(key, y, field, offset));
 
-        pt.finished();
+        int[] destPixels = ImageUtils.getPixels(dest);
+        ThreadPool.runInChunks(noise.length, MIN_PIXELS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                destPixels[i] = lookupTable[(int) (255 * noise[i])];
+            }
+        });
 
         return dest;
     }
 
-    private void processRow(int[] lookupTable, int[] destPixels,
-                            int width, float frequency, float persistence,
-                            int y, NoiseInterpolation interp) {
+    /**
+     * The settings that determine the noise field.
+     */
+    private record NoiseKey(long seed, double angle, float frequency, float persistence,
+                            int octaves, NoiseInterpolation interp, int width, int height) {
+    }
+
+    private void generateRow(NoiseKey key, int y, float[] field, int offset) {
+        float cx = key.width / 2.0f;
+        float cy = key.height / 2.0f;
+        boolean rotate = key.angle != 0;
+        double cos = Math.cos(key.angle);
+        double sin = Math.sin(key.angle);
+
         float outerY = y - cy;
-        for (int x = 0; x < width; x++) {
-            int octaves = details.getValue();
+        for (int x = 0; x < key.width; x++) {
             float sampleX = x - cx;
             float sampleY = outerY; // must be reset, because rotation modifies it
 
@@ -148,11 +149,8 @@ public class ValueNoise extends ParametrizedFilter {
                 sampleY = (float) newY;
             }
 
-            int noise = (int) (255 * generateValueNoise(sampleX, sampleY,
-                octaves, frequency, persistence, interp));
-
-            int value = lookupTable[noise];
-            destPixels[x + y * width] = value;
+            field[offset + x] = generateValueNoise(sampleX, sampleY,
+                key.octaves, key.frequency, key.persistence, key.interp);
         }
     }
 
@@ -198,6 +196,7 @@ public class ValueNoise extends ParametrizedFilter {
     }
 
     private void reseed(long newSeed) {
+        seed = newSeed;
         rand.setSeed(newSeed);
         r1 = 1000 + rand.nextInt(90000);
         r2 = 10000 + rand.nextInt(900000);
@@ -18,9 +18,12 @@
 package pixelitor.filters.curves;
 
 import com.jhlabs.image.CurvesFilter;
+import com.jhlabs.image.ImageMath;
 import pixelitor.filters.gui.FilterWithGUI;
 import pixelitor.filters.gui.Help;
 import pixelitor.filters.gui.UserPreset;
+import pixelitor.filters.lookup.LookupFilter;
+import pixelitor.filters.lookup.RGBLookup;
 import pixelitor.filters.util.Channel;
 import pixelitor.filters.util.ColorSpace;
 import pixelitor.layers.Filterable;
@@ -35,7 +38,7 @@ import static pixelitor.utils.Texts.i18n;
  *
  * @author Łukasz Kurzaj lukaszkurzaj@gmail.com
  */
-public class ToneCurvesFilter extends FilterWithGUI {
+public class ToneCurvesFilter extends FilterWithGUI implements LookupFilter {
     public static final String NAME = i18n("curves");
 
     @Serial
@@ -86,6 +89,29 @@ public class ToneCurvesFilter extends FilterWithGUI {
         return filter.filter(src, dest);
     }
 
+    @Override
+    public RGBLookup getRGBLookup() {
+        if (curves.getColorSpace() != ColorSpace.SRGB) {
+            return null;
+        }
+        // same as the tables calculated by CurvesFilter: the
+        // master curve is applied first, then the channel curves
+        int[] rgb = curves.getCurve(ColorSpace.SRGB, Channel.RGB).curveData.makeTable();
+        int[] r = curves.getCurve(ColorSpace.SRGB, Channel.RED).curveData.makeTable();
+        int[] g = curves.getCurve(ColorSpace.SRGB, Channel.GREEN).curveData.makeTable();
+        int[] b = curves.getCurve(ColorSpace.SRGB, Channel.BLUE).curveData.makeTable();
+
+        int[] rTable = new int[256];
+        int[] gTable = new int[256];
+        int[] bTable = new int[256];
+        for (int x = 0; x < 256; x++) {
+            rTable[x] = ImageMath.clamp(r[rgb[x]], 0, 255);
+            gTable[x] = ImageMath.clamp(g[rgb[x]], 0, 255);
+            bTable[x] = ImageMath.clamp(b[rgb[x]], 0, 255);
+        }
+        return RGBLookup.fromIntTables(rTable, gTable, bTable);
+    }
+
     private BufferedImage transformOklab(BufferedImage src, BufferedImage dest) {
         OklabCurvesFilter oklabFilter = new OklabCurvesFilter(
             curves.getCurve(ColorSpace.OKLAB, Channel.OK_L).curveData,
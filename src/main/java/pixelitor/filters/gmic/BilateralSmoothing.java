@@ -50,4 +50,10 @@ public class BilateralSmoothing extends GMICFilter {
                 iterations.getValue() + "," +
                 channel.getValue());
     }
+
+    @Override
+    protected int getTileOverlap() {
+        // the spatial Gaussian is practically zero beyond three sigmas
+        return 3 * variance.getValue(0) * iterations.getValue();
+    }
 }
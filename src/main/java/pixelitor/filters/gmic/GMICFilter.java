@@ -19,19 +19,35 @@ package pixelitor.filters.gmic;
 
 import pixelitor.filters.ParametrizedFilter;
 import pixelitor.filters.gui.IntChoiceParam;
+import pixelitor.io.CommandLineWorkers;
 import pixelitor.io.FileIO;
+import pixelitor.io.PipeFormat;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.Success;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.Serial;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 
 public abstract class GMICFilter extends ParametrizedFilter {
     @Serial
     private static final long serialVersionUID = -8131876811008610684L;
 
     public static File GMIC_PATH;
+
+    // whether the G'MIC installations can exchange images in the
+    // uncompressed CImg format, keyed by the path of the executable
+    private static final Map<File, Boolean> rawPipeSupport = new ConcurrentHashMap<>();
+
+    // the job arguments used to check whether the workers work
+    private static final String PROBE_PIPELINE = "skip 0";
+
     protected long seed;
 
     protected GMICFilter() {
@@ -43,19 +59,91 @@ public abstract class GMICFilter extends ParametrizedFilter {
         List<String> args = getArgs();
 //        System.out.println(String.join(" ", args));
 
+        List<String> workerCommand = createWorkerCommand();
+        if (CommandLineWorkers.isSupported(workerCommand, PROBE_PIPELINE, PipeFormat.CIMG)) {
+            // reuse the running G'MIC processes of previous invocations,
+            // the arguments are sent to them together with each image
+            var result = CommandLineWorkers.run(src, workerCommand,
+                toPipeline(args), PipeFormat.CIMG, getTileOverlap());
+            if (result instanceof Success<BufferedImage, ?>(var img)) {
+                return ImageUtils.toSysCompatibleImage(img);
+            }
+            // if a worker failed, then the one-shot run reports the error
+        }
+
+        // the uncompressed CImg format is much faster for
+        // large images than encoding and decoding PNGs
+        PipeFormat format = rawPipeSupport.computeIfAbsent(GMIC_PATH, GMICFilter::probeRawPipe)
+            ? PipeFormat.CIMG : PipeFormat.PNG;
+        return FileIO.applyCommandLineFilter(src, createCommand(args, format), format);
+    }
+
+    // checks whether this G'MIC version can pass a tiny image through as CImg data
+    private static boolean probeRawPipe(File gmicPath) {
+        BufferedImage img = new BufferedImage(1, 1, TYPE_INT_ARGB);
+        try {
+            var result = FileIO.runCommandLineFilter(img,
+                createCommand(List.of(), PipeFormat.CIMG), PipeFormat.CIMG);
+            return result instanceof Success<BufferedImage, ?>(var out)
+                && out.getWidth() == 1 && out.getHeight() == 1;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static List<String> createCommand(List<String> args, PipeFormat format) {
+        String stdStream = "-." + format.getExtension();
+
         List<String> command = new ArrayList<>(10);
         command.add(GMIC_PATH.getAbsolutePath());
         command.add("-input");
-        command.add("-.png");
+        command.add(stdStream);
         command.addAll(args);
         command.add("-output");
-        command.add("-.png");
+        command.add(stdStream);
+        return command;
+    }
 
-        return FileIO.applyCommandLineFilter(src, command);
+    // A G'MIC process that keeps processing the images of its standard input.
+    // Each job consists of the pipeline as a text image, followed by the image,
+    // so the same process can run the filter with any arguments.
+    private static List<String> createWorkerCommand() {
+        return List.of(GMIC_PATH.getAbsolutePath(),
+            "-do",
+            "-input", "-.cimg",
+            "-input", "-.cimg",
+            "pipeline={0,t}",
+            "-remove[0]",
+            "-run", "$pipeline",
+            "-output", "-.cimg",
+            "-remove",
+            "-while", "1");
+    }
+
+    // joins the arguments into a pipeline string, quoting the ones with spaces
+    private static String toPipeline(List<String> args) {
+        List<String> items = new ArrayList<>(args.size());
+        for (String arg : args) {
+            if (arg.contains(" ") || arg.contains("\"")) {
+                items.add('"' + arg.replace("\"", "\\\"") + '"');
+            } else {
+                items.add(arg);
+            }
+        }
+        return String.join(" ", items);
     }
 
     public abstract List<String> getArgs();
 
+    /**
+     * Returns the number of pixels outside a tile that can affect
+     * the result inside it, or {@link CommandLineWorkers#NOT_TILEABLE}
+     * if the filter must process the whole image at once.
+     */
+    protected int getTileOverlap() {
+        return CommandLineWorkers.NOT_TILEABLE;
+    }
+
     @Override
     public boolean supportsGray() {
         return false;
@@ -19,6 +19,7 @@ package pixelitor.filters.gmic;
 
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.RangeParam;
+import pixelitor.io.CommandLineWorkers;
 
 import java.io.Serial;
 import java.util.List;
@@ -47,4 +48,13 @@ public class KuwaharaSmoothing extends GMICFilter {
                 valueAction.getValue(),
             "cut", "0,255"); // doesn't help
     }
+
+    @Override
+    protected int getTileOverlap() {
+        if (valueAction.getValue() == 2) {
+            // normalizing depends on the values of the whole image
+            return CommandLineWorkers.NOT_TILEABLE;
+        }
+        return iterations.getValue() * radius.getValue();
+    }
 }
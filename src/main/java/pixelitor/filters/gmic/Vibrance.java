@@ -41,6 +41,11 @@ public class Vibrance extends GMICFilter {
             "cut", "0,255"); // workaround
     }
 
+    @Override
+    protected int getTileOverlap() {
+        return 0; // each pixel is adjusted independently
+    }
+
     @Override
     public BufferedImage transform(BufferedImage src, BufferedImage dest) {
         if (strength.isZero()) {
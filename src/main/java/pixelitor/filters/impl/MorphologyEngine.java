@@ -0,0 +1,231 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import pixelitor.ThreadPool;
+
+import java.util.Arrays;
+
+/**
+ * Grayscale dilation and erosion with a cost per pixel that doesn't
+ * depend on the radius, based on the van Herk/Gil-Werman algorithm,
+ * which computes the maximum of a sliding window along a line with
+ * three comparisons per element.
+ *
+ * A square is decomposed into a horizontal and a vertical line.
+ * A diamond (the result of repeatedly applying the 3x3 cross) is
+ * decomposed into two diagonal lines and one or two 3x3 crosses.
+ * Pixels outside the image are ignored, which gives the same result
+ * as iterating the 3x3 kernels the given number of times.
+ */
+final class MorphologyEngine {
+    private static final int HORIZONTAL = 0;
+    private static final int VERTICAL = 1;
+    private static final int DIAGONAL = 2; // towards the bottom right
+    private static final int ANTI_DIAGONAL = 3; // towards the top right
+
+    // the minimum number of lines or rows processed by a single task
+    private static final int MIN_LINES_PER_TASK = 16;
+
+    private MorphologyEngine() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Dilates (if dilate is true) or erodes the given plane in place.
+     */
+    static void apply(float[] plane, int width, int height,
+                      int radius, boolean square, boolean dilate) {
+        if (radius <= 0) {
+            return;
+        }
+        // erosion is the dilation of the negated values
+        if (!dilate) {
+            negate(plane);
+        }
+
+        if (square) {
+            float[] tmp = new float[plane.length];
+            maxAlongLines(plane, tmp, width, height, HORIZONTAL, radius);
+            maxAlongLines(tmp, plane, width, height, VERTICAL, radius);
+        } else {
+            dilateDiamond(plane, width, height, radius);
+        }
+
+        if (!dilate) {
+            negate(plane);
+        }
+    }
+
+    private static void dilateDiamond(float[] plane, int width, int height, int radius) {
+        // an odd radius 2m+1 is two diagonal lines of half-length m and
+        // a cross, an even radius 2m+2 is two lines and two crosses
+        int lineRadius = (radius - 1) / 2;
+        int numCrosses = radius % 2 == 1 ? 1 : 2;
+
+        if (lineRadius > 0) {
+            // the intermediate result is also needed outside the
+            // image, so the lines are processed in a padded buffer
+            int pw = width + 2 * lineRadius;
+            int ph = height + 2 * lineRadius;
+            float[] padded = new float[pw * ph];
+            Arrays.fill(padded, Float.NEGATIVE_INFINITY);
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(plane, y * width, padded, (y + lineRadius) * pw + lineRadius, width);
+            }
+
+            float[] tmp = new float[pw * ph];
+            maxAlongLines(padded, tmp, pw, ph, DIAGONAL, lineRadius);
+            maxAlongLines(tmp, padded, pw, ph, ANTI_DIAGONAL, lineRadius);
+
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(padded, (y + lineRadius) * pw + lineRadius, plane, y * width, width);
+            }
+        }
+
+        float[] tmp = new float[plane.length];
+        for (int i = 0; i < numCrosses; i++) {
+            maxInCross(plane, tmp, width, height);
+            System.arraycopy(tmp, 0, plane, 0, plane.length);
+        }
+    }
+
+    /**
+     * Sets each destination value to the maximum of the source values
+     * within the given distance along lines of the given direction.
+     */
+    private static void maxAlongLines(float[] src, float[] dst, int width, int height,
+                                      int direction, int lineRadius) {
+        int numLines = switch (direction) {
+            case HORIZONTAL -> height;
+            case VERTICAL -> width;
+            default -> width + height - 1;
+        };
+        int maxLength = Math.max(width, height);
+
+        ThreadPool.runInChunks(numLines, MIN_LINES_PER_TASK, (from, to) -> {
+            float[] line = new float[maxLength + 2 * lineRadius];
+            float[] prefixMax = new float[line.length];
+            float[] suffixMax = new float[line.length];
+
+            for (int lineIndex = from; lineIndex < to; lineIndex++) {
+                int x0, y0, dx, dy, length;
+                switch (direction) {
+                    case HORIZONTAL -> {
+                        x0 = 0;
+                        y0 = lineIndex;
+                        dx = 1;
+                        dy = 0;
+                        length = width;
+                    }
+                    case VERTICAL -> {
+                        x0 = lineIndex;
+                        y0 = 0;
+                        dx = 0;
+                        dy = 1;
+                        length = height;
+                    }
+                    case DIAGONAL -> {
+                        x0 = lineIndex < height ? 0 : lineIndex - height + 1;
+                        y0 = lineIndex < height ? lineIndex : 0;
+                        dx = 1;
+                        dy = 1;
+                        length = Math.min(width - x0, height - y0);
+                    }
+                    default -> { // ANTI_DIAGONAL
+                        x0 = lineIndex < height ? 0 : lineIndex - height + 1;
+                        y0 = lineIndex < height ? lineIndex : height - 1;
+                        dx = 1;
+                        dy = -1;
+                        length = Math.min(width - x0, y0 + 1);
+                    }
+                }
+                int start = y0 * width + x0;
+                int step = dy * width + dx;
+
+                // gather the line with neutral padding on both sides
+                int paddedLength = length + 2 * lineRadius;
+                Arrays.fill(line, 0, lineRadius, Float.NEGATIVE_INFINITY);
+                Arrays.fill(line, lineRadius + length, paddedLength, Float.NEGATIVE_INFINITY);
+                for (int i = 0, index = start; i < length; i++, index += step) {
+                    line[lineRadius + i] = src[index];
+                }
+
+                slidingMax(line, paddedLength, 2 * lineRadius + 1, prefixMax, suffixMax);
+
+                for (int i = 0, index = start; i < length; i++, index += step) {
+                    dst[index] = Math.max(suffixMax[i], prefixMax[i + 2 * lineRadius]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Calculates the block-wise prefix and suffix maximums of the van Herk/Gil-Werman
+     * algorithm. The maximum of the window starting at i is then
+     * max(suffixMax[i], prefixMax[i + windowSize - 1]).
+     */
+    private static void slidingMax(float[] line, int length, int windowSize,
+                                   float[] prefixMax, float[] suffixMax) {
+        for (int i = 0; i < length; i++) {
+            prefixMax[i] = i % windowSize == 0
+                ? line[i]
+                : Math.max(prefixMax[i - 1], line[i]);
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            suffixMax[i] = (i % windowSize == windowSize - 1 || i == length - 1)
+                ? line[i]
+                : Math.max(suffixMax[i + 1], line[i]);
+        }
+    }
+
+    /**
+     * Sets each destination value to the maximum of the source
+     * value and its four direct neighbors inside the image.
+     */
+    private static void maxInCross(float[] src, float[] dst, int width, int height) {
+        ThreadPool.runInChunks(height, MIN_LINES_PER_TASK, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int rowStart = y * width;
+                for (int x = 0; x < width; x++) {
+                    int index = rowStart + x;
+                    float max = src[index];
+                    if (x > 0) {
+                        max = Math.max(max, src[index - 1]);
+                    }
+                    if (x < width - 1) {
+                        max = Math.max(max, src[index + 1]);
+                    }
+                    if (y > 0) {
+                        max = Math.max(max, src[index - width]);
+                    }
+                    if (y < height - 1) {
+                        max = Math.max(max, src[index + width]);
+                    }
+                    dst[index] = max;
+                }
+            }
+        });
+    }
+
+    private static void negate(float[] plane) {
+        for (int i = 0; i < plane.length; i++) {
+            plane[i] = -plane[i];
+        }
+    }
+}
@@ -23,9 +23,6 @@ import pixelitor.utils.ColorSpaces;
 
 import java.awt.Color;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 /**
  * The implementation of the {@link Morphology} filter.
  */
@@ -79,91 +76,36 @@ public class MorphologyFilter extends WholeImageFilter {
     }
 
     private int[] filterRgb(int width, int height, int[] inPixels) {
-        // uses one array as the source and the other as the destination
-        // for the first iteration, then swap them so the previous destination
-        // becomes the new source for the second iteration, and so on
-        int[] outPixels = new int[width * height];
-        int[] srcPixels = inPixels;
-        int[] dstPixels = outPixels;
-
+        int numPixels = width * height;
         pt = createProgressTracker(iterations);
-        for (int it = 0; it < iterations; it++) {
-            int index = 0; // the index of the processed pixel
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    // the final alpha, red, green, blue values
-                    int a, r, g, b;
-
-                    if (op == OP_DILATE) {
-                        // initialize with the minimum value for the max operation
-                        a = 0;
-                        r = 0;
-                        g = 0;
-                        b = 0;
-                    } else { // OP_ERODE
-                        // initialize with the maximum value for the min operation
-                        a = 0xFF;
-                        r = 0xFF;
-                        g = 0xFF;
-                        b = 0xFF;
-                    }
-
-                    // examine neighboring pixels
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int ny = y + dy;
-                        if (0 <= ny && ny < height) {
-                            int xOffset = ny * width;
-                            for (int dx = -1; dx <= 1; dx++) {
-                                if (kernel == KERNEL_DIAMOND) {
-                                    // ignore the corner neighbours
-                                    if (dx == dy && dx != 0) {
-                                        continue;
-                                    }
-                                    if (dx == -dy && dx != 0) {
-                                        continue;
-                                    }
-                                }
-
-                                int nx = x + dx;
-                                if (0 <= nx && nx < width) {
-                                    int neighborIndex = xOffset + nx;
-
-                                    // read from the source array for the current iteration
-                                    int neighborRgb = srcPixels[neighborIndex];
-                                    int neighborA = (neighborRgb >> 24) & 0xFF;
-                                    int neighborR = (neighborRgb >> 16) & 0xFF;
-                                    int neighborG = (neighborRgb >> 8) & 0xFF;
-                                    int neighborB = neighborRgb & 0xFF;
-
-                                    if (op == OP_ERODE) {
-                                        a = min(a, neighborA);
-                                        r = min(r, neighborR);
-                                        g = min(g, neighborG);
-                                        b = min(b, neighborB);
-                                    } else { // OP_DILATE
-                                        a = max(a, neighborA);
-                                        r = max(r, neighborR);
-                                        g = max(g, neighborG);
-                                        b = max(b, neighborB);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    // write to the destination array for the current iteration
-                    dstPixels[index++] = a << 24 | r << 16 | g << 8 | b;
-                }
-            }
-            pt.unitDone();
 
-            // swap the source and destination arrays for the next iteration
-            int[] temp = srcPixels;
-            srcPixels = dstPixels;
-            dstPixels = temp;
+        // process the alpha, red, green and blue channels independently
+        int[] outPixels = new int[numPixels];
+        float[] plane = new float[numPixels];
+        for (int shift = 0; shift < 32; shift += 8) {
+            for (int i = 0; i < numPixels; i++) {
+                plane[i] = (inPixels[i] >>> shift) & 0xFF;
+            }
+            applyToPlane(plane, width, height);
+            for (int i = 0; i < numPixels; i++) {
+                outPixels[i] |= ((int) plane[i]) << shift;
+            }
         }
+
+        pt.unitsDone(iterations);
         finishProgressTracker();
 
-        return srcPixels; // this always contains the final, correct pixel data
+        return outPixels;
+    }
+
+    /**
+     * Erodes or dilates a single channel. The result is the same as
+     * applying the 3x3 kernel as many times as the number of iterations,
+     * but the cost doesn't depend on the number of iterations.
+     */
+    private void applyToPlane(float[] plane, int width, int height) {
+        MorphologyEngine.apply(plane, width, height, iterations,
+            kernel == KERNEL_SQUARE, op == OP_DILATE);
     }
 
     private int[] filterYCbCr(int width, int height, int[] inPixels) {
@@ -186,70 +128,16 @@ public class MorphologyFilter extends WholeImageFilter {
         }
 
         // apply erosion or dilation to the Y channel
-        float[] srcY = yChannel;
-        float[] dstY = new float[numPixels];
-
         pt = createProgressTracker(iterations);
-        for (int it = 0; it < iterations; it++) {
-            int index = 0;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    float luma; // the final Y value for this pixel
-
-                    if (op == OP_DILATE) {
-                        luma = 0.0f; // min value for max operation
-                    } else { // OP_ERODE
-                        luma = 255.0f; // max value for min operation
-                    }
-
-                    // examine neighboring pixels
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int ny = y + dy;
-                        if (0 <= ny && ny < height) {
-                            int xOffset = ny * width;
-                            for (int dx = -1; dx <= 1; dx++) {
-                                if (kernel == KERNEL_DIAMOND) {
-                                    if (dx == dy && dx != 0) {
-                                        continue;
-                                    }
-                                    if (dx == -dy && dx != 0) {
-                                        continue;
-                                    }
-                                }
-
-                                int nx = x + dx;
-                                if (0 <= nx && nx < width) {
-                                    int neighborIndex = xOffset + nx;
-                                    float neighborY = srcY[neighborIndex];
-
-                                    if (op == OP_ERODE) {
-                                        luma = min(luma, neighborY);
-                                    } else { // OP_DILATE
-                                        luma = max(luma, neighborY);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    dstY[index++] = luma;
-                }
-            }
-            pt.unitDone();
-
-            // swap source and destination for next iteration
-            float[] temp = srcY;
-            srcY = dstY;
-            dstY = temp;
-        }
+        applyToPlane(yChannel, width, height);
+        pt.unitsDone(iterations);
         finishProgressTracker();
 
-        // srcY now holds the final Y channel data.
-
         // recombine and convert back to RGB
         int[] outPixels = new int[numPixels];
         float[] ycbcr = new float[3];
         for (int i = 0; i < numPixels; i++) {
-            ycbcr[0] = srcY[i]; // use the modified Y value
+            ycbcr[0] = yChannel[i]; // use the modified Y value
             ycbcr[1] = cbChannel[i];
             ycbcr[2] = crChannel[i];
 
@@ -285,71 +173,17 @@ public class MorphologyFilter extends WholeImageFilter {
         }
 
         // apply erosion or dilation to the V channel
-        float[] srcV = vChannel;
-        float[] dstV = new float[numPixels];
-
         pt = createProgressTracker(iterations);
-        for (int it = 0; it < iterations; it++) {
-            int index = 0;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    float v; // the final V value for this pixel
-
-                    if (op == OP_DILATE) {
-                        v = 0.0f; // min value for max operation
-                    } else { // OP_ERODE
-                        v = 1.0f; // max value for min operation
-                    }
-
-                    // examine neighboring pixels
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int ny = y + dy;
-                        if (0 <= ny && ny < height) {
-                            int xOffset = ny * width;
-                            for (int dx = -1; dx <= 1; dx++) {
-                                if (kernel == KERNEL_DIAMOND) {
-                                    if (dx == dy && dx != 0) {
-                                        continue;
-                                    }
-                                    if (dx == -dy && dx != 0) {
-                                        continue;
-                                    }
-                                }
-
-                                int nx = x + dx;
-                                if (0 <= nx && nx < width) {
-                                    int neighborIndex = xOffset + nx;
-                                    float neighborV = srcV[neighborIndex];
-
-                                    if (op == OP_ERODE) {
-                                        v = min(v, neighborV);
-                                    } else { // OP_DILATE
-                                        v = max(v, neighborV);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    dstV[index++] = v;
-                }
-            }
-            pt.unitDone();
-
-            // swap source and destination for next iteration
-            float[] temp = srcV;
-            srcV = dstV;
-            dstV = temp;
-        }
+        applyToPlane(vChannel, width, height);
+        pt.unitsDone(iterations);
         finishProgressTracker();
 
-        // srcV now holds the final V channel data.
-
         // recombine and convert back to RGB
         int[] outPixels = new int[numPixels];
         for (int i = 0; i < numPixels; i++) {
             float h = hChannel[i];
             float s = sChannel[i];
-            float v = srcV[i]; // use the modified V value
+            float v = vChannel[i]; // use the modified V value
 
             int rgb = Color.HSBtoRGB(h, s, v); // alpha=0xFF
             // combine with the original alpha
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import com.jhlabs.image.WholeImageFilter;
+import pixelitor.ThreadPool;
+import pixelitor.filters.Median;
+
+import java.util.Arrays;
+
+/**
+ * The implementation of the {@link Median} filter: a median, minimum,
+ * maximum or other percentile filter over a square window, applied
+ * independently to each channel.
+ *
+ * It uses the constant-time algorithm of Perreault and Hébert:
+ * a histogram is kept for each column, and the histogram of the
+ * window is updated by adding and removing whole column histograms.
+ * The histograms are split into 16 coarse and 256 fine bins, and the
+ * fine bins of the window are only updated when they are needed.
+ * The image is split into horizontal strips processed in parallel.
+ */
+public class RankFilter extends WholeImageFilter {
+    private static final int NUM_FINE_BINS = 256;
+    private static final int NUM_COARSE_BINS = 16;
+    private static final int FINE_PER_COARSE = NUM_FINE_BINS / NUM_COARSE_BINS;
+
+    private static final int NOT_VALID = -1;
+
+    // the minimum number of rows in a strip, because each
+    // strip has to initialize its own column histograms
+    private static final int MIN_STRIP_HEIGHT = 32;
+
+    private int radius = 1;
+    private double percentile = 0.5;
+
+    public RankFilter(String filterName) {
+        super(filterName);
+    }
+
+    public void setRadius(int radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * Sets the rank as a fraction: 0 is the minimum, 0.5 is the median, 1 is the maximum.
+     */
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    @Override
+    protected int[] filterPixels(int width, int height, int[] inPixels) {
+        int[] outPixels = new int[width * height];
+
+        pt = createProgressTracker(4);
+        for (int shift = 0; shift < 32; shift += 8) {
+            int channelShift = shift;
+            ThreadPool.runInChunks(height, MIN_STRIP_HEIGHT, (fromY, toY) ->
+                filterStrip(inPixels, outPixels, width, height, fromY, toY, channelShift));
+            pt.unitDone();
+        }
+        finishProgressTracker();
+
+        return outPixels;
+    }
+
+    private void filterStrip(int[] in, int[] out, int width, int height,
+                             int fromY, int toY, int shift) {
+        int[] colFine = new int[width * NUM_FINE_BINS];
+        int[] colCoarse = new int[width * NUM_COARSE_BINS];
+
+        int[] fine = new int[NUM_FINE_BINS];
+        int[] coarse = new int[NUM_COARSE_BINS];
+        // the x for which each fine segment of the window histogram is valid
+        int[] fineValidAt = new int[NUM_COARSE_BINS];
+
+        // the column histograms start with the rows above the first row
+        for (int y = Math.max(0, fromY - radius); y < Math.min(height, fromY + radius); y++) {
+            updateColumns(in, width, y, shift, colFine, colCoarse, 1);
+        }
+
+        for (int y = fromY; y < toY; y++) {
+            // slide the column histograms down
+            if (y + radius < height) {
+                updateColumns(in, width, y + radius, shift, colFine, colCoarse, 1);
+            }
+            if (y - radius - 1 >= 0) {
+                updateColumns(in, width, y - radius - 1, shift, colFine, colCoarse, -1);
+            }
+            int numRows = Math.min(height - 1, y + radius) - Math.max(0, y - radius) + 1;
+
+            // the window starts with the columns left of the first pixel
+            Arrays.fill(coarse, 0);
+            Arrays.fill(fineValidAt, NOT_VALID);
+            for (int c = 0; c < Math.min(radius, width); c++) {
+                addColumn(colCoarse, c, coarse, 1);
+            }
+
+            int rowOffset = y * width;
+            for (int x = 0; x < width; x++) {
+                // slide the window to the right
+                if (x + radius < width) {
+                    addColumn(colCoarse, x + radius, coarse, 1);
+                }
+                if (x - radius - 1 >= 0) {
+                    addColumn(colCoarse, x - radius - 1, coarse, -1);
+                }
+                int numCols = Math.min(width - 1, x + radius) - Math.max(0, x - radius) + 1;
+                int target = (int) Math.round(percentile * (numRows * numCols - 1));
+
+                // find the coarse bin containing the target rank
+                int bin = 0;
+                int count = 0;
+                while (count + coarse[bin] <= target) {
+                    count += coarse[bin];
+                    bin++;
+                }
+
+                // bring the fine segment of that bin up to date, then search it
+                updateFineSegment(colFine, width, x, bin, fine, fineValidAt);
+                int value = bin * FINE_PER_COARSE;
+                while (count + fine[value] <= target) {
+                    count += fine[value];
+                    value++;
+                }
+
+                out[rowOffset + x] |= value << shift;
+            }
+        }
+    }
+
+    private static void updateColumns(int[] in, int width, int y, int shift,
+                                      int[] colFine, int[] colCoarse, int delta) {
+        int rowOffset = y * width;
+        for (int x = 0; x < width; x++) {
+            int value = (in[rowOffset + x] >>> shift) & 0xFF;
+            colFine[x * NUM_FINE_BINS + value] += delta;
+            colCoarse[x * NUM_COARSE_BINS + value / FINE_PER_COARSE] += delta;
+        }
+    }
+
+    private static void addColumn(int[] colCoarse, int col, int[] coarse, int sign) {
+        int offset = col * NUM_COARSE_BINS;
+        for (int i = 0; i < NUM_COARSE_BINS; i++) {
+            coarse[i] += sign * colCoarse[offset + i];
+        }
+    }
+
+    /**
+     * Updates the fine bins belonging to the given coarse bin so that
+     * they reflect the window centered at the given x, either incrementally
+     * from the last valid position or by recomputing them if that is cheaper.
+     */
+    private void updateFineSegment(int[] colFine, int width, int x, int bin,
+                                   int[] fine, int[] fineValidAt) {
+        int segmentStart = bin * FINE_PER_COARSE;
+        int lastX = fineValidAt[bin];
+        if (lastX == x) {
+            return;
+        }
+        if (lastX == NOT_VALID || x - lastX > 2 * radius + 1) {
+            Arrays.fill(fine, segmentStart, segmentStart + FINE_PER_COARSE, 0);
+            int lastCol = Math.min(width - 1, x + radius);
+            for (int c = Math.max(0, x - radius); c <= lastCol; c++) {
+                addFineSegment(colFine, c, segmentStart, fine, 1);
+            }
+        } else {
+            for (int xi = lastX + 1; xi <= x; xi++) {
+                if (xi + radius < width) {
+                    addFineSegment(colFine, xi + radius, segmentStart, fine, 1);
+                }
+                if (xi - radius - 1 >= 0) {
+                    addFineSegment(colFine, xi - radius - 1, segmentStart, fine, -1);
+                }
+            }
+        }
+        fineValidAt[bin] = x;
+    }
+
+    private static void addFineSegment(int[] colFine, int col, int segmentStart, int[] fine, int sign) {
+        int offset = col * NUM_FINE_BINS + segmentStart;
+        for (int i = 0; i < FINE_PER_COARSE; i++) {
+            fine[segmentStart + i] += sign * colFine[offset + i];
+        }
+    }
+}
@@ -29,6 +29,8 @@ import pixelitor.utils.ImageUtils;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
 
+import static pixelitor.filters.gui.RandomizeMode.IGNORE_RANDOMIZE;
+
 /**
  * Gaussian Blur filter based on JHLabs GaussianFilter
  */
@@ -40,6 +42,7 @@ public class JHGaussianBlur extends ParametrizedFilter {
 
     private final RangeParam radius = new RangeParam(GUIText.RADIUS, 1, 2, 101);
     private final BooleanParam hpSharpening = BooleanParam.forHPSharpening();
+    private final BooleanParam exact = new BooleanParam("Exact (Slower)", false, IGNORE_RANDOMIZE);
 
     private GaussianFilter filter;
 
@@ -48,7 +51,8 @@ public class JHGaussianBlur extends ParametrizedFilter {
 
         initParams(
             radius.withDecimalPlaces(1),
-            hpSharpening
+            hpSharpening,
+            exact
         );
 
         help = Help.fromWikiURL("https://en.wikipedia.org/wiki/Gaussian_blur");
@@ -62,6 +66,7 @@ public class JHGaussianBlur extends ParametrizedFilter {
 
         filter.setRadius(radius.getValueAsFloat());
         filter.setPremultiplyAlpha(false);
+        filter.setExact(exact.isChecked());
 
         dest = ImageUtils.filterPremultiplied(src, dest, filter);
 
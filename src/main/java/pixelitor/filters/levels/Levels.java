@@ -20,6 +20,8 @@ package pixelitor.filters.levels;
 import pixelitor.filters.gui.FilterGUI;
 import pixelitor.filters.gui.FilterWithGUI;
 import pixelitor.filters.gui.UserPreset;
+import pixelitor.filters.lookup.LookupFilter;
+import pixelitor.filters.lookup.RGBLookup;
 import pixelitor.layers.Filterable;
 
 import java.awt.image.BufferedImage;
@@ -30,7 +32,7 @@ import static pixelitor.utils.Texts.i18n;
 /**
  * The Levels filter, adjusting the tonal range of an image.
  */
-public class Levels extends FilterWithGUI {
+public class Levels extends FilterWithGUI implements LookupFilter {
     public static final String NAME = i18n("levels");
 
     @Serial
@@ -58,6 +60,11 @@ public class Levels extends FilterWithGUI {
         return levelsModel.apply(src, dest);
     }
 
+    @Override
+    public RGBLookup getRGBLookup() {
+        return levelsModel.getRGBLookup();
+    }
+
     @Override
     public void randomize() {
         levelsModel.randomizeAndRun();
@@ -112,6 +112,17 @@ public class LevelsModel {
         this.filterOp = new RGBLookup(rgb, r, g, b).asFastLookupOp();
     }
 
+    /**
+     * Returns the combined sRGB lookup, or null in the Oklab color space.
+     */
+    public RGBLookup getRGBLookup() {
+        if (colorSpace != ColorSpace.SRGB) {
+            return null;
+        }
+        return new RGBLookup(getLookupForChannel(RGB), getLookupForChannel(RED),
+            getLookupForChannel(GREEN), getLookupForChannel(BLUE));
+    }
+
     private void updateOklabFilterLookup() {
         GrayScaleLookup l = getLookupForChannel(OK_L);
         GrayScaleLookup a = getLookupForChannel(OK_A);
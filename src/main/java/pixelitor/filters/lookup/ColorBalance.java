@@ -46,7 +46,7 @@ import static pixelitor.utils.Texts.i18n;
 /**
  * Color balance filter
  */
-public class ColorBalance extends ParametrizedFilter {
+public class ColorBalance extends ParametrizedFilter implements LookupFilter {
     @Serial
     private static final long serialVersionUID = 8496579363272349016L;
 
@@ -160,6 +160,15 @@ public class ColorBalance extends ParametrizedFilter {
         };
     }
 
+    @Override
+    public RGBLookup getRGBLookup() {
+        if (colorSpace.getSelected() != ColorSpace.SRGB) {
+            return null;
+        }
+        return createLookup(range1.getValueAsFloat(), range2.getValueAsFloat(),
+            range3.getValueAsFloat(), affect.getValue());
+    }
+
     @Override
     protected boolean createDefaultDestImg() {
         return false;
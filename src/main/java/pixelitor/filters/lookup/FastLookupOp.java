@@ -17,7 +17,7 @@
 
 package pixelitor.filters.lookup;
 
-import com.jhlabs.image.PixelUtils;
+import pixelitor.ThreadPool;
 import pixelitor.filters.util.FilterPalette;
 import pixelitor.utils.ImageUtils;
 
@@ -28,9 +28,22 @@ import java.awt.image.*;
 
 /**
  * Performs 4-5 times faster than {@link LookupOp} if
- * the image has packed ints
+ * the image has packed ints, even on a single core.
+ * For packed int images the work is also split between the cores.
  */
 public class FastLookupOp implements BufferedImageOp {
+    // the minimum number of pixels processed by a single task
+    private static final int MIN_CHUNK_SIZE = 32_768;
+
+    // 16.16 fixed-point values of 255/alpha, indexed by alpha
+    private static final int[] UNPREMULTIPLY_FACTORS = new int[256];
+
+    static {
+        for (int a = 1; a < 256; a++) {
+            UNPREMULTIPLY_FACTORS[a] = (255 << 16) / a;
+        }
+    }
+
     private final ShortLookupTable lut;
 
     public FastLookupOp(ShortLookupTable lut) {
@@ -58,7 +71,7 @@ public class FastLookupOp implements BufferedImageOp {
         if (dst == null) {
             dst = ImageUtils.createImageWithSameCM(src);
         }
-        boolean notPremultiplied = !src.isAlphaPremultiplied();
+        boolean premultiplied = src.isAlphaPremultiplied();
 
         int[] srcPixels = ((DataBufferInt) src.getRaster()
             .getDataBuffer()).getData();
@@ -70,59 +83,54 @@ public class FastLookupOp implements BufferedImageOp {
         assert numPixels == destPixels.length;
 
         short[][] table = lut.getTable();
-
-        for (int i = 0; i < numPixels; i++) {
-            int rgb = srcPixels[i];
-            int a = (rgb >>> 24) & 0xFF;
-            int r = (rgb >>> 16) & 0xFF;
-            int g = (rgb >>> 8) & 0xFF;
-            int b = rgb & 0xFF;
-
-            if (a == 255 || notPremultiplied) {
-                r = table[0][r];
-                g = table[1][g];
-                b = table[2][b];
-            } else if (a == 0) {
-                r = 0;
-                g = 0;
-                b = 0;
-            } else {
-                // unpremultiply
-                float f = 255.0f / a;
-                int ur = (int) (r * f);
-                int ug = (int) (g * f);
-                int ub = (int) (b * f);
-
-                if (ur > 255) {
-                    ur = 255;
-                }
-                if (ug > 255) {
-                    ug = 255;
+        short[] redTable = table[0];
+        short[] greenTable = table[1];
+        short[] blueTable = table[2];
+
+        // the source and destination can be the same array,
+        // because each pixel is read only before it's written
+        ThreadPool.runInChunks(numPixels, MIN_CHUNK_SIZE, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int rgb = srcPixels[i];
+                int a = rgb >>> 24;
+                int r = (rgb >>> 16) & 0xFF;
+                int g = (rgb >>> 8) & 0xFF;
+                int b = rgb & 0xFF;
+
+                if (a == 255 || !premultiplied) {
+                    r = redTable[r];
+                    g = greenTable[g];
+                    b = blueTable[b];
+                } else if (a == 0) {
+                    r = 0;
+                    g = 0;
+                    b = 0;
+                } else {
+                    // unpremultiply with the fixed-point reciprocal of alpha
+                    int f = UNPREMULTIPLY_FACTORS[a];
+                    int ur = Math.min(255, (r * f) >>> 16);
+                    int ug = Math.min(255, (g * f) >>> 16);
+                    int ub = Math.min(255, (b * f) >>> 16);
+
+                    // lookup and premultiply again
+                    r = div255(redTable[ur] * a);
+                    g = div255(greenTable[ug] * a);
+                    b = div255(blueTable[ub] * a);
                 }
-                if (ub > 255) {
-                    ub = 255;
-                }
-
-                // lookup
-                ur = table[0][ur];
-                ug = table[1][ug];
-                ub = table[2][ub];
-
-                // premultiply
-                float f2 = a * (1.0f / 255.0f);
-                r = (int) (ur * f2);
-                g = (int) (ug * f2);
-                b = (int) (ub * f2);
-
-                r = PixelUtils.clamp(r);
-                g = PixelUtils.clamp(g);
-                b = PixelUtils.clamp(b);
+                destPixels[i] = a << 24 | r << 16 | g << 8 | b;
             }
-            destPixels[i] = a << 24 | r << 16 | g << 8 | b;
-        }
+        });
         return dst;
     }
 
+    /**
+     * Divides a value in the range 0..255*255 by 255, rounding to the nearest integer.
+     */
+    private static int div255(int x) {
+        x += 128;
+        return (x + (x >>> 8)) >>> 8;
+    }
+
     private BufferedImage filterIndexed(BufferedImage src) {
         short[][] table = lut.getTable();
         return new FilterPalette(src) {
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.lookup;
+
+/**
+ * A filter whose effect can be expressed with its current settings
+ * as independent per-channel lookup tables. This allows consecutive
+ * lookup-based adjustment layers to be fused into a single pass.
+ */
+public interface LookupFilter {
+    /**
+     * Returns the lookup that is equivalent to the current settings,
+     * or null if the current settings can't be expressed as a
+     * per-channel sRGB lookup (for example in the Oklab color space).
+     */
+    RGBLookup getRGBLookup();
+}
@@ -71,6 +71,49 @@ public class RGBLookup {
         }
     }
 
+    /**
+     * Creates a new {@link RGBLookup} from int lookup tables,
+     * such as the ones used by the JHLabs transfer filters.
+     */
+    public static RGBLookup fromIntTables(int[] redTable, int[] greenTable, int[] blueTable) {
+        short[] redLUT = new short[ARRAY_LENGTH];
+        short[] greenLUT = new short[ARRAY_LENGTH];
+        short[] blueLUT = new short[ARRAY_LENGTH];
+        for (int i = 0; i < ARRAY_LENGTH; i++) {
+            redLUT[i] = (short) redTable[i];
+            greenLUT[i] = (short) greenTable[i];
+            blueLUT[i] = (short) blueTable[i];
+        }
+        return new RGBLookup(redLUT, greenLUT, blueLUT);
+    }
+
+    /**
+     * Creates an {@link RGBLookup} that doesn't change the colors.
+     */
+    public static RGBLookup createIdentity() {
+        short[] lut = new short[ARRAY_LENGTH];
+        for (int i = 0; i < ARRAY_LENGTH; i++) {
+            lut[i] = (short) i;
+        }
+        return new RGBLookup(lut, lut.clone(), lut.clone());
+    }
+
+    /**
+     * Returns a new {@link RGBLookup} that has the same effect as
+     * applying this lookup first, and then the given one.
+     */
+    public RGBLookup then(RGBLookup next) {
+        short[] r = new short[ARRAY_LENGTH];
+        short[] g = new short[ARRAY_LENGTH];
+        short[] b = new short[ARRAY_LENGTH];
+        for (int i = 0; i < ARRAY_LENGTH; i++) {
+            r[i] = next.redLUT[redLUT[i]];
+            g[i] = next.greenLUT[greenLUT[i]];
+            b[i] = next.blueLUT[blueLUT[i]];
+        }
+        return new RGBLookup(r, g, b);
+    }
+
     private void allocateArrays() {
         redLUT = new short[ARRAY_LENGTH];
         greenLUT = new short[ARRAY_LENGTH];
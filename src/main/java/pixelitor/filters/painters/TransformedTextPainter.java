@@ -109,6 +109,10 @@ public class TransformedTextPainter implements Debuggable {
 
     private boolean invalidLayout = true;
 
+    // the canvas size used by the current layout
+    private int layoutWidth;
+    private int layoutHeight;
+
     // debug settings
     private static final boolean DISABLE_CACHE = false;
     private static final boolean DEBUG_LAYOUT = false;
@@ -121,6 +125,12 @@ public class TransformedTextPainter implements Debuggable {
         // must be called before updateLayout, even if we paint on the cached image
         setHighQualityRendering(g);
 
+        if (width != layoutWidth || height != layoutHeight) {
+            // the alignment depends on the canvas size, but the
+            // rendered text can be reused at the new position
+            invalidLayout = true;
+        }
+
         if (invalidLayout) {
             updateLayout(width, height, g, comp);
             if (DEBUG_LAYOUT) {
@@ -144,6 +154,12 @@ public class TransformedTextPainter implements Debuggable {
         }
 
         BufferedImage cachedImg = renderCache == null ? null : renderCache.get();
+        if (cachedImg != null && (cachedImg.getWidth() != bounds.width
+            || cachedImg.getHeight() != bounds.height)) {
+            // the layout changed in a way that affected the size
+            clearCache();
+            cachedImg = null;
+        }
         if (cachedImg == null) {
             // create the cached image containing the rendered text and effects
             cachedImg = GraphicsUtilities.createCompatibleTranslucentImage(bounds.width, bounds.height);
@@ -358,6 +374,9 @@ public class TransformedTextPainter implements Debuggable {
     }
 
     private void updateLayout(int width, int height, Graphics2D g, Composition comp) {
+        layoutWidth = width;
+        layoutHeight = height;
+
         if (isOnPath()) {
             if (comp == null) { // the text filter, not a text layer
                 comp = Views.getActiveComp();
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.util;
+
+import pixelitor.ThreadPool;
+
+/**
+ * Accumulates the points plotted by an iterative generator (such as the
+ * chaos game) as per-pixel hit counts and color sums, and renders them with
+ * logarithmic density tone mapping. Since the accumulation is commutative,
+ * separate histograms can be filled by separate threads and merged at the end.
+ */
+public class DensityHistogram {
+    // the minimum number of pixels processed by a merging or rendering task
+    private static final int MIN_PIXELS_PER_TASK = 16_384;
+
+    // the maximum memory used by the extra histograms of parallel threads
+    private static final long MAX_EXTRA_HISTOGRAMS_BYTES = 256L * 1024 * 1024;
+
+    private final int width;
+    private final int height;
+    private final int[] counts;
+
+    // the sums of the color channels, or null if the hits have no colors
+    // (longs, because an int would overflow after about 8.4 million hits)
+    private final long[] reds;
+    private final long[] greens;
+    private final long[] blues;
+
+    public DensityHistogram(int width, int height, boolean trackColors) {
+        this.width = width;
+        this.height = height;
+        int numPixels = width * height;
+        counts = new int[numPixels];
+        if (trackColors) {
+            reds = new long[numPixels];
+            greens = new long[numPixels];
+            blues = new long[numPixels];
+        } else {
+            reds = null;
+            greens = null;
+            blues = null;
+        }
+    }
+
+    /**
+     * Returns how many histograms of the given size can be filled in parallel
+     * (at most maxThreads), so that the extra histograms fit into the memory.
+     * A histogram needs 4 bytes per pixel, or 28 if the colors are tracked.
+     */
+    public static int calcMaxParallel(int width, int height, boolean trackColors, int maxThreads) {
+        if (maxThreads <= 1) {
+            return 1;
+        }
+        long histogramBytes = (long) width * height * (trackColors ? 28 : 4);
+        Runtime runtime = Runtime.getRuntime();
+        long availableBytes = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long extraBytes = Math.min(MAX_EXTRA_HISTOGRAMS_BYTES, availableBytes / 4);
+        return (int) Math.min(maxThreads, 1 + extraBytes / histogramBytes);
+    }
+
+    /**
+     * Records a hit at the given pixel index with the given RGB color.
+     */
+    public void hit(int index, int rgb) {
+        counts[index]++;
+        if (reds != null) {
+            reds[index] += (rgb >>> 16) & 0xFF;
+            greens[index] += (rgb >>> 8) & 0xFF;
+            blues[index] += rgb & 0xFF;
+        }
+    }
+
+    /**
+     * Adds the hits of the given histogram to this one.
+     */
+    public void merge(DensityHistogram other) {
+        assert other.width == width && other.height == height;
+        assert (other.reds == null) == (reds == null);
+
+        ThreadPool.runInChunks(counts.length, MIN_PIXELS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                counts[i] += other.counts[i];
+            }
+            if (reds != null) {
+                for (int i = from; i < to; i++) {
+                    reds[i] += other.reds[i];
+                    greens[i] += other.greens[i];
+                    blues[i] += other.blues[i];
+                }
+            }
+        });
+    }
+
+    /**
+     * Renders the histogram into the given opaque ARGB pixels. The pixels are
+     * blended from the background color towards the average color of their
+     * hits (black if colors aren't tracked), with an opacity proportional
+     * to the logarithm of the hit count.
+     */
+    public void render(int[] pixels, int bgColor) {
+        assert pixels.length == counts.length;
+
+        int maxCount = 0;
+        for (int count : counts) {
+            if (count > maxCount) {
+                maxCount = count;
+            }
+        }
+        double logMax = Math.log1p(maxCount);
+
+        int bgR = (bgColor >>> 16) & 0xFF;
+        int bgG = (bgColor >>> 8) & 0xFF;
+        int bgB = bgColor & 0xFF;
+
+        ThreadPool.runInChunks(counts.length, MIN_PIXELS_PER_TASK, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int count = counts[i];
+                if (count == 0) {
+                    pixels[i] = 0xFF_00_00_00 | bgColor;
+                    continue;
+                }
+                double density = Math.log1p(count) / logMax;
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                if (reds != null) {
+                    r = (int) (reds[i] / count);
+                    g = (int) (greens[i] / count);
+                    b = (int) (blues[i] / count);
+                }
+                r = (int) (bgR + density * (r - bgR) + 0.5);
+                g = (int) (bgG + density * (g - bgG) + 0.5);
+                b = (int) (bgB + density * (b - bgB) + 0.5);
+                pixels[i] = 0xFF_00_00_00 | r << 16 | g << 8 | b;
+            }
+        });
+    }
+}
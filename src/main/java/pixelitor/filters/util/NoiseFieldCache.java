@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.util;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.StatusBarProgressTracker;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.Future;
+
+/**
+ * Caches a noise field (a float value for each pixel), so that the noise
+ * filters can re-apply their color settings without recalculating the noise.
+ * The field is only recalculated if its key changes, therefore the key must
+ * capture everything (seed, scale, octaves, image size...) that affects the noise.
+ * The field is softly referenced, so that it doesn't prevent garbage collection.
+ */
+public class NoiseFieldCache {
+    // the number of rows calculated by a single task
+    private static final int ROWS_PER_TASK = 16;
+
+    private Object key;
+    private SoftReference<float[]> fieldRef;
+
+    /**
+     * Generates the values of a single row of a noise field.
+     */
+    @FunctionalInterface
+    public interface RowGenerator {
+        /**
+         * Stores the values of the given row into the field,
+         * starting at the given offset.
+         */
+        void generateRow(int y, float[] field, int offset, int width);
+    }
+
+    /**
+     * Returns the field for the given key. If it isn't cached,
+     * then it is generated in parallel bands of rows, reporting
+     * the progress under the given name.
+     */
+    public synchronized float[] get(Object key, int width, int height,
+                                    String progressName, RowGenerator generator) {
+        if (key.equals(this.key) && fieldRef != null) {
+            float[] field = fieldRef.get();
+            if (field != null) {
+                return field;
+            }
+        }
+
+        float[] field = generate(width, height, progressName, generator);
+        this.key = key;
+        fieldRef = new SoftReference<>(field);
+        return field;
+    }
+
+    private static float[] generate(int width, int height,
+                                    String progressName, RowGenerator generator) {
+        float[] field = new float[width * height];
+
+        int numBands = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        var pt = new StatusBarProgressTracker(progressName, numBands);
+        Future<?>[] futures = new Future[numBands];
+        for (int band = 0; band < numBands; band++) {
+            int fromRow = band * ROWS_PER_TASK;
+            int toRow = Math.min(height, fromRow + ROWS_PER_TASK);
+            futures[band] = ThreadPool.submit(() -> {
+                for (int y = fromRow; y < toRow; y++) {
+                    generator.generateRow(y, field, y * width, width);
+                }
+            });
+        }
+        ThreadPool.waitFor(futures, pt);
+        pt.finished();
+
+        return field;
+    }
+
+    /**
+     * Discards the cached field.
+     */
+    public synchronized void invalidate() {
+        key = null;
+        fieldRef = null;
+    }
+}
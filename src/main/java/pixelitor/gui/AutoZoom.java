@@ -68,7 +68,7 @@ public enum AutoZoom {
     public abstract double calcRatio(double horRatio, double verRatio);
 
     private Action toAction() {
-        var action = new ViewEnabledAction(displayName,
+        var action = ViewEnabledAction.readOnly(displayName,
             comp -> comp.getView().setZoom(this));
         action.setToolTip(toolTip);
         return action;
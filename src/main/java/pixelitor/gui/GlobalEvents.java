@@ -17,6 +17,7 @@
 
 package pixelitor.gui;
 
+import pixelitor.Views;
 import pixelitor.gui.utils.TaskAction;
 import pixelitor.tools.Tool;
 import pixelitor.tools.Tools;
@@ -170,7 +171,11 @@ public class GlobalEvents {
             case VK_DOWN, VK_KP_DOWN -> arrowKeyPressed(e, ArrowKey.down(e.isShiftDown()));
             case VK_ESCAPE -> escPressed();
             case VK_ALT -> altPressed();
-            default -> activeTool.otherKeyPressed(e);
+            default -> {
+                if (!isBlockedByPreview()) {
+                    activeTool.otherKeyPressed(e);
+                }
+            }
         }
     }
 
@@ -188,11 +193,17 @@ public class GlobalEvents {
     }
 
     private static void arrowKeyPressed(KeyEvent e, ArrowKey key) {
-        if (modalDialogCount == 0 && activeTool.arrowKeyPressed(key)) {
+        if (modalDialogCount == 0 && !isBlockedByPreview() && activeTool.arrowKeyPressed(key)) {
             e.consume();
         }
     }
 
+    // the keys can edit the active composition, for example by nudging the layer
+    private static boolean isBlockedByPreview() {
+        View view = Views.getActive();
+        return view != null && Tools.EventDispatcher.isActiveToolBlockedOn(view.getComp());
+    }
+
     private static void escPressed() {
         if (modalDialogCount == 0) {
             activeTool.escPressed();
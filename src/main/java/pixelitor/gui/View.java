@@ -25,6 +25,7 @@ import pixelitor.history.CompositionReplacedEdit;
 import pixelitor.history.History;
 import pixelitor.io.FileIO;
 import pixelitor.io.IOTasks;
+import pixelitor.io.TiledImageSource;
 import pixelitor.layers.*;
 import pixelitor.menus.view.ZoomControl;
 import pixelitor.menus.view.ZoomLevel;
@@ -153,6 +154,12 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
             return CompletableFuture.completedFuture(null);
         }
 
+        if (comp.getTiledSource() != null) {
+            Messages.showInfo("Cannot Reload", String.format(
+                "<html>The image <b>%s</b> is too large to be fully loaded.", comp.getName()));
+            return CompletableFuture.completedFuture(null);
+        }
+
         // prevent concurrent reloads of the same file
         if (IOTasks.isPathProcessing(filePath)) {
             Messages.showInfo("Reload Busy", "The file " + file.getName() + " is currently being accessed.");
@@ -160,7 +167,10 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
         }
         IOTasks.markPathForReading(filePath);
 
-        return FileIO.loadCompAsync(file)
+        // the user is looking at this view
+        var loading = FileIO.loadCompAsync(file, IOTasks.Priority.VISIBLE);
+
+        return loading
             .thenApplyAsync(this::handleReloadedComp, onEDT)
             .whenComplete((composition, exception) -> {
                 IOTasks.markReadingComplete(filePath);
@@ -205,6 +215,19 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
         return newComp;
     }
 
+    /**
+     * Replaces the subsampled preview of a large image with the
+     * full-resolution composition, which can be edited.
+     */
+    public void replacePreview(Composition fullComp) {
+        assert comp.isPreview();
+
+        replaceComp(fullComp, MaskViewMode.NORMAL, false);
+        setZoom(ZoomLevel.calcBestFitZoom(canvas, null, false));
+        Messages.showStatusMessage(String.format(
+            "The image <b>%s</b> is fully loaded.", fullComp.getName()));
+    }
+
     // the simple form of replacing, used by multi-layer edits
     public void replaceComp(Composition newComp) {
         replaceComp(newComp, getMaskViewMode(), false);
@@ -413,6 +436,13 @@ public class View extends JComponent implements MouseListener, MouseMotionListen
         } else {
             g2.drawImage(comp.getCompositeImage(), 0, 0, null);
 
+            TiledImageSource tiledSource = comp.getTiledSource();
+            if (tiledSource != null) {
+                // show the details that the preview doesn't have
+                tiledSource.paintOverPreview(g2, componentToImageSpace(getVisibleRegion()),
+                    (double) canvas.getWidth() / tiledSource.getWidth(), zoomScale, this::repaint);
+            }
+
             if (maskViewMode.showRubylith()) {
                 LayerMask mask = comp.getActiveLayer().getMask();
                 assert mask != null : "no mask in " + maskViewMode;
@@ -60,12 +60,25 @@ public abstract class AbstractViewEnabledAction extends NamedAction implements V
     @Override
     public void actionPerformed(ActionEvent e) {
         try {
-            onClick(Views.getActiveComp());
+            Composition comp = Views.getActiveComp();
+            if (editsComp() && comp.checkPreview()) {
+                return;
+            }
+            onClick(comp);
         } catch (Exception ex) {
             Messages.showException(ex);
         }
     }
 
+    /**
+     * Returns true if this action modifies the composition, which
+     * isn't allowed while only the preview of a large image is loaded.
+     * The actions that only read or display the composition can override it.
+     */
+    protected boolean editsComp() {
+        return true;
+    }
+
     /**
      * Executes the action on the active {@link Composition}.
      */
@@ -31,10 +31,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Image preview panel for the open file chooser
@@ -42,7 +39,8 @@ import java.util.Map;
 public class ImagePreviewPanel extends JPanel implements PropertyChangeListener {
     private static final int SIZE = 200;
     public static final int EMPTY_SPACE_AT_LEFT = 5;
-    private static final Map<String, SoftReference<ThumbInfo>> thumbsCache = new HashMap<>();
+    private static final ThumbnailCache thumbsCache = new ThumbnailCache(
+        ThumbnailCache.getDefaultDir(), ImagePreviewPanel::readThumb);
 
     private ThumbInfo thumbInfo;
     private final ProgressPanel progressPanel;
@@ -60,7 +58,13 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
         if (JFileChooser.SELECTED_FILE_CHANGED_PROPERTY.equals(e.getPropertyName())) {
             File file = (File) e.getNewValue();
             if (file != null && FileUtils.hasSupportedInputExt(file)) {
-                thumbInfo = getOrCreateThumb(file);
+                int availableWidth = getWidth() - EMPTY_SPACE_AT_LEFT;
+                int availableHeight = getHeight();
+                ProgressTracker pt = new JProgressBarTracker(progressPanel);
+                thumbInfo = thumbsCache.get(file, availableWidth, availableHeight, pt);
+
+                // the user is likely to select one of the neighbors next
+                thumbsCache.prefetchNeighbors(file, availableWidth, availableHeight);
             } else {
                 thumbInfo = null;
             }
@@ -71,26 +75,8 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
         repaint();
     }
 
-    private ThumbInfo getOrCreateThumb(File file) {
-        String filePath = file.getAbsolutePath();
-        if (thumbsCache.containsKey(filePath)) {
-            SoftReference<ThumbInfo> thumbRef = thumbsCache.get(filePath);
-            ThumbInfo cachedInfo = thumbRef.get();
-            if (cachedInfo != null) {
-                return cachedInfo;
-            }
-        }
-
-        ThumbInfo readResult = readThumb(file);
-        if (readResult.isSuccess()) {
-            // don't cache failures - perhaps the user
-            // is retrying after fixing the problem
-            thumbsCache.put(filePath, new SoftReference<>(readResult));
-        }
-        return readResult;
-    }
-
-    private ThumbInfo readThumb(File file) {
+    private static ThumbInfo readThumb(File file, int availableWidth,
+                                       int availableHeight, ProgressTracker pt) {
         if (!Files.isReadable(file.toPath())) {
             return ThumbInfo.failure(ThumbInfo.PREVIEW_ERROR);
         }
@@ -125,10 +111,11 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
             }
         }
 
-        int availableWidth = getWidth() - EMPTY_SPACE_AT_LEFT;
-        int availableHeight = getHeight();
         try {
-            ProgressTracker pt = new JProgressBarTracker(progressPanel);
+            if (pt == null) {
+                // prefetched in the background
+                pt = ProgressTracker.NULL_TRACKER;
+            }
             return TrackedIO.readThumbnail(file, availableWidth, availableHeight, pt);
         } catch (Exception ex) {
             return ThumbInfo.failure(ThumbInfo.PREVIEW_ERROR);
@@ -136,7 +123,7 @@ public class ImagePreviewPanel extends JPanel implements PropertyChangeListener
     }
 
     public static void removeThumbFromCache(File file) {
-        thumbsCache.remove(file.getAbsolutePath());
+        thumbsCache.remove(file);
     }
 
     @Override
@@ -110,6 +110,18 @@ public class ThumbInfo {
     }
 
     public boolean isSuccess() {
-        return errMsg != null;
+        return errMsg == null;
+    }
+
+    public BufferedImage getThumb() {
+        return thumb;
+    }
+
+    public int getFullWidth() {
+        return fullWidth;
+    }
+
+    public int getFullHeight() {
+        return fullHeight;
     }
 }
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.gui.utils;
+
+import com.bric.util.JVM;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import pixelitor.io.FileUtils;
+import pixelitor.io.PngEncoder;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A two-level cache for the thumbnails of the open file chooser. The
+ * recently used thumbnails are kept in memory, and the successfully created
+ * ones are also stored on disk, so that they survive restarts.
+ *
+ * Similarly to the freedesktop.org thumbnail specification, the disk entries
+ * are PNG files named after the MD5 hash of the file URI (and of the thumbnail
+ * size), and the modification time and size of the original file are stored
+ * in their Thumb::MTime and Thumb::Size text chunks, so that the thumbnails
+ * of changed files are recreated.
+ */
+public class ThumbnailCache {
+    private static final int MAX_MEMORY_ENTRIES = 100;
+    private static final int NUM_PREFETCHED_NEIGHBORS = 3;
+    private static final long MAX_DISK_ENTRY_AGE_MILLIS = TimeUnit.DAYS.toMillis(90);
+
+    private static final String KEY_URI = "Thumb::URI";
+    private static final String KEY_MTIME = "Thumb::MTime";
+    private static final String KEY_SIZE = "Thumb::Size";
+    private static final String KEY_IMAGE_WIDTH = "Thumb::Image::Width";
+    private static final String KEY_IMAGE_HEIGHT = "Thumb::Image::Height";
+
+    /**
+     * Creates the thumbnail of a file, which might fail with a failure ThumbInfo.
+     */
+    @FunctionalInterface
+    public interface ThumbLoader {
+        /**
+         * The progress tracker can be null.
+         */
+        ThumbInfo load(File file, int maxWidth, int maxHeight, ProgressTracker pt);
+    }
+
+    // the thumbnails in memory, with the least recently used first
+    private final Map<String, CacheEntry> memoryEntries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > MAX_MEMORY_ENTRIES;
+            }
+        };
+
+    // the thumbnails that are being created, so that
+    // the same thumbnail isn't created by two threads
+    private final Map<String, CompletableFuture<ThumbInfo>> pendingLoads = new ConcurrentHashMap<>();
+
+    // the directory of the disk entries, or null if they are disabled
+    private final File cacheDir;
+    private final ThumbLoader loader;
+
+    // a single low-priority thread for prefetching the neighboring thumbnails
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ThumbnailPrefetcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // incremented for each new selection, so that outdated prefetches stop
+    private final AtomicLong prefetchGeneration = new AtomicLong();
+
+    public ThumbnailCache(File cacheDir, ThumbLoader loader) {
+        this.loader = loader;
+        if (cacheDir != null && (cacheDir.isDirectory() || cacheDir.mkdirs())) {
+            this.cacheDir = cacheDir;
+            prefetcher.execute(this::removeOldDiskEntries);
+        } else {
+            this.cacheDir = null;
+        }
+    }
+
+    /**
+     * Returns the platform-specific directory of the disk entries.
+     */
+    public static File getDefaultDir() {
+        String baseDir;
+        if (JVM.isWindows) {
+            baseDir = System.getenv("LOCALAPPDATA") + File.separator + "Pixelitor";
+        } else if (JVM.isMac) {
+            baseDir = System.getProperty("user.home") + "/Library/Caches/Pixelitor";
+        } else {
+            String xdgCache = System.getenv("XDG_CACHE_HOME");
+            if (xdgCache == null || xdgCache.isEmpty()) {
+                xdgCache = System.getProperty("user.home") + "/.cache";
+            }
+            baseDir = xdgCache + "/pixelitor";
+        }
+        return new File(baseDir, "thumbnails");
+    }
+
+    /**
+     * Returns the thumbnail of the given file from the memory or disk cache,
+     * or creates it if it's not cached or if the file changed since then.
+     */
+    public ThumbInfo get(File file, int maxWidth, int maxHeight, ProgressTracker pt) {
+        String key = createKey(file, maxWidth, maxHeight);
+        FileStamp stamp = FileStamp.of(file);
+
+        synchronized (memoryEntries) {
+            CacheEntry entry = memoryEntries.get(key);
+            if (entry != null && entry.stamp.equals(stamp)) {
+                return entry.thumbInfo;
+            }
+        }
+
+        var newLoad = new CompletableFuture<ThumbInfo>();
+        CompletableFuture<ThumbInfo> pendingLoad = pendingLoads.putIfAbsent(key, newLoad);
+        if (pendingLoad != null) {
+            // it's being prefetched right now
+            return pendingLoad.join();
+        }
+        try {
+            ThumbInfo thumbInfo = load(file, key, stamp, maxWidth, maxHeight, pt);
+            newLoad.complete(thumbInfo);
+            return thumbInfo;
+        } catch (RuntimeException e) {
+            newLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingLoads.remove(key);
+        }
+    }
+
+    private ThumbInfo load(File file, String key, FileStamp stamp,
+                           int maxWidth, int maxHeight, ProgressTracker pt) {
+        File diskFile = getDiskFile(key);
+        ThumbInfo thumbInfo = diskFile != null ? readDiskEntry(diskFile, stamp) : null;
+        if (thumbInfo == null) {
+            thumbInfo = loader.load(file, maxWidth, maxHeight, pt);
+            if (!thumbInfo.isSuccess()) {
+                // don't cache failures - perhaps the user
+                // is retrying after fixing the problem
+                return thumbInfo;
+            }
+            if (diskFile != null) {
+                writeDiskEntry(diskFile, file, stamp, thumbInfo);
+            }
+        }
+        synchronized (memoryEntries) {
+            memoryEntries.put(key, new CacheEntry(thumbInfo, stamp));
+        }
+        return thumbInfo;
+    }
+
+    /**
+     * Creates the thumbnails of the files next to the given one
+     * in the background, in the order of their distance from it.
+     * A new call stops the prefetching started by the previous one.
+     */
+    public void prefetchNeighbors(File file, int maxWidth, int maxHeight) {
+        long generation = prefetchGeneration.incrementAndGet();
+        prefetcher.execute(() -> {
+            File dir = file.getParentFile();
+            File[] files = dir == null ? null : dir.listFiles(
+                f -> f.isFile() && FileUtils.hasSupportedInputExt(f));
+            if (files == null) {
+                return;
+            }
+            // the usual order of the file choosers
+            Arrays.sort(files, Comparator.comparing(File::getName, String.CASE_INSENSITIVE_ORDER));
+            int index = Arrays.asList(files).indexOf(file);
+            if (index == -1) {
+                return;
+            }
+            for (int distance = 1; distance <= NUM_PREFETCHED_NEIGHBORS; distance++) {
+                for (int neighbor : new int[]{index + distance, index - distance}) {
+                    if (prefetchGeneration.get() != generation) {
+                        return; // another file was selected
+                    }
+                    if (neighbor >= 0 && neighbor < files.length && Files.isReadable(files[neighbor].toPath())) {
+                        get(files[neighbor], maxWidth, maxHeight, null);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the thumbnails of the given file from memory, for example
+     * because it was overwritten. The disk entries detect the change.
+     */
+    public void remove(File file) {
+        String keyPrefix = file.getAbsolutePath() + '|';
+        synchronized (memoryEntries) {
+            memoryEntries.keySet().removeIf(key -> key.startsWith(keyPrefix));
+        }
+    }
+
+    private static String createKey(File file, int maxWidth, int maxHeight) {
+        return file.getAbsolutePath() + '|' + maxWidth + 'x' + maxHeight;
+    }
+
+    private File getDiskFile(String key) {
+        if (cacheDir == null) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes(UTF_8));
+            return new File(cacheDir, HexFormat.of().formatHex(hash) + ".png");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // returns null if there is no valid disk entry
+    private static ThumbInfo readDiskEntry(File diskFile, FileStamp stamp) {
+        if (!diskFile.exists()) {
+            return null;
+        }
+        try (ImageInputStream iis = ImageIO.createImageInputStream(diskFile)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true);
+                Map<String, String> textEntries = readTextEntries(reader);
+                if (!String.valueOf(stamp.mtimeSeconds()).equals(textEntries.get(KEY_MTIME))
+                    || !String.valueOf(stamp.size()).equals(textEntries.get(KEY_SIZE))) {
+                    return null; // the file changed since the thumbnail was created
+                }
+                BufferedImage thumb = reader.read(0);
+
+                // marks the entry as recently used
+                diskFile.setLastModified(System.currentTimeMillis());
+
+                String width = textEntries.get(KEY_IMAGE_WIDTH);
+                String height = textEntries.get(KEY_IMAGE_HEIGHT);
+                if (width != null && height != null) {
+                    return ThumbInfo.success(thumb, Integer.parseInt(width), Integer.parseInt(height));
+                }
+                return ThumbInfo.success(thumb);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // a corrupt entry is recreated
+            return null;
+        }
+    }
+
+    private static Map<String, String> readTextEntries(ImageReader reader) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        Node root = reader.getImageMetadata(0).getAsTree("javax_imageio_png_1.0");
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!node.getNodeName().equals("tEXt")) {
+                continue;
+            }
+            for (Node entry = node.getFirstChild(); entry != null; entry = entry.getNextSibling()) {
+                NamedNodeMap attributes = entry.getAttributes();
+                entries.put(attributes.getNamedItem("keyword").getNodeValue(),
+                    attributes.getNamedItem("value").getNodeValue());
+            }
+        }
+        return entries;
+    }
+
+    private static void writeDiskEntry(File diskFile, File file, FileStamp stamp, ThumbInfo thumbInfo) {
+        Map<String, String> textEntries = new LinkedHashMap<>();
+        textEntries.put(KEY_URI, file.toURI().toString());
+        textEntries.put(KEY_MTIME, String.valueOf(stamp.mtimeSeconds()));
+        textEntries.put(KEY_SIZE, String.valueOf(stamp.size()));
+        if (thumbInfo.getFullWidth() != -1) {
+            textEntries.put(KEY_IMAGE_WIDTH, String.valueOf(thumbInfo.getFullWidth()));
+            textEntries.put(KEY_IMAGE_HEIGHT, String.valueOf(thumbInfo.getFullHeight()));
+        }
+        textEntries.put("Software", "Pixelitor");
+
+        // written to a temporary file first, so that other
+        // threads or instances never see a partial entry
+        try {
+            File tmpFile = File.createTempFile("thumb", ".tmp", diskFile.getParentFile());
+            try (var out = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+                PngEncoder.DEFAULT.write(thumbInfo.getThumb(), out, textEntries, ProgressTracker.NULL_TRACKER);
+            }
+            Files.move(tmpFile.toPath(), diskFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the thumbnail just isn't cached on disk
+        }
+    }
+
+    private void removeOldDiskEntries() {
+        File[] diskFiles = cacheDir.listFiles();
+        if (diskFiles == null) {
+            return;
+        }
+        long minLastModified = System.currentTimeMillis() - MAX_DISK_ENTRY_AGE_MILLIS;
+        for (File diskFile : diskFiles) {
+            if (diskFile.lastModified() < minLastModified) {
+                diskFile.delete();
+            }
+        }
+    }
+
+    /**
+     * The properties of a file that change when it's modified.
+     */
+    private record FileStamp(long mtimeSeconds, long size) {
+        static FileStamp of(File file) {
+            return new FileStamp(file.lastModified() / 1000, file.length());
+        }
+    }
+
+    private record CacheEntry(ThumbInfo thumbInfo, FileStamp stamp) {
+    }
+}
@@ -27,6 +27,7 @@ import java.util.function.Consumer;
  */
 public class ViewEnabledAction extends AbstractViewEnabledAction {
     private final Consumer<Composition> task;
+    private boolean editsComp = true;
 
     public ViewEnabledAction(String name, Consumer<Composition> task) {
         super(name);
@@ -38,8 +39,23 @@ public class ViewEnabledAction extends AbstractViewEnabledAction {
         this.task = task;
     }
 
+    /**
+     * Creates an action that doesn't modify the composition,
+     * and therefore it can be used also on previews.
+     */
+    public static ViewEnabledAction readOnly(String name, Consumer<Composition> task) {
+        var action = new ViewEnabledAction(name, task);
+        action.editsComp = false;
+        return action;
+    }
+
     @Override
     protected void onClick(Composition comp) {
         task.accept(comp);
     }
+
+    @Override
+    protected boolean editsComp() {
+        return editsComp;
+    }
 }
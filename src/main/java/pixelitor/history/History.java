@@ -22,6 +22,7 @@ import pixelitor.Composition;
 import pixelitor.ConsistencyChecks;
 import pixelitor.Views;
 import pixelitor.layers.Drawable;
+import pixelitor.tools.StrokeProcessor;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.Messages;
 import pixelitor.utils.debug.DebugNode;
@@ -94,6 +95,10 @@ public class History {
     }
 
     public static void undo() {
+        if (StrokeProcessor.isStrokeInProgress()) {
+            // the stroke thread is drawing into the current layer image
+            return;
+        }
         try {
             // increase it before calling undoManager.undo()
             // so that the result of undo is not fadeable
@@ -105,6 +110,10 @@ public class History {
     }
 
     public static void redo() {
+        if (StrokeProcessor.isStrokeInProgress()) {
+            // the stroke thread is drawing into the current layer image
+            return;
+        }
         try {
             numUndoneEdits--; // after redo we should be fadeable again
             undoManager.redo();
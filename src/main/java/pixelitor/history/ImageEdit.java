@@ -19,21 +19,56 @@ package pixelitor.history;
 
 import pixelitor.Composition;
 import pixelitor.layers.Drawable;
+import pixelitor.utils.TiledImage;
 import pixelitor.utils.debug.DebugNode;
 
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import java.awt.image.BufferedImage;
 import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A PixelitorEdit that represents the changes made to an image.
  */
 public class ImageEdit extends FadeableEdit {
+    // backups with at least this many pixels are stored off-heap in tiles
+    private static final int MIN_TILED_BACKUP_PIXELS = 2_000_000;
+
+    // The tiled backups are created and released on a single background
+    // thread, in the order of the requests. The EDT doesn't wait for the
+    // copying or for the growth of the scratch file, and a tiled backup
+    // can't be released while a newer backup is sharing its tiles.
+    private static final ExecutorService tilingThread =
+        Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "BackupTiling");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    // the last tiled backup of each drawable, with which the next
+    // backup can share its unchanged tiles (only used on the tiling thread)
+    private static final Map<Drawable, WeakReference<TiledImage>> lastTiledBackups = new WeakHashMap<>();
+
     // selections are ignored for example when the image is enlarged by the move tool
     private final boolean ignoreSelection;
 
+    // only one of these is used, depending on the size of the backup
     private SoftReference<BufferedImage> imgRef;
+    private TiledImage tiledBackup; // guarded by this
+
+    // a large backup that is still being copied into tiles on the tiling thread
+    private BufferedImage pendingBackup; // guarded by this
+
+    // the heap copy of the tiled backup, so that Fade doesn't
+    // have to copy it out of the tiles for every preview
+    private SoftReference<BufferedImage> tiledBackupCopyRef;
+
     protected Drawable dr;
 
     public ImageEdit(String name, Composition comp, Drawable dr,
@@ -47,18 +82,63 @@ public class ImageEdit extends FadeableEdit {
 
 //        Utils.debugImage(backupImage, "Backup for " + name);
 
-        // the backup image is stored in an SoftReference
-        imgRef = new SoftReference<>(backupImage);
         this.dr = dr;
+        checkBackupDifferentFromActive(backupImage);
+        storeBackup(backupImage, null);
+    }
+
+    // Large backups are copied into off-heap tiles, which don't burden the
+    // garbage collector and are kept until the edit dies. Smaller backups
+    // are stored in a SoftReference, and can be lost if the heap is low.
+    // The given old tiled backup is released after the new one is created.
+    private synchronized void storeBackup(BufferedImage backupImage, TiledImage oldBackup) {
+        long numPixels = (long) backupImage.getWidth() * backupImage.getHeight();
+        if (numPixels < MIN_TILED_BACKUP_PIXELS || !TiledImage.canStore(backupImage)) {
+            imgRef = new SoftReference<>(backupImage);
+            if (oldBackup != null) {
+                tilingThread.execute(oldBackup::release);
+            }
+            return;
+        }
+
+        // until the tiles are ready, the heap image is the backup
+        imgRef = null;
+        pendingBackup = backupImage;
+        tilingThread.execute(() -> tileBackup(backupImage, oldBackup));
+    }
+
+    // runs on the tiling thread
+    private void tileBackup(BufferedImage backupImage, TiledImage oldBackup) {
+        TiledImage base = oldBackup;
+        if (base == null) {
+            var lastRef = lastTiledBackups.get(dr);
+            base = lastRef != null ? lastRef.get() : null;
+        }
+        TiledImage tiled = TiledImage.of(backupImage, base);
+        if (oldBackup != null) {
+            oldBackup.release();
+        }
+
+        synchronized (this) {
+            if (pendingBackup != backupImage) {
+                // the edit was undone, redone or died in the meantime
+                tiled.release();
+                return;
+            }
+            tiledBackup = tiled;
+            pendingBackup = null;
 
-        checkBackupDifferentFromActive();
+            // the heap image can serve as the cached copy
+            tiledBackupCopyRef = new SoftReference<>(backupImage);
+        }
+        lastTiledBackups.put(dr, new WeakReference<>(tiled));
     }
 
     // the backup should never be identical to the active image
     // otherwise the backup might be also edited
-    private void checkBackupDifferentFromActive() {
+    private void checkBackupDifferentFromActive(BufferedImage backupImage) {
         BufferedImage layerImage = dr.getImage();
-        if (layerImage == imgRef.get()) {
+        if (layerImage == backupImage) {
             throw new IllegalStateException("backup image is identical to the active one");
         }
     }
@@ -97,9 +177,19 @@ public class ImageEdit extends FadeableEdit {
      * Returns true if successful
      */
     private boolean swapImages() {
-        BufferedImage backupImage = imgRef.get();
-        if (backupImage == null) {
-            return false;
+        BufferedImage backupImage;
+        TiledImage oldTiledBackup;
+        synchronized (this) {
+            backupImage = getBackupImage();
+            if (backupImage == null) {
+                return false;
+            }
+            // the cached copy (or the pending heap backup)
+            // becomes the image of the drawable
+            tiledBackupCopyRef = null;
+            pendingBackup = null;
+            oldTiledBackup = tiledBackup;
+            tiledBackup = null;
         }
 
         BufferedImage tmp;
@@ -110,15 +200,16 @@ public class ImageEdit extends FadeableEdit {
         }
         dr.changeImageForUndoRedo(backupImage, ignoreSelection);
 
-        // create new backup image from tmp
-        imgRef = new SoftReference<>(tmp);
+        // create new backup image from tmp, the old tiled backup
+        // can share the tiles that weren't changed by the edit
+        checkBackupDifferentFromActive(tmp);
+        storeBackup(tmp, oldTiledBackup);
 
         if (!embedded) {
             comp.update();
             dr.updateIconImage();
         }
 
-        checkBackupDifferentFromActive();
         return true;
     }
 
@@ -126,14 +217,36 @@ public class ImageEdit extends FadeableEdit {
     public void die() {
         super.die();
 
-        BufferedImage backupImage = imgRef.get();
-        if (backupImage != null) {
-            backupImage.flush();
+        synchronized (this) {
+            if (tiledBackup != null) {
+                tilingThread.execute(tiledBackup::release);
+                tiledBackup = null;
+            }
+            pendingBackup = null;
+            tiledBackupCopyRef = null;
+        }
+        if (imgRef != null) {
+            BufferedImage backupImage = imgRef.get();
+            if (backupImage != null) {
+                backupImage.flush();
+            }
+            imgRef = null;
         }
     }
 
     @Override
-    public BufferedImage getBackupImage() {
+    public synchronized BufferedImage getBackupImage() {
+        if (pendingBackup != null) {
+            return pendingBackup;
+        }
+        if (tiledBackup != null) {
+            BufferedImage copy = tiledBackupCopyRef != null ? tiledBackupCopyRef.get() : null;
+            if (copy == null) {
+                copy = tiledBackup.toBufferedImage();
+                tiledBackupCopyRef = new SoftReference<>(copy);
+            }
+            return copy;
+        }
         if (imgRef != null) {
             // this still could be null
             return imgRef.get();
@@ -141,14 +254,38 @@ public class ImageEdit extends FadeableEdit {
         return null;
     }
 
+    // used only for testing
+    synchronized TiledImage getTiledBackup() {
+        return tiledBackup;
+    }
+
+    /**
+     * Runs the given task on the tiling thread after the
+     * previously requested tiling work. Used only for testing.
+     */
+    static CompletableFuture<Void> runOnTilingThread(Runnable task) {
+        return CompletableFuture.runAsync(task, tilingThread);
+    }
+
     @Override
-    public DebugNode createDebugNode(String key) {
+    public synchronized DebugNode createDebugNode(String key) {
         DebugNode node = super.createDebugNode(key);
 
-        BufferedImage img = imgRef.get();
-        if (img != null) {
-            node.addInt("backup image width", img.getWidth());
-            node.addInt("backup image height", img.getHeight());
+        if (pendingBackup != null) {
+            node.addInt("backup image width", pendingBackup.getWidth());
+            node.addInt("backup image height", pendingBackup.getHeight());
+            node.addBoolean("tiling pending", true);
+        } else if (tiledBackup != null) {
+            node.addInt("backup image width", tiledBackup.getWidth());
+            node.addInt("backup image height", tiledBackup.getHeight());
+            node.addInt("stored tiles", tiledBackup.getNumStoredTiles());
+            node.addInt("shared tiles", tiledBackup.getNumSharedTiles());
+        } else if (imgRef != null) {
+            BufferedImage img = imgRef.get();
+            if (img != null) {
+                node.addInt("backup image width", img.getWidth());
+                node.addInt("backup image height", img.getHeight());
+            }
         }
 
         node.addBoolean("ignoreSelection", ignoreSelection);
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.Result;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.utils.Threads.calledOnEDT;
+
+/**
+ * Keeps external filter processes alive between invocations, so that
+ * repeated runs (for example preview updates and the final run of a
+ * filter) don't pay for the process startup every time.
+ *
+ * A worker is started with a command that processes images in a loop:
+ * it reads an image from its standard input and writes the result to its
+ * standard output, without closing the streams. The images are exchanged
+ * in a raw {@link PipeFormat}, because the size of the data has to be
+ * known from the header. Large images can be split into overlapping
+ * horizontal tiles, which are processed by several workers in parallel.
+ *
+ * The workers are reused for all jobs with the same command, whatever
+ * the filter arguments are. If a job has arguments, then they are sent
+ * in front of its image, as a one-row text image (see
+ * {@link PipeFormat#writeText(String, OutputStream)}), and the worker
+ * must apply them to the following image.
+ *
+ * The idle workers are stopped after a minute, and at the application exit.
+ */
+public class CommandLineWorkers {
+    /**
+     * The tile overlap of the filters that have to see the whole image.
+     */
+    public static final int NOT_TILEABLE = -1;
+
+    private static final int MAX_IDLE_WORKERS = 8;
+    private static final long MAX_IDLE_MILLIS = 60_000;
+    private static final int MIN_TILE_HEIGHT = 256;
+    private static final long PROBE_TIMEOUT_SECONDS = 10;
+
+    // the idle workers, the least recently used first
+    private static final Deque<Worker> idleWorkers = new ArrayDeque<>();
+
+    // the results of the protocol checks, keyed by the probe command
+    private static final Map<List<String>, CompletableFuture<Boolean>> probeResults = new ConcurrentHashMap<>();
+
+    // stops the expired idle workers
+    private static final ScheduledExecutorService expiryTimer =
+        Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "WorkerExpiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    // true if the expiry check is scheduled (guarded by idleWorkers)
+    private static boolean expiryScheduled;
+
+    private CommandLineWorkers() {
+    }
+
+    /**
+     * Checks whether the given worker command works with the given job
+     * arguments, which should pass the images through unchanged. The check
+     * sends a tiny image with a timeout, because a program that doesn't flush
+     * its output after each image would block forever. The result is cached.
+     * On the EDT, the check runs in the background, and until it finishes,
+     * the command is reported as unsupported.
+     */
+    public static boolean isSupported(List<String> command, String probeArgs, PipeFormat format) {
+        List<String> key = new ArrayList<>(command);
+        key.add(probeArgs);
+
+        var probeResult = probeResults.computeIfAbsent(List.copyOf(key),
+            k -> CompletableFuture.supplyAsync(() -> probe(command, probeArgs, format), FileIO::startPipeThread));
+        if (calledOnEDT()) {
+            return probeResult.getNow(false);
+        }
+        return probeResult.join();
+    }
+
+    private static boolean probe(List<String> command, String probeArgs, PipeFormat format) {
+        Worker worker;
+        try {
+            worker = new Worker(command, format);
+        } catch (IOException e) {
+            return false;
+        }
+        BufferedImage img = new BufferedImage(1, 1, TYPE_INT_ARGB);
+        CompletableFuture<BufferedImage> result = CompletableFuture.supplyAsync(
+            () -> worker.process(img, probeArgs), FileIO::startPipeThread);
+        try {
+            BufferedImage out = result.get(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (out.getWidth() != 1 || out.getHeight() != 1) {
+                worker.destroy();
+                return false;
+            }
+            release(worker);
+            return true;
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            worker.destroy();
+            return false;
+        }
+    }
+
+    /**
+     * Processes the given image with the given arguments, using workers started
+     * by the given command. If the tile overlap isn't {@link #NOT_TILEABLE},
+     * then large images are processed in tiles that are extended by the
+     * overlap on both sides. Returns an error if a worker failed, in which
+     * case the caller can fall back to running the filter as a one-shot process.
+     */
+    public static Result<BufferedImage, String> run(BufferedImage src, List<String> command,
+                                                    String args, PipeFormat format, int tileOverlap) {
+        int numTiles = 1;
+        if (tileOverlap != NOT_TILEABLE) {
+            numTiles = Math.clamp(src.getHeight() / MIN_TILE_HEIGHT, 1, ThreadPool.getNumCores());
+        }
+        return run(src, command, args, format, tileOverlap, numTiles);
+    }
+
+    static Result<BufferedImage, String> run(BufferedImage src, List<String> command, String args,
+                                             PipeFormat format, int tileOverlap, int numTiles) {
+        if (format == PipeFormat.PNG) {
+            // the end of a PNG image can't be found without decoding it
+            throw new IllegalArgumentException("the workers need a raw format");
+        }
+        try {
+            if (numTiles == 1) {
+                return Result.success(processWithWorker(src, command, args, format));
+            }
+            return Result.success(processTiles(src, command, args, format, tileOverlap, numTiles));
+        } catch (UncheckedIOException e) {
+            return Result.error(e.getCause().getMessage());
+        }
+    }
+
+    private static BufferedImage processTiles(BufferedImage src, List<String> command, String args,
+                                              PipeFormat format, int overlap, int numTiles) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int tileHeight = (height + numTiles - 1) / numTiles;
+        numTiles = (height + tileHeight - 1) / tileHeight; // no empty tiles at the end
+
+        // the tiles are processed on dedicated threads (not on the thread
+        // pool), because they mostly wait for the external processes
+        List<CompletableFuture<BufferedImage>> futures = new ArrayList<>(numTiles);
+        for (int i = 0; i < numTiles; i++) {
+            int top = Math.max(0, i * tileHeight - overlap);
+            int bottom = Math.min(height, (i + 1) * tileHeight + overlap);
+            BufferedImage tile = src.getSubimage(0, top, width, bottom - top);
+            futures.add(CompletableFuture.supplyAsync(
+                () -> processWithWorker(tile, command, args, format), FileIO::startPipeThread));
+        }
+
+        BufferedImage dest = new BufferedImage(width, height, TYPE_INT_ARGB);
+        int[] rowBuffer = new int[width * tileHeight];
+        for (int i = 0; i < numTiles; i++) {
+            BufferedImage tileResult;
+            try {
+                tileResult = futures.get(i).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof UncheckedIOException uioe ? uioe : e;
+            }
+            int tileStart = i * tileHeight;
+            int tileEnd = Math.min(height, tileStart + tileHeight);
+            int top = Math.max(0, tileStart - overlap);
+            if (tileResult.getWidth() != width
+                || tileResult.getHeight() != Math.min(height, tileEnd + overlap) - top) {
+                throw new UncheckedIOException(new IOException("the size of a tile changed"));
+            }
+            // copy the tile without the overlapping rows
+            int rows = tileEnd - tileStart;
+            tileResult.getRGB(0, tileStart - top, width, rows, rowBuffer, 0, width);
+            dest.setRGB(0, tileStart, width, rows, rowBuffer, 0, width);
+        }
+        return dest;
+    }
+
+    private static BufferedImage processWithWorker(BufferedImage img, List<String> command,
+                                                   String args, PipeFormat format) {
+        Worker worker = acquire(command, format);
+        try {
+            BufferedImage result = worker.process(img, args);
+            release(worker);
+            return result;
+        } catch (UncheckedIOException e) {
+            worker.destroy();
+            throw e;
+        }
+    }
+
+    private static Worker acquire(List<String> command, PipeFormat format) {
+        synchronized (idleWorkers) {
+            removeExpiredWorkers();
+            Iterator<Worker> it = idleWorkers.descendingIterator();
+            while (it.hasNext()) {
+                Worker worker = it.next();
+                if (worker.canRun(command, format)) {
+                    it.remove();
+                    return worker;
+                }
+            }
+        }
+        try {
+            return new Worker(command, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void release(Worker worker) {
+        worker.lastUsed = System.currentTimeMillis();
+        synchronized (idleWorkers) {
+            idleWorkers.addLast(worker);
+            while (idleWorkers.size() > MAX_IDLE_WORKERS) {
+                idleWorkers.removeFirst().destroy();
+            }
+            scheduleExpiryCheck();
+        }
+    }
+
+    // must be called while holding the lock of idleWorkers
+    private static void scheduleExpiryCheck() {
+        if (!expiryScheduled && !idleWorkers.isEmpty()) {
+            expiryScheduled = true;
+            expiryTimer.schedule(CommandLineWorkers::checkExpiredWorkers,
+                MAX_IDLE_MILLIS / 2, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void checkExpiredWorkers() {
+        synchronized (idleWorkers) {
+            expiryScheduled = false;
+            removeExpiredWorkers();
+            // checks again while there are idle workers
+            scheduleExpiryCheck();
+        }
+    }
+
+    private static void removeExpiredWorkers() {
+        long now = System.currentTimeMillis();
+        idleWorkers.removeIf(worker -> {
+            if (now - worker.lastUsed > MAX_IDLE_MILLIS || !worker.process.isAlive()) {
+                worker.destroy();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Stops all idle workers.
+     */
+    public static void stopIdleWorkers() {
+        synchronized (idleWorkers) {
+            idleWorkers.forEach(Worker::destroy);
+            idleWorkers.clear();
+        }
+    }
+
+    static int getNumIdleWorkers() {
+        synchronized (idleWorkers) {
+            return idleWorkers.size();
+        }
+    }
+
+    /**
+     * A running external process that processes images one after the other.
+     */
+    private static class Worker {
+        private final List<String> command;
+        private final PipeFormat format;
+        private final Process process;
+        private final OutputStream processInput;
+        private final InputStream processOutput;
+        private long lastUsed;
+
+        Worker(List<String> command, PipeFormat format) throws IOException {
+            this.command = List.copyOf(command);
+            this.format = format;
+            // the error messages are discarded, because the one-shot
+            // fallback run reports them if the worker fails
+            process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            processInput = process.getOutputStream();
+            processOutput = process.getInputStream();
+        }
+
+        boolean canRun(List<String> command, PipeFormat format) {
+            return this.format == format && this.command.equals(command) && process.isAlive();
+        }
+
+        BufferedImage process(BufferedImage img, String args) {
+            // the input is written on another thread, because
+            // the worker might start writing before reading everything
+            CompletableFuture<Void> writing = CompletableFuture.runAsync(() -> {
+                try {
+                    if (!args.isEmpty()) {
+                        format.writeText(args, processInput);
+                    }
+                    format.write(img, processInput);
+                    processInput.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, FileIO::startPipeThread);
+
+            BufferedImage result;
+            try {
+                result = format.read(processOutput);
+                if (result == null) {
+                    throw new IOException("the worker exited");
+                }
+                writing.join();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof UncheckedIOException uioe
+                    ? uioe : new UncheckedIOException(new IOException(e.getCause()));
+            }
+            return result;
+        }
+
+        void destroy() {
+            process.destroy();
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package pixelitor.io;
 
 import pixelitor.Composition;
+import pixelitor.gui.utils.ThumbInfo;
 import pixelitor.utils.AppPreferences;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
@@ -31,7 +32,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static pixelitor.utils.Threads.onEDT;
-import static pixelitor.utils.Threads.onIOThread;
 
 /**
  * The supported input and output file formats.
@@ -43,7 +43,7 @@ public enum FileFormat {
     }, ORA(true, null, FileChoosers.oraFilter) {
         @Override
         public Runnable createSaveTask(Composition comp, SaveSettings settings) {
-            return () -> OpenRaster.uncheckedWrite(comp, settings.file());
+            return () -> OpenRaster.uncheckedWrite(comp, PngSettings.from(settings));
         }
 
         @Override
@@ -57,9 +57,9 @@ public enum FileFormat {
         }
 
         @Override
-        public CompletableFuture<Composition> readAsync(File file) {
-            return CompletableFuture.supplyAsync(
-                Utils.uncheck(() -> OpenRaster.read(file)), onIOThread);
+        public CompletableFuture<Composition> readAsync(File file, IOTasks.Priority priority) {
+            return IOTasks.supplyAsync(file, priority,
+                Utils.uncheck(() -> OpenRaster.read(file)));
         }
     }, PAM(false, ImageUtils::convertToInterleavedRGBA, FileChoosers.pamFilter) {
     }, PNG(false, null, FileChoosers.pngFilter) {
@@ -67,7 +67,7 @@ public enum FileFormat {
     }, PXC(true, null, FileChoosers.pxcFilter) {
         @Override
         public Runnable createSaveTask(Composition comp, SaveSettings settings) {
-            return () -> PXCFormat.write(comp, settings.file());
+            return () -> PXCFormat.write(comp, PngSettings.from(settings));
         }
 
         @Override
@@ -81,14 +81,18 @@ public enum FileFormat {
         }
 
         @Override
-        public CompletableFuture<Composition> readAsync(File file) {
-            return CompletableFuture.supplyAsync(
-                Utils.uncheck(() -> PXCFormat.read(file)), onIOThread);
+        public CompletableFuture<Composition> readAsync(File file, IOTasks.Priority priority) {
+            return IOTasks.supplyAsync(file, priority,
+                Utils.uncheck(() -> PXCFormat.read(file)));
         }
     }, TGA(false, null, FileChoosers.tgaFilter) {
     }, TIFF(false, null, FileChoosers.tiffFilter) {
     };
 
+    // the images with more pixels are opened with a subsampled preview first
+    private static final long MIN_PREVIEW_PIXELS = 24_000_000;
+    private static final int PREVIEW_SIZE = 2048;
+
     private final boolean multiLayered;
     private final Function<BufferedImage, BufferedImage> converter;
     private final FileFilter fileFilter;
@@ -101,7 +105,11 @@ public enum FileFormat {
 
     public Runnable createSaveTask(Composition comp, SaveSettings settings) {
         assert !multiLayered; // overridden for multi-layered formats
-        return () -> saveSingleLayered(comp, settings);
+
+        // The composite is taken here, on the EDT, where its cache is maintained.
+        // The returned image isn't changed later, even if the user keeps editing.
+        BufferedImage img = comp.getCompositeImage();
+        return () -> saveSingleLayered(img, settings);
     }
 
     public Composition readSync(File file) {
@@ -115,17 +123,36 @@ public enum FileFormat {
     }
 
     public CompletableFuture<Composition> readAsync(File file) {
+        return readAsync(file, IOTasks.Priority.NORMAL);
+    }
+
+    /**
+     * Asynchronously reads the given file, with the given priority
+     * relative to the other waiting IO tasks.
+     */
+    public CompletableFuture<Composition> readAsync(File file, IOTasks.Priority priority) {
         assert !multiLayered; // overridden for multi-layered formats
-        return readSingleLayeredAsync(file);
+        return readSingleLayeredAsync(file, priority);
     }
 
-    private static CompletableFuture<Composition> readSingleLayeredAsync(File file) {
-        return CompletableFuture.supplyAsync(() -> TrackedIO.uncheckedRead(file), onIOThread)
+    /**
+     * Asynchronously reads a subsampled preview of the given file, which
+     * is completed with null if the image isn't large enough for a preview.
+     */
+    public CompletableFuture<ThumbInfo> readPreviewAsync(File file) {
+        if (multiLayered) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return IOTasks.supplyAsync(file, IOTasks.Priority.VISIBLE,
+            () -> TrackedIO.readPreview(file, PREVIEW_SIZE, MIN_PREVIEW_PIXELS));
+    }
+
+    private static CompletableFuture<Composition> readSingleLayeredAsync(File file, IOTasks.Priority priority) {
+        return IOTasks.supplyAsync(file, priority, () -> TrackedIO.uncheckedRead(file))
             .thenApplyAsync(img -> Composition.fromImage(img, file, null), onEDT);
     }
 
-    private void saveSingleLayered(Composition comp, SaveSettings settings) {
-        BufferedImage img = comp.getCompositeImage();
+    private void saveSingleLayered(BufferedImage img, SaveSettings settings) {
         if (converter != null) {
             // do the final conversion, which might be
             // necessary before writing the image
@@ -23,6 +23,8 @@ import pixelitor.Views;
 import pixelitor.automate.DirectoryChooser;
 import pixelitor.filters.gui.StrokeParam;
 import pixelitor.gui.GUIText;
+import pixelitor.gui.View;
+import pixelitor.gui.utils.ThumbInfo;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.io.magick.ImageMagick;
 import pixelitor.layers.Layer;
@@ -33,6 +35,7 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.swing.*;
 import java.awt.EventQueue;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.io.*;
@@ -69,19 +72,132 @@ public class FileIO {
         if (preventDuplicateOpen && !Views.warnIfAlreadyOpen(file)) {
             return CompletableFuture.completedFuture(null);
         }
-        return loadCompAsync(file)
-            .thenApplyAsync(Views::addJustLoadedComp, onEDT)
+        return openFileAsync(file, IOTasks.Priority.NORMAL, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Opens a file asynchronously, reading it with the given priority relative
+     * to the other IO tasks. The image is added only after the given previous
+     * opening is finished (successfully or not), which keeps the order
+     * of the views when several files are opened at once.
+     */
+    public static CompletableFuture<Composition> openFileAsync(File file,
+                                                               IOTasks.Priority priority,
+                                                               CompletableFuture<?> prevOpening) {
+        // the errors of the previous opening were already reported
+        CompletableFuture<?> prevFinished = prevOpening.handle((result, exception) -> null);
+
+        // if the file format isn't recognized, this will still try to
+        // read it in a single-layered format, which doesn't have to be JPG
+        FileFormat format = FileFormat.fromFile(file).orElse(FileFormat.JPG);
+        return format.readPreviewAsync(file)
+            .thenComposeAsync(preview -> preview == null
+                ? format.readAsync(file, priority).thenCombineAsync(prevFinished,
+                    (comp, prev) -> Views.addJustLoadedComp(comp), onEDT)
+                : prevFinished.thenComposeAsync(prev ->
+                    openWithPreview(file, format, preview, priority), onEDT), onEDT)
             .whenComplete((comp, exception) -> handleFileReadErrors(exception));
     }
 
+    /**
+     * Shows the preview of a large image immediately, and replaces
+     * it with the full-resolution image when it's decoded.
+     */
+    private static CompletableFuture<Composition> openWithPreview(File file, FileFormat format,
+                                                                  ThumbInfo preview,
+                                                                  IOTasks.Priority priority) {
+        Composition previewComp = Composition.fromImage(preview.getThumb(), file, null);
+        previewComp.setPreview(true);
+        Views.addJustLoadedComp(previewComp);
+
+        int fullWidth = preview.getFullWidth();
+        int fullHeight = preview.getFullHeight();
+        if (!TiledImageSource.fitsInMemory(fullWidth, fullHeight)) {
+            // the preview remains, and the details are decoded on demand
+            previewComp.setTiledSource(new TiledImageSource(file, fullWidth, fullHeight));
+            Messages.showInfo("Large Image", String.format(
+                "<html>The image <b>%s</b> (%dx%d) is too large to be edited." +
+                    "<br>Select a region and use <b>Select > Open Selection at Full Resolution</b>" +
+                    "<br>to edit or export it.", file.getName(), fullWidth, fullHeight));
+            return CompletableFuture.completedFuture(previewComp);
+        }
+
+        return format.readAsync(file, priority).handleAsync((fullComp, exception) -> {
+            View view = previewComp.getView();
+            if (exception != null || fullComp == null) {
+                // The preview can't be edited, saved or reloaded, and it
+                // shouldn't be mistaken for the image. The error is
+                // reported by the caller.
+                if (view != null) {
+                    view.close();
+                }
+                if (exception != null) {
+                    throw exception instanceof CompletionException ce ? ce : new CompletionException(exception);
+                }
+                return null;
+            }
+            if (view == null) {
+                // the preview was closed in the meantime
+                return null;
+            }
+            view.replacePreview(fullComp);
+            return fullComp;
+        }, onEDT);
+    }
+
+    /**
+     * Decodes the selected region of a large image at full
+     * resolution, and opens it as a new, editable image.
+     */
+    public static void openSelectedRegion(Composition comp) {
+        TiledImageSource source = comp.getTiledSource();
+        if (source == null) {
+            Messages.showInfo("Not a Large Image",
+                "This command opens the regions of images that are too large to be opened at once.");
+            return;
+        }
+        if (!comp.hasSelection()) {
+            Messages.showInfo("No Selection",
+                "Select the region that should be opened at full resolution.");
+            return;
+        }
+
+        // the selection is in the space of the preview
+        Rectangle region = source.toFullResolution(
+            comp.getSelection().getShapeBounds2D(), comp.getCanvasWidth());
+        if (region.isEmpty()) {
+            return;
+        }
+        if (!TiledImageSource.fitsInMemory(region.width, region.height)) {
+            Messages.showError("Region Too Large", String.format(
+                "The selected region (%dx%d) is too large to be opened.", region.width, region.height));
+            return;
+        }
+
+        String name = String.format("%s [%d, %d, %dx%d]", comp.getName(),
+            region.x, region.y, region.width, region.height);
+        IOTasks.supplyAsync(source.getFile(), IOTasks.Priority.VISIBLE,
+                Utils.uncheck(() -> source.readRegion(region, 1)))
+            .thenAcceptAsync(img -> Views.addNew(Composition.fromImage(img, null, name)), onEDT)
+            .whenComplete((result, exception) -> handleFileReadErrors(exception));
+    }
+
     /**
      * Asynchronously loads a {@link Composition} from a file.
      */
     public static CompletableFuture<Composition> loadCompAsync(File file) {
+        return loadCompAsync(file, IOTasks.Priority.NORMAL);
+    }
+
+    /**
+     * Asynchronously loads a {@link Composition} from a file,
+     * with the given priority relative to the other IO tasks.
+     */
+    public static CompletableFuture<Composition> loadCompAsync(File file, IOTasks.Priority priority) {
         // if the file format isn't recognized, this will still try to
         // read it in a single-layered format, which doesn't have to be JPG
         FileFormat format = FileFormat.fromFile(file).orElse(FileFormat.JPG);
-        return format.readAsync(file);
+        return format.readAsync(file, priority);
     }
 
     /**
@@ -96,8 +212,11 @@ public class FileIO {
      * Asynchronously adds a new image layer to an existing composition.
      */
     public static void addNewImageLayerAsync(File file, Composition comp) {
-        CompletableFuture
-            .supplyAsync(() -> TrackedIO.uncheckedRead(file), onIOThread)
+        if (comp.checkPreview()) {
+            // don't read the file in vain
+            return;
+        }
+        IOTasks.supplyAsync(file, () -> TrackedIO.uncheckedRead(file))
             .thenAcceptAsync(img -> comp.addExternalImageAsNewLayer(
                     img, file.getName(), "Dropped Layer"),
                 onEDT)
@@ -195,6 +314,9 @@ public class FileIO {
                 JpegSettings settings = JpegSettings.from(saveSettings);
                 Consumer<ImageWriteParam> customizer = settings.toCustomizer();
                 TrackedIO.write(image, "jpg", targetFile, customizer);
+            } else if (format == FileFormat.PNG) {
+                PngSettings settings = PngSettings.from(saveSettings);
+                TrackedIO.writePng(image, targetFile, settings.toEncoder());
             } else {
                 TrackedIO.write(image, format.toString(), targetFile, null);
             }
@@ -244,13 +366,15 @@ public class FileIO {
     public static void exportLayersToPNGAsync(Composition comp) {
         assert calledOnEDT() : callInfo();
 
-        boolean directorySelected = DirectoryChooser.selectOutputDir();
+        var pngSettingsPanel = new PngSettingsPanel();
+        boolean directorySelected = DirectoryChooser.selectOutputDir(pngSettingsPanel);
         if (!directorySelected) {
             return;
         }
+        PngSettings settings = pngSettingsPanel.createSettings(Dirs.getLastSave());
 
         CompletableFuture
-            .supplyAsync(() -> exportLayersToPNG(comp), onIOThread)
+            .supplyAsync(() -> exportLayersToPNG(comp, settings), onIOThread)
             .thenAcceptAsync(numImg -> Messages.showStatusMessage(
                 getSavedImagesMessage(numImg, Dirs.getLastSave())), onEDT)
             .exceptionally(Messages::showExceptionOnEDT);
@@ -261,7 +385,7 @@ public class FileIO {
         return "Saved %d %s to <b>%s</b>".formatted(imageCount, what, directory);
     }
 
-    private static int exportLayersToPNG(Composition comp) {
+    private static int exportLayersToPNG(Composition comp, PngSettings settings) {
         assert calledOutsideEDT() : "on EDT";
 
         int exportedCount = 0;
@@ -269,7 +393,7 @@ public class FileIO {
             Layer layer = comp.getLayer(layerIndex);
             BufferedImage image = layer.toImage(true, false);
             if (image != null) {
-                saveLayerImage(image, layer.getName(), layerIndex);
+                saveLayerImage(image, layer.getName(), layerIndex, settings);
                 exportedCount++;
             }
         }
@@ -278,14 +402,15 @@ public class FileIO {
 
     private static void saveLayerImage(BufferedImage image,
                                        String layerName,
-                                       int layerIndex) {
+                                       int layerIndex,
+                                       PngSettings settings) {
         assert calledOutsideEDT() : "on EDT";
 
         File outputDir = Dirs.getLastSave();
         String fileName = format("%03d_%s.png", layerIndex, FileUtils.sanitizeToFileName(layerName));
         File file = new File(outputDir, fileName);
 
-        saveImageToFile(image, new SaveSettings.Simple(FileFormat.PNG, file));
+        saveImageToFile(image, settings.withFile(file));
     }
 
     /**
@@ -312,6 +437,16 @@ public class FileIO {
         comp.saveAsync(new JpegSettings(quality, progressive, selectedFile), true);
     }
 
+    public static void savePngWithCustomSettings(Composition comp,
+                                                 PngSettingsPanel settingsPanel) {
+        File selectedFile = FileChoosers.selectSaveFileForFormat(
+            comp.suggestFileName("png"), FileChoosers.pngFilter);
+        if (selectedFile == null) { // save file dialog canceled
+            return;
+        }
+        comp.saveAsync(settingsPanel.createSettings(selectedFile), true);
+    }
+
     public static void saveSVG(Shape shape, StrokeParam strokeParam, String suggestedFileName) {
         saveSVG(createSVGContent(shape, strokeParam), suggestedFileName);
     }
@@ -365,7 +500,11 @@ public class FileIO {
     }
 
     public static BufferedImage applyCommandLineFilter(BufferedImage src, List<String> command) {
-        return switch (runCommandLineFilter(src, command)) {
+        return applyCommandLineFilter(src, command, PipeFormat.PNG);
+    }
+
+    public static BufferedImage applyCommandLineFilter(BufferedImage src, List<String> command, PipeFormat format) {
+        return switch (runCommandLineFilter(src, command, format)) {
             case Success<BufferedImage, ?>(var img) -> ImageUtils.toSysCompatibleImage(img);
             case Error<?, String>(String errorMsg) -> {
                 Messages.showError("Command Line Filter Error", errorMsg);
@@ -375,46 +514,93 @@ public class FileIO {
     }
 
     public static Result<BufferedImage, String> runCommandLineFilter(BufferedImage src, List<String> command) {
+        return runCommandLineFilter(src, command, PipeFormat.PNG);
+    }
+
+    /**
+     * Runs an external filter that reads the source image from its standard
+     * input and writes the result to its standard output in the given format.
+     * The input is written and the error stream is drained on separate threads
+     * while the output is read, so that the process can stream its output
+     * without blocking on full pipe buffers.
+     */
+    public static Result<BufferedImage, String> runCommandLineFilter(BufferedImage src, List<String> command, PipeFormat format) {
         ProcessBuilder pb = new ProcessBuilder(command.toArray(String[]::new))
             .redirectInput(ProcessBuilder.Redirect.PIPE)
             .redirectOutput(ProcessBuilder.Redirect.PIPE);
 
-        BufferedImage out;
-
+        Process process;
         try {
-            Process process = pb.start();
-
-            writeToCommandLineProcess(src, process);
-            out = readFromCommandLineProcess(process);
+            process = pb.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-            String errorMsg = null;
-            if (out == null) { // there was an error
-                // try to get the error message
+        BufferedImage out;
+        try {
+            CompletableFuture<Void> writing = CompletableFuture.runAsync(() -> {
+                try {
+                    writeToCommandLineProcess(src, process, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, FileIO::startPipeThread);
+            CompletableFuture<String> errorReading = CompletableFuture.supplyAsync(() -> {
                 try (InputStream processError = process.getErrorStream()) {
-                    errorMsg = new String(processError.readAllBytes(), UTF_8);
+                    return new String(processError.readAllBytes(), UTF_8);
+                } catch (IOException e) {
+                    return e.getMessage();
                 }
-            }
+            }, FileIO::startPipeThread);
+
+            out = readFromCommandLineProcess(process, format);
             process.waitFor();
-            if (errorMsg != null) {
+
+            String errorMsg = errorReading.join();
+            if (out == null) { // there was an error
                 return Result.error(errorMsg);
             }
+            // if the output could be read, then the input was also
+            // written, but a failed write should still be reported
+            writing.join();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        } finally {
+            // if reading failed, then the process could be still running,
+            // and the writer thread could be blocked on its full input pipe
+            process.destroy();
         }
         return Result.success(out);
     }
 
+    // The pipe threads aren't taken from the thread pool, because the
+    // filters themselves can run on pool threads, waiting for these.
+    static void startPipeThread(Runnable task) {
+        Thread thread = new Thread(task, "CommandLinePipe");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Reads an image from the standard output of an external process.
      */
     public static BufferedImage readFromCommandLineProcess(Process process) throws IOException {
+        return readFromCommandLineProcess(process, PipeFormat.PNG);
+    }
+
+    /**
+     * Reads an image in the given format from the standard output of an external process.
+     */
+    public static BufferedImage readFromCommandLineProcess(Process process, PipeFormat format) throws IOException {
         BufferedImage image;
         try (InputStream processOutput = process.getInputStream()) {
             assert processOutput instanceof BufferedInputStream;
 
-            image = ImageIO.read(processOutput);
+            image = format.read(processOutput);
         }
         return image;
     }
@@ -423,38 +609,18 @@ public class FileIO {
      * Writes an image to the standard input of an external process.
      */
     public static void writeToCommandLineProcess(BufferedImage src, Process process) throws IOException {
+        writeToCommandLineProcess(src, process, PipeFormat.PNG);
+    }
+
+    /**
+     * Writes an image in the given format to the standard input of an external process.
+     */
+    public static void writeToCommandLineProcess(BufferedImage src, Process process, PipeFormat format) throws IOException {
         try (OutputStream processInput = process.getOutputStream()) {
             assert processInput instanceof BufferedOutputStream;
 
-            writeToCommandLineInputStream(src, processInput);
+            format.write(src, processInput);
             processInput.flush();
         }
     }
-
-    /**
-     * Writes the given image to the standard input stream
-     * of an external command-line program in PNG format.
-     */
-    private static void writeToCommandLineInputStream(BufferedImage img, OutputStream commandLineInput) throws IOException {
-        // Write as png to ImageMagick and let it do
-        // the conversion to the final format.
-        // Explicitly setting a low compression level doesn't seem
-        // to make it faster (why?), so use the simple approach.
-        ImageIO.write(img, "png", commandLineInput);
-
-//        try (ImageOutputStream ios = ImageIO.createImageOutputStream(commandLineInput)) {
-//            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
-//            ImageWriter writer = writers.next();
-//            ImageWriteParam writeParam = writer.getDefaultWriteParam();
-//            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-//            writeParam.setCompressionQuality(1.0f); // 1 is no compression
-//            try {
-//                writer.setOutput(ios);
-//                writer.write(img);
-//            } finally {
-//                writer.dispose();
-//                ios.flush();
-//            }
-//        }
-    }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs IO tasks on a limited number of threads. The tasks on different files
+ * can run in parallel, but the tasks on the same file run one after another,
+ * in the order of their submission. The number of simultaneous tasks on the
+ * same storage device is also limited, because parallel reads on the same
+ * (spinning) disk can be slower than sequential ones.
+ */
+class IOScheduler {
+    private static final int NUM_RECENT_TIMINGS = 50;
+
+    private final ExecutorService threads;
+
+    // the waiting tasks, in the order of their priority and submission
+    private final TreeSet<Task<?>> queue = new TreeSet<>(
+        Comparator.<Task<?>>comparingInt(task -> task.priority.ordinal())
+            .thenComparingLong(task -> task.seqNum));
+
+    private final Set<String> runningPaths = new HashSet<>();
+    private final Map<Object, Integer> runningPerDevice = new HashMap<>();
+    private int numRunning = 0;
+    private long nextSeqNum = 0;
+
+    private int maxParallelTasks;
+    private int maxTasksPerDevice;
+
+    private final Deque<IOTasks.TaskTiming> recentTimings = new ArrayDeque<>();
+
+    // the storage device of each directory, because looking it up can be slow
+    private final Map<Path, Object> deviceCache = new ConcurrentHashMap<>();
+
+    IOScheduler(int maxParallelTasks, int maxTasksPerDevice) {
+        setLimits(maxParallelTasks, maxTasksPerDevice);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        threads = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "IO-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    synchronized void setLimits(int maxParallelTasks, int maxTasksPerDevice) {
+        if (maxParallelTasks < 1 || maxTasksPerDevice < 1) {
+            throw new IllegalArgumentException(
+                "maxParallelTasks = " + maxParallelTasks + ", maxTasksPerDevice = " + maxTasksPerDevice);
+        }
+        this.maxParallelTasks = maxParallelTasks;
+        this.maxTasksPerDevice = maxTasksPerDevice;
+        startTasks();
+    }
+
+    /**
+     * Schedules a task that accesses the given file. If the file is null,
+     * then the task isn't serialized with any other task.
+     */
+    <T> CompletableFuture<T> submit(File file, IOTasks.Priority priority,
+                                    String name, Supplier<T> task) {
+        String path = file == null ? null : file.getAbsolutePath();
+        Object device = file == null ? null : getDevice(file);
+        Task<T> newTask = new Task<>(path, device, priority, name, task);
+        synchronized (this) {
+            newTask.seqNum = nextSeqNum++;
+            queue.add(newTask);
+            startTasks();
+        }
+        return newTask.future;
+    }
+
+    /**
+     * Moves the waiting tasks of the given file to the front of the queue.
+     */
+    synchronized void prioritize(File file) {
+        String path = file.getAbsolutePath();
+        List<Task<?>> tasks = new ArrayList<>();
+        for (Task<?> task : queue) {
+            if (path.equals(task.path) && task.priority != IOTasks.Priority.VISIBLE) {
+                tasks.add(task);
+            }
+        }
+        for (Task<?> task : tasks) {
+            // the priority is a part of the ordering,
+            // so it can't be changed inside the queue
+            queue.remove(task);
+            task.priority = IOTasks.Priority.VISIBLE;
+            queue.add(task);
+        }
+        startTasks();
+    }
+
+    // starts the waiting tasks that can run according to the limits
+    private void startTasks() {
+        if (queue.isEmpty() || numRunning >= maxParallelTasks) {
+            return;
+        }
+
+        // a task can only start if no task submitted
+        // earlier for the same file is waiting
+        Map<String, Long> firstSeqNums = new HashMap<>();
+        for (Task<?> task : queue) {
+            if (task.path != null) {
+                firstSeqNums.merge(task.path, task.seqNum, Math::min);
+            }
+        }
+
+        Iterator<Task<?>> it = queue.iterator();
+        while (it.hasNext() && numRunning < maxParallelTasks) {
+            Task<?> task = it.next();
+            if (task.path != null) {
+                if (runningPaths.contains(task.path)
+                    || firstSeqNums.get(task.path) != task.seqNum) {
+                    continue;
+                }
+                if (runningPerDevice.getOrDefault(task.device, 0) >= maxTasksPerDevice) {
+                    continue;
+                }
+                runningPaths.add(task.path);
+                runningPerDevice.merge(task.device, 1, Integer::sum);
+            }
+            it.remove();
+            numRunning++;
+            threads.execute(() -> run(task));
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        long startTime = System.nanoTime();
+        T result = null;
+        Throwable error = null;
+        try {
+            result = task.supplier.get();
+        } catch (Throwable e) {
+            error = e;
+        }
+        long endTime = System.nanoTime();
+        finished(task, new IOTasks.TaskTiming(task.name,
+            TimeUnit.NANOSECONDS.toMillis(startTime - task.submitTime),
+            TimeUnit.NANOSECONDS.toMillis(endTime - startTime)));
+
+        // completed only after the file is released, so that
+        // the dependent stages can already access it again
+        if (error == null) {
+            task.future.complete(result);
+        } else {
+            task.future.completeExceptionally(error);
+        }
+    }
+
+    private synchronized void finished(Task<?> task, IOTasks.TaskTiming timing) {
+        numRunning--;
+        if (task.path != null) {
+            runningPaths.remove(task.path);
+            runningPerDevice.merge(task.device, -1, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        recentTimings.addLast(timing);
+        if (recentTimings.size() > NUM_RECENT_TIMINGS) {
+            recentTimings.removeFirst();
+        }
+        startTasks();
+        notifyAll();
+    }
+
+    private Object getDevice(File file) {
+        Path path = file.getAbsoluteFile().toPath();
+        Path dir = path.getParent() != null ? path.getParent() : path;
+        return deviceCache.computeIfAbsent(dir, d -> {
+            try {
+                return Files.getFileStore(d);
+            } catch (IOException | RuntimeException e) {
+                // for example the directory doesn't exist yet
+                return String.valueOf(d.getRoot());
+            }
+        });
+    }
+
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    synchronized int getNumRunning() {
+        return numRunning;
+    }
+
+    synchronized List<IOTasks.TaskTiming> getRecentTimings() {
+        return new ArrayList<>(recentTimings);
+    }
+
+    /**
+     * Waits until all the submitted tasks are finished.
+     */
+    synchronized void waitForIdle() throws InterruptedException {
+        while (numRunning > 0 || !queue.isEmpty()) {
+            wait();
+        }
+    }
+
+    private static class Task<T> {
+        private final String path;
+        private final Object device;
+        private IOTasks.Priority priority;
+        private final String name;
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long submitTime = System.nanoTime();
+        private long seqNum;
+
+        Task(String path, Object device, IOTasks.Priority priority, String name, Supplier<T> supplier) {
+            this.path = path;
+            this.device = device;
+            this.priority = priority;
+            this.name = name;
+            this.supplier = supplier;
+        }
+    }
+}
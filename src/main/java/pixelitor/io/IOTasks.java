@@ -1,5 +1,5 @@
 /*
- * Copyright 2024 Laszlo Balazs-Csiki and Contributors
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
  *
  * This file is part of Pixelitor. Pixelitor is free software: you
  * can redistribute it and/or modify it under the terms of the GNU
@@ -14,125 +14,153 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package pixelitor.io;
 
-import pixelitor.ThreadPool;
-import pixelitor.utils.SerialExecutor;
 import pixelitor.utils.Utils;
 
+import java.io.File;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
- * Makes sure that only one IO task runs at a time
+ * Schedules the IO tasks. The tasks on different files can run
+ * in parallel, but the tasks on the same file are serialized.
  */
 public class IOTasks {
-    private static final Executor executor
-        = new SerialExecutor(ThreadPool.getExecutor());
+    private static final int DEFAULT_MAX_PARALLEL_TASKS = 4;
+    private static final int DEFAULT_MAX_TASKS_PER_DEVICE = 2;
 
-    private static final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private static final Lock readLock = readWriteLock.readLock();
-    private static final Lock writeLock = readWriteLock.writeLock();
+    private static final IOScheduler scheduler = new IOScheduler(
+        DEFAULT_MAX_PARALLEL_TASKS, DEFAULT_MAX_TASKS_PER_DEVICE);
 
-    private static final Set<String> activeReadPaths = new HashSet<>();
-    private static final Set<String> activeWritePaths = new HashSet<>();
+    // runs the tasks that aren't associated with a single file
+    private static final Executor executor = task ->
+        scheduler.submit(null, Priority.NORMAL, "IO task", () -> {
+            task.run();
+            return null;
+        });
 
-    // can be set to true for testing things like
-    // multiple progress bars, but normally this is false
-    private static final boolean ALLOW_CONCURRENT_IO = false;
+    private static final Set<String> activeReadPaths = ConcurrentHashMap.newKeySet();
+    private static final Set<String> activeWritePaths = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The scheduling priority of an IO task.
+     */
+    public enum Priority {
+        /**
+         * For the files that the user is waiting for
+         */
+        VISIBLE,
+        NORMAL
+    }
+
+    /**
+     * The timing of a finished IO task.
+     */
+    public record TaskTiming(String name, long waitMillis, long runMillis) {
+    }
 
     private IOTasks() {
         // should not be instantiated
     }
 
     public static Executor getExecutor() {
-        if (ALLOW_CONCURRENT_IO) {
-            return ThreadPool.getExecutor();
-        }
         return executor;
     }
 
-    public static synchronized boolean isPathProcessing(String path) {
-        readLock.lock();
-        try {
-            return activeReadPaths.contains(path) || activeWritePaths.contains(path);
-        } finally {
-            readLock.unlock();
-        }
+    /**
+     * Asynchronously runs a task that reads or writes the given file.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(File file, Supplier<T> task) {
+        return supplyAsync(file, Priority.NORMAL, task);
+    }
+
+    public static <T> CompletableFuture<T> supplyAsync(File file, Priority priority, Supplier<T> task) {
+        return scheduler.submit(file, priority, file.getName(), task);
+    }
+
+    public static CompletableFuture<Void> runAsync(File file, Runnable task) {
+        return supplyAsync(file, Priority.NORMAL, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the waiting tasks of the given file before the other waiting tasks.
+     */
+    public static void prioritize(File file) {
+        scheduler.prioritize(file);
+    }
+
+    /**
+     * Sets the maximum number of IO tasks running in parallel, in
+     * total and on the same storage device (for different files).
+     */
+    public static void setMaxParallelTasks(int maxParallelTasks, int maxTasksPerDevice) {
+        scheduler.setLimits(maxParallelTasks, maxTasksPerDevice);
+    }
+
+    /**
+     * Returns the number of IO tasks waiting to be started.
+     */
+    public static int getQueueDepth() {
+        return scheduler.getQueueDepth();
+    }
+
+    public static int getNumRunningTasks() {
+        return scheduler.getNumRunning();
+    }
+
+    /**
+     * Returns the timings of the recently finished IO tasks, the oldest first.
+     */
+    public static List<TaskTiming> getRecentTimings() {
+        return scheduler.getRecentTimings();
+    }
+
+    public static boolean isPathProcessing(String path) {
+        return activeReadPaths.contains(path) || activeWritePaths.contains(path);
     }
 
     public static void markPathForReading(String path) {
-        writeLock.lock();
-        try {
-            activeReadPaths.add(path);
-        } finally {
-            writeLock.unlock();
-        }
+        activeReadPaths.add(path);
     }
 
     public static void markPathForWriting(String path) {
-        writeLock.lock();
-        try {
-            activeWritePaths.add(path);
-        } finally {
-            writeLock.unlock();
-        }
+        activeWritePaths.add(path);
     }
 
     public static void markReadingComplete(String path) {
-        writeLock.lock();
-        try {
-            boolean contained = activeReadPaths.remove(path);
-            assert contained : "Path was not being tracked for reading: " + path;
-        } finally {
-            writeLock.unlock();
-        }
+        boolean contained = activeReadPaths.remove(path);
+        assert contained : "Path was not being tracked for reading: " + path;
     }
 
     public static void markWritingComplete(String path) {
-        writeLock.lock();
-        try {
-            boolean contained = activeWritePaths.remove(path);
-            assert contained : "Path was not being tracked for writing: " + path;
-        } finally {
-            writeLock.unlock();
-        }
+        boolean contained = activeWritePaths.remove(path);
+        assert contained : "Path was not being tracked for writing: " + path;
     }
 
     public static boolean hasActiveWrites() {
-        readLock.lock();
-        try {
-            return !activeWritePaths.isEmpty();
-        } finally {
-            readLock.unlock();
-        }
+        return !activeWritePaths.isEmpty();
     }
 
     public static Set<String> getActiveWritePaths() {
-        readLock.lock();
-        try {
-            return new HashSet<>(activeWritePaths);
-        } finally {
-            readLock.unlock();
-        }
+        return new HashSet<>(activeWritePaths);
     }
 
     /**
      * Waits for all IO operations to complete.
      */
     public static void waitForIdle() {
-        // waiting until an empty task finishes works
-        // because the IO executor is serialized
-        var latch = new CountDownLatch(1);
-        getExecutor().execute(latch::countDown);
         try {
-            latch.await();
+            scheduler.waitForIdle();
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
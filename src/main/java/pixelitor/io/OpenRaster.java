@@ -25,6 +25,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import pixelitor.Composition;
 import pixelitor.ImageMode;
+import pixelitor.ThreadPool;
 import pixelitor.compactions.Outsets;
 import pixelitor.layers.*;
 import pixelitor.utils.*;
@@ -35,8 +36,9 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.zip.ZipEntry;
@@ -62,15 +64,29 @@ public class OpenRaster {
     private static final String UTF8_BOM_CHARACTER = "\uFEFF";
     private static final String XML_ROOT_ELEMENT = "image";
 
+    // the maximum number of layer images that are encoded or decoded at the same time
+    private static volatile int maxLayersInFlight = Math.max(2, ThreadPool.getNumCores());
+
     private OpenRaster() {
     }
 
+    /**
+     * Sets the maximum number of layer images that are encoded or decoded
+     * at the same time, which limits the memory used by the parallel processing.
+     */
+    public static void setMaxLayersInFlight(int maxLayers) {
+        if (maxLayers < 1) {
+            throw new IllegalArgumentException("maxLayers = " + maxLayers);
+        }
+        maxLayersInFlight = maxLayers;
+    }
+
     /**
      * Writes a composition to an OpenRaster file, wrapping IOExceptions in UncheckedIOException.
      */
-    public static void uncheckedWrite(Composition comp, File outputFile) {
+    public static void uncheckedWrite(Composition comp, PngSettings settings) {
         try {
-            write(comp, outputFile);
+            write(comp, settings.file(), settings.toEncoder());
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -80,6 +96,15 @@ public class OpenRaster {
      * Writes a composition to an OpenRaster file.
      */
     public static void write(Composition comp, File outputFile) throws IOException {
+        write(comp, outputFile, PngEncoder.DEFAULT);
+    }
+
+    /**
+     * Writes a composition to an OpenRaster file, encoding
+     * the embedded PNG images with the given encoder.
+     */
+    public static void write(Composition comp, File outputFile,
+                             PngEncoder encoder) throws IOException {
         var mainTracker = new StatusBarProgressTracker("Writing " + outputFile.getName(), 100);
 
         try (var zipStream = new ZipOutputStream(new FileOutputStream(outputFile))) {
@@ -88,25 +113,36 @@ public class OpenRaster {
             double progressPerImage = 1.0 / totalImages;
 
             // creates stack.xml and writes the layer images
-            StringBuilder stackXML = new StringBuilder(format("""
+            List<Object> stackParts = new ArrayList<>();
+            stackParts.add(format("""
             <?xml version='1.0' encoding='UTF-8'?>
             <image w="%d" h="%d">
             """, comp.getCanvasWidth(), comp.getCanvasHeight()));
-            writeLayerHierarchy(comp, mainTracker, zipStream, stackXML, progressPerImage, 0);
-            stackXML.append("</image>");
+            List<LayerEntry> layerEntries = new ArrayList<>();
+            collectLayers(comp, stackParts, layerEntries);
+            stackParts.add("</image>");
+
+            var layersTracker = new SubtaskProgressTracker(progressPerImage, mainTracker);
+            writeLayers(layerEntries, zipStream, layersTracker, encoder);
+
+            StringBuilder stackXML = new StringBuilder();
+            for (Object part : stackParts) {
+                // the layer entries know their XML only after they are written
+                stackXML.append(part instanceof LayerEntry layerEntry ? layerEntry.xml : part);
+            }
 
             // writes the merged image
             zipStream.putNextEntry(new ZipEntry(MERGED_IMAGE_PATH));
             var mergedTracker = new SubtaskProgressTracker(progressPerImage, mainTracker);
             var img = comp.getCompositeImage();
-            TrackedIO.writeToStream(img, zipStream, "PNG", mergedTracker);
+            encoder.write(img, zipStream, mergedTracker);
             zipStream.closeEntry();
 
             // writes the thumbnail image
             zipStream.putNextEntry(new ZipEntry(THUMBNAIL_PATH));
             var thumbTracker = new SubtaskProgressTracker(progressPerImage, mainTracker);
             var thumb = createORAThumbnail(comp.getCompositeImage());
-            TrackedIO.writeToStream(thumb, zipStream, "PNG", thumbTracker);
+            encoder.write(thumb, zipStream, thumbTracker);
             zipStream.closeEntry();
 
             // write the stack.xml file
@@ -122,57 +158,112 @@ public class OpenRaster {
         mainTracker.finished();
     }
 
-    // recursively writes the layers of the given holder
-    private static int writeLayerHierarchy(LayerHolder holder,
-                                           StatusBarProgressTracker mainTracker,
-                                           ZipOutputStream zipStream,
-                                           StringBuilder stackXML,
-                                           double progressPerImage,
-                                           int uniqueId) throws IOException {
-        stackXML.append(holder.getORAStackXML());
+    // recursively collects the exported layers of the given holder and the
+    // parts of stack.xml, where the XML of each layer is a placeholder entry
+    private static void collectLayers(LayerHolder holder,
+                                      List<Object> stackParts,
+                                      List<LayerEntry> layerEntries) {
+        stackParts.add(holder.getORAStackXML());
 
         int numLayers = holder.getNumLayers();
         // Reverse iteration: in stack.xml the first element in a stack is the uppermost.
         for (int i = numLayers - 1; i >= 0; i--) {
             Layer layer = holder.getLayer(i);
             if (layer instanceof LayerGroup group) {
-                uniqueId = writeLayerHierarchy(group, mainTracker, zipStream, stackXML, progressPerImage, uniqueId);
+                collectLayers(group, stackParts, layerEntries);
             } else if (layer.canExportORAImage()) {
-                var subTracker = new SubtaskProgressTracker(progressPerImage, mainTracker);
-                writeLayer(layer, uniqueId, zipStream, subTracker, stackXML);
-                uniqueId++;
+                var layerEntry = new LayerEntry(layer, layerEntries.size());
+                layerEntries.add(layerEntry);
+                stackParts.add(layerEntry);
             }
         }
 
-        stackXML.append("</stack>");
-        return uniqueId;
+        stackParts.add("</stack>");
     }
 
-    private static void writeLayer(Layer layer,
-                                   int uniqueId,
-                                   ZipOutputStream zipStream,
-                                   ProgressTracker pt,
-                                   StringBuilder stackXML) throws IOException {
-        ORAImageInfo imageInfo = layer.getORAImageInfo();
-
-        String xml = format(Locale.ENGLISH,
-            "<layer name=\"%s\" visibility=\"%s\" composite-op=\"%s\" " +
-                "opacity=\"%f\" src=\"data/%d.png\" x=\"%d\" y=\"%d\"/>\n",
-            layer.getName(),
-            layer.getVisibilityAsORAString(),
-            layer.getBlendingMode().toSVGName(),
-            layer.getOpacity(),
-            uniqueId,
-            imageInfo.tx(),
-            imageInfo.ty());
-        stackXML.append(xml);
-
-        var entry = new ZipEntry(format("data/%d.png", uniqueId));
-        zipStream.putNextEntry(entry);
-
-        TrackedIO.writeToStream(imageInfo.exportedImage(), zipStream, "PNG", pt);
-
-        zipStream.closeEntry();
+    /**
+     * Encodes the layer images in parallel batches, and stores
+     * each batch in order, so that at most maxLayersInFlight
+     * encoded (and exported) layer images are in memory at a time.
+     * The layer images are exported on the calling thread, because
+     * the layers (for example smart objects with their cached
+     * composites) aren't thread-safe; only the PNG encoding is parallel.
+     */
+    private static void writeLayers(List<LayerEntry> layerEntries,
+                                    ZipOutputStream zipStream,
+                                    ProgressTracker layersTracker,
+                                    PngEncoder encoder) throws IOException {
+        int numLayers = layerEntries.size();
+        for (int batchStart = 0; batchStart < numLayers; batchStart += maxLayersInFlight) {
+            List<LayerEntry> batch = layerEntries.subList(batchStart,
+                Math.min(numLayers, batchStart + maxLayersInFlight));
+            for (LayerEntry layerEntry : batch) {
+                layerEntry.export();
+            }
+            try {
+                ThreadPool.runIndexed(batch.size(), i -> batch.get(i).encode(encoder));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            for (LayerEntry layerEntry : batch) {
+                zipStream.putNextEntry(new ZipEntry(layerEntry.getPath()));
+                zipStream.write(layerEntry.pngData);
+                zipStream.closeEntry();
+                layerEntry.pngData = null;
+
+                layersTracker.unitsDone(100);
+            }
+        }
+    }
+
+    /**
+     * A layer image stored in the file.
+     */
+    private static class LayerEntry {
+        private final Layer layer;
+        private final int uniqueId;
+        private String xml;
+        private BufferedImage exportedImage;
+        private byte[] pngData;
+
+        LayerEntry(Layer layer, int uniqueId) {
+            this.layer = layer;
+            this.uniqueId = uniqueId;
+        }
+
+        String getPath() {
+            return format("data/%d.png", uniqueId);
+        }
+
+        // creates the XML element and the exported image of the layer
+        void export() {
+            ORAImageInfo imageInfo = layer.getORAImageInfo();
+            exportedImage = imageInfo.exportedImage();
+
+            xml = format(Locale.ENGLISH,
+                "<layer name=\"%s\" visibility=\"%s\" composite-op=\"%s\" " +
+                    "opacity=\"%f\" src=\"%s\" x=\"%d\" y=\"%d\"/>\n",
+                layer.getName(),
+                layer.getVisibilityAsORAString(),
+                layer.getBlendingMode().toSVGName(),
+                layer.getOpacity(),
+                getPath(),
+                imageInfo.tx(),
+                imageInfo.ty());
+        }
+
+        // creates the PNG data from the exported image, can run on any thread
+        void encode(PngEncoder encoder) {
+            var out = new ByteArrayOutputStream();
+            try {
+                encoder.write(exportedImage, out, ProgressTracker.NULL_TRACKER);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pngData = out.toByteArray();
+            exportedImage = null;
+        }
     }
 
     /**
@@ -184,11 +275,7 @@ public class OpenRaster {
         String stackXML = null;
 
         try (ZipFile zipFile = new ZipFile(file)) {
-            // first iterate to count the image files...
-            int numImageFiles = countImageFiles(zipFile);
-            double progressPerImage = 1.0 / numImageFiles;
-
-            // ...then iterate again to actually read the files
+            List<ZipEntry> imageEntries = new ArrayList<>();
             var fileEntries = zipFile.entries();
             while (fileEntries.hasMoreElements()) {
                 ZipEntry entry = fileEntries.nextElement();
@@ -202,12 +289,10 @@ public class OpenRaster {
                 } else if (name.equalsIgnoreCase(THUMBNAIL_PATH)) {
                     // no need to read it
                 } else if (FileUtils.hasPNGExtension(name)) {
-                    var subTracker = new SubtaskProgressTracker(progressPerImage, mainTracker);
-                    var stream = zipFile.getInputStream(entry);
-                    var image = TrackedIO.readFromStream(stream, subTracker);
-                    images.put(name, image);
+                    imageEntries.add(entry);
                 }
             }
+            readImages(zipFile, imageEntries, images, mainTracker);
         }
 
         if (stackXML == null) {
@@ -243,6 +328,45 @@ public class OpenRaster {
         return comp;
     }
 
+    /**
+     * Decodes the layer images in parallel, with at most
+     * maxLayersInFlight decodings running at the same time.
+     */
+    private static void readImages(ZipFile zipFile, List<ZipEntry> imageEntries,
+                                   Map<String, BufferedImage> images,
+                                   ProgressTracker mainTracker) throws IOException {
+        int numImages = imageEntries.size();
+        if (numImages == 0) {
+            return;
+        }
+        var imagesTracker = new SubtaskProgressTracker(1.0 / numImages, mainTracker);
+        BufferedImage[] decoded = new BufferedImage[numImages];
+        for (int batchStart = 0; batchStart < numImages; batchStart += maxLayersInFlight) {
+            int start = batchStart;
+            int batchSize = Math.min(maxLayersInFlight, numImages - batchStart);
+            try {
+                ThreadPool.runIndexed(batchSize, i -> {
+                    // ZipFile supports reading several entries concurrently
+                    try (var stream = zipFile.getInputStream(imageEntries.get(start + i))) {
+                        var image = TrackedIO.readFromStream(stream, ProgressTracker.NULL_TRACKER);
+                        if (image != null) {
+                            decoded[start + i] = ImageUtils.toSysCompatibleImage(image);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            imagesTracker.unitsDone(batchSize * 100);
+        }
+
+        for (int i = 0; i < numImages; i++) {
+            images.put(imageEntries.get(i).getName(), decoded[i]);
+        }
+    }
+
     // reads a stack element
     private static void readHolder(Node stackNode, LayerHolder parent, Map<String, BufferedImage> images) {
         assert stackNode.getNodeName().equals("stack");
@@ -310,21 +434,6 @@ public class OpenRaster {
             element.getAttribute("opacity"), 1.0f));
     }
 
-    private static int countImageFiles(ZipFile zipFile) {
-        Enumeration<? extends ZipEntry> fileEntries = zipFile.entries();
-        int numImageFiles = 0;
-        while (fileEntries.hasMoreElements()) {
-            ZipEntry entry = fileEntries.nextElement();
-            String name = entry.getName();
-            String nameLC = name.toLowerCase(Locale.ROOT);
-
-            if (nameLC.endsWith("png") && !name.equals(MERGED_IMAGE_PATH) && !name.equals(THUMBNAIL_PATH)) {
-                numImageFiles++;
-            }
-        }
-        return numImageFiles;
-    }
-
     private static Document loadXMLFromString(String xml)
         throws ParserConfigurationException, IOException, SAXException {
 
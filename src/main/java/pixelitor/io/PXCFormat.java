@@ -38,10 +38,18 @@ public class PXCFormat {
     // the first version supporting a thumbnail
     private static final int THUMBNAIL_FORMAT_VERSION = 0x04;
 
-    // tracks the writing of the whole file
-    private static ProgressTracker mainPT;
+    // The progress of the write in progress on the current thread. The images are
+    // serialized from the layers' writeObject methods, which can't get it as an
+    // argument, and several files can be written in parallel on different threads.
+    private static final ThreadLocal<WriteProgress> writeProgress = new ThreadLocal<>();
 
-    private static double workRatioForOneImage;
+    /**
+     * The progress tracker of a whole file, the part of the work
+     * that is done by writing one image, and the encoder of the images.
+     */
+    private record WriteProgress(ProgressTracker mainPT, double workRatioForOneImage,
+                                 PngEncoder encoder) {
+    }
 
     private PXCFormat() {
     }
@@ -115,14 +123,27 @@ public class PXCFormat {
     }
 
     public static void write(Composition comp, File file) {
-        mainPT = new StatusBarProgressTracker(
+        write(comp, new PngSettings(file, FileFormat.PXC,
+            PngEncoder.DEFAULT.getCompressionLevel(),
+            PngEncoder.DEFAULT.getFilterStrategy()));
+    }
+
+    /**
+     * Writes a composition to a PXC file, encoding the
+     * embedded images with the given PNG settings.
+     */
+    public static void write(Composition comp, PngSettings settings) {
+        File file = settings.file();
+        ProgressTracker mainPT = new StatusBarProgressTracker(
             "Writing " + file.getName(), 100);
         int numImages = comp.countImages();
+        double workRatioForOneImage;
         if (numImages > 0) {
             workRatioForOneImage = 1.0 / numImages;
         } else {
             workRatioForOneImage = -1;
         }
+        writeProgress.set(new WriteProgress(mainPT, workRatioForOneImage, settings.toEncoder()));
         try (FileOutputStream fos = new FileOutputStream(file)) {
             // write header bytes and version
             fos.write(new byte[]{(byte) 0xAB, (byte) 0xC4, CURRENT_PXC_VERSION_NUMBER});
@@ -150,9 +171,10 @@ public class PXCFormat {
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
+        } finally {
+            writeProgress.remove();
         }
         mainPT.finished();
-        mainPT = null;
     }
 
     /**
@@ -201,7 +223,7 @@ public class PXCFormat {
         ProgressTracker pt = getImageTracker();
 
         if (imgType == TYPE_BYTE_GRAY) {
-            TrackedIO.writeToStream(img, out, "PNG", pt);
+            getImageEncoder().write(img, out, pt);
 //            ImageIO.write(img, "PNG", out);
         } else {
             // this legacy branch is never executed anymore
@@ -247,12 +269,19 @@ public class PXCFormat {
         }
     }
 
+    private static PngEncoder getImageEncoder() {
+        WriteProgress progress = writeProgress.get();
+        // serialized outside a pxc write
+        return progress == null ? PngEncoder.DEFAULT : progress.encoder();
+    }
+
     private static ProgressTracker getImageTracker() {
-        if (workRatioForOneImage == -1) {
-            // a pxc without images
+        WriteProgress progress = writeProgress.get();
+        if (progress == null || progress.workRatioForOneImage() == -1) {
+            // serialized outside a pxc write, or a pxc without images
             return ProgressTracker.NULL_TRACKER;
         } else {
-            return new SubtaskProgressTracker(workRatioForOneImage, mainPT);
+            return new SubtaskProgressTracker(progress.workRatioForOneImage(), progress.mainPT());
         }
     }
 
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The image formats used for exchanging images with external
+ * processes (G'MIC, ImageMagick) through their standard streams.
+ * PNG works with any program, but for large images most of the time
+ * is spent compressing and decompressing it, while the other formats
+ * transfer the raw 8-bit pixels with only a small text header.
+ */
+public enum PipeFormat {
+    /**
+     * Compressed, for programs that don't support the raw formats.
+     */
+    PNG("png") {
+        @Override
+        public void write(BufferedImage img, OutputStream out) throws IOException {
+            // Explicitly setting a low compression level doesn't seem
+            // to make it faster (why?), so use the simple approach.
+            ImageIO.write(img, "png", out);
+        }
+
+        @Override
+        public BufferedImage read(InputStream in) throws IOException {
+            return ImageIO.read(in);
+        }
+
+        @Override
+        public void writeText(String text, OutputStream out) {
+            throw new UnsupportedOperationException("PNG can't be used by workers");
+        }
+    },
+    /**
+     * The Portable Arbitrary Map (PAM) format with interleaved
+     * RGBA samples, supported for example by ImageMagick.
+     */
+    PAM("pam") {
+        @Override
+        public void write(BufferedImage img, OutputStream out) throws IOException {
+            int width = img.getWidth();
+            int height = img.getHeight();
+            String header = "P7\nWIDTH " + width + "\nHEIGHT " + height
+                + "\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB_ALPHA\nENDHDR\n";
+            out.write(header.getBytes(US_ASCII));
+
+            byte[] rowBytes = new byte[width * 4];
+            RowReader rows = new RowReader(img);
+            for (int y = 0; y < height; y++) {
+                int[] row = rows.getRow(y);
+                for (int x = 0, i = 0; x < width; x++) {
+                    int argb = row[rows.getOffset() + x];
+                    rowBytes[i++] = (byte) (argb >>> 16);
+                    rowBytes[i++] = (byte) (argb >>> 8);
+                    rowBytes[i++] = (byte) argb;
+                    rowBytes[i++] = (byte) (argb >>> 24);
+                }
+                out.write(rowBytes);
+            }
+        }
+
+        @Override
+        public void writeText(String text, OutputStream out) throws IOException {
+            byte[] bytes = text.getBytes(UTF_8);
+            String header = "P7\nWIDTH " + bytes.length + "\nHEIGHT 1"
+                + "\nDEPTH 1\nMAXVAL 255\nTUPLTYPE GRAYSCALE\nENDHDR\n";
+            out.write(header.getBytes(US_ASCII));
+            out.write(bytes);
+        }
+
+        @Override
+        public BufferedImage read(InputStream in) throws IOException {
+            if (!"P7".equals(readToken(in))) {
+                return null; // not a PAM stream, probably an error
+            }
+            int width = 0;
+            int height = 0;
+            int depth = 0;
+            int maxVal = 0;
+            String tupleType = null;
+            while (true) {
+                String token = readToken(in);
+                if (token == null) {
+                    return null;
+                }
+                switch (token) {
+                    case "WIDTH" -> width = Integer.parseInt(readToken(in));
+                    case "HEIGHT" -> height = Integer.parseInt(readToken(in));
+                    case "DEPTH" -> depth = Integer.parseInt(readToken(in));
+                    case "MAXVAL" -> maxVal = Integer.parseInt(readToken(in));
+                    case "TUPLTYPE" -> tupleType = readToken(in);
+                    case "ENDHDR" -> {
+                        checkTupleType(tupleType, depth);
+                        if (maxVal != 255) {
+                            throw new IOException("unsupported PAM: maxval = " + maxVal);
+                        }
+                        return readInterleaved(in, width, height, depth);
+                    }
+                    default -> throw new IOException("unexpected PAM header token: " + token);
+                }
+            }
+        }
+
+        // The depth alone doesn't tell the meaning of the samples:
+        // for example CMYK also has a depth of 4.
+        private static void checkTupleType(String tupleType, int depth) throws IOException {
+            int expectedDepth = switch (tupleType) {
+                case "GRAYSCALE" -> 1;
+                case "GRAYSCALE_ALPHA" -> 2;
+                case "RGB" -> 3;
+                case "RGB_ALPHA" -> 4;
+                case null -> depth; // optional, the depth decides
+                default -> throw new IOException("unsupported PAM tuple type: " + tupleType);
+            };
+            if (depth != expectedDepth || depth < 1 || depth > 4) {
+                throw new IOException("unsupported PAM: depth = " + depth
+                    + ", tuple type = " + tupleType);
+            }
+        }
+    },
+    /**
+     * The native format of the CImg library, used by G'MIC. The channels
+     * are stored in separate planes, and the samples of the output can be
+     * floating point values, which are clamped to the 0..255 range.
+     */
+    CIMG("cimg") {
+        @Override
+        public void write(BufferedImage img, OutputStream out) throws IOException {
+            int width = img.getWidth();
+            int height = img.getHeight();
+            String header = "1 unsigned_char little_endian\n"
+                + width + " " + height + " 1 4\n";
+            out.write(header.getBytes(US_ASCII));
+
+            // the planes are written in R, G, B, A order
+            byte[] rowBytes = new byte[width];
+            RowReader rows = new RowReader(img);
+            for (int shift : new int[]{16, 8, 0, 24}) {
+                for (int y = 0; y < height; y++) {
+                    int[] row = rows.getRow(y);
+                    int offset = rows.getOffset();
+                    for (int x = 0; x < width; x++) {
+                        rowBytes[x] = (byte) (row[offset + x] >>> shift);
+                    }
+                    out.write(rowBytes);
+                }
+            }
+        }
+
+        @Override
+        public void writeText(String text, OutputStream out) throws IOException {
+            // G'MIC can convert it back to a string with the {[0],t} substitution
+            byte[] bytes = text.getBytes(UTF_8);
+            String header = "1 unsigned_char little_endian\n"
+                + bytes.length + " 1 1 1\n";
+            out.write(header.getBytes(US_ASCII));
+            out.write(bytes);
+        }
+
+        @Override
+        public BufferedImage read(InputStream in) throws IOException {
+            // the first line is "<number of images> <pixel type> <endianness>_endian"
+            String[] fileHeader = readLine(in);
+            if (fileHeader == null || fileHeader.length < 2
+                || !fileHeader[0].chars().allMatch(Character::isDigit)
+                || Integer.parseInt(fileHeader[0]) < 1) {
+                return null; // not a CImg stream, probably an error
+            }
+            ByteOrder order = fileHeader.length > 2 && "big_endian".equals(fileHeader[2])
+                ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            int sampleSize = switch (fileHeader[1]) {
+                case "unsigned_char", "uchar", "uint8" -> 1;
+                case "float", "float32" -> 4;
+                case "double", "float64" -> 8;
+                default -> throw new IOException("unsupported CImg pixel type: " + fileHeader[1]);
+            };
+
+            // the first image is used, the others are ignored
+            String[] imageHeader = readImageHeader(in);
+            int width = Integer.parseInt(imageHeader[0]);
+            int height = Integer.parseInt(imageHeader[1]);
+            int depth = Integer.parseInt(imageHeader[2]);
+            int channels = Integer.parseInt(imageHeader[3]);
+            if (depth != 1 || channels < 1 || channels > 4) {
+                throw new IOException("unsupported CImg: depth = "
+                    + depth + ", channels = " + channels);
+            }
+
+            // the planes are decoded row by row, directly into the image
+            BufferedImage img = new BufferedImage(width, height, TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+            int numPixels = pixels.length;
+            byte[] rowBytes = new byte[width * sampleSize];
+            ByteBuffer row = ByteBuffer.wrap(rowBytes).order(order);
+            DataInputStream dataIn = new DataInputStream(in);
+            int[] shifts = channelShifts(channels);
+            for (int ch = 0; ch < channels; ch++) {
+                int[] targets = CHANNEL_TARGETS[shifts[ch]];
+                for (int y = 0; y < height; y++) {
+                    dataIn.readFully(rowBytes);
+                    int rowStart = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int value = switch (sampleSize) {
+                            case 1 -> rowBytes[x] & 0xFF;
+                            case 4 -> clamp(row.getFloat(x * 4));
+                            default -> clamp(row.getDouble(x * 8));
+                        };
+                        for (int shift : targets) {
+                            pixels[rowStart + x] |= value << shift;
+                        }
+                    }
+                }
+            }
+            if (channels == 1 || channels == 3) {
+                for (int i = 0; i < numPixels; i++) {
+                    pixels[i] |= 0xFF_00_00_00; // opaque
+                }
+            }
+
+            // the other images must be consumed, because the
+            // stream can be used again for the next image
+            int numImages = Integer.parseInt(fileHeader[0]);
+            for (int i = 1; i < numImages; i++) {
+                String[] header = readImageHeader(in);
+                long size = (long) sampleSize;
+                for (int d = 0; d < 4; d++) {
+                    size *= Long.parseLong(header[d]);
+                }
+                in.skipNBytes(size);
+            }
+            return img;
+        }
+
+        private static String[] readImageHeader(InputStream in) throws IOException {
+            // the line is "<width> <height> <depth> <channels>"
+            String[] imageHeader = readLine(in);
+            if (imageHeader == null || imageHeader.length < 4) {
+                throw new IOException("missing CImg image header");
+            }
+            if (imageHeader.length > 4 && imageHeader[4].startsWith("#")) {
+                throw new IOException("compressed CImg data is not supported");
+            }
+            return imageHeader;
+        }
+    };
+
+    // the bit shifts of the ARGB components set by a gray, alpha, red, green and blue sample
+    private static final int[][] CHANNEL_TARGETS = {{16, 8, 0}, {24}, {16}, {8}, {0}};
+    private static final int GRAY = 0;
+    private static final int ALPHA = 1;
+    private static final int RED = 2;
+    private static final int GREEN = 3;
+    private static final int BLUE = 4;
+
+    private final String extension;
+
+    PipeFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file extension that identifies this format on the command line.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Writes the given image to the given stream in this format.
+     */
+    public abstract void write(BufferedImage img, OutputStream out) throws IOException;
+
+    /**
+     * Writes the given text as a one-row, single-channel image in this
+     * format, with one sample for each byte of its UTF-8 encoding.
+     */
+    public abstract void writeText(String text, OutputStream out) throws IOException;
+
+    /**
+     * Reads an image in this format from the given stream, or returns null
+     * if the stream doesn't contain an image (for example because the
+     * external process failed and wrote nothing).
+     */
+    public abstract BufferedImage read(InputStream in) throws IOException;
+
+    // returns the component targets of the channels, based on their number
+    private static int[] channelShifts(int channels) {
+        return switch (channels) {
+            case 1 -> new int[]{GRAY};
+            case 2 -> new int[]{GRAY, ALPHA};
+            case 3 -> new int[]{RED, GREEN, BLUE};
+            default -> new int[]{RED, GREEN, BLUE, ALPHA};
+        };
+    }
+
+    private static BufferedImage readInterleaved(InputStream in, int width, int height, int channels) throws IOException {
+        int[] targets = channelShifts(channels);
+        BufferedImage img = new BufferedImage(width, height, TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        byte[] rowBytes = new byte[width * channels];
+        DataInputStream dataIn = new DataInputStream(in);
+        for (int y = 0; y < height; y++) {
+            dataIn.readFully(rowBytes);
+            int rowStart = y * width;
+            for (int x = 0, i = 0; x < width; x++) {
+                int argb = channels == 2 || channels == 4 ? 0 : 0xFF_00_00_00;
+                for (int ch = 0; ch < channels; ch++) {
+                    int value = rowBytes[i++] & 0xFF;
+                    for (int shift : CHANNEL_TARGETS[targets[ch]]) {
+                        argb |= value << shift;
+                    }
+                }
+                pixels[rowStart + x] = argb;
+            }
+        }
+        return img;
+    }
+
+    private static int clamp(double value) {
+        if (value <= 0) {
+            return 0;
+        }
+        if (value >= 255) {
+            return 255;
+        }
+        return (int) (value + 0.5);
+    }
+
+    // reads an ASCII line and splits it into whitespace-separated parts
+    private static String[] readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = in.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != '\n' && c != -1) {
+            sb.append((char) c);
+            c = in.read();
+        }
+        return sb.toString().trim().split("\\s+");
+    }
+
+    // reads a whitespace-separated ASCII token, skipping the comments
+    private static String readToken(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = in.read();
+        while (true) {
+            if (c == -1) {
+                return null;
+            }
+            if (c == '#') { // skip the comment line
+                while (c != '\n' && c != -1) {
+                    c = in.read();
+                }
+            } else if (!Character.isWhitespace(c)) {
+                break;
+            }
+            c = in.read();
+        }
+        while (c != -1 && !Character.isWhitespace(c)) {
+            sb.append((char) c);
+            c = in.read();
+        }
+        // the single whitespace character after the token is consumed, which
+        // is required for the PAM header, where the binary data follows "ENDHDR\n"
+        return sb.toString();
+    }
+
+    /**
+     * Provides the non-premultiplied ARGB rows of an image, directly
+     * from the pixel array, if the image layout allows it.
+     */
+    private static class RowReader {
+        private final BufferedImage img;
+        private final int[] pixels;
+        private final int[] rowBuffer;
+        private int offset;
+
+        RowReader(BufferedImage img) {
+            this.img = img;
+            int width = img.getWidth();
+            if (img.getType() == TYPE_INT_ARGB
+                && img.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                && buffer.getData().length == width * img.getHeight()
+                && img.getRaster().getSampleModelTranslateX() == 0
+                && img.getRaster().getSampleModelTranslateY() == 0) {
+                pixels = buffer.getData();
+                rowBuffer = null;
+            } else {
+                // sub-images, premultiplied and other image types
+                pixels = null;
+                rowBuffer = new int[width];
+            }
+        }
+
+        int[] getRow(int y) {
+            int width = img.getWidth();
+            if (pixels != null) {
+                offset = y * width;
+                return pixels;
+            }
+            offset = 0;
+            return img.getRGB(0, y, width, 1, rowBuffer, 0, width);
+        }
+
+        int getOffset() {
+            return offset;
+        }
+    }
+}
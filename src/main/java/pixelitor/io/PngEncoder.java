@@ -0,0 +1,454 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * A PNG encoder that compresses horizontal strips of the image in parallel.
+ * Each strip is compressed by its own {@link Deflater}, primed with the end
+ * of the previous strip, and the strips (except the last) end with a sync
+ * flush, so that their concatenation is a single valid zlib stream, which
+ * is written as one IDAT chunk per strip. The pixels of the common image
+ * types are read directly from their data buffers.
+ */
+public class PngEncoder {
+    /**
+     * The default settings, similar to those of the ImageIO PNG writer.
+     */
+    public static final PngEncoder DEFAULT = new PngEncoder(4, FilterStrategy.ADAPTIVE);
+
+    // the approximate uncompressed size of a strip in bytes
+    private static final int STRIP_BYTES = 1 << 19;
+
+    // the size of the deflate window, the part of the previous strip used as a dictionary
+    private static final int WINDOW_SIZE = 1 << 15;
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    /**
+     * The row filters defined by the PNG specification.
+     * The adaptive strategy selects the best filter for each row.
+     */
+    public enum FilterStrategy {
+        NONE, SUB, UP, AVERAGE, PAETH, ADAPTIVE
+    }
+
+    private final int compressionLevel;
+    private final FilterStrategy filterStrategy;
+
+    public PngEncoder(int compressionLevel, FilterStrategy filterStrategy) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel = " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.filterStrategy = filterStrategy;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public FilterStrategy getFilterStrategy() {
+        return filterStrategy;
+    }
+
+    /**
+     * Writes the given image as a PNG to the given stream, without closing it.
+     * The progress is reported in 100 units.
+     */
+    public void write(BufferedImage img, OutputStream out, ProgressTracker pt) throws IOException {
+        write(img, out, Map.of(), pt);
+    }
+
+    /**
+     * Writes the given image as a PNG, together with the given
+     * keyword-value pairs as (Latin-1) textual metadata.
+     */
+    public void write(BufferedImage img, OutputStream out,
+                      Map<String, String> textEntries, ProgressTracker pt) throws IOException {
+        PixelSource source = new PixelSource(img);
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int rowBytes = width * source.channels;
+
+        int stripRows = Math.max(1, STRIP_BYTES / (rowBytes + 1));
+        int numStrips = (height + stripRows - 1) / stripRows;
+        byte[][] compressedStrips = new byte[numStrips][];
+        long[] stripAdlers = new long[numStrips];
+        long[] stripLengths = new long[numStrips];
+
+        Object progressLock = new Object();
+        int[] reportedProgress = {0};
+        int[] doneStrips = {0};
+        ThreadPool.runIndexed(numStrips, strip -> {
+            int fromRow = strip * stripRows;
+            int toRow = Math.min(height, fromRow + stripRows);
+            byte[] filtered = filterRows(source, fromRow, toRow, rowBytes);
+
+            Adler32 adler = new Adler32();
+            adler.update(filtered);
+            stripAdlers[strip] = adler.getValue();
+            stripLengths[strip] = filtered.length;
+
+            byte[] dictionary = null;
+            if (strip > 0) {
+                // the last rows of the previous strip can be referenced by the
+                // matches, because they precede this strip in the decoded stream
+                int dictRows = Math.min(fromRow, (WINDOW_SIZE + rowBytes) / (rowBytes + 1));
+                dictionary = filterRows(source, fromRow - dictRows, fromRow, rowBytes);
+                if (dictionary.length > WINDOW_SIZE) {
+                    dictionary = Arrays.copyOfRange(dictionary, dictionary.length - WINDOW_SIZE, dictionary.length);
+                }
+            }
+            compressedStrips[strip] = compress(filtered, dictionary, strip == numStrips - 1);
+
+            synchronized (progressLock) {
+                doneStrips[0]++;
+                int progress = 100 * doneStrips[0] / numStrips;
+                if (progress > reportedProgress[0]) {
+                    pt.unitsDone(progress - reportedProgress[0]);
+                    reportedProgress[0] = progress;
+                }
+            }
+        });
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.write(SIGNATURE);
+        writeHeader(dataOut, width, height, source.colorType);
+        for (Map.Entry<String, String> entry : textEntries.entrySet()) {
+            String text = entry.getKey() + '\0' + entry.getValue();
+            writeChunk(dataOut, "tEXt", text.getBytes(ISO_8859_1));
+        }
+
+        long adler = 1;
+        for (int strip = 0; strip < numStrips; strip++) {
+            adler = combineAdlers(adler, stripAdlers[strip], stripLengths[strip]);
+            byte[] data = compressedStrips[strip];
+            boolean first = strip == 0;
+            boolean last = strip == numStrips - 1;
+            int length = data.length + (first ? 2 : 0) + (last ? 4 : 0);
+            byte[] chunkData = new byte[length];
+            int pos = 0;
+            if (first) { // the zlib header
+                chunkData[pos++] = 0x78;
+                chunkData[pos++] = zlibFlags();
+            }
+            System.arraycopy(data, 0, chunkData, pos, data.length);
+            pos += data.length;
+            if (last) { // the zlib trailer
+                chunkData[pos++] = (byte) (adler >>> 24);
+                chunkData[pos++] = (byte) (adler >>> 16);
+                chunkData[pos++] = (byte) (adler >>> 8);
+                chunkData[pos] = (byte) adler;
+            }
+            writeChunk(dataOut, "IDAT", chunkData);
+        }
+        writeChunk(dataOut, "IEND", new byte[0]);
+        dataOut.flush();
+        pt.finished();
+    }
+
+    // the second byte of the zlib header, which signals the compression
+    // level, and makes the header a multiple of 31 together with the first
+    private byte zlibFlags() {
+        if (compressionLevel < 2) {
+            return 0x01;
+        } else if (compressionLevel < 6) {
+            return 0x5E;
+        } else if (compressionLevel == 6) {
+            return (byte) 0x9C;
+        }
+        return (byte) 0xDA;
+    }
+
+    private byte[] compress(byte[] data, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+
+            var out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[1 << 16];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    out.write(buffer, 0, length);
+                }
+            } else {
+                // ends at a byte boundary without marking the final block
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // filters the given rows, each filtered row starting with its filter type
+    private byte[] filterRows(PixelSource source, int fromRow, int toRow, int rowBytes) {
+        int bpp = source.channels;
+        byte[] filtered = new byte[(toRow - fromRow) * (rowBytes + 1)];
+        byte[] prev = new byte[rowBytes];
+        byte[] cur = new byte[rowBytes];
+        if (fromRow > 0) {
+            source.getRow(fromRow - 1, prev);
+        }
+        byte[][] candidates = filterStrategy == FilterStrategy.ADAPTIVE
+            ? new byte[5][rowBytes] : null;
+
+        int pos = 0;
+        for (int y = fromRow; y < toRow; y++) {
+            source.getRow(y, cur);
+            if (candidates == null) {
+                int type = filterStrategy.ordinal();
+                filtered[pos] = (byte) type;
+                applyFilter(type, cur, prev, bpp, filtered, pos + 1);
+            } else {
+                // the heuristic recommended by the PNG specification:
+                // choose the filter with the smallest sum of absolute values
+                int bestType = 0;
+                long bestSum = Long.MAX_VALUE;
+                for (int type = 0; type < 5; type++) {
+                    applyFilter(type, cur, prev, bpp, candidates[type], 0);
+                    long sum = 0;
+                    for (byte b : candidates[type]) {
+                        sum += Math.abs(b);
+                    }
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        bestType = type;
+                    }
+                }
+                filtered[pos] = (byte) bestType;
+                System.arraycopy(candidates[bestType], 0, filtered, pos + 1, rowBytes);
+            }
+            pos += rowBytes + 1;
+
+            byte[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return filtered;
+    }
+
+    private static void applyFilter(int type, byte[] cur, byte[] prev, int bpp, byte[] out, int offset) {
+        int length = cur.length;
+        switch (type) {
+            case 0 -> System.arraycopy(cur, 0, out, offset, length);
+            case 1 -> {
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bpp ? cur[i - bpp] : 0;
+                    out[offset + i] = (byte) (cur[i] - left);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < length; i++) {
+                    out[offset + i] = (byte) (cur[i] - prev[i]);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bpp ? cur[i - bpp] & 0xFF : 0;
+                    out[offset + i] = (byte) (cur[i] - ((left + (prev[i] & 0xFF)) >>> 1));
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bpp ? cur[i - bpp] & 0xFF : 0;
+                    int up = prev[i] & 0xFF;
+                    int upLeft = i >= bpp ? prev[i - bpp] & 0xFF : 0;
+                    out[offset + i] = (byte) (cur[i] - paethPredictor(left, up, upLeft));
+                }
+            }
+            default -> throw new IllegalStateException("type = " + type);
+        }
+    }
+
+    private static int paethPredictor(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        } else if (pb <= pc) {
+            return b;
+        }
+        return c;
+    }
+
+    private static void writeHeader(DataOutputStream out, int width, int height, int colorType) throws IOException {
+        var header = new ByteArrayOutputStream(13);
+        var headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // bit depth
+        headerData.writeByte(colorType);
+        headerData.writeByte(0); // deflate compression
+        headerData.writeByte(0); // adaptive filtering
+        headerData.writeByte(0); // no interlace
+        writeChunk(out, "IHDR", header.toByteArray());
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    // combines the Adler-32 checksums of two consecutive byte sequences (from zlib)
+    private static long combineAdlers(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        long rem = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - rem;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= (base << 1)) {
+            sum2 -= (base << 1);
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return (sum2 << 16) | sum1;
+    }
+
+    /**
+     * Provides the rows of an image as PNG samples. The samples of the
+     * int RGB(A) and the byte gray images are read directly from their
+     * data buffers, others are converted with getRGB.
+     */
+    private static class PixelSource {
+        private final BufferedImage img;
+        private final int colorType;
+        private final int channels;
+        private int[] intPixels;
+        private byte[] bytePixels;
+        private int offset;
+        private int stride;
+
+        PixelSource(BufferedImage img) {
+            this.img = img;
+            int type = img.getType();
+            Raster raster = img.getRaster();
+            SampleModel sampleModel = raster.getSampleModel();
+            int tx = -raster.getSampleModelTranslateX();
+            int ty = -raster.getSampleModelTranslateY();
+
+            if ((type == TYPE_INT_ARGB || type == TYPE_INT_RGB)
+                && raster.getDataBuffer() instanceof DataBufferInt buffer
+                && sampleModel instanceof SinglePixelPackedSampleModel packedModel) {
+                intPixels = buffer.getData();
+                offset = buffer.getOffset() + packedModel.getOffset(tx, ty);
+                stride = packedModel.getScanlineStride();
+            } else if (type == TYPE_BYTE_GRAY
+                && raster.getDataBuffer() instanceof DataBufferByte buffer
+                && sampleModel instanceof ComponentSampleModel componentModel) {
+                bytePixels = buffer.getData();
+                offset = buffer.getOffset() + componentModel.getOffset(tx, ty);
+                stride = componentModel.getScanlineStride();
+            }
+            // the other image types (for example premultiplied) are converted
+
+            if (type == TYPE_BYTE_GRAY) {
+                colorType = COLOR_TYPE_GRAY;
+                channels = 1;
+            } else if (img.getColorModel().hasAlpha()) {
+                colorType = COLOR_TYPE_RGBA;
+                channels = 4;
+            } else {
+                colorType = COLOR_TYPE_RGB;
+                channels = 3;
+            }
+        }
+
+        /**
+         * Stores the samples of the given row into the given array.
+         * Can be called concurrently from several threads.
+         */
+        void getRow(int y, byte[] dest) {
+            int width = img.getWidth();
+            if (bytePixels != null) {
+                System.arraycopy(bytePixels, offset + y * stride, dest, 0, width);
+            } else if (intPixels != null) {
+                copyPixels(intPixels, offset + y * stride, width, dest);
+            } else if (channels == 1) {
+                // a gray image without direct access
+                img.getRaster().getDataElements(0, y, width, 1, dest);
+            } else {
+                int[] row = new int[width];
+                img.getRGB(0, y, width, 1, row, 0, width);
+                copyPixels(row, 0, width, dest);
+            }
+        }
+
+        private void copyPixels(int[] src, int srcPos, int width, byte[] dest) {
+            int i = 0;
+            for (int x = 0; x < width; x++) {
+                int argb = src[srcPos + x];
+                dest[i++] = (byte) (argb >>> 16);
+                dest[i++] = (byte) (argb >>> 8);
+                dest[i++] = (byte) argb;
+                if (channels == 4) {
+                    dest[i++] = (byte) (argb >>> 24);
+                }
+            }
+        }
+    }
+}
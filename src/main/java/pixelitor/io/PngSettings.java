@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import pixelitor.io.PngEncoder.FilterStrategy;
+
+import java.io.File;
+
+/**
+ * Settings for writing PNG images, and also for the PNG
+ * data embedded in the PXC and OpenRaster formats.
+ */
+public record PngSettings(File file, FileFormat format, int compressionLevel,
+                          FilterStrategy filterStrategy) implements SaveSettings {
+    public PngSettings(int compressionLevel, FilterStrategy filterStrategy, File outputFile) {
+        this(outputFile, FileFormat.PNG, compressionLevel, filterStrategy);
+    }
+
+    /**
+     * Converts a generic {@link SaveSettings} to a {@link PngSettings}
+     * with the default encoding values, if it wasn't customized.
+     */
+    public static PngSettings from(SaveSettings settings) {
+        assert usesPng(settings.format()) : settings.format();
+        if (settings instanceof PngSettings pngSettings) {
+            return pngSettings;
+        }
+        return new PngSettings(settings.file(), settings.format(),
+            PngEncoder.DEFAULT.getCompressionLevel(),
+            PngEncoder.DEFAULT.getFilterStrategy());
+    }
+
+    private static boolean usesPng(FileFormat format) {
+        return format == FileFormat.PNG
+            || format == FileFormat.PXC
+            || format == FileFormat.ORA;
+    }
+
+    /**
+     * Returns settings with the same encoding values for another file.
+     */
+    public PngSettings withFile(File otherFile) {
+        return new PngSettings(otherFile, format, compressionLevel, filterStrategy);
+    }
+
+    public PngEncoder toEncoder() {
+        if (compressionLevel == PngEncoder.DEFAULT.getCompressionLevel()
+            && filterStrategy == PngEncoder.DEFAULT.getFilterStrategy()) {
+            return PngEncoder.DEFAULT;
+        }
+        return new PngEncoder(compressionLevel, filterStrategy);
+    }
+}
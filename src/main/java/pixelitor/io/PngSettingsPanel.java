@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import pixelitor.Composition;
+import pixelitor.filters.gui.EnumParam;
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.gui.utils.DialogBuilder;
+import pixelitor.gui.utils.GridBagHelper;
+import pixelitor.io.PngEncoder.FilterStrategy;
+
+import javax.swing.*;
+import java.awt.GridBagLayout;
+import java.io.File;
+
+import static pixelitor.utils.Texts.i18n;
+
+/**
+ * The panel for choosing the PNG compression level and filter strategy,
+ * shown in the "Export PNG..." dialog and when exporting layers to PNG.
+ */
+public class PngSettingsPanel extends JPanel {
+    private final RangeParam compressionParam = new RangeParam("Compression Level",
+        0, PngEncoder.DEFAULT.getCompressionLevel(), 9);
+    private final EnumParam<FilterStrategy> filterStrategyParam = new EnumParam<>(
+        "Filter Strategy", FilterStrategy.class)
+        .withDefault(PngEncoder.DEFAULT.getFilterStrategy());
+
+    public PngSettingsPanel() {
+        super(new GridBagLayout());
+
+        var gbh = new GridBagHelper(this);
+        gbh.addParam(compressionParam);
+        gbh.addParam(filterStrategyParam);
+    }
+
+    /**
+     * Returns the PNG settings chosen in this panel for the given file.
+     */
+    public PngSettings createSettings(File file) {
+        return new PngSettings(compressionParam.getValue(),
+            filterStrategyParam.getSelected(), file);
+    }
+
+    public static void showInDialog(Composition comp, String title) {
+        var settingsPanel = new PngSettingsPanel();
+
+        new DialogBuilder()
+            .content(settingsPanel)
+            .title(title)
+            .okText(i18n("save"))
+            .okAction(() -> FileIO.savePngWithCustomSettings(comp, settingsPanel))
+            .show();
+    }
+}
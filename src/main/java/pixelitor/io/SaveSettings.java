@@ -20,7 +20,7 @@ package pixelitor.io;
 import java.io.File;
 
 public sealed interface SaveSettings
-    permits SaveSettings.Simple, JpegSettings {
+    permits SaveSettings.Simple, JpegSettings, PngSettings {
 
     /**
      * Uncustomized save settings with default encoding values.
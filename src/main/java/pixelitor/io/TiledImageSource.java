@@ -0,0 +1,331 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static pixelitor.utils.Threads.onEDT;
+
+/**
+ * An image file that is too large to be decoded at once. Its regions
+ * are decoded on demand with ImageIO's source region support, and the
+ * recently used tiles are kept in a bounded cache.
+ *
+ * Only the formats with random access (for example tiled TIFFs) can
+ * decode a region without reading the preceding data, but even for
+ * the other formats only the requested pixels are kept in memory.
+ * A single image reader is kept open, so that the file's header
+ * isn't parsed again for each region.
+ */
+public class TiledImageSource {
+    private static final int TILE_SIZE = 512;
+    private static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+
+    private final File file;
+    private final int width;
+    private final int height;
+
+    // the decoded tiles, the least recently used first
+    private final Map<TileKey, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes = 0;
+
+    // the tiles that are being decoded
+    private final Set<TileKey> pendingTiles = new HashSet<>();
+
+    // the tiles needed by the last painting, so that
+    // the decoding of the scrolled-away tiles is skipped
+    private Set<TileKey> wantedTiles = Set.of();
+
+    // the reader is reused for all regions, guarded by readerLock
+    private final Object readerLock = new Object();
+    private ImageInputStream inputStream;
+    private ImageReader reader;
+    private boolean closed;
+
+    /**
+     * Identifies a tile decoded with the given subsampling. The tile covers
+     * TILE_SIZE * subsampling pixels of the full-resolution image.
+     */
+    record TileKey(int subsampling, int col, int row) {
+        Rectangle getSourceRegion(int imgWidth, int imgHeight) {
+            int size = TILE_SIZE * subsampling;
+            return new Rectangle(col * size, row * size, size, size)
+                .intersection(new Rectangle(0, 0, imgWidth, imgHeight));
+        }
+    }
+
+    public TiledImageSource(File file, int width, int height) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns true if an image of the given size can be decoded at once,
+     * leaving enough free memory for the composite image and editing.
+     */
+    public static boolean fitsInMemory(long imgWidth, long imgHeight) {
+        long numPixels = imgWidth * imgHeight;
+        if (numPixels > Integer.MAX_VALUE) {
+            // can't be stored in a single array
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long freeMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return numPixels * 4 * 3 < freeMemory;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Decodes the given region of the full-resolution image,
+     * without using or filling the tile cache.
+     */
+    public BufferedImage readRegion(Rectangle region, int subsampling) throws IOException {
+        synchronized (readerLock) {
+            if (closed) {
+                throw new IOException(file.getName() + " is closed");
+            }
+            if (reader == null) {
+                openReader();
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            return reader.read(0, param);
+        }
+    }
+
+    /**
+     * Converts a region of the preview with the given width
+     * to the corresponding region of the full-resolution image.
+     */
+    public Rectangle toFullResolution(Rectangle2D previewRegion, int previewWidth) {
+        double scale = (double) width / previewWidth;
+        return new Rectangle2D.Double(
+            previewRegion.getX() * scale, previewRegion.getY() * scale,
+            previewRegion.getWidth() * scale, previewRegion.getHeight() * scale).getBounds()
+            .intersection(new Rectangle(0, 0, width, height));
+    }
+
+    /**
+     * Releases the file. The regions can't be read afterward.
+     */
+    public void close() {
+        synchronized (readerLock) {
+            closed = true;
+            if (reader != null) {
+                reader.dispose();
+                reader = null;
+            }
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // nothing to do, the file was only read
+                }
+                inputStream = null;
+            }
+        }
+        synchronized (this) {
+            tiles.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * Paints the cached tiles that cover the visible region at a higher
+     * resolution than the given preview, and starts decoding the missing
+     * ones, which are painted when the given repaint callback is called.
+     * The graphics must be in the image space of the preview.
+     */
+    public void paintOverPreview(Graphics2D g, Rectangle2D visiblePreviewRegion,
+                                 double previewScale, double zoomScale, Runnable repainter) {
+        int subsampling = calcSubsampling(previewScale, zoomScale);
+        if (subsampling == 0) {
+            return; // the preview is detailed enough
+        }
+
+        Set<TileKey> visibleTiles = findVisibleTiles(visiblePreviewRegion, previewScale, subsampling);
+        synchronized (this) {
+            wantedTiles = visibleTiles;
+        }
+
+        var origTransform = g.getTransform();
+        Object origInterpolation = g.getRenderingHint(KEY_INTERPOLATION);
+        g.scale(previewScale, previewScale); // now in full-resolution image space
+        g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+        for (TileKey key : visibleTiles) {
+            BufferedImage tile = getCachedTile(key);
+            if (tile != null) {
+                Rectangle region = key.getSourceRegion(width, height);
+                g.drawImage(tile, region.x, region.y, region.width, region.height, null);
+            } else {
+                requestTile(key, repainter);
+            }
+        }
+        g.setTransform(origTransform);
+        if (origInterpolation != null) {
+            g.setRenderingHint(KEY_INTERPOLATION, origInterpolation);
+        }
+    }
+
+    /**
+     * Returns the subsampling of the tiles that should be painted over
+     * the preview, or 0 if the preview is detailed enough.
+     */
+    static int calcSubsampling(double previewScale, double zoomScale) {
+        // the number of full-resolution pixels per preview and screen pixel
+        double previewSubsampling = 1 / previewScale;
+        double screenSubsampling = previewSubsampling / zoomScale;
+
+        // the largest power of 2 that is still detailed enough for the screen
+        int subsampling = 1;
+        while (subsampling * 2 <= screenSubsampling) {
+            subsampling *= 2;
+        }
+        return subsampling < previewSubsampling ? subsampling : 0;
+    }
+
+    /**
+     * Returns the tiles with the given subsampling that
+     * cover the given region of the preview.
+     */
+    Set<TileKey> findVisibleTiles(Rectangle2D visiblePreviewRegion, double previewScale, int subsampling) {
+        double tileSize = TILE_SIZE * subsampling;
+        int minCol = (int) Math.max(0, visiblePreviewRegion.getMinX() / previewScale / tileSize);
+        int minRow = (int) Math.max(0, visiblePreviewRegion.getMinY() / previewScale / tileSize);
+        int maxCol = (int) Math.min((width - 1) / tileSize, visiblePreviewRegion.getMaxX() / previewScale / tileSize);
+        int maxRow = (int) Math.min((height - 1) / tileSize, visiblePreviewRegion.getMaxY() / previewScale / tileSize);
+
+        Set<TileKey> visibleTiles = new HashSet<>();
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                visibleTiles.add(new TileKey(subsampling, col, row));
+            }
+        }
+        return visibleTiles;
+    }
+
+    private synchronized BufferedImage getCachedTile(TileKey key) {
+        return tiles.get(key);
+    }
+
+    private void requestTile(TileKey key, Runnable repainter) {
+        synchronized (this) {
+            if (!pendingTiles.add(key)) {
+                return; // already requested
+            }
+        }
+        IOTasks.supplyAsync(file, () -> decodeTileIfWanted(key))
+            .whenComplete((tile, e) -> {
+                synchronized (this) {
+                    pendingTiles.remove(key);
+                }
+            })
+            .thenAcceptAsync(tile -> {
+                if (tile != null) {
+                    repainter.run();
+                }
+            }, onEDT);
+    }
+
+    private BufferedImage decodeTileIfWanted(TileKey key) {
+        synchronized (this) {
+            if (!wantedTiles.contains(key)) {
+                // scrolled or zoomed away since the request
+                return null;
+            }
+        }
+        BufferedImage tile;
+        try {
+            tile = readRegion(key.getSourceRegion(width, height), key.subsampling());
+        } catch (IOException e) {
+            return null; // the preview remains visible
+        }
+        cacheTile(key, tile);
+        return tile;
+    }
+
+    private synchronized void cacheTile(TileKey key, BufferedImage tile) {
+        tiles.put(key, tile);
+        cachedBytes += getNumBytes(tile);
+
+        Iterator<BufferedImage> it = tiles.values().iterator();
+        while (cachedBytes > MAX_CACHED_BYTES && it.hasNext()) {
+            BufferedImage evicted = it.next();
+            if (evicted == tile) {
+                break;
+            }
+            cachedBytes -= getNumBytes(evicted);
+            it.remove();
+        }
+    }
+
+    // the decoded tiles can have different image types (for example 3BYTE_BGR)
+    static long getNumBytes(BufferedImage img) {
+        DataBuffer buffer = img.getRaster().getDataBuffer();
+        long bitsPerBank = (long) buffer.getSize() * DataBuffer.getDataTypeSize(buffer.getDataType());
+        return bitsPerBank * buffer.getNumBanks() / 8;
+    }
+
+    private void openReader() throws IOException {
+        ImageInputStream iis = ImageIO.createImageInputStream(file);
+        if (iis == null) {
+            throw new IOException("Could not open " + file.getName());
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            iis.close();
+            throw new IOException("No reader found for " + file.getName());
+        }
+        // not seeking forward only, because the regions
+        // can be read in any order
+        reader = readers.next();
+        reader.setInput(iis, false, true);
+        inputStream = iis;
+    }
+}
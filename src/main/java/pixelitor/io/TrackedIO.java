@@ -71,6 +71,19 @@ public class TrackedIO {
         }
     }
 
+    /**
+     * Writes an image to a PNG file with the given encoder and progress tracking.
+     */
+    public static void writePng(BufferedImage img,
+                                File outputFile,
+                                PngEncoder encoder) throws IOException {
+        var tracker = new StatusBarProgressTracker(
+            "Writing " + outputFile.getName(), 100);
+        try (var out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            encoder.write(img, out, tracker);
+        }
+    }
+
     /**
      * Writes an image to an output stream with progress tracking.
      */
@@ -219,6 +232,43 @@ public class TrackedIO {
         return image;
     }
 
+    /**
+     * Reads a subsampled version of a large image, which can be shown
+     * while the full-resolution image is decoded. Returns null if the image
+     * isn't large enough for a preview to be worthwhile.
+     */
+    public static ThumbInfo readPreview(File file, int maxPreviewSize, long minImagePixels) {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis);
+                // usually only the header is read at this point
+                int imgWidth = reader.getWidth(0);
+                int imgHeight = reader.getHeight(0);
+                if ((long) imgWidth * imgHeight < minImagePixels) {
+                    return null;
+                }
+                int subsampling = (int) Math.ceil(
+                    Math.max(imgWidth, imgHeight) / (double) maxPreviewSize);
+                if (subsampling < 2) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return ThumbInfo.success(reader.read(0, param), imgWidth, imgHeight);
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            // the full read will report the error
+            return null;
+        }
+    }
+
     /**
      * Reads a thumbnail from an image file. If an embedded thumbnail
      * is not found inside the file, then it reads a subsampled image.
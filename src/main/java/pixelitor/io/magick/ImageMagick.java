@@ -34,11 +34,9 @@ import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.CompletableFuture;
 
 import static pixelitor.utils.AppPreferences.magickDirName;
 import static pixelitor.utils.Threads.onEDT;
-import static pixelitor.utils.Threads.onIOThread;
 
 /**
  * Utility class for working with ImageMagick if installed and accessible
@@ -84,7 +82,7 @@ public class ImageMagick {
 
         // executes the export asynchronously
         var progressHandler = Messages.startProgress("Exporting with ImageMagick", -1);
-        CompletableFuture.runAsync(() -> exportImage(image, targetFile, settings), onIOThread)
+        IOTasks.runAsync(targetFile, () -> exportImage(image, targetFile, settings))
             .thenRunAsync(() -> {
                 progressHandler.stopProgress();
                 comp.handleSuccessfulSave(targetFile, true);
@@ -135,7 +133,7 @@ public class ImageMagick {
         }
 
         var progressHandler = Messages.startProgress("Importing with ImageMagick", -1);
-        CompletableFuture.supplyAsync(() -> decodeImage(file), onIOThread)
+        IOTasks.supplyAsync(file, () -> decodeImage(file))
             .thenAcceptAsync(img -> {
                 // called if there were no exceptions while importing
                 Composition comp = Composition.fromImage(img, file, null);
@@ -155,14 +153,14 @@ public class ImageMagick {
                                    ExportSettings settings) {
         List<String> command = createExportCommand(outFile, settings);
 
-        // a process that reads a png file from its standard input,
-        // and converts it to the given target file
+        // a process that reads an uncompressed PAM image from
+        // its standard input, and converts it to the given target file
         ProcessBuilder pb = new ProcessBuilder(command.toArray(String[]::new));
         pb.redirectInput(ProcessBuilder.Redirect.PIPE);
 
         try {
             Process process = pb.start();
-            FileIO.writeToCommandLineProcess(img, process);
+            FileIO.writeToCommandLineProcess(img, process, PipeFormat.PAM);
             int exitCode = process.waitFor();
             if (exitCode != 0) {
                 // ignore: for some reason ImageMagick exits with 1 after successful write
@@ -185,7 +183,7 @@ public class ImageMagick {
 //        command.add("-define");
 //        command.add("stream:buffer-size=0");
 
-        command.add("png:-"); // read png from stdin
+        command.add("pam:-"); // read pam from stdin
 
         settings.addMagickOptions(command);
         command.add(settings.getFormatSpecifier() + outFile.getAbsolutePath());
@@ -194,17 +192,18 @@ public class ImageMagick {
     }
 
     private static BufferedImage decodeImage(File file) {
-        // a process that reads the given file and writes it as 8-bit png to its standard output
+        // a process that reads the given file and writes it as
+        // an uncompressed 8-bit PAM image to its standard output
         ProcessBuilder pb = new ProcessBuilder(
             magickExecutable.getAbsolutePath(), "convert", file.getAbsolutePath(),
+            "-colorspace", "sRGB", // PAM is written in the source colorspace, for example CMYK
             "-depth", "8", // don't send 16-bit data
-            "-quality", "1", // importing is faster with minimal compression
-            "png:-");
+            "pam:-");
 
         try {
             Process process = pb.start();
-            // read the image as png after ImageMagick did the conversion
-            BufferedImage img = FileIO.readFromCommandLineProcess(process);
+            // read the image as pam after ImageMagick did the conversion
+            BufferedImage img = FileIO.readFromCommandLineProcess(process, PipeFormat.PAM);
             if (img == null) {
                 throw DecodingException.forMagickImport(file, null);
             }
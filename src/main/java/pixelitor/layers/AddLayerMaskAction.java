@@ -17,6 +17,7 @@
 
 package pixelitor.layers;
 
+import pixelitor.Composition;
 import pixelitor.ConsistencyChecks;
 import pixelitor.Views;
 import pixelitor.gui.View;
@@ -65,7 +66,11 @@ public class AddLayerMaskAction extends NamedAction
     }
 
     private static void onClick(boolean ctrlPressed) {
-        var layer = Views.getActiveComp().getActiveLayer();
+        Composition comp = Views.getActiveComp();
+        if (comp.checkPreview()) {
+            return;
+        }
+        var layer = comp.getActiveLayer();
         assert !layer.hasMask();
 
         layer.addMask(ctrlPressed);
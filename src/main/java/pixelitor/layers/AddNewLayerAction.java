@@ -54,6 +54,9 @@ public class AddNewLayerAction extends NamedAction implements ViewActivationList
 
         try {
             Composition comp = Views.getActiveComp();
+            if (comp.checkPreview()) {
+                return;
+            }
             String layerName = comp.generateNewLayerName();
             comp.addNewEmptyImageLayer(layerName, ctrlPressed);
         } catch (Exception ex) {
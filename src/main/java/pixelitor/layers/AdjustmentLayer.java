@@ -23,6 +23,8 @@ import pixelitor.FilterContext;
 import pixelitor.filters.Filter;
 import pixelitor.filters.ParametrizedFilter;
 import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.lookup.LookupFilter;
+import pixelitor.filters.lookup.RGBLookup;
 import pixelitor.history.FilterChangedEdit;
 import pixelitor.history.History;
 import pixelitor.io.ORAImageInfo;
@@ -95,6 +97,17 @@ public class AdjustmentLayer extends Layer implements Filterable {
         return filter.transformImage(src);
     }
 
+    @Override
+    protected RGBLookup getFusableLookup() {
+        if (usesMask() || !isNormalAndOpaque()) {
+            return null;
+        }
+        if (filter instanceof LookupFilter lookupFilter) {
+            return lookupFilter.getRGBLookup();
+        }
+        return null;
+    }
+
     @Override
     public void paint(Graphics2D g, boolean firstVisibleLayer) {
         // adjustment layers don't paint directly; they transform the composite image
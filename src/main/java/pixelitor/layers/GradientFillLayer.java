@@ -29,6 +29,7 @@ import pixelitor.tools.Tool;
 import pixelitor.tools.Tools;
 import pixelitor.tools.gradient.Gradient;
 import pixelitor.tools.util.Drag;
+import pixelitor.utils.Geometry;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.*;
@@ -51,6 +52,7 @@ public class GradientFillLayer extends ContentLayer {
     private transient Gradient backupGradient;
 
     private transient BufferedImage cachedImage;
+    private transient CacheKey cacheKey;
 
     private static int count;
 
@@ -98,22 +100,29 @@ public class GradientFillLayer extends ContentLayer {
         int width = comp.getCanvasWidth();
         int height = comp.getCanvasHeight();
 
-        // the custom blending modes don't work with gradients
-        boolean needsCache = g.getComposite().getClass() != AlphaComposite.class
-            // and custom gradients using transparency also have a problem
-            || gradient.hasCustomTransparency();
-
-        if (needsCache) {
-            if (cachedImage == null) {
-                cachedImage = ImageUtils.createSysCompatibleImage(width, height);
-                Graphics2D imgG = cachedImage.createGraphics();
-                gradient.paintOnGraphics(imgG, width, height);
-                imgG.dispose();
-            }
-            g.drawImage(cachedImage, 0, 0, null);
-        } else {
+        if (!Geometry.isPixelAligned(g.getTransform())) {
             gradient.paintOnGraphics(g, width, height);
+            return;
+        }
+
+        // the cache is reused as long as the gradient and the canvas size are the same
+        CacheKey key = new CacheKey(gradient, gradient.getDrag(), width, height);
+        if (!key.equals(cacheKey)) {
+            invalidateGradientCache();
+            cacheKey = key;
         }
+        if (cachedImage == null) {
+            cachedImage = ImageUtils.createSysCompatibleImage(width, height);
+            Graphics2D imgG = cachedImage.createGraphics();
+            gradient.paintOnGraphics(imgG, width, height);
+            imgG.dispose();
+        }
+        g.drawImage(cachedImage, 0, 0, null);
+    }
+
+    // the gradient is compared by identity, because it's replaced when edited,
+    // and the drag is compared separately, because the Move Tool replaces it
+    private record CacheKey(Gradient gradient, Drag drag, int width, int height) {
     }
 
     @Override
@@ -184,7 +193,11 @@ public class GradientFillLayer extends ContentLayer {
     }
 
     private void invalidateGradientCache() {
-        cachedImage = null;
+        if (cachedImage != null) {
+            cachedImage.flush();
+            cachedImage = null;
+        }
+        cacheKey = null;
     }
 
     public Gradient getGradient() {
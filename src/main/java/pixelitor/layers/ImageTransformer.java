@@ -22,26 +22,55 @@ import pixelitor.utils.ImageUtils;
 import pixelitor.utils.debug.DebugNode;
 import pixelitor.utils.debug.DebugNodes;
 
+import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.utils.Threads.onEDT;
+import static pixelitor.utils.Threads.onPool;
 
 /**
  * An object that can apply an affine transformation to the output image
  * of a smart object's content before the image is processed by the smart filters.
+ *
+ * While the transform is changed interactively, the image is rendered
+ * from a downsampled proxy of the content, and the full-quality image
+ * is calculated in the background when the interaction is finished.
  */
 public class ImageTransformer implements ImageSource, Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    // the smallest proxy size that is still worth creating
+    private static final int MIN_PROXY_SIZE = 64;
+    private static final int MAX_PROXY_LEVEL = 8;
+
     private Composition content;
-    private final AffineTransform transform;
+    private AffineTransform transform;
     private int targetWidth;
     private int targetHeight;
 
     private transient BufferedImage cachedImage;
 
+    // true if the cached image was rendered from a proxy
+    private transient boolean previewCached;
+
+    // the downsampled versions of the content image, where the
+    // image at index i has 1/2^i of the original size
+    private transient List<BufferedImage> proxies;
+
+    // incremented when the transform changes, so that
+    // outdated background renders can be discarded
+    private transient int renderId;
+
     public ImageTransformer(Composition content, AffineTransform transform,
                             int targetWidth, int targetHeight) {
         this.content = content;
@@ -57,6 +86,8 @@ public class ImageTransformer implements ImageSource, Serializable {
         // should be safe to share because the new content
         // is either identical to the old one or a copy of it
         copy.cachedImage = cachedImage;
+        copy.previewCached = previewCached;
+        copy.proxies = proxies;
 
         return copy;
     }
@@ -78,21 +109,124 @@ public class ImageTransformer implements ImageSource, Serializable {
         }
         cachedImage = ImageUtils.applyTransform(content.getCompositeImage(),
             transform, targetWidth, targetHeight);
+        previewCached = false;
         return cachedImage;
     }
 
     public void concatenate(AffineTransform newScaling, int targetWidth, int targetHeight) {
         transform.concatenate(newScaling);
         setTargetSize(targetWidth, targetHeight);
-        invalidateCache();
+        cachedImage = null;
+        renderId++;
+    }
+
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    /**
+     * Sets a new transform during an interactive transformation. The image is
+     * rendered quickly from the proxy that matches the scaling at the given zoom.
+     */
+    public void setPreviewTransform(AffineTransform newTransform, double zoom) {
+        transform = new AffineTransform(newTransform);
+        renderId++;
+        cachedImage = renderPreview(zoom);
+        previewCached = true;
+    }
+
+    /**
+     * Calculates the full-quality image for the current transform in
+     * the background, and replaces the preview with it on the EDT.
+     * The returned future completes with false if the preview was
+     * not replaced, because the transform changed in the meantime.
+     */
+    public CompletableFuture<Boolean> renderFullQuality() {
+        if (!previewCached) {
+            return CompletableFuture.completedFuture(false);
+        }
+        int id = renderId;
+        BufferedImage src = content.getCompositeImage();
+        AffineTransform at = new AffineTransform(transform);
+        int width = targetWidth;
+        int height = targetHeight;
+        return CompletableFuture
+            .supplyAsync(() -> ImageUtils.applyTransform(src, at, width, height), onPool)
+            .thenApplyAsync(img -> {
+                if (id != renderId || !previewCached) {
+                    return false; // changed since the render started
+                }
+                cachedImage = img;
+                previewCached = false;
+                return true;
+            }, onEDT);
+    }
+
+    private BufferedImage renderPreview(double zoom) {
+        // the scaling of the content on the screen
+        double scale = Math.sqrt(Math.abs(transform.getDeterminant())) * zoom;
+        int level = 0;
+        while (scale <= 0.5 && level < MAX_PROXY_LEVEL) {
+            scale *= 2;
+            level++;
+        }
+        BufferedImage proxy = getProxy(level);
+        BufferedImage full = proxies.getFirst();
+
+        BufferedImage preview = new BufferedImage(targetWidth, targetHeight, TYPE_INT_ARGB);
+        Graphics2D g = preview.createGraphics();
+        g.transform(transform);
+        g.scale((double) full.getWidth() / proxy.getWidth(),
+            (double) full.getHeight() / proxy.getHeight());
+        g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(proxy, 0, 0, null);
+        g.dispose();
+        return preview;
+    }
+
+    // returns the proxy at the given level, or the smallest one if it's too small
+    private BufferedImage getProxy(int level) {
+        if (proxies == null) {
+            proxies = new ArrayList<>();
+            proxies.add(content.getCompositeImage());
+        }
+        while (proxies.size() <= level) {
+            BufferedImage last = proxies.getLast();
+            if (last.getWidth() < 2 * MIN_PROXY_SIZE || last.getHeight() < 2 * MIN_PROXY_SIZE) {
+                break;
+            }
+            proxies.add(halve(last));
+        }
+        return proxies.get(Math.min(level, proxies.size() - 1));
+    }
+
+    // bilinear interpolation at exactly half the size averages 2x2 pixel blocks
+    private static BufferedImage halve(BufferedImage src) {
+        BufferedImage half = new BufferedImage(src.getWidth() / 2, src.getHeight() / 2, TYPE_INT_ARGB);
+        Graphics2D g = half.createGraphics();
+        g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, half.getWidth(), half.getHeight(), null);
+        g.dispose();
+        return half;
     }
 
     public BufferedImage getCachedImage() {
         return cachedImage;
     }
 
+    // used only for testing
+    int getNumProxies() {
+        return proxies == null ? 0 : proxies.size();
+    }
+
+    /**
+     * Must be called when the content image changes.
+     */
     public void invalidateCache() {
         cachedImage = null;
+        previewCached = false;
+        proxies = null;
+        renderId++;
     }
 
     @Override
@@ -103,6 +237,8 @@ public class ImageTransformer implements ImageSource, Serializable {
         node.addInt("target height", targetHeight);
 
         node.addBoolean("cached", cachedImage != null);
+        node.addBoolean("preview cached", previewCached);
+        node.addInt("num proxies", proxies == null ? 0 : proxies.size());
         if (cachedImage != null) {
             node.addString("cached image size", cachedImage.getWidth() + "x" + cachedImage.getHeight());
         }
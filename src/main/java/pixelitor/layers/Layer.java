@@ -22,6 +22,7 @@ import pixelitor.AppMode;
 import pixelitor.Composition;
 import pixelitor.CopyType;
 import pixelitor.Features;
+import pixelitor.filters.lookup.RGBLookup;
 import pixelitor.gui.BlendingModePanel;
 import pixelitor.gui.GUIText;
 import pixelitor.gui.View;
@@ -738,6 +739,15 @@ public abstract class Layer implements Serializable, Debuggable {
         this.ui = null;
     }
 
+    /**
+     * Returns whether each pixel of this layer's rendering depends only on
+     * the corresponding pixel of the composite below it. If all layers render
+     * locally, then a region of the composite can be re-rendered in isolation.
+     */
+    public boolean rendersLocally() {
+        return !isAdjustment;
+    }
+
     /**
      * Renders this layer onto the given Graphics2D
      * or transforms the given image.
@@ -811,6 +821,51 @@ public abstract class Layer implements Serializable, Debuggable {
         }
     }
 
+    /**
+     * Returns the lookup of this layer if its effect on the composite
+     * can be fused with the neighboring lookup-based layers, or null otherwise.
+     */
+    protected RGBLookup getFusableLookup() {
+        return null;
+    }
+
+    /**
+     * Applies the run of consecutive fusable layers (see {@link #getFusableLookup()})
+     * starting at the given index as a single fused lookup, in place.
+     * Hidden layers within the run are skipped.
+     *
+     * @return the index of the last fused layer, or -1 if there were
+     * fewer than two fusable layers and the image wasn't changed
+     */
+    public static int applyFusedLookups(List<Layer> layers, int startIndex, BufferedImage composite) {
+        if (!ImageUtils.hasPackedIntArray(composite)) {
+            return -1;
+        }
+
+        RGBLookup fused = null;
+        int numFused = 0;
+        int lastIndex = -1;
+        for (int i = startIndex; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (!layer.isVisible()) {
+                continue;
+            }
+            RGBLookup lookup = layer.getFusableLookup();
+            if (lookup == null) {
+                break;
+            }
+            fused = fused == null ? lookup : fused.then(lookup);
+            numFused++;
+            lastIndex = i;
+        }
+        if (numFused < 2) {
+            return -1;
+        }
+
+        fused.asFastLookupOp().filter(composite, composite);
+        return lastIndex;
+    }
+
     /**
      * Used by adjustment layers and watermarking text layers
      * to apply this layer's effect on the given image.
@@ -73,13 +73,29 @@ public class LayerBlendingModePanel extends BlendingModePanel
     }
 
     private void opacityChanged() {
-        onActiveLayer(layer ->
-            layer.setOpacity(getOpacity(), true, true));
+        onActiveLayer(layer -> {
+            if (!isBlockedByPreview(layer)) {
+                layer.setOpacity(getOpacity(), true, true);
+            }
+        });
     }
 
     private void blendingModeChanged() {
-        onActiveLayer(layer ->
-            layer.setBlendingMode(getBlendingMode(), true, true));
+        onActiveLayer(layer -> {
+            if (!isBlockedByPreview(layer)) {
+                layer.setBlendingMode(getBlendingMode(), true, true);
+            }
+        });
+    }
+
+    // if the layer belongs to a preview, then the controls
+    // are reset to the layer's unchanged values
+    private boolean isBlockedByPreview(Layer layer) {
+        if (layer.getComp().checkPreview()) {
+            layerActivated(layer);
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -289,6 +289,9 @@ public class LayerGUI extends JToggleButton implements LayerUI {
                 if (smartFilter) {
                     super.processMouseEvent(e);
                 } else if (e.getID() == MouseEvent.MOUSE_CLICKED) {
+                    if (layer.getComp().checkPreview()) {
+                        return;
+                    }
                     boolean altDown = (e.getModifiersEx() & MouseEvent.ALT_DOWN_MASK) == MouseEvent.ALT_DOWN_MASK;
                     if (altDown) {
                         layer.isolate();
@@ -135,6 +135,13 @@ public class LayerGroup extends CompositeLayer {
         return !isPassThrough() && !layers.isEmpty();
     }
 
+    @Override
+    public boolean rendersLocally() {
+        // the cached image of an isolated group isn't updated
+        // region by region, and pass-through groups can contain adjustments
+        return false;
+    }
+
     @Override
     public BufferedImage render(Graphics2D g, BufferedImage currentComposite, boolean firstVisibleLayer) {
         if (isPassThrough()) {
@@ -153,10 +160,18 @@ public class LayerGroup extends CompositeLayer {
         // Apply the layers as if they were directly in the parent holder.
         // The algorithm is similar to ImageUtils.calcComposite(),
         // but here we have to consider the existing state of the composition.
-        for (Layer layer : layers) {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
             if (!layer.isVisible()) {
                 continue;
             }
+            if (!firstVisibleLayer) {
+                int lastFused = Layer.applyFusedLookups(layers, i, currentComposite);
+                if (lastFused != -1) {
+                    i = lastFused;
+                    continue;
+                }
+            }
             BufferedImage result = layer.render(g, currentComposite, firstVisibleLayer);
             if (result != null) { // adjustment layer or watermarking text layer
                 currentComposite = result;
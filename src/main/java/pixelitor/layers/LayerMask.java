@@ -42,6 +42,8 @@ import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
 import static pixelitor.Views.thumbSize;
 import static pixelitor.utils.ImageUtils.createThumbnail;
 import static pixelitor.utils.ImageUtils.isGrayscale;
+import static pixelitor.utils.Threads.calledOutsideEDT;
+import static pixelitor.utils.Threads.onEDT;
 
 /**
  * A layer mask that applies a transparency mask to an associated layer, controlling its visibility.
@@ -282,6 +284,11 @@ public class LayerMask extends ImageLayer {
 
     @Override
     public void repaintRegion(PPoint start, PPoint end, double thickness) {
+        if (calledOutsideEDT()) {
+            // the brush strokes can be drawn on a separate thread
+            onEDT.execute(() -> repaintRegion(start, end, thickness));
+            return;
+        }
         if (owner instanceof SmartFilter sf) {
             sf.layerLevelPropertyChanged(false);
         }
@@ -290,6 +297,11 @@ public class LayerMask extends ImageLayer {
 
     @Override
     public void repaintRegion(PRectangle area) {
+        if (calledOutsideEDT()) {
+            // the brush strokes can be drawn on a separate thread
+            onEDT.execute(() -> repaintRegion(area));
+            return;
+        }
         if (owner instanceof SmartFilter sf) {
             sf.layerLevelPropertyChanged(false);
         }
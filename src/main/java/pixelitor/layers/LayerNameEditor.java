@@ -51,6 +51,9 @@ public class LayerNameEditor extends JTextField {
     }
 
     public void enableEditing() {
+        if (layerGUI.getLayer().getComp().checkPreview()) {
+            return;
+        }
         setEnabled(true);
         setEditable(true);
         requestFocusInWindow();
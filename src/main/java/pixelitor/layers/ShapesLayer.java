@@ -32,6 +32,7 @@ import pixelitor.tools.Tool;
 import pixelitor.tools.Tools;
 import pixelitor.tools.shapes.StyledShape;
 import pixelitor.tools.transform.TransformBox;
+import pixelitor.utils.Geometry;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 import pixelitor.utils.debug.DebugNode;
@@ -60,7 +61,10 @@ public class ShapesLayer extends ContentLayer {
     //   it from the styled shape is currently not possible.
     private TransformBox transformBox;
 
+    // the rendered shape, which covers only the cachedBounds
     private transient BufferedImage cachedImage;
+    private transient Rectangle cachedBounds;
+    private transient CacheKey cacheKey;
 
     public ShapesLayer(Composition comp, String name) {
         super(comp, name);
@@ -109,21 +113,59 @@ public class ShapesLayer extends ContentLayer {
             return;
         }
         // the custom blending modes don't work with gradients
-        boolean useCachedImage = g.getComposite().getClass() != AlphaComposite.class
+        boolean blendingIssue = g.getComposite().getClass() != AlphaComposite.class
             && styledShape.hasBlendingIssue();
-        if (useCachedImage) {
-            if (cachedImage == null) {
-                int width = comp.getCanvasWidth();
-                int height = comp.getCanvasHeight();
-                cachedImage = ImageUtils.createSysCompatibleImage(width, height);
-                Graphics2D imgG = cachedImage.createGraphics();
-                styledShape.paint(imgG);
-                imgG.dispose();
-            }
-            g.drawImage(cachedImage, 0, 0, null);
-        } else {
+        boolean useCachedImage = blendingIssue
+            || (!styledShape.erasesBelow() && Geometry.isPixelAligned(g.getTransform()));
+        if (!useCachedImage) {
             styledShape.paint(g);
+            return;
+        }
+
+        // the cache is reused as long as the shape and the canvas size are the same
+        CacheKey key = new CacheKey(styledShape.createRenderingKey(),
+            comp.getCanvasWidth(), comp.getCanvasHeight());
+        if (!key.equals(cacheKey)) {
+            invalidateImageCache();
+            cacheKey = key;
+        }
+        if (cachedBounds == null) {
+            renderCachedImage();
+        }
+        if (cachedImage != null) {
+            g.drawImage(cachedImage, cachedBounds.x, cachedBounds.y, null);
+        }
+    }
+
+    /**
+     * Renders the shape into an image covering only
+     * the painted pixels within the canvas.
+     */
+    private void renderCachedImage() {
+        cachedBounds = styledShape.hasShape()
+            ? styledShape.getPaintedBounds().intersection(comp.getCanvasBounds())
+            : new Rectangle();
+        if (cachedBounds.isEmpty()) {
+            // nothing is visible
+            return;
         }
+        cachedImage = ImageUtils.createSysCompatibleImage(cachedBounds.width, cachedBounds.height);
+        Graphics2D imgG = cachedImage.createGraphics();
+        imgG.translate(-cachedBounds.x, -cachedBounds.y);
+        styledShape.paint(imgG);
+        imgG.dispose();
+    }
+
+    private void invalidateImageCache() {
+        if (cachedImage != null) {
+            cachedImage.flush();
+            cachedImage = null;
+        }
+        cachedBounds = null;
+        cacheKey = null;
+    }
+
+    private record CacheKey(Object shapeKey, int canvasWidth, int canvasHeight) {
     }
 
     @Override
@@ -245,7 +287,7 @@ public class ShapesLayer extends ContentLayer {
 
         // register a listener to invalidate the layer's
         // image cache when the styled shape changes
-        styledShape.setChangeListener(() -> cachedImage = null);
+        styledShape.setChangeListener(this::invalidateImageCache);
     }
 
     @Override
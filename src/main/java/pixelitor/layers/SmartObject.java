@@ -32,6 +32,8 @@ import pixelitor.gui.utils.TaskAction;
 import pixelitor.history.*;
 import pixelitor.io.FileChoosers;
 import pixelitor.io.FileIO;
+import pixelitor.tools.Tools;
+import pixelitor.tools.transform.Transformable;
 import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 import pixelitor.utils.Threads;
@@ -42,6 +44,7 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
@@ -59,7 +62,7 @@ import static pixelitor.utils.Threads.onEDT;
  * A layer that embeds a {@link Composition},
  * and supports non-destructive editing via smart filters.
  */
-public class SmartObject extends CompositeLayer {
+public class SmartObject extends CompositeLayer implements Transformable {
     @Serial
     private static final long serialVersionUID = 8594248957749192719L;
 
@@ -105,6 +108,13 @@ public class SmartObject extends CompositeLayer {
     // the filters could be started concurrently on different threads
     private transient boolean iconImageNeedsRefresh = false;
 
+    // the content transform when the free transform box was created
+    private transient AffineTransform transformBeforeBox;
+
+    // starts the full-quality rendering of a free transform
+    // if the transform didn't change for a while (undo, redo, arrow keys)
+    private transient Timer fullQualityTimer;
+
     // constructor for converting a layer into a smart object
     public SmartObject(Layer layer) {
         super(layer.getComp(), NAME_PREFIX + layer.getName());
@@ -783,6 +793,81 @@ public class SmartObject extends CompositeLayer {
         }
     }
 
+    /**
+     * Prepares this smart object for a free transform with a
+     * transform box, and returns the content bounds in image space.
+     */
+    public Rectangle2D startFreeTransform() {
+        if (imageTransformer == null) {
+            imageTransformer = new ImageTransformer(content, new AffineTransform(),
+                comp.getCanvasWidth(), comp.getCanvasHeight());
+            setBaseImageSource(imageTransformer);
+        }
+        transformBeforeBox = imageTransformer.getTransform();
+
+        Rectangle2D contentBounds = transformBeforeBox.createTransformedShape(
+            new Rectangle(0, 0, content.getCanvasWidth(), content.getCanvasHeight())).getBounds2D();
+        contentBounds.setRect(contentBounds.getX() + getTx(), contentBounds.getY() + getTy(),
+            contentBounds.getWidth(), contentBounds.getHeight());
+        return contentBounds;
+    }
+
+    /**
+     * Applies a free transform relative to the content transform before
+     * the transform box was created. The image is only rendered from a
+     * proxy until {@link #finishFreeTransform()} is called.
+     */
+    @Override
+    public void imTransform(AffineTransform at) {
+        assert transformBeforeBox != null;
+
+        // the transform box works in image space, but the
+        // content is transformed into the translated layer space
+        AffineTransform newTransform = AffineTransform.getTranslateInstance(-getTx(), -getTy());
+        newTransform.concatenate(at);
+        newTransform.translate(getTx(), getTy());
+        newTransform.concatenate(transformBeforeBox);
+
+        View view = comp.getView();
+        double zoom = view != null ? view.getZoomScale() : 1.0;
+        imageTransformer.setPreviewTransform(newTransform, zoom);
+        invalidateAllCaches(false);
+
+        if (fullQualityTimer == null) {
+            fullQualityTimer = new Timer(300, e -> finishFreeTransform());
+            fullQualityTimer.setRepeats(false);
+        }
+        if (Tools.EventDispatcher.isMouseDown()) {
+            // the mouse release will finish the transform, and rendering
+            // the full quality when the drag only pauses would be wasted
+            fullQualityTimer.stop();
+        } else {
+            // for example a keyboard nudge, which has no end event
+            fullQualityTimer.restart();
+        }
+    }
+
+    @Override
+    public void updateUI(View view) {
+        update(false);
+    }
+
+    /**
+     * Replaces the proxy-based image of a free transform
+     * with the full-quality one, which is calculated in the background.
+     */
+    public void finishFreeTransform() {
+        if (fullQualityTimer != null) {
+            fullQualityTimer.stop();
+        }
+        imageTransformer.renderFullQuality().thenAccept(replaced -> {
+            if (replaced) {
+                invalidateAllCaches(false);
+                update(false);
+            }
+        });
+    }
+
     private void setBaseImageSource(ImageSource baseSource) {
         this.baseSource = baseSource;
         if (!filters.isEmpty()) {
@@ -61,6 +61,7 @@ import pixelitor.io.FileChoosers;
 import pixelitor.io.FileIO;
 import pixelitor.io.LayerAnimation;
 import pixelitor.io.OptimizedJpegExportPanel;
+import pixelitor.io.PngSettingsPanel;
 import pixelitor.io.magick.ExportSettings;
 import pixelitor.io.magick.ImageMagick;
 import pixelitor.layers.*;
@@ -167,6 +168,11 @@ public class MenuBar extends JMenuBar {
             exportOptimizedText + "...",
             comp -> OptimizedJpegExportPanel.showInDialog(comp, exportOptimizedText)));
 
+        String exportPngText = i18n.getString("export_png");
+        fileMenu.add(new ViewEnabledAction(
+            exportPngText + "...",
+            comp -> PngSettingsPanel.showInDialog(comp, exportPngText)));
+
         fileMenu.add(createImageMagickSubmenu(i18n));
 
         fileMenu.addSeparator();
@@ -190,7 +196,7 @@ public class MenuBar extends JMenuBar {
             comp -> comp.getView().reloadCompAsync()), F12);
 
         String showMetaDataName = i18n.getString("show_metadata");
-        fileMenu.add(new ViewEnabledAction(
+        fileMenu.add(ViewEnabledAction.readOnly(
             showMetaDataName + "...",
             MetaDataPanel::showInDialog));
 
@@ -672,6 +678,11 @@ public class MenuBar extends JMenuBar {
         selectMenu.add(SelectionActions.getCopy());
         selectMenu.add(SelectionActions.getPaste());
 
+        selectMenu.addSeparator();
+
+        selectMenu.add(ViewEnabledAction.readOnly("Open Selection at Full Resolution",
+            FileIO::openSelectedRegion));
+
         return selectMenu;
     }
 
@@ -1044,6 +1055,7 @@ public class MenuBar extends JMenuBar {
         String medianFilterName = "3x3 Median Filter";
         sub.addForwardingFilter(medianFilterName,
             () -> new MedianFilter(medianFilterName));
+        sub.addFilter(Median.NAME, Median::new);
 
         sub.addSeparator();
 
@@ -1171,12 +1183,12 @@ public class MenuBar extends JMenuBar {
 
         // show history
         String showHistoryText = i18n.getString("show_history");
-        viewMenu.add(new ViewEnabledAction(showHistoryText + "...",
+        viewMenu.add(ViewEnabledAction.readOnly(showHistoryText + "...",
             comp -> History.showHistoryDialog()));
 
         // show navigator
         String showNavigatorText = i18n.getString("show_navigator");
-        viewMenu.add(new ViewEnabledAction(showNavigatorText + "...",
+        viewMenu.add(ViewEnabledAction.readOnly(showNavigatorText + "...",
             comp -> Navigator.showInDialog(comp.getView())));
 
         viewMenu.addSeparator();
@@ -1331,13 +1343,13 @@ public class MenuBar extends JMenuBar {
     private static JMenu createDebugSubmenu() {
         PMenu sub = new PMenu("Debug");
 
-        sub.add(new ViewEnabledAction("Run comp.checkInvariants()",
+        sub.add(ViewEnabledAction.readOnly("Run comp.checkInvariants()",
             Composition::checkInvariants));
 
         sub.add(new TaskAction("Copy Internal State to Clipboard",
             Debug::copyInternalState), CTRL_ALT_D);
 
-        sub.add(new ViewEnabledAction("Debug Active Composite Image",
+        sub.add(ViewEnabledAction.readOnly("Debug Active Composite Image",
             comp -> Debug.debugImage(comp.getCompositeImage(), "Composite of " + comp.getDebugName())));
 
         sub.add(new DrawableAction("Debug ImageLayer Images") {
@@ -1347,7 +1359,7 @@ public class MenuBar extends JMenuBar {
             }
         });
 
-        sub.add(new ViewEnabledAction("Enable Mouse Debugging",
+        sub.add(ViewEnabledAction.readOnly("Enable Mouse Debugging",
             comp -> GlobalEvents.enableMouseEventDebugging(false)));
 
         sub.add(new RestrictedLayerAction("Debug Layer Mask", HAS_LAYER_MASK) {
@@ -1406,7 +1418,7 @@ public class MenuBar extends JMenuBar {
 
         sub.add(new TaskAction("repaint() the main window", pw::repaint));
 
-        sub.add(new ViewEnabledAction("repaint() on the active image",
+        sub.add(ViewEnabledAction.readOnly("repaint() on the active image",
             comp -> repaintActive()));
 
         sub.add(new TaskAction("revalidate() the main window", () ->
@@ -1446,7 +1458,7 @@ public class MenuBar extends JMenuBar {
                 comp.update();
             }));
 
-        sub.add(new ViewEnabledAction("Update Histograms",
+        sub.add(ViewEnabledAction.readOnly("Update Histograms",
             HistogramsPanel::updateFrom));
 
         sub.add(new RestrictedLayerAction("Update Mask Transparency from BW", HAS_LAYER_MASK) {
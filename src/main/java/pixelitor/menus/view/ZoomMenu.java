@@ -56,11 +56,11 @@ public class ZoomMenu extends PMenu {
     private static final String ACTION_MAP_KEY_ACTUAL_PIXELS = "actual pixels";
     private static final String ACTION_MAP_KEY_FIT_SPACE = "fit space";
 
-    private static final Action ZOOM_IN_ACTION = new ViewEnabledAction(
+    private static final Action ZOOM_IN_ACTION = ViewEnabledAction.readOnly(
         i18n("zoom_in"),
         comp -> comp.getView().zoomIn());
 
-    private static final Action ZOOM_OUT_ACTION = new ViewEnabledAction(
+    private static final Action ZOOM_OUT_ACTION = ViewEnabledAction.readOnly(
         i18n("zoom_out"),
         comp -> comp.getView().zoomOut());
 
@@ -21,6 +21,7 @@ import pixelitor.utils.Vector2D;
 
 import java.awt.Color;
 import java.awt.geom.Point2D;
+import java.util.Random;
 
 /**
  * Represents a single particle with position, velocity, and color.
@@ -31,8 +32,20 @@ public abstract class Particle {
 
     public Vector2D vel;
     public Color color;
-    public int iterationIndex;
-    public int groupIndex = -1;
+    public int index;
+
+    // the random generator of the particle, which is reseeded for each
+    // particle by the ParticleEngine, so that the simulation of a particle
+    // doesn't depend on the order in which the particles are simulated
+    public final Random random = new Random();
+
+    /**
+     * Called when this object starts to simulate a new particle.
+     * Objects used by the {@link ParticleEngine} simulate many particles
+     * one after the other, and should forget the previous one here.
+     */
+    public void startNew() {
+    }
 
     /**
      * Flushes any buffered drawing operations for this particle.
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.particles;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+
+/**
+ * The target on which particles draw their paths.
+ */
+public interface ParticleCanvas {
+    /**
+     * Draws the given shape with the given stroke and color.
+     */
+    void draw(Shape shape, Stroke stroke, Color color);
+
+    /**
+     * Returns a canvas that draws directly with the given graphics context.
+     * Like the {@link TileAccumulator}, it fills the stroked outline,
+     * so that both kinds of canvases render the paths the same way.
+     */
+    static ParticleCanvas of(Graphics2D g) {
+        return (shape, stroke, color) -> {
+            g.setColor(color);
+            g.fill(stroke.createStrokedShape(shape));
+        };
+    }
+}
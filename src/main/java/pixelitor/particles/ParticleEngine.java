@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.particles;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.awt.RenderingHints.KEY_STROKE_CONTROL;
+import static java.awt.RenderingHints.VALUE_STROKE_PURE;
+
+/**
+ * Simulates a large number of independent particles and renders their paths.
+ *
+ * It doesn't keep an object for each particle:
+ * a single {@link Particle} object simulates a whole batch of particles one
+ * after the other, so the memory use doesn't depend on the number of particles.
+ * The work is done in rounds, and in each round the parallel lanes simulate
+ * consecutive batches. The first lane draws directly on the destination,
+ * the others on {@link TileAccumulator}s, which are merged in lane order
+ * at the end of the round. This gives the same result as drawing all
+ * the particles sequentially (up to rounding), while the extra memory
+ * is limited to the tiles touched by the paths of a single round.
+ */
+public class ParticleEngine<P extends Particle> {
+    // the number of particles simulated by a task
+    private static final int PARTICLES_PER_BATCH = 100;
+
+    private final int numParticles;
+    private final long seed;
+    private final Function<ParticleCanvas, P> particleCreator;
+    private final List<Modifier<P>> modifiers = new ArrayList<>();
+    private final List<Modifier<P>> updaters = new ArrayList<>();
+
+    private final int numBatches;
+    private final int numLanes;
+
+    /**
+     * Creates an engine for the given number of particles. The particle
+     * creator receives the canvas on which the particle should draw.
+     * The seed determines the random generators of the individual particles.
+     */
+    public ParticleEngine(int numParticles, long seed, Function<ParticleCanvas, P> particleCreator) {
+        // waiting for other pool threads from a pool thread could deadlock
+        this(numParticles, seed, particleCreator,
+            ThreadPool.isPoolThread() ? 1 : ThreadPool.getNumCores());
+    }
+
+    ParticleEngine(int numParticles, long seed, Function<ParticleCanvas, P> particleCreator, int maxLanes) {
+        this.numParticles = numParticles;
+        this.seed = seed;
+        this.particleCreator = particleCreator;
+
+        numBatches = (numParticles + PARTICLES_PER_BATCH - 1) / PARTICLES_PER_BATCH;
+        numLanes = Math.max(1, Math.min(maxLanes, numBatches));
+    }
+
+    /**
+     * Adds a modifier to be applied once when a particle is initialized or reset.
+     */
+    public ParticleEngine<P> addModifier(Modifier<P> modifier) {
+        modifiers.add(modifier);
+        return this;
+    }
+
+    /**
+     * Adds a modifier to be applied on every update step.
+     */
+    public ParticleEngine<P> addUpdater(Modifier<P> modifier) {
+        updaters.add(modifier);
+        return this;
+    }
+
+    /**
+     * Returns the number of progress units reported by the render method.
+     */
+    public int getNumWorkUnits() {
+        return numBatches;
+    }
+
+    /**
+     * Simulates all particles for the given number of iterations, and draws
+     * them on the given image. The setup callback configures the graphics
+     * contexts (for example the rendering hints) before any drawing happens.
+     */
+    public void render(BufferedImage dest, int iterations,
+                       Consumer<Graphics2D> graphicsSetup, ProgressTracker pt) {
+        // the stroke normalization depends on the device position, so the
+        // pure stroke control is needed for the tiles to render the paths
+        // exactly like the direct drawing on the destination
+        Consumer<Graphics2D> setup = graphicsSetup.andThen(g ->
+            g.setRenderingHint(KEY_STROKE_CONTROL, VALUE_STROKE_PURE));
+
+        Graphics2D destG = dest.createGraphics();
+        setup.accept(destG);
+
+        List<P> laneParticles = new ArrayList<>(numLanes);
+        TileAccumulator[] accumulators = new TileAccumulator[numLanes];
+        for (int lane = 0; lane < numLanes; lane++) {
+            ParticleCanvas canvas;
+            if (lane == 0) {
+                // the first lane of a round can draw directly on the destination
+                canvas = ParticleCanvas.of(destG);
+            } else {
+                accumulators[lane] = new TileAccumulator(
+                    dest.getWidth(), dest.getHeight(), setup);
+                canvas = accumulators[lane];
+            }
+            laneParticles.add(particleCreator.apply(canvas));
+        }
+
+        for (int firstBatch = 0; firstBatch < numBatches; firstBatch += numLanes) {
+            int roundLanes = Math.min(numLanes, numBatches - firstBatch);
+            if (roundLanes == 1) {
+                simulateBatch(laneParticles.getFirst(), firstBatch, iterations);
+            } else {
+                Future<?>[] futures = new Future[roundLanes];
+                for (int lane = 0; lane < roundLanes; lane++) {
+                    P particle = laneParticles.get(lane);
+                    int batch = firstBatch + lane;
+                    futures[lane] = ThreadPool.submit(() ->
+                        simulateBatch(particle, batch, iterations));
+                }
+                ThreadPool.waitFor(futures, ProgressTracker.NULL_TRACKER);
+
+                // source-over compositing is associative, so compositing
+                // the lanes in order is equivalent to sequential drawing
+                for (int lane = 1; lane < roundLanes; lane++) {
+                    accumulators[lane].mergeInto(destG);
+                }
+            }
+            pt.unitsDone(roundLanes);
+        }
+
+        for (TileAccumulator accumulator : accumulators) {
+            if (accumulator != null) {
+                accumulator.dispose();
+            }
+        }
+        destG.dispose();
+    }
+
+    private void simulateBatch(P particle, int batch, int iterations) {
+        int from = batch * PARTICLES_PER_BATCH;
+        int to = Math.min(numParticles, from + PARTICLES_PER_BATCH);
+        for (int i = from; i < to; i++) {
+            simulate(particle, i, iterations);
+        }
+    }
+
+    private void simulate(P particle, int index, int iterations) {
+        particle.index = index;
+        particle.random.setSeed(mixSeed(seed, index));
+        particle.startNew();
+        initializeParticle(particle);
+
+        for (int i = 0; i < iterations; i++) {
+            if (particle.isDead()) {
+                particle.flush();
+                initializeParticle(particle);
+            }
+            for (Modifier<P> updater : updaters) {
+                updater.modify(particle);
+            }
+            particle.update();
+        }
+        particle.flush();
+    }
+
+    private void initializeParticle(P particle) {
+        for (Modifier<P> modifier : modifiers) {
+            modifier.modify(particle);
+        }
+        particle.reset();
+    }
+
+    // derives well-distributed seeds for consecutive particle indices (SplitMix64)
+    private static long mixSeed(long seed, int index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
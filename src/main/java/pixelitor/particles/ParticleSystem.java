@@ -17,16 +17,14 @@
 
 package pixelitor.particles;
 
-import net.jafama.FastMath;
-import pixelitor.ThreadPool;
-
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 /**
  * Manages a collection of particles, handling their lifecycle and updates.
+ * It keeps an object for each particle, which can be stepped interactively.
+ * For rendering many independent particles, use {@link ParticleEngine}.
  */
 public class ParticleSystem<P extends Particle> {
     private final List<P> particles;
@@ -62,14 +60,6 @@ public class ParticleSystem<P extends Particle> {
         }
     }
 
-    private void step(int start, int end) {
-        for (int i = start, s = FastMath.min(particles.size(), end); i < s; i++) {
-            P particle = particles.get(i);
-            particle.groupIndex = start / (end - start);
-            stepParticle(i, particle);
-        }
-    }
-
     /**
      * Runs the simulation for a given number of iterations.
      */
@@ -79,34 +69,12 @@ public class ParticleSystem<P extends Particle> {
         }
     }
 
-    private void iterate(int iterations, int start, int end) {
-        for (int i = 0; i < iterations; i++) {
-            step(start, end);
-        }
-    }
-
-    /**
-     * Runs the simulation for a specified number of iterations using multiple threads.
-     */
-    public Future<?>[] iterate(int iterations, int groupCount) {
-        Future<?>[] futures = new Future[groupCount];
-        int s = particles.size();
-        int groupSize = (int) FastMath.ceil(s / (double) groupCount);
-
-        for (int i = 0, k = 0; i < s; i += groupSize, k++) {
-            int finalI = i;
-            futures[k] = ThreadPool.submit(() -> iterate(iterations, finalI, finalI + groupSize));
-        }
-
-        return futures;
-    }
-
-    private void stepParticle(int iterationIndex, P particle) {
+    private void stepParticle(int index, P particle) {
         if (particle.isDead()) {
             particle.flush();
             initializeParticle(particle);
         }
-        particle.iterationIndex = iterationIndex;
+        particle.index = index;
         for (Modifier<P> updater : updaters) {
             updater.modify(particle);
         }
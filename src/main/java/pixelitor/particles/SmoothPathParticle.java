@@ -19,8 +19,9 @@ package pixelitor.particles;
 
 import pixelitor.utils.Shapes;
 
-import java.awt.Graphics2D;
+import java.awt.BasicStroke;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,12 +31,12 @@ import java.util.List;
  */
 public abstract class SmoothPathParticle extends Particle {
     private final List<Point2D> pathPoints;
-    private Graphics2D g2 = null;
-    private final Graphics2D[] gc;
+    private final ParticleCanvas canvas;
+    private Stroke stroke = new BasicStroke();
 
-    protected SmoothPathParticle(Graphics2D[] gc) {
+    protected SmoothPathParticle(ParticleCanvas canvas) {
         this.pathPoints = new ArrayList<>();
-        this.gc = gc;
+        this.canvas = canvas;
     }
 
     /**
@@ -45,12 +46,15 @@ public abstract class SmoothPathParticle extends Particle {
         pathPoints.add(point);
     }
 
+    @Override
+    public void startNew() {
+        pathPoints.clear();
+    }
+
     @Override
     public void flush() {
         if (isPathReady()) {
-            Graphics2D g = getGraphics();
-            g.setColor(color);
-            g.draw(getPath());
+            canvas.draw(getPath(), stroke, color);
         }
         pathPoints.clear();
     }
@@ -65,16 +69,9 @@ public abstract class SmoothPathParticle extends Particle {
     }
 
     /**
-     * Gets the graphics context for this particle, lazily initialized for multithreading.
+     * Sets the stroke with which the path will be drawn.
      */
-    protected Graphics2D getGraphics() {
-        if (g2 != null) {
-            return g2;
-        } else if (gc != null) {
-            if (groupIndex != -1) {
-                return g2 = gc[groupIndex];
-            }
-        }
-        throw new IllegalStateException("Graphics context is not available for this particle.");
+    protected void setStroke(Stroke stroke) {
+        this.stroke = stroke;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.particles;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ParticleCanvas} that collects the drawing of a
+ * {@link ParticleEngine} lane in small premultiplied tiles, which are
+ * allocated only where the paths actually go. After the tiles are merged
+ * into the destination image, they are cleared and reused, so the memory
+ * of a lane is bounded by the area covered by the paths of one batch.
+ */
+class TileAccumulator implements ParticleCanvas {
+    static final int TILE_SIZE = 128;
+
+    private final int width;
+    private final int height;
+    private final int numTilesX;
+    private final Consumer<Graphics2D> graphicsSetup;
+
+    // the tiles that were drawn on since the last merge, indexed by
+    // their grid position, and the same tiles in drawing order
+    private final Tile[] grid;
+    private final List<Tile> usedTiles = new ArrayList<>();
+
+    // cleared tiles waiting to be reused
+    private final Deque<Tile> freeTiles = new ArrayDeque<>();
+
+    TileAccumulator(int width, int height, Consumer<Graphics2D> graphicsSetup) {
+        this.width = width;
+        this.height = height;
+        this.graphicsSetup = graphicsSetup;
+
+        numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int numTilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        grid = new Tile[numTilesX * numTilesY];
+    }
+
+    @Override
+    public void draw(Shape shape, Stroke stroke, Color color) {
+        Shape outline = stroke.createStrokedShape(shape);
+
+        // the antialiasing can touch one more pixel on each side
+        Rectangle bounds = outline.getBounds();
+        int minX = Math.max(0, bounds.x - 1);
+        int minY = Math.max(0, bounds.y - 1);
+        int maxX = Math.min(width - 1, bounds.x + bounds.width + 1);
+        int maxY = Math.min(height - 1, bounds.y + bounds.height + 1);
+        if (minX > maxX || minY > maxY) {
+            return; // completely outside the canvas
+        }
+
+        for (int ty = minY / TILE_SIZE; ty <= maxY / TILE_SIZE; ty++) {
+            for (int tx = minX / TILE_SIZE; tx <= maxX / TILE_SIZE; tx++) {
+                Graphics2D g = getTile(tx, ty).g;
+                g.setColor(color);
+                g.fill(outline);
+            }
+        }
+    }
+
+    private Tile getTile(int tx, int ty) {
+        int gridIndex = ty * numTilesX + tx;
+        Tile tile = grid[gridIndex];
+        if (tile == null) {
+            tile = freeTiles.isEmpty() ? new Tile(graphicsSetup) : freeTiles.pop();
+            tile.moveTo(tx * TILE_SIZE, ty * TILE_SIZE, gridIndex);
+            grid[gridIndex] = tile;
+            usedTiles.add(tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Draws the collected tiles with the given graphics context of
+     * the destination, and makes them available for reuse.
+     */
+    void mergeInto(Graphics2D destG) {
+        for (Tile tile : usedTiles) {
+            destG.drawImage(tile.image, tile.x, tile.y, null);
+            tile.clear();
+            grid[tile.gridIndex] = null;
+            freeTiles.push(tile);
+        }
+        usedTiles.clear();
+    }
+
+    /**
+     * Releases the graphics contexts of all tiles.
+     */
+    void dispose() {
+        assert usedTiles.isEmpty();
+        for (Tile tile : freeTiles) {
+            tile.g.dispose();
+        }
+        freeTiles.clear();
+    }
+
+    private static class Tile {
+        private final BufferedImage image;
+        private final int[] pixels;
+        private final Graphics2D g;
+        private int x;
+        private int y;
+        private int gridIndex;
+
+        Tile(Consumer<Graphics2D> graphicsSetup) {
+            image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            g = image.createGraphics();
+            graphicsSetup.accept(g);
+        }
+
+        // places the tile at the given canvas position
+        void moveTo(int x, int y, int gridIndex) {
+            this.x = x;
+            this.y = y;
+            this.gridIndex = gridIndex;
+            g.setTransform(AffineTransform.getTranslateInstance(-x, -y));
+        }
+
+        void clear() {
+            Arrays.fill(pixels, 0);
+        }
+    }
+}
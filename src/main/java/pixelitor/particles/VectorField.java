@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.particles;
+
+import pixelitor.utils.Vector2D;
+
+/**
+ * A grid of 2D vectors (for example the forces acting on particles),
+ * stored in primitive arrays instead of {@link Vector2D} objects.
+ */
+public class VectorField {
+    private final int width;
+    private final int height;
+    private final double[] xs;
+    private final double[] ys;
+
+    public VectorField(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.xs = new double[width * height];
+        this.ys = new double[width * height];
+    }
+
+    public void set(int x, int y, double vx, double vy) {
+        int i = y * width + x;
+        xs[i] = vx;
+        ys[i] = vy;
+    }
+
+    /**
+     * Copies the vector at the given grid position into the given vector.
+     */
+    public void get(int x, int y, Vector2D out) {
+        int i = y * width + x;
+        out.set(xs[i], ys[i]);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
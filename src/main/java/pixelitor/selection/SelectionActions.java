@@ -38,6 +38,7 @@ import pixelitor.utils.ViewActivationListener;
 import javax.swing.*;
 import java.awt.GridBagLayout;
 import java.awt.Shape;
+import java.util.function.Consumer;
 
 import static pixelitor.Views.getActiveComp;
 import static pixelitor.utils.Texts.i18n;
@@ -54,15 +55,19 @@ public final class SelectionActions {
         Crop::selectionCropActiveComp);
 
     private static final Action deselect = new TaskAction(i18n("deselect"), () ->
-        getActiveComp().deselect(true));
+        changeActiveSelection(comp -> comp.deselect(true)));
 
     private static final Action invert = new TaskAction(i18n("invert_sel"), () ->
-        getActiveComp().invertSelection());
+        changeActiveSelection(Composition::invertSelection));
 
     private static final ShowHideSelectionAction showHide = new ShowHideSelectionAction();
 
     private static final Action convertToPath = new TaskAction("Convert to Path", () ->
-        selectionToPath(getActiveComp(), true));
+        Views.onActiveComp(comp -> {
+            if (!comp.checkPreview()) {
+                selectionToPath(comp, true);
+            }
+        }));
 
     private static final Action copySel = new TaskAction(i18n("copy_sel"),
         SelectionActions::copySelection);
@@ -71,10 +76,10 @@ public final class SelectionActions {
      * @noinspection NonFinalStaticVariableUsedInClassInitialization
      */
     private static final Action pasteSel = new TaskAction(i18n("paste_sel"), () ->
-        getActiveComp().changeSelection(copiedSelShape));
+        changeActiveSelection(comp -> comp.changeSelection(copiedSelShape)));
 
-    private static final Action modify = new TaskAction(i18n("modify_sel") + "...",
-        SelectionActions::showModifySelectionDialog);
+    private static final Action modify = new TaskAction(i18n("modify_sel") + "...", () ->
+        changeActiveSelection(SelectionActions::showModifySelectionDialog));
 
     static {
         initPasteSelAction();
@@ -102,6 +107,19 @@ public final class SelectionActions {
         });
     }
 
+    /**
+     * Changes the selection of the active composition, unless it's a preview
+     * that can't be edited. The selection of a large image's preview
+     * can be changed, because its selected regions can be opened.
+     */
+    private static void changeActiveSelection(Consumer<Composition> change) {
+        Composition comp = getActiveComp();
+        if (comp.getTiledSource() == null && comp.checkPreview()) {
+            return;
+        }
+        change.accept(comp);
+    }
+
     /**
      * Copies the active composition's selection shape to the internal clipboard.
      */
@@ -116,9 +134,8 @@ public final class SelectionActions {
         comp.createPathFromShape(shape, addToHistory, true);
     }
 
-    private static void showModifySelectionDialog() {
-        View view = Views.getActive();
-        Composition comp = view.getComp();
+    private static void showModifySelectionDialog(Composition comp) {
+        View view = comp.getView();
         Selection selection = comp.getSelection();
         Shape originalShape = selection.getShape();
 
@@ -93,6 +93,12 @@ public abstract class AbstractBrushTool extends Tool {
     // defines how drawing occurs (directly or via temporary layer)
     protected DrawTarget drawTarget;
 
+    // draws the dragged mouse points on the stroke thread
+    private final StrokeProcessor strokeProcessor = new StrokeProcessor(this::continueStroke);
+
+    // true if the current stroke is drawn on the stroke thread
+    private boolean drawingOffEDT;
+
     // true if lazy mouse smoothing is active
     protected boolean lazyMouse;
 
@@ -279,7 +285,11 @@ public abstract class AbstractBrushTool extends Tool {
 
     @Override
     public void mouseDragged(PMouseEvent e) {
-        newMousePoint(e, false); // continue the stroke
+        if (drawingOffEDT) {
+            strokeProcessor.add(e);
+        } else {
+            newMousePoint(e, false); // continue the stroke
+        }
 
         if (lazyMouse) {
             PPoint drawLoc = lazyMouseBrush.getDrawLocation();
@@ -381,6 +391,10 @@ public abstract class AbstractBrushTool extends Tool {
     }
 
     private void finishBrushStroke(Drawable dr) {
+        if (drawingOffEDT) {
+            strokeProcessor.strokeFinished();
+            drawingOffEDT = false;
+        }
         brush.finishBrushStroke();
         addBrushStrokeToHistory(dr);
 
@@ -446,7 +460,17 @@ public abstract class AbstractBrushTool extends Tool {
             } else {
                 brush.startAt(p);
             }
-        } else if (brush.hasPrevious()) { // continuation of an existing stroke
+            drawingOffEDT = canDrawOffEDT();
+            if (drawingOffEDT) {
+                strokeProcessor.strokeStarted();
+            }
+        } else {
+            continueStroke(p);
+        }
+    }
+
+    private void continueStroke(PPoint p) {
+        if (brush.hasPrevious()) { // continuation of an existing stroke
             brush.continueTo(p);
         } else {
             // there is a brush stroke, but the brush has no previous
@@ -456,7 +480,23 @@ public abstract class AbstractBrushTool extends Tool {
         }
     }
 
+    /**
+     * Returns whether the mouse drags of the new stroke can be drawn on the stroke
+     * thread. The unit tests expect synchronous drawing, and the spray brush
+     * draws from a Swing timer, which would race with the stroke thread.
+     */
+    private boolean canDrawOffEDT() {
+        if (AppMode.isUnitTesting()) {
+            return false;
+        }
+        return !hasBrushType() || getBrushType().canDrawOffEDT();
+    }
+
     private void updateDrawingRadius() {
+        if (drawingOffEDT) {
+            // the radius can be changed with hotkeys during a stroke
+            strokeProcessor.waitForPending();
+        }
         int newRadius = getRadius();
         brush.setRadius(newRadius);
 
@@ -71,6 +71,12 @@ public enum BrushType {
         public Brush createBrush(AbstractBrushTool tool, double radius) {
             return new SprayBrush(radius, (SprayBrushSettings) getSettings(tool));
         }
+
+        @Override
+        public boolean canDrawOffEDT() {
+            // it also draws from a Swing timer
+            return false;
+        }
     }, CONNECT("Connect", ConnectBrushSettings::new) {
         @Override
         public Brush createBrush(AbstractBrushTool tool, double radius) {
@@ -127,6 +133,13 @@ public enum BrushType {
         return hasSettings;
     }
 
+    /**
+     * Returns whether the brush strokes can be drawn outside the EDT.
+     */
+    public boolean canDrawOffEDT() {
+        return true; // overridden if necessary
+    }
+
     /**
      * Returns the settings tied to the {@link AbstractBrushTool} and {@link BrushType} combination
      */
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import pixelitor.tools.util.PMouseEvent;
+import pixelitor.utils.Messages;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static pixelitor.utils.Threads.calledOnEDT;
+import static pixelitor.utils.Threads.callInfo;
+
+/**
+ * Draws the mouse samples of brush strokes on a dedicated thread, so
+ * that slow dabs don't delay the event dispatch thread, and the mouse
+ * events keep arriving at their original rate. The EDT only adds the
+ * samples to a lock-free queue, and the stroke thread processes them
+ * in order. The repaint requests of the brushes are forwarded to the EDT.
+ */
+public class StrokeProcessor {
+    // a single thread shared by all brush tools, because
+    // only one brush stroke can be in progress at a time
+    private static final ExecutorService strokeThread =
+        Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "BrushStroke");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    // the processor of the stroke that is currently drawn on
+    // the stroke thread, or null (only changed on the EDT)
+    private static volatile StrokeProcessor activeStroke;
+
+    // the samples received on the EDT, but not processed yet
+    private final Queue<PMouseEvent> samples = new ConcurrentLinkedQueue<>();
+
+    // true if a task is scheduled to process the queued samples
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final Consumer<PMouseEvent> sampleHandler;
+
+    StrokeProcessor(Consumer<PMouseEvent> sampleHandler) {
+        this.sampleHandler = sampleHandler;
+    }
+
+    /**
+     * Marks the start of a stroke whose samples are drawn on the stroke thread.
+     */
+    void strokeStarted() {
+        assert calledOnEDT() : callInfo();
+        activeStroke = this;
+    }
+
+    /**
+     * Waits for the remaining samples of the stroke, and marks its end.
+     */
+    void strokeFinished() {
+        waitForPending();
+        activeStroke = null;
+    }
+
+    /**
+     * Returns true if a brush stroke is currently drawn on the stroke thread.
+     * The layer images shouldn't be replaced until it's finished.
+     */
+    public static boolean isStrokeInProgress() {
+        return activeStroke != null;
+    }
+
+    /**
+     * Blocks the EDT until the samples of the active stroke (if there is one)
+     * are drawn, so that the layer images can be read in a consistent state.
+     * The stroke thread stays idle until the EDT adds the next sample.
+     */
+    public static void syncWithActiveStroke() {
+        StrokeProcessor stroke = activeStroke;
+        if (stroke != null && calledOnEDT()) {
+            stroke.waitForPending();
+        }
+    }
+
+    /**
+     * Queues the given sample for processing on the stroke thread.
+     */
+    void add(PMouseEvent sample) {
+        samples.add(sample);
+        if (drainScheduled.compareAndSet(false, true)) {
+            strokeThread.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // reset before polling, so that a sample added
+        // after the last poll schedules a new task
+        drainScheduled.set(false);
+
+        PMouseEvent sample;
+        while ((sample = samples.poll()) != null) {
+            sampleHandler.accept(sample);
+        }
+    }
+
+    /**
+     * Blocks the EDT until all queued samples are processed. Must be called
+     * before the brush state is accessed on the EDT, for example at the end
+     * of the stroke. Since the stroke thread runs its tasks in order, all
+     * the samples added before this call are processed when it returns.
+     */
+    void waitForPending() {
+        assert calledOnEDT() : callInfo();
+
+        try {
+            strokeThread.submit(this::drain).get();
+        } catch (InterruptedException | ExecutionException e) {
+            samples.clear();
+            Messages.showException(e);
+        }
+    }
+}
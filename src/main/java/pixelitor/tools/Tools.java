@@ -31,6 +31,7 @@ import pixelitor.tools.pen.NodeTool;
 import pixelitor.tools.pen.PathTool;
 import pixelitor.tools.pen.PenTool;
 import pixelitor.tools.pen.TransformPathTool;
+import pixelitor.tools.selection.AbstractSelectionTool;
 import pixelitor.tools.selection.LassoSelectionTool;
 import pixelitor.tools.selection.MagicWandSelectionTool;
 import pixelitor.tools.selection.MarqueeSelectionTool;
@@ -255,6 +256,9 @@ public class Tools {
         }
 
         public static void mousePressed(MouseEvent e, View view) {
+            if (isBlockedByPreview(view)) {
+                return;
+            }
             lastEvent = new PMouseEvent(e, view);
             activeTool.eventHandlerChain.handleMousePressed(lastEvent);
             mouseDown = true;
@@ -274,6 +278,9 @@ public class Tools {
         }
 
         public static void mouseDragged(MouseEvent e, View view) {
+            if (isBlockedByPreview(view)) {
+                return;
+            }
             lastEvent = new PMouseEvent(e, view);
             if (!mouseDown) {
                 // recover from a missing "mouse pressed" event by
@@ -286,6 +293,9 @@ public class Tools {
         }
 
         public static void mouseClicked(MouseEvent e, View view) {
+            if (isBlockedByPreview(view)) {
+                return;
+            }
             lastEvent = new PMouseEvent(e, view);
             // doesn't need to go through the handler chain
             activeTool.mouseClicked(lastEvent);
@@ -307,6 +317,28 @@ public class Tools {
             activeTool.mouseExited(e, view);
         }
 
+        private static boolean isBlockedByPreview(View view) {
+            Composition comp = view.getComp();
+            if (isActiveToolBlockedOn(comp)) {
+                comp.checkPreview(); // shows the reason
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns true if the active tool can't be used on the given composition,
+         * because it's a preview. Only the navigation tools can be used on the
+         * preview of a large image, and the selection tools if its regions
+         * can be opened at full resolution.
+         */
+        public static boolean isActiveToolBlockedOn(Composition comp) {
+            if (!comp.isPreview() || activeTool == HAND || activeTool == ZOOM) {
+                return false;
+            }
+            return comp.getTiledSource() == null || !(activeTool instanceof AbstractSelectionTool);
+        }
+
         public static void toolChanged(Tool oldTool, Tool newTool) {
             if (mouseDown) {
                 // Tools were switched via keyboard hotkey in the
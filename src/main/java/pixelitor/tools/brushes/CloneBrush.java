@@ -87,10 +87,6 @@ public class CloneBrush extends CopyBrush {
      */
     @Override
     void initBrushStamp(PPoint p) {
-        Graphics2D g = brushImage.createGraphics();
-
-        type.beforeDrawImage(g);
-
         // the current sampling coordinates relative to the source image
         double currSrcX = offsetX - p.getImX();
         double currSrcY = offsetY - p.getImY();
@@ -98,8 +94,8 @@ public class CloneBrush extends CopyBrush {
         // create the transformation from the source image to the brush image
         var transform = AffineTransform.getTranslateInstance(
             currSrcX + radius, currSrcY + radius);
-        if (scaleX != 1.0 || scaleY != 1.0 || rotationAngle != 0.0) {
-            g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+        boolean scaledOrRotated = scaleX != 1.0 || scaleY != 1.0 || rotationAngle != 0.0;
+        if (scaledOrRotated) {
             // apply scaling and rotation around the original source point
             transform.translate(origSrcX, origSrcY);
             transform.scale(scaleX, scaleY);
@@ -107,22 +103,34 @@ public class CloneBrush extends CopyBrush {
             transform.translate(-origSrcX, -origSrcY);
         }
 
-        g.drawImage(sourceImage, transform, null);
-        type.afterDrawImage(g);
-
-        g.dispose();
+        if (canSampleDirectly()) {
+            if (!scaledOrRotated) {
+                sampleTranslated(-currSrcX - radius, -currSrcY - radius);
+            } else {
+                AffineTransform inverse = invert(transform);
+                if (inverse == null) { // zero scaling
+                    clearBrushImage();
+                } else {
+                    sampleTransformed(inverse);
+                }
+            }
+        } else {
+            Graphics2D g = brushImage.createGraphics();
+            type.beforeDrawImage(g);
+            if (scaledOrRotated) {
+                g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+            }
+            g.drawImage(sourceImage, transform, null);
+            type.afterDrawImage(g);
+            g.dispose();
+        }
 
         debugImage();
     }
 
     @Override
     public void putDab(PPoint currentPoint, double angle) {
-        var transform = AffineTransform.getTranslateInstance(
-            currentPoint.getImX() - radius,
-            currentPoint.getImY() - radius
-        );
-        targetG.drawImage(brushImage, transform, null);
-        repaintComp(currentPoint);
+        drawBrushImage(currentPoint);
     }
 
     public void setAligned(boolean aligned) {
@@ -17,12 +17,21 @@
 
 package pixelitor.tools.brushes;
 
+import pixelitor.tools.util.PPoint;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.debug.Debug;
 import pixelitor.utils.debug.DebugNode;
 
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
 
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
 import static pixelitor.tools.brushes.AngleSettings.NOT_ANGLED;
 
 /**
@@ -34,6 +43,15 @@ public abstract class CopyBrush extends DabsBrush {
     protected BufferedImage brushImage;
     protected CopyBrushType type;
 
+    // the pixels of the brush image
+    private int[] brushPixels;
+
+    // the alpha mask of the brush type for the current size
+    private int[] mask;
+
+    // reused for placing the brush image at each dab
+    private final AffineTransform dabTransform = new AffineTransform();
+
     // can be set from the "Develop" menu
     private static boolean debugBrushImage = false;
 
@@ -48,13 +66,184 @@ public abstract class CopyBrush extends DabsBrush {
         if (type != null) { // can't initialize properly when called from superclass constructor
             int size = (int) diameter;
             brushImage = new BufferedImage(size, size, TYPE_INT_ARGB);
+            brushPixels = ImageUtils.getPixels(brushImage);
             type.setSize(diameter);
+            mask = type.createMask(diameter);
         }
     }
 
     public void typeChanged(CopyBrushType type) {
         this.type = type;
         type.setSize(diameter);
+        mask = type.createMask(diameter);
+    }
+
+    /**
+     * Draws the brush image centered at the given point.
+     */
+    protected void drawBrushImage(PPoint p) {
+        dabTransform.setToTranslation(p.getImX() - radius, p.getImY() - radius);
+        targetG.drawImage(brushImage, dabTransform, null);
+    }
+
+    /**
+     * Returns whether the brush image can be sampled directly
+     * from the pixel array of the source image.
+     */
+    protected boolean canSampleDirectly() {
+        int srcType = sourceImage.getType();
+        return srcType == TYPE_INT_ARGB || srcType == TYPE_INT_ARGB_PRE;
+    }
+
+    /**
+     * Fills the brush image from the source image, so that the brush pixel
+     * (x, y) comes from the source point (x + srcX, y + srcY), using
+     * nearest neighbor sampling, and applies the mask of the brush type.
+     * This is a faster equivalent of drawing the translated source image
+     * between the callbacks of the brush type.
+     */
+    protected void sampleTranslated(double srcX, double srcY) {
+        SourcePixels src = new SourcePixels(sourceImage);
+        int size = brushImage.getWidth();
+        for (int y = 0; y < size; y++) {
+            int sy = (int) Math.floor(y + 0.5 + srcY);
+            for (int x = 0; x < size; x++) {
+                int i = x + y * size;
+                int m = mask[i];
+                if (m == 0) {
+                    brushPixels[i] = 0;
+                    continue;
+                }
+                int sx = (int) Math.floor(x + 0.5 + srcX);
+                int argb = src.getARGB(sx, sy);
+                brushPixels[i] = applyMask(argb, m);
+            }
+        }
+    }
+
+    /**
+     * Fills the brush image from the source image using bilinear sampling,
+     * where the given transform maps the brush image coordinates into the
+     * source image coordinates, and applies the mask of the brush type.
+     */
+    protected void sampleTransformed(AffineTransform brushToSource) {
+        SourcePixels src = new SourcePixels(sourceImage);
+        int size = brushImage.getWidth();
+
+        // the transformation of the pixel centers is incremental along the rows
+        double[] m = new double[6];
+        brushToSource.getMatrix(m);
+        for (int y = 0; y < size; y++) {
+            double cy = y + 0.5;
+            // subtract 0.5 to get the coordinates relative to the source pixel centers
+            double u = m[2] * cy + m[4] + m[0] * 0.5 - 0.5;
+            double v = m[3] * cy + m[5] + m[1] * 0.5 - 0.5;
+            for (int x = 0; x < size; x++, u += m[0], v += m[1]) {
+                int i = x + y * size;
+                int maskValue = mask[i];
+                if (maskValue == 0) {
+                    brushPixels[i] = 0;
+                    continue;
+                }
+                brushPixels[i] = applyMask(src.getBilinearARGB(u, v), maskValue);
+            }
+        }
+    }
+
+    /**
+     * Returns the inverse of the given transform, or null if it can't be inverted.
+     */
+    protected static AffineTransform invert(AffineTransform at) {
+        try {
+            return at.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Clears the brush image.
+     */
+    protected void clearBrushImage() {
+        Arrays.fill(brushPixels, 0);
+    }
+
+    private static int applyMask(int argb, int mask) {
+        int a = ((argb >>> 24) * mask + 127) / 255;
+        return a << 24 | (argb & 0x00_FF_FF_FF);
+    }
+
+    /**
+     * Direct access to the (possibly premultiplied, possibly sub-image) int pixels of a source image.
+     */
+    private static class SourcePixels {
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+        private final int offset;
+        private final int stride;
+        private final boolean premultiplied;
+
+        SourcePixels(BufferedImage image) {
+            Raster raster = image.getRaster();
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            pixels = buffer.getData();
+            width = image.getWidth();
+            height = image.getHeight();
+            stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            offset = buffer.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+            premultiplied = image.isAlphaPremultiplied();
+        }
+
+        /**
+         * Returns the non-premultiplied ARGB value of the given pixel,
+         * or transparent if the pixel is outside the image.
+         */
+        int getARGB(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return 0;
+            }
+            int argb = pixels[offset + x + y * stride];
+            return premultiplied ? ImageUtils.unPremultiply(argb) : argb;
+        }
+
+        private int getPremultiplied(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return 0;
+            }
+            int argb = pixels[offset + x + y * stride];
+            return premultiplied ? argb : ImageUtils.premultiply(argb);
+        }
+
+        /**
+         * Returns the non-premultiplied ARGB value at the given location,
+         * interpolated from the premultiplied values of the four nearest pixels.
+         */
+        int getBilinearARGB(double u, double v) {
+            int x0 = (int) Math.floor(u);
+            int y0 = (int) Math.floor(v);
+            if (x0 < -1 || y0 < -1 || x0 >= width || y0 >= height) {
+                return 0;
+            }
+            double fx = u - x0;
+            double fy = v - y0;
+
+            int p00 = getPremultiplied(x0, y0);
+            int p10 = getPremultiplied(x0 + 1, y0);
+            int p01 = getPremultiplied(x0, y0 + 1);
+            int p11 = getPremultiplied(x0 + 1, y0 + 1);
+
+            int result = 0;
+            for (int shift = 0; shift <= 24; shift += 8) {
+                double top = ((p00 >>> shift) & 0xFF) * (1 - fx) + ((p10 >>> shift) & 0xFF) * fx;
+                double bottom = ((p01 >>> shift) & 0xFF) * (1 - fx) + ((p11 >>> shift) & 0xFF) * fx;
+                int value = (int) (top * (1 - fy) + bottom * fy + 0.5);
+                result |= value << shift;
+            }
+            return ImageUtils.unPremultiply(result);
+        }
     }
 
     public CopyBrushType getType() {
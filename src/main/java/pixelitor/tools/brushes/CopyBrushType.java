@@ -25,6 +25,8 @@ import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
 
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+
 /**
  * The brush type for {@link CopyBrush}.
  */
@@ -38,6 +40,11 @@ public enum CopyBrushType {
             transparencyImage = ImageUtils.createSoftTransparencyImage((int) size);
         }
 
+        @Override
+        public int[] createMask(double size) {
+            return toMask(ImageUtils.createSoftTransparencyImage((int) size));
+        }
+
         @Override
         public void beforeDrawImage(Graphics2D g) {
             // important in the areas where there is no source defined
@@ -58,6 +65,19 @@ public enum CopyBrushType {
             circleClip = new Ellipse2D.Double(0, 0, size, size);
         }
 
+        @Override
+        public int[] createMask(double size) {
+            // rasterize the clip in the same way as when it's used
+            int intSize = (int) size;
+            BufferedImage clipImage = new BufferedImage(intSize, intSize, TYPE_INT_ARGB);
+            Graphics2D g = clipImage.createGraphics();
+            g.setClip(new Ellipse2D.Double(0, 0, size, size));
+            g.fillRect(0, 0, intSize, intSize);
+            g.dispose();
+
+            return toMask(clipImage);
+        }
+
         @Override
         public void beforeDrawImage(Graphics2D g) {
             // important in the areas where there is no source defined
@@ -93,6 +113,23 @@ public enum CopyBrushType {
         this.size = size;
     }
 
+    /**
+     * Creates the alpha values (0-255) that the brush type applies to the
+     * pixels of a brush image with the given size, as an alternative to the
+     * drawing callbacks. The mask is kept by the brush, because brushes
+     * with different sizes can share the same type.
+     */
+    public abstract int[] createMask(double size);
+
+    private static int[] toMask(BufferedImage image) {
+        int[] pixels = ImageUtils.getPixels(image);
+        int[] mask = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            mask[i] = pixels[i] >>> 24;
+        }
+        return mask;
+    }
+
     @Override
     public String toString() {
         return displayName;
@@ -60,6 +60,8 @@ public abstract class DabsBrush extends AbstractBrush {
 
     /**
      * Applies a single dab at the given location and angle.
+     * It doesn't have to repaint, because the dabs placed for
+     * an input point are repainted together.
      */
     public abstract void putDab(PPoint currentPoint, double angle);
 
@@ -149,7 +149,5 @@ public class ImageDabsBrush extends DabsBrush {
             targetG.drawImage(finalScaledImg, drawStartX, drawStartY, null);
             targetG.setTransform(origTransform);
         }
-
-        repaintComp(currentPoint);
     }
 }
@@ -24,6 +24,7 @@ import pixelitor.layers.Drawable;
 import pixelitor.tools.util.PPoint;
 
 import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
 
 /**
  * A brush decorator that implements the "lazy mouse" feature,
@@ -43,6 +44,10 @@ public class LazyMouseBrush extends BrushDecorator {
     private double drawX;
     private double drawY;
 
+    // a copy of the drawing position for the EDT, because
+    // the brush can draw on the stroke thread
+    private volatile Point2D publishedDrawLoc = new Point2D.Double();
+
     private View view;
     private double spacing;
 
@@ -60,6 +65,7 @@ public class LazyMouseBrush extends BrushDecorator {
         if (previous != null) {
             drawX = previous.getImX();
             drawY = previous.getImY();
+            publishDrawLocation();
         }
 
         updateSpacing();
@@ -93,6 +99,7 @@ public class LazyMouseBrush extends BrushDecorator {
 
         drawX = mouseX;
         drawY = mouseY;
+        publishDrawLocation();
 
         updateSpacing();
     }
@@ -135,6 +142,11 @@ public class LazyMouseBrush extends BrushDecorator {
             dy = mouseY - drawY;
             dist2 = dx * dx + dy * dy;
         }
+        publishDrawLocation();
+    }
+
+    private void publishDrawLocation() {
+        publishedDrawLoc = new Point2D.Double(drawX, drawY);
     }
 
     @Override
@@ -153,7 +165,12 @@ public class LazyMouseBrush extends BrushDecorator {
         return param;
     }
 
+    /**
+     * Returns the last drawing position. Can be called on the EDT
+     * while the brush draws on another thread.
+     */
     public PPoint getDrawLocation() {
-        return PPoint.fromIm(drawX, drawY, view);
+        Point2D drawLoc = publishedDrawLoc;
+        return PPoint.fromIm(drawLoc.getX(), drawLoc.getY(), view);
     }
 }
@@ -57,7 +57,6 @@ public class ShapeDabsBrush extends DabsBrush {
             : Shapes.rotate(baseShape, angle, x, y);
 
         targetG.fill(finalShape);
-        repaintComp(currentPoint);
     }
 
     @Override
@@ -67,44 +67,45 @@ public class SmudgeBrush extends CopyBrush {
 
     @Override
     void initBrushStamp(PPoint p) {
-        Graphics2D g = brushImage.createGraphics();
-        type.beforeDrawImage(g);
-
-        if (firstDabInStroke && fingerPainting) {
-            // finger painting: fill the brush with the foreground color
-            g.setColor(getFGColor());
-            int size = (int) diameter;
-            g.fillRect(0, 0, size, size);
+        boolean fillWithColor = firstDabInStroke && fingerPainting;
+        if (!fillWithColor && canSampleDirectly()) {
+            // normal smudging, sampling the source pixels directly,
+            // because this runs for every pixel along the stroke
+            sampleTranslated(lastPoint.getImX() - radius, lastPoint.getImY() - radius);
         } else {
-            // normal smudging: sample the source image at the last point
-            g.drawImage(sourceImage,
-                AffineTransform.getTranslateInstance(
-                    -lastPoint.getImX() + radius,
-                    -lastPoint.getImY() + radius), null);
+            Graphics2D g = brushImage.createGraphics();
+            type.beforeDrawImage(g);
+
+            if (fillWithColor) {
+                // finger painting: fill the brush with the foreground color
+                g.setColor(getFGColor());
+                int size = (int) diameter;
+                g.fillRect(0, 0, size, size);
+            } else {
+                // normal smudging: sample the source image at the last point
+                g.drawImage(sourceImage,
+                    AffineTransform.getTranslateInstance(
+                        -lastPoint.getImX() + radius,
+                        -lastPoint.getImY() + radius), null);
+            }
+
+            type.afterDrawImage(g);
+            g.dispose();
         }
 
-        type.afterDrawImage(g);
-        g.dispose();
-
         firstDabInStroke = false;
         debugImage();
     }
 
     @Override
     public void putDab(PPoint currentPoint, double angle) {
-        var transform = AffineTransform.getTranslateInstance(
-            currentPoint.getImX() - radius,
-            currentPoint.getImY() - radius
-        );
-
         // SrcOver allows to smudge into transparent areas, but transparency
         // can't be smudged into non-transparent areas.
         // DstOver allows only smudging into transparent.
         targetG.setComposite(AlphaComposite.SrcOver.derive(opacity));
 
-        targetG.drawImage(brushImage, transform, null);
+        drawBrushImage(currentPoint);
         lastPoint = currentPoint;
-        repaintComp(currentPoint);
     }
 
     public void setFingerPainting(boolean fingerPainting) {
@@ -24,7 +24,9 @@ import pixelitor.gui.View;
 import pixelitor.layers.BlendingMode;
 import pixelitor.layers.Drawable;
 import pixelitor.layers.LayerMask;
+import pixelitor.tools.gradient.paints.CustomGradientPaint;
 import pixelitor.tools.util.Drag;
+import pixelitor.utils.Geometry;
 import pixelitor.utils.debug.DebugNode;
 import pixelitor.utils.debug.Debuggable;
 
@@ -150,8 +152,25 @@ public class Gradient implements Serializable, Debuggable {
         // it's not needed for gradient fill layers.
         g.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
         Paint paint = type.createPaint(drag, colors, cycleMethod);
-        g.setPaint(paint);
-        g.fillRect(0, 0, width, height);
+        if (paint instanceof CustomGradientPaint customPaint && Geometry.isPixelAligned(g.getTransform())) {
+            // Java2D would calculate the colors of the custom
+            // gradients in small tiles, on a single thread.
+            // Only the pixels within the clip are calculated.
+            Rectangle region = new Rectangle(0, 0, width, height);
+            Rectangle clip = g.getClipBounds();
+            if (clip != null) {
+                region = region.intersection(clip);
+                if (region.isEmpty()) {
+                    return;
+                }
+            }
+            BufferedImage img = customPaint.createImage(region);
+            g.drawImage(img, region.x, region.y, null);
+            img.flush();
+        } else {
+            g.setPaint(paint);
+            g.fillRect(0, 0, width, height);
+        }
     }
 
     /**
@@ -234,10 +253,6 @@ public class Gradient implements Serializable, Debuggable {
         return colorType.hasTransparency();
     }
 
-    public boolean hasCustomTransparency() {
-        return colorType.hasTransparency() && isCustom();
-    }
-
     public Drag getDrag() {
         return drag;
     }
@@ -246,13 +261,6 @@ public class Gradient implements Serializable, Debuggable {
         this.drag = drag;
     }
 
-    private boolean isCustom() {
-        return switch (type) {
-            case LINEAR, RADIAL -> false;
-            case ANGLE, SPIRAL_CW, SPIRAL_CCW, DIAMOND -> true;
-        };
-    }
-
     @Override
     public DebugNode createDebugNode(String key) {
         DebugNode node = new DebugNode(key, this);
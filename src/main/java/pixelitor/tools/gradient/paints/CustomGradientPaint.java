@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.gradient.paints;
+
+import pixelitor.ThreadPool;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A {@link Paint} whose colors are calculated by a {@link CustomGradientPaintContext}.
+ * Java2D requests the colors of such paints in small tiles on a single thread,
+ * but they can also be rendered directly into an image, in parallel.
+ */
+public interface CustomGradientPaint extends Paint {
+    // the number of rows rendered by a single task
+    int MIN_ROWS_PER_TASK = 16;
+
+    /**
+     * Creates the context for the given user space to device space transform.
+     */
+    CustomGradientPaintContext createContext(ColorModel cm, AffineTransform xform);
+
+    @Override
+    default PaintContext createContext(ColorModel cm,
+                                       Rectangle deviceBounds, Rectangle2D userBounds,
+                                       AffineTransform xform, RenderingHints hints) {
+        return createContext(cm, xform);
+    }
+
+    @Override
+    default int getTransparency() {
+        int a1 = startColor().getAlpha();
+        int a2 = endColor().getAlpha();
+        return (a1 & a2) == 0xFF ? OPAQUE : TRANSLUCENT;
+    }
+
+    Color startColor();
+
+    Color endColor();
+
+    /**
+     * Renders this paint into a new image with the given size, with the
+     * same result as filling it with this paint through a Graphics2D.
+     */
+    default BufferedImage createImage(int width, int height) {
+        return createImage(new Rectangle(0, 0, width, height));
+    }
+
+    /**
+     * Renders the given region of this paint into a new image with the size
+     * of the region. The top-left pixel of the image is at the region's origin.
+     */
+    default BufferedImage createImage(Rectangle region) {
+        int width = region.width;
+        var img = new BufferedImage(width, region.height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+
+        CustomGradientPaintContext context = createContext(
+            ColorModel.getRGBdefault(), new AffineTransform());
+        ThreadPool.runInChunks(region.height, MIN_ROWS_PER_TASK, (fromRow, toRow) ->
+            context.fillRows(pixels, width, region.x, region.y, width, fromRow, toRow));
+        return img;
+    }
+}
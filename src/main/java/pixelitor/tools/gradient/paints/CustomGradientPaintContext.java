@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.gradient.paints;
+
+import java.awt.Color;
+import java.awt.MultipleGradientPaint.CycleMethod;
+import java.awt.PaintContext;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * The common base class of the custom gradient paint contexts,
+ * which interpolate between two colors based on a per-pixel value
+ * calculated by the subclasses. The pixels near the discontinuities
+ * of the gradient are supersampled.
+ */
+public abstract class CustomGradientPaintContext implements PaintContext {
+    private static final int AA_RES = 4; // the resolution of AA supersampling
+    private static final int AA_RES2 = AA_RES * AA_RES;
+
+    protected final CycleMethod cycleMethod;
+    private final ColorModel cm;
+
+    private final int startAlpha;
+    private final int startRed;
+    private final int startGreen;
+    private final int startBlue;
+
+    private final int endAlpha;
+    private final int endRed;
+    private final int endGreen;
+    private final int endBlue;
+
+    CustomGradientPaintContext(Color startColor, Color endColor,
+                               ColorModel cm, CycleMethod cycleMethod) {
+        this.cycleMethod = cycleMethod;
+        this.cm = cm;
+
+        startAlpha = startColor.getAlpha();
+        startRed = startColor.getRed();
+        startGreen = startColor.getGreen();
+        startBlue = startColor.getBlue();
+
+        endAlpha = endColor.getAlpha();
+        endRed = endColor.getRed();
+        endGreen = endColor.getGreen();
+        endBlue = endColor.getBlue();
+    }
+
+    /**
+     * Returns the position of the given point within
+     * the gradient as a value between 0 and 1.
+     */
+    protected abstract double interpolate(double x, double y);
+
+    /**
+     * Returns true if the given pixel, with the given interpolated
+     * value, is so close to a discontinuity that it needs supersampling.
+     */
+    protected abstract boolean needsAA(int x, int y, double interpolated);
+
+    @Override
+    public void dispose() {
+
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return cm;
+    }
+
+    @Override
+    public Raster getRaster(int startX, int startY, int width, int height) {
+        int[] argb = new int[width * height];
+        fillRows(argb, width, startX, startY, width, 0, height);
+
+        WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
+        int numComponents = cm.getNumComponents();
+        int[] rasterData = new int[argb.length * numComponents];
+        if (numComponents == 1) {
+            // gray, the start and end colors are expected to be gray
+            for (int i = 0; i < argb.length; i++) {
+                rasterData[i] = (argb[i] >>> 16) & 0xFF;
+            }
+        } else {
+            for (int i = 0; i < argb.length; i++) {
+                int base = i * 4;
+                int pixel = argb[i];
+                rasterData[base] = (pixel >>> 16) & 0xFF;
+                rasterData[base + 1] = (pixel >>> 8) & 0xFF;
+                rasterData[base + 2] = pixel & 0xFF;
+                rasterData[base + 3] = pixel >>> 24;
+            }
+        }
+        raster.setPixels(0, 0, width, height, rasterData);
+        return raster;
+    }
+
+    /**
+     * Calculates the non-premultiplied ARGB colors of the given rows of a
+     * rectangle starting at the given device coordinates. The rows of the
+     * rectangle are stored in the given array with the given scanline stride.
+     */
+    void fillRows(int[] argb, int scanline,
+                  int startX, int startY, int width,
+                  int fromRow, int toRow) {
+        for (int j = fromRow; j < toRow; j++) {
+            int y = startY + j;
+            int rowStart = j * scanline;
+            for (int i = 0; i < width; i++) {
+                int x = startX + i;
+                double interpolated = interpolate(x, y);
+                if (needsAA(x, y, interpolated)) {
+                    argb[rowStart + i] = calcSupersampledColor(x, y);
+                } else {
+                    int a = (int) (startAlpha + interpolated * (endAlpha - startAlpha));
+                    int r = (int) (startRed + interpolated * (endRed - startRed));
+                    int g = (int) (startGreen + interpolated * (endGreen - startGreen));
+                    int b = (int) (startBlue + interpolated * (endBlue - startBlue));
+                    argb[rowStart + i] = a << 24 | r << 16 | g << 8 | b;
+                }
+            }
+        }
+    }
+
+    private int calcSupersampledColor(int x, int y) {
+        int a = 0;
+        int r = 0;
+        int g = 0;
+        int b = 0;
+
+        for (int m = 0; m < AA_RES; m++) {
+            double yy = y + 1.0 / AA_RES * m - 0.5;
+            for (int n = 0; n < AA_RES; n++) {
+                double xx = x + 1.0 / AA_RES * n - 0.5;
+
+                double interpolatedAA = interpolate(xx, yy);
+
+                a += (int) (startAlpha + interpolatedAA * (endAlpha - startAlpha));
+                r += (int) (startRed + interpolatedAA * (endRed - startRed));
+                g += (int) (startGreen + interpolatedAA * (endGreen - startGreen));
+                b += (int) (startBlue + interpolatedAA * (endBlue - startBlue));
+            }
+        }
+        a /= AA_RES2;
+        r /= AA_RES2;
+        g /= AA_RES2;
+        b /= AA_RES2;
+
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+}
@@ -23,6 +23,7 @@ import pixelitor.Views;
 import pixelitor.filters.gui.UserPreset;
 import pixelitor.gui.View;
 import pixelitor.layers.Layer;
+import pixelitor.layers.SmartObject;
 import pixelitor.selection.Selection;
 import pixelitor.tools.DragTool;
 import pixelitor.tools.transform.TransformBox;
@@ -142,6 +143,10 @@ public class MoveTool extends DragTool {
     public void dragFinished(PMouseEvent e) {
         if (transformBox != null) {
             if (transformBox.processMouseReleased(e)) {
+                if (transformBox.getTarget() instanceof SmartObject so) {
+                    so.finishFreeTransform();
+                    return;
+                }
                 Selection selection = e.getComp().getSelection();
                 if (selection != null) {
                     selection.finalizeMovement(true);
@@ -242,13 +247,21 @@ public class MoveTool extends DragTool {
 
     private void createTransformBox() {
         View view = Views.getActive();
-        Selection sel = view.getComp().getSelection();
-        if (sel != null && transformBox == null) {
+        if (transformBox != null) {
+            return;
+        }
+        Composition comp = view.getComp();
+        Selection sel = comp.getSelection();
+        if (sel != null) {
             // create a transform box around the selection
             Rectangle boxSize = view.imageToComponentSpace(sel.getShapeBounds2D());
             boxSize.grow(10, 10); // make sure the rectangular selections are visible
             transformBox = new TransformBox(boxSize, view, sel, true);
             sel.prepareMovement();
+        } else if (comp.getActiveLayer() instanceof SmartObject so) {
+            // create a transform box around the transformed content
+            Rectangle boxSize = view.imageToComponentSpace(so.startFreeTransform());
+            transformBox = new TransformBox(boxSize, view, so, true);
         }
     }
 
@@ -645,12 +645,56 @@ public class StyledShape implements Transformable, Serializable, Cloneable {
         return shape.getBounds();
     }
 
+    /**
+     * Returns the bounds of all pixels affected by the
+     * painting, including the stroke and the effects.
+     */
+    public Rectangle getPaintedBounds() {
+        Rectangle bounds = strokePaint != NONE
+            ? stroke.createStrokedShape(shape).getBounds()
+            : shape.getBounds();
+        if (strokePaint != NONE && fillPaint != NONE) {
+            bounds.add(shape.getBounds());
+        }
+        if (effects.hasEnabledEffects()) {
+            int padding = (int) effects.calcMaxEffectPadding();
+            bounds.grow(padding, padding);
+        }
+        // the antialiased edges can reach into the neighboring pixels
+        bounds.grow(1, 1);
+        return bounds;
+    }
+
+    /**
+     * Returns an object that is equal to the key returned
+     * by an earlier call only if everything that influences
+     * the painting of this shape is still the same.
+     */
+    public Object createRenderingKey() {
+        return new RenderingKey(shape, transformedDrag, fillPaint, strokePaint,
+            stroke, effects, fgColor, bgColor);
+    }
+
+    private record RenderingKey(Shape shape, Drag drag,
+                                TwoPointPaintType fillPaint, TwoPointPaintType strokePaint,
+                                Stroke stroke, AreaEffects effects,
+                                Color fgColor, Color bgColor) {
+    }
+
     public boolean hasBlendingIssue() {
         // for some reason the JDK built-in gradients
         // don't blend with the custom blending modes
         return fillPaint.hasBlendingIssue() || strokePaint.hasBlendingIssue();
     }
 
+    /**
+     * Returns true if the fill erases the pixels of the layers below,
+     * which can't be reproduced by painting an image of the shape.
+     */
+    public boolean erasesBelow() {
+        return fillPaint == TRANSPARENT;
+    }
+
     public void setChangeListener(Runnable changeListener) {
         this.changeListener = changeListener;
     }
@@ -20,6 +20,7 @@ package pixelitor.utils;
 import com.jhlabs.image.ImageMath;
 import net.jafama.FastMath;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 
@@ -296,4 +297,14 @@ public class Geometry {
             ? -degrees
             : 360.0 - degrees;
     }
+
+    /**
+     * Returns true if the given transform is a translation by whole
+     * pixels, so that images painted with it aren't resampled.
+     */
+    public static boolean isPixelAligned(AffineTransform at) {
+        return (at.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+            && at.getTranslateX() == Math.rint(at.getTranslateX())
+            && at.getTranslateY() == Math.rint(at.getTranslateY());
+    }
 }
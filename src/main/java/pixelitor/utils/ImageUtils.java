@@ -1436,10 +1436,19 @@ public class ImageUtils {
 
         // the first visible layer is always applied with normal blending mode
         boolean firstVisibleLayer = true;
-        for (Layer layer : layers) {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
             if (!layer.isVisible()) {
                 continue;
             }
+            if (!firstVisibleLayer) {
+                // consecutive lookup-based adjustments are applied in a single pass
+                int lastFused = Layer.applyFusedLookups(layers, i, compositeImg);
+                if (lastFused != -1) {
+                    i = lastFused;
+                    continue;
+                }
+            }
             BufferedImage result = layer.render(g, compositeImg, firstVisibleLayer);
             if (result != null) { // adjustment layer or watermarking text layer
                 compositeImg = result;
@@ -1453,6 +1462,50 @@ public class ImageUtils {
         return compositeImg;
     }
 
+    /**
+     * Returns a copy of a composite image that was calculated by
+     * {@link #calcComposite(List, Canvas)}, with the given region re-rendered.
+     * The given image isn't changed, because it can be used as a snapshot
+     * (for example, as a clone source or while it's being saved).
+     * Returns null if this isn't possible, because the composite is
+     * shared with a single layer or because some layers don't render locally.
+     */
+    public static BufferedImage recompositeRegion(List<Layer> layers, BufferedImage compositeImg, Rectangle region) {
+        if (layers.size() == 1) {
+            // the composite might be the image of the layer itself
+            return null;
+        }
+        for (Layer layer : layers) {
+            if (layer.isVisible() && !layer.rendersLocally()) {
+                return null;
+            }
+        }
+
+        // copying the pixels is still much cheaper than blending all the layers
+        BufferedImage updatedImg = copyImage(compositeImg);
+        if (updatedImg == null) { // out of memory
+            return null;
+        }
+
+        Graphics2D g = updatedImg.createGraphics();
+        g.setClip(region);
+        g.setComposite(AlphaComposite.Clear);
+        g.fill(region);
+
+        // the first visible layer is always applied with normal blending mode
+        boolean firstVisibleLayer = true;
+        for (Layer layer : layers) {
+            if (layer.isVisible()) {
+                BufferedImage result = layer.render(g, updatedImg, firstVisibleLayer);
+                assert result == null;
+                firstVisibleLayer = false;
+            }
+        }
+
+        g.dispose();
+        return updatedImg;
+    }
+
     public static BufferedImage createCircleThumb(Color color) {
         BufferedImage img = createSysCompatibleImage(thumbSize, thumbSize);
         Graphics2D g2 = img.createGraphics();
@@ -49,6 +49,16 @@ public class IntList {
         data[size++] = value;
     }
 
+    /**
+     * Removes and returns the last element.
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("empty list");
+        }
+        return data[--size];
+    }
+
     public void clear() {
         size = 0;
     }
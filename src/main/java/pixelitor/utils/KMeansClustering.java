@@ -17,16 +17,39 @@
 
 package pixelitor.utils;
 
+import pixelitor.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * K-means clustering algorithm for RGB color quantization.
+ *
+ * The clustering works on a histogram of the unique colors
+ * (weighted by their pixel counts) instead of the individual pixels,
+ * and the assignment step runs in parallel, with each task accumulating
+ * the centroid sums into its own primitive array.
  */
 public class KMeansClustering {
+    // for larger images, the histogram is built from a sample of the pixels
+    private static final int MAX_HISTOGRAM_PIXELS = 1 << 22;
+
+    // above this number of unique colors, k-means++ seeding uses a sample
+    private static final int MAX_SEEDING_COLORS = 1 << 16;
+
+    // the minimum number of unique colors processed by a single task
+    private static final int MIN_CHUNK_SIZE = 4096;
+
     private final int numClusters;
     private final int maxIterations;
     private final Random random;
 
+    private Timings lastTimings;
+
     public KMeansClustering(int numClusters, int maxIterations, Random random) {
         this.numClusters = numClusters;
         this.maxIterations = maxIterations;
@@ -34,155 +57,187 @@ public class KMeansClustering {
     }
 
     /**
-     * Performs color quantization for a fixed number of iterations.
+     * Performs color quantization until the centroids stop
+     * changing or the maximum number of iterations is reached.
      */
     public int[] cluster(int[] pixels, boolean useKMeansPlusPlus, ProgressTracker pt) {
+        long startTime = System.nanoTime();
+        ColorHistogram histogram = ColorHistogram.of(pixels, random);
+        long histogramTime = System.nanoTime();
+
         // initialize centroids using either k-means++ or random selection
         int[] centroids = useKMeansPlusPlus
-            ? initializeKMeansPlusPlusCentroids(pixels)
+            ? initializeKMeansPlusPlusCentroids(histogram)
             : initializeRandomCentroids(pixels);
+        long seedingTime = System.nanoTime();
 
         pt.unitDone();
 
         // perform k-means iterations
-        for (int it = 0; it < maxIterations; it++) {
-            // assign each pixel to the nearest centroid
-            IntList[] clusters = assignPixelsToClusters(pixels, centroids);
-
-            // calculate new centroids as the average of assigned colors
-            int[] newCentroids = recalculateCentroids(clusters);
-
-            // a convergence check could be added here, but for simplicity
-            // we run for a fixed number of iterations.
-            // if (Arrays.equals(centroids, newCentroids)) {
-            //     break;
-            // }
+        int it = 0;
+        boolean converged = false;
+        while (it < maxIterations) {
+            int[] newCentroids = iterate(histogram, centroids);
+            it++;
+            pt.unitDone();
 
+            if (Arrays.equals(centroids, newCentroids)) {
+                converged = true;
+                break;
+            }
             centroids = newCentroids;
-            pt.unitDone();
         }
+        if (it < maxIterations) {
+            // keep the progress bar consistent with the expected work
+            pt.unitsDone(maxIterations - it);
+        }
+        long endTime = System.nanoTime();
+
+        lastTimings = new Timings(pixels.length, histogram.size(), it, converged,
+            toMillis(histogramTime - startTime),
+            toMillis(seedingTime - histogramTime),
+            toMillis(endTime - seedingTime));
 
         return centroids;
     }
 
+    /**
+     * Returns the statistics of the last {@link #cluster} call,
+     * or null if the clustering didn't run yet.
+     */
+    public Timings getLastTimings() {
+        return lastTimings;
+    }
+
     /**
      * Initializes centroids by randomly selecting pixels from the input image.
      */
     private int[] initializeRandomCentroids(int[] pixels) {
         int[] centroids = new int[numClusters];
         for (int i = 0; i < numClusters; i++) {
-            centroids[i] = (pixels[random.nextInt(pixels.length)]);
+            centroids[i] = pixels[random.nextInt(pixels.length)] & 0x00_FF_FF_FF;
         }
         return centroids;
     }
 
     /**
      * Initializes centroids using the k-means++ algorithm for better initial placement.
+     * The distances to the nearest centroid are updated incrementally,
+     * so each new centroid costs only one pass over the (sampled) colors.
      */
-    private int[] initializeKMeansPlusPlusCentroids(int[] pixels) {
+    private int[] initializeKMeansPlusPlusCentroids(ColorHistogram histogram) {
+        ColorHistogram candidates = histogram.sample(MAX_SEEDING_COLORS, random);
+        int[] colors = candidates.colors;
+        int[] counts = candidates.counts;
+        int numColors = colors.length;
+
         int[] centroids = new int[numClusters];
 
-        // choose the first centroid randomly
-        centroids[0] = pixels[random.nextInt(pixels.length)];
+        // choose the first centroid randomly, weighted by the pixel counts
+        centroids[0] = colors[candidates.randomIndex(random)];
+
+        double[] minDistances = new double[numColors];
+        Arrays.fill(minDistances, Double.MAX_VALUE);
 
         // choose the remaining centroids based on a weighted probability distribution
         for (int i = 1; i < numClusters; i++) {
-            double[] distances = new double[pixels.length];
-            double sumDistances = calculateKMeansPlusPlusWeights(pixels, i, centroids, distances);
+            int lastCentroid = centroids[i - 1];
+            double sumWeights = 0;
+            for (int j = 0; j < numColors; j++) {
+                double distance = calcSquaredRgbDistance(colors[j], lastCentroid);
+                if (distance < minDistances[j]) {
+                    minDistances[j] = distance;
+                }
+                sumWeights += minDistances[j] * counts[j];
+            }
 
-            // choose the next centroid
-            selectNextCentroidFromWeights(pixels, sumDistances, distances, centroids, i);
+            centroids[i] = selectNextCentroid(colors, counts, minDistances, sumWeights);
         }
 
         return centroids;
     }
 
-    /**
-     * Calculates distance-based weights for k-means++ initialization.
-     */
-    private static double calculateKMeansPlusPlusWeights(int[] pixels, int numExistingCentroids, int[] centroids, double[] distances) {
-        double sumDistances = 0;
-        for (int j = 0; j < pixels.length; j++) {
-            // for each pixel, find the squared distance to the nearest existing centroid
-            double minSquaredDistance = Double.MAX_VALUE;
-            for (int l = 0; l < numExistingCentroids; l++) {
-                double squaredDistance = calcSquaredRgbDistance(pixels[j], centroids[l]);
-                if (squaredDistance < minSquaredDistance) {
-                    minSquaredDistance = squaredDistance;
-                }
-            }
-            distances[j] = minSquaredDistance;
-            sumDistances += distances[j];
-        }
-        return sumDistances;
-    }
-
     /**
      * Selects the next centroid using weighted probability based on distances.
      */
-    private void selectNextCentroidFromWeights(int[] pixels, double sumDistances, double[] distances, int[] centroids, int centroidIndex) {
-        double randValue = random.nextDouble() * sumDistances;
-        for (int j = 0; j < pixels.length; j++) {
-            randValue -= distances[j];
+    private int selectNextCentroid(int[] colors, int[] counts, double[] distances, double sumWeights) {
+        double randValue = random.nextDouble() * sumWeights;
+        for (int j = 0; j < colors.length; j++) {
+            randValue -= distances[j] * counts[j];
             if (randValue <= 0) {
-                centroids[centroidIndex] = pixels[j];
-                return;
+                return colors[j];
             }
         }
-        // fallback for the last pixel, in case of floating point inaccuracies
-        centroids[centroidIndex] = pixels[pixels.length - 1];
+        // fallback for the last color, in case of floating point inaccuracies
+        return colors[colors.length - 1];
     }
 
     /**
-     * Assigns each pixel to its nearest centroid cluster.
+     * Assigns each unique color to its nearest centroid in parallel,
+     * and calculates the new centroids as the weighted average of the assigned colors.
      */
-    private IntList[] assignPixelsToClusters(int[] pixels, int[] centroids) {
-        IntList[] clusters = new IntList[numClusters];
-        int estimatedSize = pixels.length / numClusters + 1;
-        for (int i = 0; i < numClusters; i++) {
-            clusters[i] = new IntList(estimatedSize);
+    private int[] iterate(ColorHistogram histogram, int[] centroids) {
+        int numColors = histogram.size();
+        int numChunks = Math.max(1, Math.min(ThreadPool.getNumCores(), numColors / MIN_CHUNK_SIZE));
+        int chunkSize = (numColors + numChunks - 1) / numChunks;
+
+        List<Future<long[]>> futures = new ArrayList<>(numChunks);
+        for (int start = 0; start < numColors; start += chunkSize) {
+            int from = start;
+            int to = Math.min(numColors, start + chunkSize);
+            futures.add(ThreadPool.submit2(() -> accumulate(histogram, centroids, from, to)));
         }
-        for (int rgb : pixels) {
-            int closestCentroidIndex = findClosestCentroidIndex(rgb, centroids);
-            clusters[closestCentroidIndex].add(rgb);
+
+        // merge the per-task sums (r, g, b and pixel count for each cluster)
+        long[] sums = new long[numClusters * 4];
+        try {
+            for (Future<long[]> future : futures) {
+                long[] partialSums = future.get();
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += partialSums[i];
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Messages.showException(e);
+            return centroids;
         }
-        return clusters;
-    }
 
-    /**
-     * Calculates new centroid positions as the average of all colors in each cluster.
-     */
-    private int[] recalculateCentroids(IntList[] clusters) {
         int[] newCentroids = new int[numClusters];
-
         for (int i = 0; i < numClusters; i++) {
-            IntList cluster = clusters[i];
-            int clusterSize = cluster.size();
+            long clusterSize = sums[4 * i + 3];
             if (clusterSize == 0) {
-                // if a cluster is empty, its centroid remains at black.
-                // another strategy could be to re-initialize it randomly.
-                newCentroids[i] = 0;
+                // an empty cluster keeps its previous centroid
+                newCentroids[i] = centroids[i];
                 continue;
             }
-
-            // calculate average RGB values for the cluster
-            long sumR = 0;
-            long sumG = 0;
-            long sumB = 0;
-            for (int j = 0; j < clusterSize; j++) {
-                int rgb = cluster.get(j);
-                sumR += (rgb >> 16) & 0xFF;
-                sumG += (rgb >> 8) & 0xFF;
-                sumB += rgb & 0xFF;
-            }
-            int newR = (int) (sumR / clusterSize);
-            int newG = (int) (sumG / clusterSize);
-            int newB = (int) (sumB / clusterSize);
+            int newR = (int) (sums[4 * i] / clusterSize);
+            int newG = (int) (sums[4 * i + 1] / clusterSize);
+            int newB = (int) (sums[4 * i + 2] / clusterSize);
             newCentroids[i] = (newR << 16) | (newG << 8) | newB;
         }
         return newCentroids;
     }
 
+    /**
+     * Accumulates the weighted channel sums of the colors
+     * in the given range into a new array.
+     */
+    private long[] accumulate(ColorHistogram histogram, int[] centroids, int from, int to) {
+        long[] sums = new long[numClusters * 4];
+        int[] colors = histogram.colors;
+        int[] counts = histogram.counts;
+        for (int j = from; j < to; j++) {
+            int rgb = colors[j];
+            int count = counts[j];
+            int base = 4 * findClosestCentroidIndex(rgb, centroids);
+            sums[base] += (long) ((rgb >> 16) & 0xFF) * count;
+            sums[base + 1] += (long) ((rgb >> 8) & 0xFF) * count;
+            sums[base + 2] += (long) (rgb & 0xFF) * count;
+            sums[base + 3] += count;
+        }
+        return sums;
+    }
+
     /**
      * Finds the index of the closest centroid to the given RGB color.
      */
@@ -218,4 +273,109 @@ public class KMeansClustering {
 
         return (double) dR * dR + dG * dG + dB * dB;
     }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    /**
+     * The unique RGB colors of an image (ignoring alpha) with their pixel counts.
+     */
+    private record ColorHistogram(int[] colors, int[] counts, long totalCount) {
+        static ColorHistogram of(int[] pixels, Random random) {
+            int[] rgbs;
+            if (pixels.length > MAX_HISTOGRAM_PIXELS) {
+                // take a strided sample with a random start offset
+                double step = pixels.length / (double) MAX_HISTOGRAM_PIXELS;
+                double pos = random.nextDouble() * step;
+                rgbs = new int[MAX_HISTOGRAM_PIXELS];
+                for (int i = 0; i < rgbs.length; i++, pos += step) {
+                    rgbs[i] = pixels[Math.min((int) pos, pixels.length - 1)] & 0x00_FF_FF_FF;
+                }
+            } else {
+                rgbs = new int[pixels.length];
+                for (int i = 0; i < rgbs.length; i++) {
+                    rgbs[i] = pixels[i] & 0x00_FF_FF_FF;
+                }
+            }
+            Arrays.parallelSort(rgbs);
+
+            // run-length encode the sorted colors in place
+            int[] counts = new int[rgbs.length];
+            int numUnique = 0;
+            for (int i = 0; i < rgbs.length; i++) {
+                if (numUnique > 0 && rgbs[numUnique - 1] == rgbs[i]) {
+                    counts[numUnique - 1]++;
+                } else {
+                    rgbs[numUnique] = rgbs[i];
+                    counts[numUnique] = 1;
+                    numUnique++;
+                }
+            }
+            return new ColorHistogram(
+                Arrays.copyOf(rgbs, numUnique),
+                Arrays.copyOf(counts, numUnique),
+                rgbs.length);
+        }
+
+        int size() {
+            return colors.length;
+        }
+
+        /**
+         * Returns a histogram with at most the given number of
+         * randomly chosen colors, keeping their original counts.
+         */
+        ColorHistogram sample(int maxColors, Random random) {
+            if (colors.length <= maxColors) {
+                return this;
+            }
+            int[] sampledColors = new int[maxColors];
+            int[] sampledCounts = new int[maxColors];
+            long sampledTotal = 0;
+            for (int i = 0; i < maxColors; i++) {
+                int index = random.nextInt(colors.length);
+                sampledColors[i] = colors[index];
+                sampledCounts[i] = counts[index];
+                sampledTotal += counts[index];
+            }
+            return new ColorHistogram(sampledColors, sampledCounts, sampledTotal);
+        }
+
+        /**
+         * Returns the index of a random color, with the
+         * probabilities proportional to the pixel counts.
+         */
+        int randomIndex(Random random) {
+            long target = (long) (random.nextDouble() * totalCount);
+            for (int i = 0; i < counts.length; i++) {
+                target -= counts[i];
+                if (target < 0) {
+                    return i;
+                }
+            }
+            return counts.length - 1;
+        }
+    }
+
+    /**
+     * Statistics about a clustering run.
+     */
+    public record Timings(int numPixels, int numUniqueColors,
+                          int numIterations, boolean converged,
+                          long histogramMillis, long seedingMillis,
+                          long iterationMillis) {
+        public long totalMillis() {
+            return histogramMillis + seedingMillis + iterationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d pixels, %d unique colors, %d iterations%s, " +
+                    "histogram: %d ms, seeding: %d ms, iterations: %d ms",
+                numPixels, numUniqueColors, numIterations,
+                converged ? " (converged)" : "",
+                histogramMillis, seedingMillis, iterationMillis);
+        }
+    }
 }
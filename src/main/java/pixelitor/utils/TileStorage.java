@@ -0,0 +1,204 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Allocates the pixel tiles of {@link TiledImage}s outside the Java heap,
+ * in memory-mapped chunks of a scratch file, so that they don't increase
+ * the garbage collection pauses, and the operating system can page them
+ * out if the physical memory is low. The slots of the released tiles are
+ * reused. If the scratch file can't be created or grown (for example
+ * because the disk is full), the tiles are stored in direct buffers instead.
+ */
+final class TileStorage {
+    static final int TILE_SIZE = 256;
+    static final int TILE_PIXELS = TILE_SIZE * TILE_SIZE;
+    private static final int TILE_BYTES = TILE_PIXELS * 4;
+
+    // 16 MB is mapped at once
+    private static final int TILES_PER_CHUNK = 64;
+
+    private static final int PREALLOCATION_BLOCK_BYTES = 1 << 20;
+
+    private static final TileStorage INSTANCE = new TileStorage();
+
+    private FileChannel scratchFile;
+    private boolean scratchFileFailed;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final IntList freeSlots = new IntList();
+    private int numUsedSlots;
+
+    private TileStorage() {
+    }
+
+    static TileStorage get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a new tile with a reference count of one.
+     */
+    synchronized Tile allocate() {
+        if (freeSlots.isEmpty() && !addChunk()) {
+            IntBuffer data = ByteBuffer.allocateDirect(TILE_BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+            return new Tile(this, -1, data, 0);
+        }
+
+        int slot = freeSlots.removeLast();
+        numUsedSlots++;
+        ByteBuffer chunk = chunks.get(slot / TILES_PER_CHUNK);
+        IntBuffer data = chunk
+            .slice((slot % TILES_PER_CHUNK) * TILE_BYTES, TILE_BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer();
+        return new Tile(this, slot, data, 0);
+    }
+
+    // maps a new chunk of the scratch file and adds its slots to the free list
+    private boolean addChunk() {
+        if (scratchFileFailed) {
+            return false;
+        }
+        try {
+            if (scratchFile == null) {
+                Path path = Files.createTempFile("pixelitor-tiles", ".tmp");
+                path.toFile().deleteOnExit();
+                scratchFile = FileChannel.open(path, READ, WRITE, DELETE_ON_CLOSE);
+            }
+            long chunkBytes = (long) TILES_PER_CHUNK * TILE_BYTES;
+            int chunkIndex = chunks.size();
+            long chunkStart = chunkIndex * chunkBytes;
+            preallocate(chunkStart, chunkBytes);
+            chunks.add(scratchFile.map(READ_WRITE, chunkStart, chunkBytes));
+
+            // added in reverse order so that the lowest slot is used first
+            for (int i = TILES_PER_CHUNK - 1; i >= 0; i--) {
+                freeSlots.add(chunkIndex * TILES_PER_CHUNK + i);
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // for example if the temp dir is full or read-only
+            scratchFileFailed = true;
+            return false;
+        }
+    }
+
+    // Writes zeros into the whole chunk before it's mapped. Writing a mapped
+    // page that the file system can't allocate crashes the JVM instead of
+    // throwing an exception, so a full disk must be detected here.
+    private void preallocate(long start, long numBytes) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(PREALLOCATION_BLOCK_BYTES);
+        try {
+            long pos = start;
+            long end = start + numBytes;
+            while (pos < end) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), end - pos));
+                while (zeros.hasRemaining()) {
+                    pos += scratchFile.write(zeros, pos);
+                }
+            }
+        } catch (IOException e) {
+            // don't leave a partially written chunk at the end of the file
+            scratchFile.truncate(start);
+            throw e;
+        }
+    }
+
+    private synchronized void free(int slot) {
+        if (slot >= 0) {
+            freeSlots.add(slot);
+            numUsedSlots--;
+        }
+    }
+
+    /**
+     * Returns the number of scratch file slots that are currently in use.
+     */
+    synchronized int getNumUsedSlots() {
+        return numUsedSlots;
+    }
+
+    /**
+     * A reference-counted, immutable tile. A tile whose pixels all have
+     * the same color isn't stored at all, only its color is remembered.
+     */
+    static final class Tile {
+        private final TileStorage storage;
+        private final int slot;
+        private final IntBuffer data;
+        private final int uniformColor;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        private Tile(TileStorage storage, int slot, IntBuffer data, int uniformColor) {
+            this.storage = storage;
+            this.slot = slot;
+            this.data = data;
+            this.uniformColor = uniformColor;
+        }
+
+        static Tile createUniform(int color) {
+            return new Tile(null, -1, null, color);
+        }
+
+        boolean isUniform() {
+            return data == null;
+        }
+
+        int getUniformColor() {
+            return uniformColor;
+        }
+
+        /**
+         * Returns an independent view of the pixels, with the position at zero.
+         */
+        IntBuffer getData() {
+            return data.duplicate().clear();
+        }
+
+        void retain() {
+            int prevCount = refCount.getAndIncrement();
+            assert prevCount > 0 : "retaining a freed tile";
+        }
+
+        void release() {
+            int newCount = refCount.decrementAndGet();
+            assert newCount >= 0 : "released too many times";
+            if (newCount == 0 && storage != null) {
+                storage.free(slot);
+            }
+        }
+    }
+}
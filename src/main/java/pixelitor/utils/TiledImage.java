@@ -0,0 +1,288 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.utils.TileStorage.Tile;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.Cleaner;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static pixelitor.utils.TileStorage.TILE_PIXELS;
+import static pixelitor.utils.TileStorage.TILE_SIZE;
+
+/**
+ * An immutable copy of an image, stored in fixed-size tiles outside
+ * the Java heap. Tiles whose pixels all have the same color (such as
+ * the transparent areas of a layer) take no storage, and the tiles that
+ * didn't change since an earlier copy of the same image are shared
+ * with it instead of being stored again.
+ *
+ * The pixels are copied back into regular {@link BufferedImage}s or
+ * {@link WritableRaster}s when they are needed, so the filters and tools
+ * never see the tiles. The storage is freed by {@link #release()},
+ * or after the object becomes unreachable.
+ */
+public final class TiledImage {
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private final int width;
+    private final int height;
+    private final int numCols;
+    private final int numRows;
+    private final ColorModel colorModel;
+    private final TileReleaser releaser;
+    private final Cleaner.Cleanable cleanable;
+    private int numSharedTiles;
+
+    private TiledImage(int width, int height, ColorModel colorModel) {
+        this.width = width;
+        this.height = height;
+        this.colorModel = colorModel;
+        numCols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        numRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        // the releaser must not reference this object,
+        // otherwise it would never become unreachable
+        releaser = new TileReleaser(new Tile[numCols * numRows]);
+        cleanable = cleaner.register(this, releaser);
+    }
+
+    /**
+     * Returns true if the pixels of the given image can be stored in tiles,
+     * which is the case for the images with packed int pixels.
+     */
+    public static boolean canStore(BufferedImage img) {
+        WritableRaster raster = img.getRaster();
+        return raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+            && raster.getTransferType() == DataBuffer.TYPE_INT;
+    }
+
+    /**
+     * Copies the given image into tiles. If a base image with the same size and
+     * color model is given, then its tiles that contain the same pixels are shared.
+     */
+    public static TiledImage of(BufferedImage img, TiledImage base) {
+        if (!canStore(img)) {
+            throw new IllegalArgumentException("unsupported image type: " + img.getType());
+        }
+
+        TiledImage tiledImage = new TiledImage(img.getWidth(), img.getHeight(), img.getColorModel());
+        if (base != null && !tiledImage.isCompatible(base)) {
+            base = null;
+        }
+        tiledImage.copyTiles(img.getRaster(), base);
+        return tiledImage;
+    }
+
+    private boolean isCompatible(TiledImage other) {
+        return !other.isReleased()
+            && other.width == width
+            && other.height == height
+            && other.colorModel.equals(colorModel);
+    }
+
+    private void copyTiles(WritableRaster raster, TiledImage base) {
+        Tile[] tiles = releaser.tiles;
+        int[] pixels = new int[TILE_PIXELS];
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                Rectangle bounds = getTileBounds(col, row);
+                raster.getDataElements(bounds.x, bounds.y,
+                    bounds.width, bounds.height, pixels);
+
+                int index = row * numCols + col;
+                Tile baseTile = base != null ? base.releaser.tiles[index] : null;
+                tiles[index] = createTile(pixels, bounds.width * bounds.height, baseTile);
+            }
+        }
+    }
+
+    private Tile createTile(int[] pixels, int numPixels, Tile baseTile) {
+        int firstPixel = pixels[0];
+        boolean uniform = true;
+        for (int i = 1; i < numPixels; i++) {
+            if (pixels[i] != firstPixel) {
+                uniform = false;
+                break;
+            }
+        }
+        if (uniform) {
+            return Tile.createUniform(firstPixel);
+        }
+
+        if (baseTile != null && !baseTile.isUniform()
+            && baseTile.getData().limit(numPixels).equals(IntBuffer.wrap(pixels, 0, numPixels))) {
+            baseTile.retain();
+            numSharedTiles++;
+            return baseTile;
+        }
+
+        Tile tile = TileStorage.get().allocate();
+        tile.getData().put(pixels, 0, numPixels);
+        return tile;
+    }
+
+    private Rectangle getTileBounds(int col, int row) {
+        int x = col * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        return new Rectangle(x, y,
+            Math.min(TILE_SIZE, width - x),
+            Math.min(TILE_SIZE, height - y));
+    }
+
+    /**
+     * Returns a new heap image with the stored pixels.
+     */
+    public BufferedImage toBufferedImage() {
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(width, height);
+        copyTo(raster);
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Returns a new raster with the stored pixels of the given region.
+     * The coordinates of the raster are the same as those of the region.
+     */
+    public WritableRaster getData(Rectangle region) {
+        WritableRaster raster = colorModel
+            .createCompatibleWritableRaster(region.width, region.height)
+            .createWritableTranslatedChild(region.x, region.y);
+        copyTo(raster);
+        return raster;
+    }
+
+    /**
+     * Copies the stored pixels into the part of the given raster
+     * that overlaps with the image, using the raster's coordinates.
+     */
+    public void copyTo(WritableRaster dest) {
+        checkNotReleased();
+
+        Rectangle destBounds = dest.getBounds();
+        Tile[] tiles = releaser.tiles;
+        int[] pixels = new int[TILE_PIXELS];
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                Rectangle bounds = getTileBounds(col, row);
+                Rectangle overlap = bounds.intersection(destBounds);
+                if (overlap.isEmpty()) {
+                    continue;
+                }
+
+                Tile tile = tiles[row * numCols + col];
+                if (tile.isUniform()) {
+                    Arrays.fill(pixels, 0, overlap.width, tile.getUniformColor());
+                    for (int y = overlap.y; y < overlap.y + overlap.height; y++) {
+                        dest.setDataElements(overlap.x, y, overlap.width, 1, pixels);
+                    }
+                } else {
+                    IntBuffer data = tile.getData();
+                    for (int y = overlap.y; y < overlap.y + overlap.height; y++) {
+                        int offset = (y - bounds.y) * bounds.width + overlap.x - bounds.x;
+                        data.get(offset, pixels, 0, overlap.width);
+                        dest.setDataElements(overlap.x, y, overlap.width, 1, pixels);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumTiles() {
+        return numCols * numRows;
+    }
+
+    /**
+     * Returns the number of tiles that had to be stored,
+     * because they were neither uniform nor shared.
+     */
+    public int getNumStoredTiles() {
+        int count = 0;
+        for (Tile tile : releaser.tiles) {
+            if (!tile.isUniform()) {
+                count++;
+            }
+        }
+        return count - numSharedTiles;
+    }
+
+    /**
+     * Returns the number of tiles shared with the base image.
+     */
+    public int getNumSharedTiles() {
+        return numSharedTiles;
+    }
+
+    /**
+     * Frees the storage of the tiles that aren't shared with other images.
+     * This object can't be used after this call.
+     */
+    public void release() {
+        cleanable.clean();
+    }
+
+    public boolean isReleased() {
+        return releaser.released;
+    }
+
+    private void checkNotReleased() {
+        if (releaser.released) {
+            throw new IllegalStateException("released");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TiledImage{width=%d, height=%d, tiles=%d, stored=%d, shared=%d}".formatted(
+            width, height, getNumTiles(), getNumStoredTiles(), numSharedTiles);
+    }
+
+    // called only once, either explicitly or by the cleaner
+    private static class TileReleaser implements Runnable {
+        private final Tile[] tiles;
+        private volatile boolean released;
+
+        TileReleaser(Tile[] tiles) {
+            this.tiles = tiles;
+        }
+
+        @Override
+        public void run() {
+            released = true;
+            for (Tile tile : tiles) {
+                if (tile != null) {
+                    tile.release();
+                }
+            }
+        }
+    }
+}
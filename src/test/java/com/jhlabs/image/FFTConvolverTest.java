@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pixelitor.utils.ProgressTracker;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FFTConvolver tests")
+class FFTConvolverTest {
+    // a disk with the given radius
+    private record DiskKernel(int radius) implements FFTConvolver.Kernel {
+        @Override
+        public int getRadius() {
+            return radius;
+        }
+
+        @Override
+        public float weightAt(int dx, int dy) {
+            return dx * dx + dy * dy < radius * radius ? 1 : 0;
+        }
+    }
+
+    // an asymmetric kernel, which would reveal flipped coordinates
+    private record RampKernel(int radius) implements FFTConvolver.Kernel {
+        @Override
+        public int getRadius() {
+            return radius;
+        }
+
+        @Override
+        public float weightAt(int dx, int dy) {
+            return dx + radius + 2 * (dy + radius) + 1;
+        }
+    }
+
+    static List<Arguments> cases() {
+        return List.of(
+            // a single tile
+            Arguments.of(40, 30, new DiskKernel(5), 1.0f),
+            // several tiles in both directions
+            Arguments.of(300, 200, new DiskKernel(10), 1.0f),
+            Arguments.of(170, 140, new RampKernel(3), 1.0f),
+            // blooming
+            Arguments.of(60, 50, new DiskKernel(4), 2.0f),
+            // a radius too big for the largest regular tile size
+            Arguments.of(12, 9, new DiskKernel(520), 1.0f)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    @DisplayName("the FFT result matches the direct convolution")
+    void matchesDirectConvolution(int width, int height, FFTConvolver.Kernel kernel, float bloom) {
+        int[] pixels = createTestPixels(width, height);
+        float bloomThreshold = 200;
+
+        int[] expected = convolveDirectly(pixels, width, height, kernel, bloom, bloomThreshold);
+        int[] actual = FFTConvolver.convolve(pixels, width, height, kernel,
+            bloom, bloomThreshold, ProgressTracker.NULL_TRACKER);
+
+        int maxError = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int error = Math.abs(((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF));
+                maxError = Math.max(maxError, error);
+            }
+        }
+        assertThat(maxError).isLessThanOrEqualTo(1);
+    }
+
+    /**
+     * A straightforward spatial convolution with the same edge
+     * handling (duplicated edge pixels) and blooming.
+     */
+    private static int[] convolveDirectly(int[] pixels, int width, int height,
+                                          FFTConvolver.Kernel kernel,
+                                          float bloom, float bloomThreshold) {
+        int radius = kernel.getRadius();
+        float total = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                total += kernel.weightAt(dx, dy);
+            }
+        }
+
+        int[] result = new int[pixels.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] sums = new double[4];
+                for (int dy = -radius; dy <= radius; dy++) {
+                    int srcY = Math.clamp(y - dy, 0, height - 1);
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        float weight = kernel.weightAt(dx, dy);
+                        if (weight == 0) {
+                            continue;
+                        }
+                        int srcX = Math.clamp(x - dx, 0, width - 1);
+                        int argb = pixels[srcY * width + srcX];
+                        for (int c = 0; c < 4; c++) {
+                            float value = (argb >>> (24 - 8 * c)) & 0xFF;
+                            if (c > 0 && value > bloomThreshold) {
+                                value *= bloom;
+                            }
+                            sums[c] += weight * value;
+                        }
+                    }
+                }
+                int argb = 0;
+                for (int c = 0; c < 4; c++) {
+                    int value = Math.clamp((int) (sums[c] / total + 0.5), 0, 255);
+                    argb |= value << (24 - 8 * c);
+                }
+                result[y * width + x] = argb;
+            }
+        }
+        return result;
+    }
+
+    private static int[] createTestPixels(int width, int height) {
+        Random random = new Random(width * 31L + height);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
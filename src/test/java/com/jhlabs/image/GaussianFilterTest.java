@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.Kernel;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("GaussianFilter tests")
+class GaussianFilterTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+
+    @ParameterizedTest
+    @ValueSource(floats = {GaussianFilter.MIN_APPROXIMATION_RADIUS, 30, 101})
+    void boxRadiiMatchVariance(float radius) {
+        int[] boxRadii = GaussianFilter.boxRadiiFor(radius, 3);
+
+        double variance = 0;
+        for (int r : boxRadii) {
+            int boxWidth = 2 * r + 1;
+            variance += (boxWidth * boxWidth - 1) / 12.0;
+        }
+        double sigma = radius / 3.0;
+        assertThat(Math.sqrt(variance)).isCloseTo(sigma, within(0.05 * sigma));
+    }
+
+    @ParameterizedTest
+    @ValueSource(floats = {GaussianFilter.MIN_APPROXIMATION_RADIUS, 30, 101})
+    void approximationIsCloseToExactKernel(float radius) {
+        int[] src = createTestPixels();
+
+        int[] exact = src.clone();
+        int[] tmp = new int[src.length];
+        Kernel kernel = GaussianFilter.makeKernel(radius);
+        var pt = ProgressTracker.NULL_TRACKER;
+        int edges = ConvolveFilter.CLAMP_EDGES;
+        GaussianFilter.convolveAndTranspose(kernel, exact, tmp, WIDTH, HEIGHT, true, false, edges, pt);
+        GaussianFilter.convolveAndTranspose(kernel, tmp, exact, HEIGHT, WIDTH, false, true, edges, pt);
+
+        int[] approx = src.clone();
+        int[] boxRadii = GaussianFilter.boxRadiiFor(radius, 3);
+        GaussianFilter.boxBlurAndTranspose(boxRadii, approx, tmp, WIDTH, HEIGHT, true, false, pt);
+        GaussianFilter.boxBlurAndTranspose(boxRadii, tmp, approx, HEIGHT, WIDTH, false, true, pt);
+
+        int maxError = 0;
+        long errorSum = 0;
+        for (int i = 0; i < src.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int error = Math.abs(((exact[i] >> shift) & 0xFF) - ((approx[i] >> shift) & 0xFF));
+                maxError = Math.max(maxError, error);
+                errorSum += error;
+            }
+        }
+        double meanError = errorSum / (4.0 * src.length);
+
+        assertThat(maxError).isLessThanOrEqualTo(8);
+        assertThat(meanError).isLessThan(1.5);
+    }
+
+    // a checkerboard with noise and partially transparent areas
+    private static int[] createTestPixels() {
+        Random rand = new Random(42);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int base = ((x / 37 + y / 23) % 2 == 0) ? 230 : 20;
+                int r = Math.clamp(base + rand.nextInt(41) - 20, 0, 255);
+                int g = 255 - r;
+                int b = rand.nextInt(256);
+                int a = x < WIDTH / 2 ? 255 : 100 + rand.nextInt(50);
+                pixels[y * WIDTH + x] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.painter.effects;
+
+import org.jdesktop.swingx.painter.effects.NeonBorderEffect.BorderPosition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks that the distance field rendering of the area
+ * effects looks like the original stroke-based rendering.
+ */
+@DisplayName("area effect rendering tests")
+class AreaEffectRenderingTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 240;
+
+    static Stream<Arguments> effectsAndShapes() {
+        List<Supplier<AbstractAreaEffect>> effects = List.of(
+            GlowPathEffect::new,
+            ShadowPathEffect::new,
+            InnerGlowPathEffect::new,
+            () -> neon(BorderPosition.Outside),
+            () -> neon(BorderPosition.Centered),
+            () -> neon(BorderPosition.Inside)
+        );
+        List<Shape> shapes = List.of(
+            new Ellipse2D.Double(60, 50, 180, 140),
+            createStar()
+        );
+
+        List<Arguments> arguments = new ArrayList<>();
+        for (Supplier<AbstractAreaEffect> effect : effects) {
+            for (Shape shape : shapes) {
+                for (double effectWidth : new double[]{5, 20}) {
+                    arguments.add(Arguments.of(effect, shape, effectWidth));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("effectsAndShapes")
+    void distanceFieldMatchesStrokes(Supplier<AbstractAreaEffect> effectSupplier,
+                                     Shape shape, double effectWidth) {
+        AbstractAreaEffect effect = effectSupplier.get();
+        effect.setEffectWidth(effectWidth);
+        effect.setAutoBrushSteps();
+
+        effect.setDistanceFieldRendering(false);
+        int[] expected = render(effect, shape);
+        effect.setDistanceFieldRendering(true);
+        int[] actual = render(effect, shape);
+
+        // The strokes are normalized by Java2D, which shifts them by up to
+        // half a pixel, therefore single pixels can differ a lot at sharp
+        // color transitions, but the overall difference must be small.
+        long diffSum = 0;
+        double expectedAlphaSum = 0;
+        double actualAlphaSum = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                diffSum += Math.abs(((expected[i] >>> shift) & 0xFF) - ((actual[i] >>> shift) & 0xFF));
+            }
+            expectedAlphaSum += expected[i] >>> 24;
+            actualAlphaSum += actual[i] >>> 24;
+        }
+        double meanDiff = diffSum / (4.0 * expected.length);
+
+        assertThat(meanDiff).isLessThan(2.0);
+        assertThat(actualAlphaSum / expectedAlphaSum).isCloseTo(1.0, within(0.08));
+    }
+
+    @ParameterizedTest
+    @MethodSource("effectsAndShapes")
+    void clippedRenderingMatchesFull(Supplier<AbstractAreaEffect> effectSupplier,
+                                     Shape shape, double effectWidth) {
+        AbstractAreaEffect effect = effectSupplier.get();
+        effect.setEffectWidth(effectWidth);
+        effect.setAutoBrushSteps();
+
+        int[] full = render(effect, shape, null);
+        Rectangle clip = new Rectangle(100, 70, 90, 60);
+        int[] clipped = render(effect, shape, clip);
+
+        for (int y = clip.y; y < clip.y + clip.height; y++) {
+            for (int x = clip.x; x < clip.x + clip.width; x++) {
+                int i = y * WIDTH + x;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    assertThat((clipped[i] >>> shift) & 0xFF)
+                        .isCloseTo((full[i] >>> shift) & 0xFF, within(1));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("effectsAndShapes")
+    void largeShapesAreLimitedToTheCanvas(Supplier<AbstractAreaEffect> effectSupplier,
+                                          Shape ignored, double effectWidth) {
+        AbstractAreaEffect effect = effectSupplier.get();
+        effect.setEffectWidth(effectWidth);
+        effect.setAutoBrushSteps();
+
+        // the distance field of the whole shape would need gigabytes
+        Shape hugeShape = new Ellipse2D.Double(-20_000, -10_000, 20_150, 20_000);
+        int[] pixels = render(effect, hugeShape, new Rectangle(0, 0, WIDTH, HEIGHT));
+
+        boolean painted = false;
+        for (int pixel : pixels) {
+            if (pixel != 0) {
+                painted = true;
+                break;
+            }
+        }
+        assertThat(painted).isTrue();
+    }
+
+    private static NeonBorderEffect neon(BorderPosition position) {
+        var effect = new NeonBorderEffect(Color.GREEN, new Color(255, 255, 255, 160), 10, 1.0f);
+        effect.setBorderPosition(position);
+        return effect;
+    }
+
+    private static Shape createStar() {
+        Polygon star = new Polygon();
+        for (int i = 0; i < 10; i++) {
+            double angle = i * Math.PI / 5;
+            double r = i % 2 == 0 ? 100 : 45;
+            star.addPoint((int) (150 + r * Math.sin(angle)), (int) (120 - r * Math.cos(angle)));
+        }
+        return star;
+    }
+
+    // returns the premultiplied pixels
+    private static int[] render(AreaEffect effect, Shape shape) {
+        return render(effect, shape, null);
+    }
+
+    private static int[] render(AreaEffect effect, Shape shape, Rectangle clip) {
+        var img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = img.createGraphics();
+        if (clip != null) {
+            g.setClip(clip);
+        }
+        effect.apply(g, shape, 0, 0);
+        g.dispose();
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -18,9 +18,13 @@
 package pixelitor;
 
 import org.junit.jupiter.api.*;
+import pixelitor.io.FileFormat;
 import pixelitor.io.FileIO;
 import pixelitor.io.OpenRaster;
 import pixelitor.io.PXCFormat;
+import pixelitor.io.PngEncoder;
+import pixelitor.io.PngEncoder.FilterStrategy;
+import pixelitor.io.PngSettings;
 import pixelitor.layers.*;
 
 import java.io.File;
@@ -131,6 +135,10 @@ class CompositionIOTest {
                 PXCFormat.write(comp, tmpFile);
                 checkMultiLayerRead(tmpFile, secondLayerValidator);
 
+                // the same with customized PNG settings for the embedded images
+                PXCFormat.write(comp, new PngSettings(tmpFile, FileFormat.PXC, 0, FilterStrategy.NONE));
+                checkMultiLayerRead(tmpFile, secondLayerValidator);
+
                 cleanupTempFile(tmpFile);
             } catch (Exception e) {
                 throw new IllegalStateException("Error while testing " + fileName, e);
@@ -213,6 +221,51 @@ class CompositionIOTest {
         OpenRaster.write(comp, tmpFile);
         checkMultiLayerRead(tmpFile, secondLayerValidator);
 
+        // the same with a customized PNG encoder
+        OpenRaster.write(comp, tmpFile, new PngEncoder(9, FilterStrategy.PAETH));
+        checkMultiLayerRead(tmpFile, secondLayerValidator);
+
+        cleanupTempFile(tmpFile);
+    }
+
+    @Test
+    @DisplayName("ORA round-trip with several encoding batches")
+    void oraRoundTripInBatches() throws IOException {
+        // 5 image layers and a smart object, encoded in batches of 2
+        var comp = TestHelper.createComp("ORA round-trip", 5, false);
+        for (int i = 0; i < comp.getNumLayers(); i++) {
+            var image = ((ImageLayer) comp.getLayer(i)).getImage();
+            image.setRGB(i, i, 0xFF_00_00_00 | (i + 1) * 0x10_20_30);
+        }
+        var smartObject = TestHelper.createLayer(SmartObject.class, comp);
+        comp.addLayerWithoutUI(smartObject);
+        int numLayers = comp.getNumLayers();
+
+        File tmpFile = File.createTempFile("pix_tmp", ".ora");
+        OpenRaster.setMaxLayersInFlight(2);
+        try {
+            OpenRaster.write(comp, tmpFile);
+        } finally {
+            OpenRaster.setMaxLayersInFlight(Math.max(2, ThreadPool.getNumCores()));
+        }
+
+        var readComp = FileIO.loadCompAsync(tmpFile).join();
+        assertThat(readComp)
+            .numLayersIs(numLayers)
+            .invariantsAreOK();
+        for (int i = 0; i < numLayers; i++) {
+            Layer layer = comp.getLayer(i);
+            Layer readLayer = readComp.getLayer(i);
+            assertThat(readLayer)
+                .isInstanceOf(ImageLayer.class)
+                .nameIs(layer.getName());
+            if (i < 5) {
+                var image = ((ImageLayer) layer).getImage();
+                var readImage = ((ImageLayer) readLayer).getImage();
+                assertThat(readImage.getRGB(i, i)).isEqualTo(image.getRGB(i, i));
+            }
+        }
+
         cleanupTempFile(tmpFile);
     }
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ComplexFractalImpl tests")
+class ComplexFractalImplTest {
+    private static final int MAX_ITERATIONS = 300;
+
+    @ParameterizedTest(name = "pixelIsConstant = {0}")
+    @ValueSource(booleans = {true, false})
+    @DisplayName("the lockstep rows match the one-by-one iteration")
+    void lockstepMatchesOneByOne(boolean pixelIsConstant) {
+        ComplexFractalImpl fractal = new ComplexFractalImpl("Test", pixelIsConstant,
+            -2.0, 2.0, -1.2, 1.2) {
+        };
+        fractal.setProgressTracker(ProgressTracker.NULL_TRACKER);
+        fractal.fixedCx = -0.8;
+        fractal.fixedCy = 0.156;
+        fractal.setMaxIterations(MAX_ITERATIONS);
+        int[] colors = new int[MAX_ITERATIONS + 1];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF_00_00_00 | i;
+        }
+        fractal.setColors(colors);
+
+        // an odd width, so that the last group of four is padded
+        int width = 83;
+        int height = 50;
+        BufferedImage src = new BufferedImage(width, height, TYPE_INT_ARGB);
+        BufferedImage dst = fractal.filter(src, null);
+
+        int[] pixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertThat(pixels[y * width + x])
+                    .as("pixel (%d, %d)", x, y)
+                    .isEqualTo(fractal.processPixel(x, y, 0));
+            }
+        }
+    }
+}
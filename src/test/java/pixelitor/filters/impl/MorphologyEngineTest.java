@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("MorphologyEngine tests")
+class MorphologyEngineTest {
+    static List<Arguments> cases() {
+        int[][] sizes = {{37, 23}, {16, 40}, {1, 15}, {15, 1}, {3, 3}};
+        List<Arguments> cases = new ArrayList<>();
+        for (int[] size : sizes) {
+            for (int radius = 1; radius <= 9; radius++) {
+                for (boolean square : new boolean[]{true, false}) {
+                    for (boolean dilate : new boolean[]{true, false}) {
+                        cases.add(Arguments.of(size[0], size[1], radius, square, dilate));
+                    }
+                }
+            }
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "{0}x{1}, radius = {2}, square = {3}, dilate = {4}")
+    @MethodSource("cases")
+    @DisplayName("the result matches iterating the 3x3 kernel")
+    void matchesIterated3x3Kernel(int width, int height, int radius,
+                                  boolean square, boolean dilate) {
+        float[] plane = createRandomPlane(width, height);
+
+        float[] expected = plane.clone();
+        for (int i = 0; i < radius; i++) {
+            expected = apply3x3(expected, width, height, square, dilate);
+        }
+
+        MorphologyEngine.apply(plane, width, height, radius, square, dilate);
+
+        assertThat(plane).containsExactly(expected);
+    }
+
+    /**
+     * The original per-pixel implementation: the maximum (or minimum)
+     * of the 3x3 square or cross, ignoring the pixels outside the image.
+     */
+    private static float[] apply3x3(float[] src, int width, int height,
+                                    boolean square, boolean dilate) {
+        float[] dst = new float[src.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float result = src[y * width + x];
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (!square && dx != 0 && dy != 0) {
+                            continue; // a corner of the diamond
+                        }
+                        int nx = x + dx;
+                        int ny = y + dy;
+                        if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                            continue;
+                        }
+                        float value = src[ny * width + nx];
+                        result = dilate ? Math.max(result, value) : Math.min(result, value);
+                    }
+                }
+                dst[y * width + x] = result;
+            }
+        }
+        return dst;
+    }
+
+    private static float[] createRandomPlane(int width, int height) {
+        Random random = new Random(width * 100L + height);
+        float[] plane = new float[width * height];
+        for (int i = 0; i < plane.length; i++) {
+            plane[i] = random.nextInt(256);
+        }
+        return plane;
+    }
+}
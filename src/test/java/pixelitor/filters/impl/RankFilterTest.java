@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import pixelitor.utils.ProgressTracker;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RankFilter tests")
+class RankFilterTest {
+    @ParameterizedTest(name = "{0}x{1}, radius = {2}, percentile = {3}")
+    @CsvSource({
+        // the median with small and large windows
+        "40, 30, 1, 0.5",
+        "40, 30, 5, 0.5",
+        "73, 90, 12, 0.5",
+        // minimum, maximum and other percentiles
+        "50, 45, 3, 0.0",
+        "50, 45, 3, 1.0",
+        "50, 45, 4, 0.3",
+        // the window is larger than the image
+        "7, 5, 6, 0.5",
+        "1, 20, 3, 0.5",
+        "20, 1, 3, 0.8",
+    })
+    @DisplayName("the result matches sorting the window of each pixel")
+    void matchesPerPixelSorting(int width, int height, int radius, double percentile) {
+        int[] pixels = createRandomPixels(width, height);
+
+        var filter = new RankFilter("Median");
+        filter.setProgressTracker(ProgressTracker.NULL_TRACKER);
+        filter.setRadius(radius);
+        filter.setPercentile(percentile);
+        int[] actual = filter.filterPixels(width, height, pixels);
+
+        int[] expected = rankFilterPerPixel(pixels, width, height, radius, percentile);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    /**
+     * Sorts the values of each channel within the window of each pixel, where
+     * the window is clipped to the image, and picks the value with the given rank.
+     */
+    private static int[] rankFilterPerPixel(int[] pixels, int width, int height,
+                                            int radius, double percentile) {
+        int[] result = new int[pixels.length];
+        for (int y = 0; y < height; y++) {
+            int minY = Math.max(0, y - radius);
+            int maxY = Math.min(height - 1, y + radius);
+            for (int x = 0; x < width; x++) {
+                int minX = Math.max(0, x - radius);
+                int maxX = Math.min(width - 1, x + radius);
+                int numValues = (maxY - minY + 1) * (maxX - minX + 1);
+                int target = (int) Math.round(percentile * (numValues - 1));
+
+                int[] values = new int[numValues];
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int i = 0;
+                    for (int wy = minY; wy <= maxY; wy++) {
+                        for (int wx = minX; wx <= maxX; wx++) {
+                            values[i++] = (pixels[wy * width + wx] >>> shift) & 0xFF;
+                        }
+                    }
+                    Arrays.sort(values);
+                    result[y * width + x] |= values[target] << shift;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int[] createRandomPixels(int width, int height) {
+        Random random = new Random(width * 1000L + height);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
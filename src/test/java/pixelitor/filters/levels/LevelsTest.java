@@ -193,6 +193,26 @@ class LevelsTest {
         Assertions.assertTrue(resultRed < 128, "Gray should become darker");
     }
 
+    @Test
+    @DisplayName("fused lookup is the same as applying them one after the other")
+    void fusedLookup() {
+        rgbPage.getInputDark().setValue(100);
+        RGBLookup first = model.getRGBLookup();
+        rPage.getOutputLight().setValue(150);
+        RGBLookup second = model.getRGBLookup();
+
+        RGBLookup fused = first.then(second);
+        for (int i = 0; i < 256; i++) {
+            checkRGBMapping(fused, i,
+                second.mapRed(first.mapRed(i)),
+                second.mapGreen(first.mapGreen(i)),
+                second.mapBlue(first.mapBlue(i)));
+        }
+
+        model.setColorSpace(ColorSpace.OKLAB, true);
+        Assertions.assertNull(model.getRGBLookup());
+    }
+
     private RGBLookup getCalculatedSrgbLookup() {
         // Verify that the model notified the GUI to update the preview.
         // This is triggered by the setValue() calls in the test methods.
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DensityHistogram tests")
+class DensityHistogramTest {
+    @Test
+    @DisplayName("the color sums don't overflow with many hits on one pixel")
+    void manyHitsOnOnePixel() {
+        var histogram = new DensityHistogram(1, 1, true);
+        for (int i = 0; i < 10_000_000; i++) {
+            histogram.hit(0, 0xFF_FF_80_00);
+        }
+
+        int[] pixels = new int[1];
+        histogram.render(pixels, 0x00_00_00);
+
+        // the only pixel has the maximum density, so it gets the average color
+        assertThat(pixels[0]).isEqualTo(0xFF_FF_80_00);
+    }
+}
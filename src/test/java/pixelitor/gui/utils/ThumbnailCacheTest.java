@@ -0,0 +1,143 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.gui.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ThumbnailCache tests")
+class ThumbnailCacheTest {
+    @TempDir
+    File tempDir;
+
+    private File cacheDir;
+    private File imageFile;
+    private final AtomicInteger numLoads = new AtomicInteger();
+
+    @BeforeEach
+    void beforeEachTest() throws IOException {
+        cacheDir = new File(tempDir, "cache");
+        imageFile = new File(tempDir, "image.png");
+        Files.write(imageFile.toPath(), new byte[]{1, 2, 3});
+    }
+
+    private ThumbnailCache createCache() {
+        return new ThumbnailCache(cacheDir, (file, maxWidth, maxHeight, pt) -> {
+            numLoads.incrementAndGet();
+            var thumb = new BufferedImage(maxWidth, maxHeight, TYPE_INT_ARGB);
+            thumb.setRGB(0, 0, 0xFF_12_34_56);
+            return ThumbInfo.success(thumb, 1000, 800);
+        });
+    }
+
+    @Test
+    @DisplayName("the thumbnails are reused from memory")
+    void memoryHit() {
+        ThumbnailCache cache = createCache();
+
+        ThumbInfo first = cache.get(imageFile, 20, 10, null);
+        ThumbInfo second = cache.get(imageFile, 20, 10, null);
+
+        assertThat(second).isSameAs(first);
+        assertThat(numLoads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("the thumbnails survive restarts")
+    void diskHit() {
+        createCache().get(imageFile, 20, 10, null);
+
+        // simulates a new session with an empty memory cache
+        ThumbInfo thumbInfo = createCache().get(imageFile, 20, 10, null);
+
+        assertThat(numLoads).hasValue(1);
+        assertThat(thumbInfo.isSuccess()).isTrue();
+        assertThat(thumbInfo.getThumb().getWidth()).isEqualTo(20);
+        assertThat(thumbInfo.getThumb().getRGB(0, 0)).isEqualTo(0xFF_12_34_56);
+        assertThat(thumbInfo.getFullWidth()).isEqualTo(1000);
+        assertThat(thumbInfo.getFullHeight()).isEqualTo(800);
+    }
+
+    @Test
+    @DisplayName("different sizes are cached separately")
+    void differentSizes() {
+        ThumbnailCache cache = createCache();
+
+        cache.get(imageFile, 20, 10, null);
+        ThumbInfo thumbInfo = cache.get(imageFile, 30, 15, null);
+
+        assertThat(numLoads).hasValue(2);
+        assertThat(thumbInfo.getThumb().getWidth()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("changed files get new thumbnails")
+    void changedFile() throws IOException {
+        createCache().get(imageFile, 20, 10, null);
+
+        Files.write(imageFile.toPath(), new byte[]{1, 2, 3, 4});
+        ThumbnailCache cache = createCache();
+        cache.get(imageFile, 20, 10, null);
+        assertThat(numLoads).hasValue(2);
+
+        // the new thumbnail replaced the old one
+        cache.get(imageFile, 20, 10, null);
+        createCache().get(imageFile, 20, 10, null);
+        assertThat(numLoads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("removed thumbnails are recreated")
+    void remove() {
+        ThumbnailCache cache = new ThumbnailCache(null, (file, maxWidth, maxHeight, pt) -> {
+            numLoads.incrementAndGet();
+            return ThumbInfo.success(new BufferedImage(maxWidth, maxHeight, TYPE_INT_ARGB));
+        });
+
+        cache.get(imageFile, 20, 10, null);
+        cache.remove(imageFile);
+        cache.get(imageFile, 20, 10, null);
+
+        assertThat(numLoads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("failures are not cached")
+    void failuresNotCached() {
+        ThumbnailCache cache = new ThumbnailCache(cacheDir, (file, maxWidth, maxHeight, pt) -> {
+            numLoads.incrementAndGet();
+            return ThumbInfo.failure(ThumbInfo.PREVIEW_ERROR);
+        });
+
+        assertThat(cache.get(imageFile, 20, 10, null).isSuccess()).isFalse();
+        assertThat(cache.get(imageFile, 20, 10, null).isSuccess()).isFalse();
+
+        assertThat(numLoads).hasValue(2);
+        assertThat(cacheDir.list()).isEmpty();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.AppMode;
+import pixelitor.Composition;
+import pixelitor.layers.Drawable;
+import pixelitor.utils.TiledImage;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ImageEdit tests")
+class ImageEditTest {
+    // large enough for a tiled backup
+    private static final int WIDTH = 2000;
+    private static final int HEIGHT = 1100;
+
+    @BeforeAll
+    static void beforeAllTests() {
+        AppMode.setUnitTestingMode();
+    }
+
+    @Test
+    @DisplayName("undo/redo/undo with a tiled backup")
+    void tiledUndoRedo() {
+        BufferedImage before = createNoiseImage(1);
+        BufferedImage after = createNoiseImage(2);
+        // only the top left tile is the same
+        copyTopLeftTile(before, after);
+        int[] beforePixels = getPixels(before);
+        int[] afterPixels = getPixels(after);
+
+        Drawable layer = createLayer(after);
+        var edit = createEdit(layer, before);
+        waitForTiling();
+        List<TiledImage> tiledBackups = new ArrayList<>();
+        tiledBackups.add(edit.getTiledBackup());
+        assertThat(tiledBackups.getFirst()).isNotNull();
+
+        edit.undo();
+        assertThat(getPixels(layer.getImage())).isEqualTo(beforePixels);
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(afterPixels);
+        waitForTiling();
+        tiledBackups.add(edit.getTiledBackup());
+
+        edit.redo();
+        assertThat(getPixels(layer.getImage())).isEqualTo(afterPixels);
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(beforePixels);
+        waitForTiling();
+        tiledBackups.add(edit.getTiledBackup());
+
+        edit.undo();
+        assertThat(getPixels(layer.getImage())).isEqualTo(beforePixels);
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(afterPixels);
+        waitForTiling();
+        TiledImage lastBackup = edit.getTiledBackup();
+
+        // the replaced backups are released by the swaps
+        for (TiledImage tiledBackup : tiledBackups) {
+            assertThat(tiledBackup).isNotSameAs(lastBackup);
+            assertThat(tiledBackup.isReleased()).isTrue();
+        }
+        assertThat(lastBackup.getNumSharedTiles()).isEqualTo(1);
+
+        edit.die();
+        waitForTiling();
+        assertThat(lastBackup.isReleased()).isTrue();
+        assertThat(edit.getTiledBackup()).isNull();
+        assertThat(edit.getBackupImage()).isNull();
+    }
+
+    @Test
+    @DisplayName("undo/redo while the backup is being tiled")
+    void undoRedoBeforeTiling() {
+        BufferedImage before = createNoiseImage(3);
+        BufferedImage after = createNoiseImage(4);
+        int[] beforePixels = getPixels(before);
+        int[] afterPixels = getPixels(after);
+
+        // keep the tiling thread busy until the swaps are done
+        var tilingBlocked = new CountDownLatch(1);
+        ImageEdit.runOnTilingThread(() -> {
+            try {
+                tilingBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Drawable layer = createLayer(after);
+        var edit = createEdit(layer, before);
+        assertThat(edit.getTiledBackup()).isNull();
+        assertThat(edit.getBackupImage()).isSameAs(before);
+
+        // the pending heap backups are swapped directly
+        edit.undo();
+        assertThat(layer.getImage()).isSameAs(before);
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(afterPixels);
+
+        edit.redo();
+        assertThat(layer.getImage()).isSameAs(after);
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(beforePixels);
+
+        // only the last backup is kept after the tiling is done
+        tilingBlocked.countDown();
+        waitForTiling();
+        TiledImage tiledBackup = edit.getTiledBackup();
+        assertThat(tiledBackup).isNotNull();
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(beforePixels);
+
+        edit.undo();
+        assertThat(getPixels(layer.getImage())).isEqualTo(beforePixels);
+        waitForTiling();
+        assertThat(tiledBackup.isReleased()).isTrue();
+        assertThat(getPixels(edit.getBackupImage())).isEqualTo(afterPixels);
+
+        edit.die();
+        waitForTiling();
+        assertThat(edit.getBackupImage()).isNull();
+    }
+
+    private static Drawable createLayer(BufferedImage image) {
+        BufferedImage[] layerImage = {image};
+        Drawable layer = mock(Drawable.class);
+        when(layer.getImage()).thenAnswer(invocation -> layerImage[0]);
+        doAnswer(invocation -> layerImage[0] = invocation.getArgument(0))
+            .when(layer).changeImageForUndoRedo(any(BufferedImage.class), anyBoolean());
+        return layer;
+    }
+
+    private static ImageEdit createEdit(Drawable layer, BufferedImage backup) {
+        Composition comp = mock(Composition.class);
+        when(comp.checkInvariants()).thenReturn(true);
+
+        var edit = new ImageEdit("Test", comp, layer, backup, true);
+        edit.setEmbedded(true);
+        return edit;
+    }
+
+    // waits until the tiling work requested so far is done
+    private static void waitForTiling() {
+        ImageEdit.runOnTilingThread(() -> {
+        }).join();
+    }
+
+    private static BufferedImage createNoiseImage(long seed) {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        int[] pixels = getPixels(img);
+        Random random = new Random(seed);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        img.getRaster().setDataElements(0, 0, WIDTH, HEIGHT, pixels);
+        return img;
+    }
+
+    private static void copyTopLeftTile(BufferedImage src, BufferedImage dest) {
+        int[] tile = (int[]) src.getRaster().getDataElements(0, 0, 256, 256, null);
+        dest.getRaster().setDataElements(0, 0, 256, 256, tile);
+    }
+
+    private static int[] getPixels(BufferedImage img) {
+        return (int[]) img.getRaster().getDataElements(0, 0,
+            img.getWidth(), img.getHeight(), null);
+    }
+}
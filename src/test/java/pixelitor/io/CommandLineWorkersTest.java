@@ -0,0 +1,148 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import pixelitor.utils.Result;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// "cat" is used as a fake worker that returns its input images unchanged
+@DisplayName("CommandLineWorkers tests")
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class CommandLineWorkersTest {
+    private static final List<String> IDENTITY = List.of("cat");
+
+    @AfterEach
+    void afterEach() {
+        CommandLineWorkers.stopIdleWorkers();
+    }
+
+    @Test
+    @DisplayName("the protocol check")
+    void probe() {
+        assertThat(CommandLineWorkers.isSupported(IDENTITY, "", PipeFormat.CIMG)).isTrue();
+
+        // a program that exits without an answer
+        assertThat(CommandLineWorkers.isSupported(List.of("true"), "", PipeFormat.CIMG)).isFalse();
+    }
+
+    @Test
+    @DisplayName("the workers are reused")
+    void reuse() {
+        BufferedImage src = createRandomImage(20, 10);
+
+        for (int i = 0; i < 3; i++) {
+            Result<BufferedImage, String> result = CommandLineWorkers.run(
+                src, IDENTITY, "", PipeFormat.PAM, CommandLineWorkers.NOT_TILEABLE, 1);
+
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(getPixels(result.get())).isEqualTo(getPixels(src));
+            assertThat(CommandLineWorkers.getNumIdleWorkers()).isOne();
+        }
+    }
+
+    @Test
+    @DisplayName("processing in tiles")
+    void tiles() {
+        BufferedImage src = createRandomImage(30, 101);
+
+        Result<BufferedImage, String> result = CommandLineWorkers.run(
+            src, IDENTITY, "", PipeFormat.CIMG, 5, 4);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(getPixels(result.get())).isEqualTo(getPixels(src));
+        assertThat(CommandLineWorkers.getNumIdleWorkers()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("a failing worker is reported as an error")
+    void failingWorker() {
+        Result<BufferedImage, String> result = CommandLineWorkers.run(
+            createRandomImage(5, 5), List.of("true"), "", PipeFormat.CIMG,
+            CommandLineWorkers.NOT_TILEABLE, 1);
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(CommandLineWorkers.getNumIdleWorkers()).isZero();
+    }
+
+    @Test
+    @DisplayName("the arguments are sent with each job")
+    void jobArguments() {
+        List<String> command = List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            FakeWorker.class.getName());
+        BufferedImage src = createRandomImage(20, 10);
+
+        for (String args : new String[]{"invert", "keep", "invert"}) {
+            Result<BufferedImage, String> result = CommandLineWorkers.run(
+                src, command, args, PipeFormat.CIMG, CommandLineWorkers.NOT_TILEABLE, 1);
+
+            assertThat(result.isSuccess()).isTrue();
+            int[] expected = getPixels(src);
+            if (args.equals("invert")) {
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] ^= 0x00_FF_FF_FF;
+                }
+            }
+            assertThat(getPixels(result.get())).isEqualTo(expected);
+
+            // the different arguments don't need a new process
+            assertThat(CommandLineWorkers.getNumIdleWorkers()).isOne();
+        }
+    }
+
+    @Test
+    @DisplayName("the protocol check doesn't block the EDT")
+    void probeOnEDT() throws Exception {
+        List<String> command = List.of("cat", "-");
+
+        boolean[] supportedOnEDT = new boolean[1];
+        SwingUtilities.invokeAndWait(() ->
+            supportedOnEDT[0] = CommandLineWorkers.isSupported(command, "", PipeFormat.CIMG));
+        assertThat(supportedOnEDT[0]).isFalse();
+
+        // outside the EDT, the check is waited for
+        assertThat(CommandLineWorkers.isSupported(command, "", PipeFormat.CIMG)).isTrue();
+    }
+
+    private static BufferedImage createRandomImage(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        return img;
+    }
+
+    private static int[] getPixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A fake external worker for the tests: reads jobs consisting of
+ * an argument text image and a CImg image, and inverts the colors
+ * if the argument is "invert", until its input is closed.
+ */
+public class FakeWorker {
+    public static void main(String[] args) throws IOException {
+        InputStream in = new BufferedInputStream(System.in);
+        OutputStream out = new BufferedOutputStream(System.out);
+        while (true) {
+            BufferedImage argsImage = PipeFormat.CIMG.read(in);
+            if (argsImage == null) {
+                return;
+            }
+            BufferedImage img = PipeFormat.CIMG.read(in);
+            if (decodeText(argsImage).equals("invert")) {
+                for (int y = 0; y < img.getHeight(); y++) {
+                    for (int x = 0; x < img.getWidth(); x++) {
+                        img.setRGB(x, y, img.getRGB(x, y) ^ 0x00_FF_FF_FF);
+                    }
+                }
+            }
+            PipeFormat.CIMG.write(img, out);
+            out.flush();
+        }
+    }
+
+    // the bytes of the text are in the gray samples
+    private static String decodeText(BufferedImage textImage) {
+        byte[] bytes = new byte[textImage.getWidth()];
+        for (int x = 0; x < bytes.length; x++) {
+            bytes[x] = (byte) textImage.getRGB(x, 0);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pixelitor.io.IOTasks.Priority;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("IOScheduler tests")
+class IOSchedulerTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    @DisplayName("tasks on different files run in parallel")
+    void differentFilesInParallel() throws Exception {
+        var scheduler = new IOScheduler(4, 4);
+        var bothStarted = new CountDownLatch(2);
+
+        var first = scheduler.submit(new File(tempDir, "a.png"), Priority.NORMAL, "a",
+            () -> awaitLatch(bothStarted));
+        var second = scheduler.submit(new File(tempDir, "b.png"), Priority.NORMAL, "b",
+            () -> awaitLatch(bothStarted));
+
+        // each task waits for the other one, so they must run at the same time
+        assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("tasks on the same file run one after another, in order")
+    void sameFileSerialized() throws Exception {
+        var scheduler = new IOScheduler(4, 4);
+        File file = new File(tempDir, "a.png");
+        AtomicInteger numRunning = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<?>[] futures = new CompletableFuture[5];
+        for (int i = 0; i < futures.length; i++) {
+            int taskIndex = i;
+            futures[i] = scheduler.submit(file, Priority.NORMAL, "a", () -> {
+                maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+                sleep(20);
+                order.add(taskIndex);
+                numRunning.decrementAndGet();
+                return null;
+            });
+        }
+        CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+        assertThat(maxRunning).hasValue(1);
+        assertThat(order).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    @DisplayName("the prioritized file is processed first")
+    void prioritize() throws Exception {
+        var scheduler = new IOScheduler(1, 1);
+        var blocker = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        var blocking = scheduler.submit(new File(tempDir, "blocking.png"), Priority.NORMAL, "blocking", () -> {
+            try {
+                return blocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        File fileA = new File(tempDir, "a.png");
+        File fileB = new File(tempDir, "b.png");
+        var taskA = scheduler.submit(fileA, Priority.NORMAL, "a", () -> order.add("a"));
+        var taskB = scheduler.submit(fileB, Priority.NORMAL, "b", () -> order.add("b"));
+        assertThat(scheduler.getQueueDepth()).isEqualTo(2);
+
+        scheduler.prioritize(fileB);
+        blocker.countDown();
+        CompletableFuture.allOf(blocking, taskA, taskB).get(10, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly("b", "a");
+    }
+
+    @Test
+    @DisplayName("the number of tasks on the same device is limited")
+    void deviceLimit() throws Exception {
+        // all files are in the same directory, therefore on the same device
+        var scheduler = new IOScheduler(4, 1);
+        AtomicInteger numRunning = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        CompletableFuture<?>[] futures = new CompletableFuture[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = scheduler.submit(new File(tempDir, i + ".png"), Priority.NORMAL, "task", () -> {
+                maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+                sleep(20);
+                numRunning.decrementAndGet();
+                return null;
+            });
+        }
+        CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+        assertThat(maxRunning).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("errors and timings are reported")
+    void errorsAndTimings() throws Exception {
+        var scheduler = new IOScheduler(2, 2);
+
+        var failing = scheduler.submit(new File(tempDir, "a.png"), Priority.NORMAL, "failing", () -> {
+            throw new IllegalStateException("test");
+        });
+        var succeeding = scheduler.submit(null, Priority.NORMAL, "succeeding", () -> 42);
+
+        assertThat(succeeding.get(10, TimeUnit.SECONDS)).isEqualTo(42);
+        Throwable error = failing.handle((result, e) -> e).get(10, TimeUnit.SECONDS);
+        assertThat(error).isInstanceOf(IllegalStateException.class);
+
+        scheduler.waitForIdle();
+        assertThat(scheduler.getNumRunning()).isZero();
+        assertThat(scheduler.getQueueDepth()).isZero();
+        assertThat(scheduler.getRecentTimings())
+            .extracting(IOTasks.TaskTiming::name)
+            .containsExactlyInAnyOrder("failing", "succeeding");
+    }
+
+    // counts down the latch and waits until the other tasks also count it down
+    private static boolean awaitLatch(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("PipeFormat tests")
+class PipeFormatTest {
+    @ParameterizedTest
+    @EnumSource(PipeFormat.class)
+    @DisplayName("write and read back")
+    void roundTrip(PipeFormat format) throws IOException {
+        BufferedImage img = createRandomImage(7, 5);
+
+        BufferedImage read = roundTrip(format, img);
+
+        assertThat(read.getWidth()).isEqualTo(7);
+        assertThat(read.getHeight()).isEqualTo(5);
+        assertThat(getPixels(read)).isEqualTo(getPixels(img));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PipeFormat.class)
+    @DisplayName("write and read back a sub-image")
+    void roundTripSubImage(PipeFormat format) throws IOException {
+        BufferedImage subImage = createRandomImage(10, 10).getSubimage(2, 3, 5, 4);
+
+        BufferedImage read = roundTrip(format, subImage);
+
+        assertThat(getPixels(read)).isEqualTo(getPixels(subImage));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PipeFormat.class)
+    @DisplayName("empty output means failure")
+    void emptyInput(PipeFormat format) throws IOException {
+        BufferedImage read = format.read(new ByteArrayInputStream(new byte[0]));
+
+        assertThat(read).isNull();
+    }
+
+    @Test
+    @DisplayName("read float RGB CImg data")
+    void readFloatCImg() throws IOException {
+        byte[] header = "1 float little_endian\n2 1 1 3\n".getBytes(US_ASCII);
+        float[] samples = {
+            255.0f, -3.0f, // red plane
+            127.6f, 300.0f, // green plane
+            0.0f, 10.2f}; // blue plane
+        ByteBuffer data = ByteBuffer.allocate(header.length + samples.length * 4)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        data.put(header);
+        for (float sample : samples) {
+            data.putFloat(sample);
+        }
+
+        BufferedImage read = PipeFormat.CIMG.read(new ByteArrayInputStream(data.array()));
+
+        // expect clamped and rounded opaque pixels
+        assertThat(read.getRGB(0, 0)).isEqualTo(0xFF_FF_80_00);
+        assertThat(read.getRGB(1, 0)).isEqualTo(0xFF_00_FF_0A);
+    }
+
+    @Test
+    @DisplayName("read gray PAM data with comments")
+    void readGrayPAM() throws IOException {
+        byte[] header = "P7\n# comment\nWIDTH 2\nHEIGHT 1\nDEPTH 1\nMAXVAL 255\nTUPLTYPE GRAYSCALE\nENDHDR\n"
+            .getBytes(US_ASCII);
+        byte[] data = new byte[header.length + 2];
+        System.arraycopy(header, 0, data, 0, header.length);
+        data[header.length] = 0x10;
+        data[header.length + 1] = (byte) 0xF0;
+
+        BufferedImage read = PipeFormat.PAM.read(new ByteArrayInputStream(data));
+
+        assertThat(read.getRGB(0, 0)).isEqualTo(0xFF_10_10_10);
+        assertThat(read.getRGB(1, 0)).isEqualTo(0xFF_F0_F0_F0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"CMYK", "CMYK_ALPHA", "BLACKANDWHITE"})
+    @DisplayName("reject PAM tuple types other than gray and RGB")
+    void rejectUnsupportedPAM(String tupleType) {
+        int depth = tupleType.equals("CMYK_ALPHA") ? 5 : tupleType.equals("CMYK") ? 4 : 1;
+        byte[] header = ("P7\nWIDTH 1\nHEIGHT 1\nDEPTH " + depth
+            + "\nMAXVAL 255\nTUPLTYPE " + tupleType + "\nENDHDR\n").getBytes(US_ASCII);
+        byte[] data = new byte[header.length + depth];
+        System.arraycopy(header, 0, data, 0, header.length);
+
+        assertThatThrownBy(() -> PipeFormat.PAM.read(new ByteArrayInputStream(data)))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining(tupleType);
+    }
+
+    @Test
+    @DisplayName("reject a PAM depth that doesn't match the tuple type")
+    void rejectMismatchedPAMDepth() {
+        byte[] data = "P7\nWIDTH 1\nHEIGHT 1\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB\nENDHDR\n0000"
+            .getBytes(US_ASCII);
+
+        assertThatThrownBy(() -> PipeFormat.PAM.read(new ByteArrayInputStream(data)))
+            .isInstanceOf(IOException.class);
+    }
+
+    private static BufferedImage roundTrip(PipeFormat format, BufferedImage img) throws IOException {
+        var out = new ByteArrayOutputStream();
+        format.write(img, out);
+        return format.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static BufferedImage createRandomImage(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // the alpha is always set, because the PNG codec
+                // can't preserve the colors of transparent pixels
+                img.setRGB(x, y, random.nextInt() | 0xFF_00_00_00);
+            }
+        }
+        return img;
+    }
+
+    private static int[] getPixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import pixelitor.io.PngEncoder.FilterStrategy;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PngEncoder tests")
+class PngEncoderTest {
+    @ParameterizedTest
+    @EnumSource(FilterStrategy.class)
+    @DisplayName("multiple strips with each filter strategy")
+    void filterStrategies(FilterStrategy strategy) throws IOException {
+        // large enough to be compressed in several strips
+        BufferedImage img = createImage(TYPE_INT_ARGB, 500, 700);
+
+        BufferedImage decoded = encodeAndDecode(img, new PngEncoder(6, strategy));
+
+        assertThat(getPixels(decoded)).isEqualTo(getPixels(img));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {TYPE_INT_ARGB, TYPE_INT_RGB, TYPE_INT_ARGB_PRE})
+    @DisplayName("color image types")
+    void colorTypes(int type) throws IOException {
+        BufferedImage img = createImage(type, 37, 23);
+
+        BufferedImage decoded = encodeAndDecode(img, PngEncoder.DEFAULT);
+
+        assertThat(decoded.getColorModel().hasAlpha()).isEqualTo(type != TYPE_INT_RGB);
+        assertThat(getPixels(decoded)).isEqualTo(getPixels(img));
+    }
+
+    @Test
+    @DisplayName("grayscale image")
+    void gray() throws IOException {
+        BufferedImage img = createImage(TYPE_BYTE_GRAY, 41, 13);
+
+        BufferedImage decoded = encodeAndDecode(img, new PngEncoder(0, FilterStrategy.PAETH));
+
+        assertThat(decoded.getType()).isEqualTo(TYPE_BYTE_GRAY);
+        assertThat(((DataBufferByte) decoded.getRaster().getDataBuffer()).getData())
+            .isEqualTo(((DataBufferByte) img.getRaster().getDataBuffer()).getData());
+    }
+
+    @Test
+    @DisplayName("sub-image")
+    void subImage() throws IOException {
+        BufferedImage img = createImage(TYPE_INT_ARGB, 50, 40).getSubimage(7, 5, 30, 20);
+
+        BufferedImage decoded = encodeAndDecode(img, PngEncoder.DEFAULT);
+
+        assertThat(getPixels(decoded)).isEqualTo(getPixels(img));
+    }
+
+    private static BufferedImage encodeAndDecode(BufferedImage img, PngEncoder encoder) throws IOException {
+        var out = new ByteArrayOutputStream();
+        encoder.write(img, out, ProgressTracker.NULL_TRACKER);
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // gradients with some noise compress like photos
+                int noise = random.nextInt(8);
+                int argb = (x + y + noise) % 256 << 24 | (x * 3 + noise) % 256 << 16
+                    | (y * 5) % 256 << 8 | (x * y + noise) % 256;
+                if (type == TYPE_INT_ARGB_PRE) {
+                    argb |= 0xFF_00_00_00; // the colors of translucent pixels would change
+                }
+                img.setRGB(x, y, argb);
+            }
+        }
+        return img;
+    }
+
+    private static int[] getPixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+}
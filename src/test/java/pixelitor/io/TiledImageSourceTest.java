@@ -0,0 +1,160 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.io.TiledImageSource.TileKey;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("TiledImageSource tests")
+class TiledImageSourceTest {
+    // a 5000x3000 image with a 500x300 preview
+    private static final int WIDTH = 5000;
+    private static final int HEIGHT = 3000;
+    private static final int PREVIEW_WIDTH = 500;
+    private static final double PREVIEW_SCALE = 0.1;
+
+    private TiledImageSource source;
+
+    @BeforeEach
+    void beforeEachTest() {
+        source = new TiledImageSource(new File("large.png"), WIDTH, HEIGHT);
+    }
+
+    @Test
+    @DisplayName("the tile subsampling follows the zoom")
+    void subsampling() {
+        // 10 full-resolution pixels per screen pixel
+        assertThat(TiledImageSource.calcSubsampling(PREVIEW_SCALE, 1.0)).isEqualTo(8);
+        // 2.5 full-resolution pixels per screen pixel
+        assertThat(TiledImageSource.calcSubsampling(PREVIEW_SCALE, 4.0)).isEqualTo(2);
+        // zoomed in beyond the full resolution
+        assertThat(TiledImageSource.calcSubsampling(PREVIEW_SCALE, 20.0)).isEqualTo(1);
+        // zoomed out: the preview is detailed enough
+        assertThat(TiledImageSource.calcSubsampling(PREVIEW_SCALE, 0.5)).isZero();
+        assertThat(TiledImageSource.calcSubsampling(1.0, 1.0)).isZero();
+    }
+
+    @Test
+    @DisplayName("the visible tiles cover the visible region")
+    void visibleTiles() {
+        // the top left 1000x600 full-resolution pixels
+        var topLeft = new Rectangle2D.Double(0, 0, 100, 60);
+        assertThat(source.findVisibleTiles(topLeft, PREVIEW_SCALE, 1)).containsExactlyInAnyOrder(
+            new TileKey(1, 0, 0), new TileKey(1, 1, 0),
+            new TileKey(1, 0, 1), new TileKey(1, 1, 1));
+
+        // partially outside the image at the bottom right
+        var bottomRight = new Rectangle2D.Double(450, 250, 100, 100);
+        assertThat(source.findVisibleTiles(bottomRight, PREVIEW_SCALE, 1)).containsExactlyInAnyOrder(
+            new TileKey(1, 8, 4), new TileKey(1, 9, 4),
+            new TileKey(1, 8, 5), new TileKey(1, 9, 5));
+
+        // the whole image with 2048 full-resolution pixels per tile
+        var all = new Rectangle2D.Double(0, 0, PREVIEW_WIDTH, 300);
+        assertThat(source.findVisibleTiles(all, PREVIEW_SCALE, 4)).hasSize(3 * 2);
+    }
+
+    @Test
+    @DisplayName("the tile regions are clipped to the image")
+    void tileRegions() {
+        assertThat(new TileKey(1, 1, 2).getSourceRegion(WIDTH, HEIGHT))
+            .isEqualTo(new Rectangle(512, 1024, 512, 512));
+        assertThat(new TileKey(2, 4, 2).getSourceRegion(WIDTH, HEIGHT))
+            .isEqualTo(new Rectangle(4096, 2048, 904, 952));
+    }
+
+    @Test
+    @DisplayName("the selected regions are scaled to the full resolution")
+    void fullResolutionRegions() {
+        assertThat(source.toFullResolution(new Rectangle2D.Double(10, 20, 50, 30), PREVIEW_WIDTH))
+            .isEqualTo(new Rectangle(100, 200, 500, 300));
+
+        // fractional preview coordinates include the partially covered pixels
+        assertThat(source.toFullResolution(new Rectangle2D.Double(10.55, 20, 50, 30), PREVIEW_WIDTH))
+            .isEqualTo(new Rectangle(105, 200, 501, 300));
+
+        // clipped to the image
+        assertThat(source.toFullResolution(new Rectangle2D.Double(-10, 250, 100, 100), PREVIEW_WIDTH))
+            .isEqualTo(new Rectangle(0, 2500, 900, 500));
+    }
+
+    @Test
+    @DisplayName("the cached bytes depend on the image type")
+    void numBytes() {
+        assertThat(TiledImageSource.getNumBytes(new BufferedImage(10, 20, TYPE_INT_ARGB))).isEqualTo(800);
+        assertThat(TiledImageSource.getNumBytes(new BufferedImage(10, 20, TYPE_3BYTE_BGR))).isEqualTo(600);
+        assertThat(TiledImageSource.getNumBytes(new BufferedImage(10, 20, TYPE_BYTE_GRAY))).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("the regions are read with a reused reader")
+    void readRegions() throws IOException {
+        BufferedImage img = new BufferedImage(300, 200, TYPE_INT_RGB);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, x << 16 | y << 8 | (x + y) & 0xFF);
+            }
+        }
+        File file = File.createTempFile("pix_tiled", ".png");
+        file.deleteOnExit();
+        ImageIO.write(img, "png", file);
+
+        var pngSource = new TiledImageSource(file, img.getWidth(), img.getHeight());
+        try {
+            // the second region precedes the first one in the file
+            checkRegion(pngSource, img, new Rectangle(100, 120, 40, 30), 1);
+            checkRegion(pngSource, img, new Rectangle(0, 0, 20, 20), 1);
+            checkRegion(pngSource, img, new Rectangle(50, 60, 80, 40), 2);
+        } finally {
+            pngSource.close();
+        }
+
+        assertThatThrownBy(() -> pngSource.readRegion(new Rectangle(0, 0, 10, 10), 1))
+            .isInstanceOf(IOException.class);
+        assertThat(file.delete()).isTrue();
+    }
+
+    private static void checkRegion(TiledImageSource source, BufferedImage img,
+                                    Rectangle region, int subsampling) throws IOException {
+        BufferedImage read = source.readRegion(region, subsampling);
+        assertThat(read.getWidth()).isEqualTo((region.width + subsampling - 1) / subsampling);
+        assertThat(read.getHeight()).isEqualTo((region.height + subsampling - 1) / subsampling);
+        for (int y = 0; y < read.getHeight(); y++) {
+            for (int x = 0; x < read.getWidth(); x++) {
+                int expected = img.getRGB(region.x + x * subsampling, region.y + y * subsampling);
+                assertThat(read.getRGB(x, y)).isEqualTo(expected);
+            }
+        }
+    }
+}
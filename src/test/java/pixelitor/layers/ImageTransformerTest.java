@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.layers;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import pixelitor.AppMode;
+import pixelitor.Composition;
+
+import java.awt.EventQueue;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ImageTransformer tests")
+class ImageTransformerTest {
+    private static final int SIZE = 1024;
+
+    private ImageTransformer transformer;
+
+    @BeforeAll
+    static void beforeAllTests() {
+        AppMode.setUnitTestingMode();
+    }
+
+    @BeforeEach
+    void beforeEachTest() {
+        Composition content = mock(Composition.class);
+        when(content.getCompositeImage()).thenReturn(new BufferedImage(SIZE, SIZE, TYPE_INT_ARGB));
+        transformer = new ImageTransformer(content, new AffineTransform(), SIZE, SIZE);
+    }
+
+    @ParameterizedTest(name = "scale = {0}, zoom = {1}")
+    @CsvSource({
+        // no downsampling
+        "1.0, 1.0, 1",
+        "0.6, 1.0, 1",
+        // the scaling and the zoom are combined
+        "0.5, 1.0, 2",
+        "1.0, 0.25, 3",
+        "0.5, 0.5, 3",
+        "0.1, 1.0, 4",
+        // the smallest proxy isn't smaller than 64 pixels
+        "0.01, 1.0, 5",
+    })
+    @DisplayName("the preview is rendered from the proxy that matches the scaling")
+    void proxyLevelSelection(double scale, double zoom, int expectedNumProxies) {
+        transformer.setPreviewTransform(AffineTransform.getScaleInstance(scale, scale), zoom);
+
+        // the proxies are created only up to the used level
+        assertThat(transformer.getNumProxies()).isEqualTo(expectedNumProxies);
+        assertThat(transformer.getCachedImage()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("the full-quality render replaces the preview")
+    void fullQualityReplacesPreview() throws Exception {
+        transformer.setPreviewTransform(AffineTransform.getScaleInstance(0.5, 0.5), 1.0);
+        BufferedImage preview = transformer.getCachedImage();
+
+        boolean replaced = runOnEDT(transformer::renderFullQuality).get();
+
+        assertThat(replaced).isTrue();
+        assertThat(transformer.getCachedImage()).isNotSameAs(preview);
+    }
+
+    @Test
+    @DisplayName("an outdated full-quality render is discarded")
+    void outdatedRenderIsDiscarded() throws Exception {
+        transformer.setPreviewTransform(AffineTransform.getScaleInstance(0.5, 0.5), 1.0);
+
+        // the transform changes before the render could finish, because
+        // the render replaces the preview in a later EDT event
+        BufferedImage[] newPreview = new BufferedImage[1];
+        var future = runOnEDT(() -> {
+            var render = transformer.renderFullQuality();
+            transformer.setPreviewTransform(AffineTransform.getScaleInstance(0.3, 0.3), 1.0);
+            newPreview[0] = transformer.getCachedImage();
+            return render;
+        });
+
+        assertThat(future.get()).isFalse();
+        assertThat(transformer.getCachedImage()).isSameAs(newPreview[0]);
+    }
+
+    @Test
+    @DisplayName("invalidating the cache drops the proxies")
+    void invalidateCacheDropsProxies() {
+        transformer.setPreviewTransform(AffineTransform.getScaleInstance(0.2, 0.2), 1.0);
+        assertThat(transformer.getNumProxies()).isGreaterThan(1);
+
+        transformer.invalidateCache();
+
+        assertThat(transformer.getNumProxies()).isZero();
+        assertThat(transformer.getCachedImage()).isNull();
+    }
+
+    // runs the given task on the EDT and returns the future it created
+    private static <T> CompletableFuture<T> runOnEDT(
+        Supplier<CompletableFuture<T>> task) throws Exception {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T>[] result = new CompletableFuture[1];
+        EventQueue.invokeAndWait(() -> result[0] = task.get());
+        return result[0];
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.layers;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.Canvas;
+import pixelitor.Composition;
+import pixelitor.TestHelper;
+import pixelitor.filters.Filter;
+import pixelitor.filters.Invert;
+import pixelitor.filters.Posterize;
+import pixelitor.filters.levels.Levels;
+import pixelitor.filters.lookup.ColorBalance;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("lookup fusion tests")
+class LookupFusionTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    private Composition comp;
+    private BufferedImage baseImage;
+    private List<Layer> layers;
+
+    @BeforeAll
+    static void beforeAllTests() {
+        TestHelper.setUnitTestingMode();
+    }
+
+    @BeforeEach
+    void beforeEachTest() {
+        comp = mock(Composition.class);
+
+        Random random = new Random(42);
+        baseImage = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB_PRE);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                baseImage.setRGB(x, y, 0xFF_00_00_00 | random.nextInt(0x1_00_00_00));
+            }
+        }
+
+        Layer base = mock(Layer.class);
+        when(base.isVisible()).thenReturn(true);
+        when(base.render(any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            Graphics2D g = invocation.getArgument(0);
+            g.drawImage(baseImage, 0, 0, null);
+            return null;
+        });
+
+        layers = new ArrayList<>();
+        layers.add(base);
+    }
+
+    @Test
+    @DisplayName("a fused run gives the same result as the separate layers")
+    void fusedRunMatchesSeparateLayers() {
+        addLayer(new Levels());
+        addLayer(createColorBalance("40"));
+        addLayer(createPosterize("5"));
+
+        checkFusedMatchesSeparate();
+    }
+
+    @Test
+    @DisplayName("hidden layers within the run are skipped")
+    void hiddenLayersAreSkipped() {
+        addLayer(createColorBalance("40"));
+        addLayer(createPosterize("2")).setVisible(false);
+        addLayer(createColorBalance("-70"));
+        addLayer(createPosterize("6"));
+
+        checkFusedMatchesSeparate();
+    }
+
+    @Test
+    @DisplayName("a non-fusable layer breaks the run")
+    void nonFusableLayerBreaksTheRun() {
+        addLayer(createColorBalance("40"));
+        addLayer(createPosterize("4"));
+        addLayer(new Invert());
+        addLayer(createColorBalance("-30"));
+        addLayer(createPosterize("3"));
+
+        // the run is broken before the inverting layer
+        assertThat(Layer.applyFusedLookups(layers, 1,
+            new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB_PRE))).isEqualTo(2);
+
+        checkFusedMatchesSeparate();
+    }
+
+    @Test
+    @DisplayName("a single fusable layer isn't fused")
+    void singleLayerIsNotFused() {
+        addLayer(createPosterize("4"));
+        addLayer(new Invert());
+
+        assertThat(Layer.applyFusedLookups(layers, 1,
+            new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB_PRE))).isEqualTo(-1);
+    }
+
+    private AdjustmentLayer addLayer(Filter filter) {
+        var layer = new AdjustmentLayer(comp, "layer " + layers.size(), filter);
+        layers.add(layer);
+        return layer;
+    }
+
+    private static ColorBalance createColorBalance(String cyanRed) {
+        var filter = new ColorBalance();
+        filter.getParamSet().set("Cyan-Red", cyanRed);
+        return filter;
+    }
+
+    private static Posterize createPosterize(String levels) {
+        var filter = new Posterize();
+        filter.getParamSet().set("Levels", levels + "," + levels + "," + levels);
+        return filter;
+    }
+
+    private void checkFusedMatchesSeparate() {
+        BufferedImage fused = ImageUtils.calcComposite(layers, new Canvas(WIDTH, HEIGHT));
+        BufferedImage separate = calcSeparately();
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertThat(fused.getRGB(x, y))
+                    .as("pixel at (%d, %d)", x, y)
+                    .isEqualTo(separate.getRGB(x, y));
+            }
+        }
+    }
+
+    // applies the adjustment layers one by one, without any fusion
+    private BufferedImage calcSeparately() {
+        var composite = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB_PRE);
+        Graphics2D g = composite.createGraphics();
+        g.drawImage(baseImage, 0, 0, null);
+        g.dispose();
+
+        for (Layer layer : layers.subList(1, layers.size())) {
+            if (layer.isVisible()) {
+                composite = layer.render(null, composite, false);
+            }
+        }
+        return composite;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.particles;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+import static java.awt.RenderingHints.KEY_STROKE_CONTROL;
+import static java.awt.RenderingHints.VALUE_STROKE_PURE;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("particle engine tests")
+class ParticleEngineTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+    private static final int NUM_PARTICLES = 2_000;
+    private static final int ITERATIONS = 30;
+    private static final long SEED = 42;
+
+    @Test
+    @DisplayName("parallel lanes render the same as a single lane")
+    void parallelMatchesSequential() {
+        BufferedImage expected = render(createEngine(1));
+        BufferedImage actual = render(createEngine(4));
+
+        assertAlmostSame(actual, expected);
+    }
+
+    @Test
+    @DisplayName("tiles are merged at their canvas positions")
+    void tileAccumulatorMatchesDirectDrawing() {
+        var stroke = new BasicStroke(5);
+        var lines = new Line2D[]{
+            new Line2D.Double(-20, 10, 250, 190), // crosses many tiles
+            new Line2D.Double(120, 5, 140, 30), // crosses a tile border
+            new Line2D.Double(290, 195, 400, 300), // partly outside
+            new Line2D.Double(500, 500, 600, 600), // completely outside
+        };
+        var colors = new Color[]{Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW};
+
+        // the same stroke control as in the engine
+        Consumer<Graphics2D> setup = g -> g.setRenderingHint(KEY_STROKE_CONTROL, VALUE_STROKE_PURE);
+
+        BufferedImage expected = createBackground();
+        Graphics2D expectedG = expected.createGraphics();
+        setup.accept(expectedG);
+        ParticleCanvas direct = ParticleCanvas.of(expectedG);
+
+        BufferedImage actual = createBackground();
+        var accumulator = new TileAccumulator(WIDTH, HEIGHT, setup);
+
+        // draw and merge twice, to check that the reused tiles are cleared
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < lines.length; i++) {
+                direct.draw(lines[i], stroke, colors[(i + round) % colors.length]);
+                accumulator.draw(lines[i], stroke, colors[(i + round) % colors.length]);
+            }
+            Graphics2D actualG = actual.createGraphics();
+            accumulator.mergeInto(actualG);
+            actualG.dispose();
+        }
+        expectedG.dispose();
+        accumulator.dispose();
+
+        assertAlmostSame(actual, expected);
+    }
+
+    // the tiles are rasterized at other device coordinates, so the
+    // floating-point rounding can flip an occasional edge pixel
+    private static void assertAlmostSame(BufferedImage actual, BufferedImage expected) {
+        int[] actualPixels = ImageUtils.getPixels(actual);
+        int[] expectedPixels = ImageUtils.getPixels(expected);
+        assertThat(actualPixels).hasSameSizeAs(expectedPixels);
+
+        int numDifferent = 0;
+        for (int i = 0; i < actualPixels.length; i++) {
+            if (actualPixels[i] != expectedPixels[i]) {
+                numDifferent++;
+            }
+        }
+        assertThat(numDifferent).isLessThanOrEqualTo(actualPixels.length / 1000);
+    }
+
+    private static ParticleEngine<TestParticle> createEngine(int maxLanes) {
+        return new ParticleEngine<>(NUM_PARTICLES, SEED, TestParticle::new, maxLanes);
+    }
+
+    private static BufferedImage render(ParticleEngine<TestParticle> engine) {
+        BufferedImage img = createBackground();
+        engine.render(img, ITERATIONS, g -> {
+        }, ProgressTracker.NULL_TRACKER);
+        return img;
+    }
+
+    private static BufferedImage createBackground() {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+        return img;
+    }
+
+    /**
+     * A particle that moves in a straight line with an opaque random color.
+     */
+    private static class TestParticle extends SmoothPathParticle {
+        TestParticle(ParticleCanvas canvas) {
+            super(canvas);
+            pos = new Point2D.Double();
+            setStroke(new BasicStroke(2));
+        }
+
+        @Override
+        public void reset() {
+            pos.setLocation(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            color = new Color(random.nextInt(0x1_00_00_00));
+            addPoint(pos);
+        }
+
+        @Override
+        public boolean isDead() {
+            return pos.getX() < 0 || pos.getX() >= WIDTH
+                || pos.getY() < 0 || pos.getY() >= HEIGHT;
+        }
+
+        @Override
+        public void update() {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            pos = new Point2D.Double(
+                pos.getX() + 5 * Math.cos(angle),
+                pos.getY() + 5 * Math.sin(angle));
+            addPoint(pos);
+        }
+    }
+}
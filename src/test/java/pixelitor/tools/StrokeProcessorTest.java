@@ -0,0 +1,197 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.layers.Drawable;
+import pixelitor.tools.brushes.Brush;
+import pixelitor.tools.brushes.HardBrush;
+import pixelitor.tools.util.PMouseEvent;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.Utils;
+
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("StrokeProcessor tests")
+class StrokeProcessorTest {
+    private static final int NUM_SAMPLES = 50;
+    private static final int IMG_SIZE = 120;
+
+    private final List<PMouseEvent> processed = new CopyOnWriteArrayList<>();
+    private final List<String> threadNames = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("the samples are processed in order on the stroke thread")
+    void processingOrder() throws InterruptedException, InvocationTargetException {
+        var processor = new StrokeProcessor(this::record);
+        List<PMouseEvent> samples = createSamples();
+
+        EventQueue.invokeAndWait(() -> {
+            for (int i = 0; i < samples.size(); i++) {
+                processor.add(samples.get(i));
+                if (i % 10 == 0) {
+                    // let the stroke thread catch up sometimes, so that
+                    // samples are also added while a drain is running
+                    Utils.sleep(1, TimeUnit.MILLISECONDS);
+                }
+            }
+            processor.waitForPending();
+        });
+
+        assertThat(processed).containsExactlyElementsOf(samples);
+        assertThat(threadNames).containsOnly("BrushStroke");
+    }
+
+    @Test
+    @DisplayName("waitForPending returns only after the slow samples are processed")
+    void waitForPending() throws InterruptedException, InvocationTargetException {
+        var processor = new StrokeProcessor(sample -> {
+            // a slow dab
+            Utils.sleep(5, TimeUnit.MILLISECONDS);
+            record(sample);
+        });
+        List<PMouseEvent> samples = createSamples();
+
+        List<Integer> numProcessedAtReturn = new ArrayList<>();
+        EventQueue.invokeAndWait(() -> {
+            samples.forEach(processor::add);
+            processor.waitForPending();
+            numProcessedAtReturn.add(processed.size());
+        });
+
+        assertThat(numProcessedAtReturn).containsExactly(NUM_SAMPLES);
+        assertThat(processed).containsExactlyElementsOf(samples);
+    }
+
+    @Test
+    @DisplayName("waitForPending without samples returns immediately")
+    void waitForPendingWithoutSamples() throws InterruptedException, InvocationTargetException {
+        var processor = new StrokeProcessor(this::record);
+
+        EventQueue.invokeAndWait(processor::waitForPending);
+
+        assertThat(processed).isEmpty();
+    }
+
+    @Test
+    @DisplayName("syncWithActiveStroke waits for the samples of the active stroke")
+    void syncWithActiveStroke() throws InterruptedException, InvocationTargetException {
+        var processor = new StrokeProcessor(sample -> {
+            Utils.sleep(5, TimeUnit.MILLISECONDS);
+            record(sample);
+        });
+        List<PMouseEvent> samples = createSamples();
+
+        List<Integer> numProcessedAtReturn = new ArrayList<>();
+        EventQueue.invokeAndWait(() -> {
+            processor.strokeStarted();
+            samples.forEach(processor::add);
+            StrokeProcessor.syncWithActiveStroke();
+            numProcessedAtReturn.add(processed.size());
+            processor.strokeFinished();
+        });
+
+        assertThat(numProcessedAtReturn).containsExactly(NUM_SAMPLES);
+        assertThat(StrokeProcessor.isStrokeInProgress()).isFalse();
+    }
+
+    @Test
+    @DisplayName("a brush stroke drawn on the stroke thread matches the one drawn on the EDT")
+    void realBrushStroke() throws InterruptedException, InvocationTargetException {
+        List<PMouseEvent> samples = createStrokeSamples();
+
+        BufferedImage expected = new BufferedImage(IMG_SIZE, IMG_SIZE, TYPE_INT_ARGB);
+        Brush syncBrush = createBrush(expected);
+        syncBrush.startAt(samples.getFirst());
+        samples.subList(1, samples.size()).forEach(syncBrush::continueTo);
+        syncBrush.finishBrushStroke();
+
+        BufferedImage actual = new BufferedImage(IMG_SIZE, IMG_SIZE, TYPE_INT_ARGB);
+        Brush brush = createBrush(actual);
+        var processor = new StrokeProcessor(sample -> {
+            record(sample);
+            brush.continueTo(sample);
+        });
+        List<Boolean> inProgress = new ArrayList<>();
+        EventQueue.invokeAndWait(() -> {
+            // the same sequence as in AbstractBrushTool
+            brush.startAt(samples.getFirst());
+            processor.strokeStarted();
+            samples.subList(1, samples.size()).forEach(processor::add);
+            inProgress.add(StrokeProcessor.isStrokeInProgress());
+            processor.strokeFinished();
+            inProgress.add(StrokeProcessor.isStrokeInProgress());
+            brush.finishBrushStroke();
+        });
+
+        assertThat(inProgress).containsExactly(true, false);
+        assertThat(threadNames).containsOnly("BrushStroke");
+        assertThat(ImageUtils.getPixels(actual))
+            .isNotEqualTo(new int[IMG_SIZE * IMG_SIZE])
+            .isEqualTo(ImageUtils.getPixels(expected));
+    }
+
+    private static Brush createBrush(BufferedImage target) {
+        Brush brush = new HardBrush(4);
+        Graphics2D g = target.createGraphics();
+        g.setColor(Color.RED);
+        brush.setTarget(mock(Drawable.class), g);
+        return brush;
+    }
+
+    // a wavy stroke through the image
+    private static List<PMouseEvent> createStrokeSamples() {
+        List<PMouseEvent> samples = new ArrayList<>(NUM_SAMPLES);
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            double x = 10 + i * (IMG_SIZE - 20) / (double) NUM_SAMPLES;
+            double y = IMG_SIZE / 2.0 + 20 * Math.sin(i / 5.0);
+            PMouseEvent sample = mock(PMouseEvent.class);
+            when(sample.getImX()).thenReturn(x);
+            when(sample.getImY()).thenReturn(y);
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    private void record(PMouseEvent sample) {
+        processed.add(sample);
+        threadNames.add(Thread.currentThread().getName());
+    }
+
+    private static List<PMouseEvent> createSamples() {
+        List<PMouseEvent> samples = new ArrayList<>(NUM_SAMPLES);
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            samples.add(mock(PMouseEvent.class));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.brushes;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pixelitor.AppMode;
+import pixelitor.tools.util.PPoint;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that sampling the brush images directly from the source pixels
+ * gives the same result as drawing the source image with Java2D between
+ * the callbacks of the brush type.
+ */
+@DisplayName("CopyBrush tests")
+class CopyBrushTest {
+    private static final double RADIUS = 10.5;
+
+    @BeforeAll
+    static void beforeAllTests() {
+        AppMode.setUnitTestingMode();
+    }
+
+    enum SourceKind {
+        ARGB, PREMULTIPLIED, SUB_IMAGE
+    }
+
+    static List<Arguments> translatedCases() {
+        List<Arguments> cases = new ArrayList<>();
+        for (CopyBrushType type : CopyBrushType.values()) {
+            for (SourceKind source : SourceKind.values()) {
+                // inside the source, at fractional offsets,
+                // and partially outside the source
+                cases.add(Arguments.of(type, source, 20, 30));
+                cases.add(Arguments.of(type, source, 35.3, 12.7));
+                cases.add(Arguments.of(type, source, -8.6, 70.2));
+            }
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "{0}, {1}, source = ({2}, {3})")
+    @MethodSource("translatedCases")
+    @DisplayName("translated sampling matches Java2D")
+    void translatedSamplingMatchesJava2D(CopyBrushType type, SourceKind source,
+                                         double srcX, double srcY) {
+        BufferedImage sourceImage = createSource(source);
+        var brush = new TestBrush(type, sourceImage);
+
+        brush.sampleTranslated(srcX, srcY);
+        int[] actual = brush.getBrushPixels();
+
+        brush.drawWithJava2D(AffineTransform.getTranslateInstance(-srcX, -srcY), false);
+        int[] expected = brush.getBrushPixels();
+
+        assertSimilar(actual, expected, 1);
+    }
+
+    static List<Arguments> transformedCases() {
+        List<Arguments> cases = new ArrayList<>();
+        for (CopyBrushType type : CopyBrushType.values()) {
+            for (SourceKind source : SourceKind.values()) {
+                cases.add(Arguments.of(type, source, 1.5, 0.0));
+                cases.add(Arguments.of(type, source, 0.7, 0.6));
+                cases.add(Arguments.of(type, source, 1.0, 2.3));
+            }
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "{0}, {1}, scale = {2}, angle = {3}")
+    @MethodSource("transformedCases")
+    @DisplayName("scaled/rotated bilinear sampling matches Java2D")
+    void transformedSamplingMatchesJava2D(CopyBrushType type, SourceKind source,
+                                          double scale, double angle) {
+        BufferedImage sourceImage = createSource(source);
+        var brush = new TestBrush(type, sourceImage);
+
+        // maps the source into the brush, scaled and rotated around
+        // a source point far enough from the edges of the source
+        var sourceToBrush = AffineTransform.getTranslateInstance(RADIUS, RADIUS);
+        sourceToBrush.scale(scale, scale);
+        sourceToBrush.rotate(angle);
+        sourceToBrush.translate(-40.3, -38.6);
+
+        brush.sampleTransformed(CopyBrush.invert(sourceToBrush));
+        int[] actual = brush.getBrushPixels();
+
+        brush.drawWithJava2D(sourceToBrush, true);
+        int[] expected = brush.getBrushPixels();
+
+        assertSimilar(actual, expected, 3);
+    }
+
+    @Test
+    @DisplayName("brushes with different sizes can share a type")
+    void differentSizesShareType() {
+        BufferedImage sourceImage = createSource(SourceKind.ARGB);
+        var small = new TestBrush(CopyBrushType.SOFT, sourceImage);
+        var large = new TestBrush(CopyBrushType.SOFT, sourceImage);
+        large.setRadius(2 * RADIUS);
+        small.sampleTranslated(20, 30);
+
+        large.setRadius(3 * RADIUS);
+        int[] before = small.getBrushPixels();
+        small.sampleTranslated(20, 30);
+
+        assertThat(small.getBrushPixels()).isEqualTo(before);
+    }
+
+    private static void assertSimilar(int[] actual, int[] expected, int tolerance) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < actual.length; i++) {
+            // compared in premultiplied form, because the color
+            // of (almost) transparent pixels doesn't matter
+            int a = ImageUtils.premultiply(actual[i]);
+            int e = ImageUtils.premultiply(expected[i]);
+            for (int shift = 0; shift < 32; shift += 8) {
+                int diff = Math.abs(((a >>> shift) & 0xFF) - ((e >>> shift) & 0xFF));
+                assertThat(diff)
+                    .as("pixel %d: actual = %08X, expected = %08X", i, actual[i], expected[i])
+                    .isLessThanOrEqualTo(tolerance);
+            }
+        }
+    }
+
+    private static BufferedImage createSource(SourceKind kind) {
+        Random random = new Random(kind.ordinal());
+        BufferedImage image = new BufferedImage(100, 90, TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                // smooth gradients with some noise and varying alpha
+                int a = 128 + (int) (127 * Math.sin(x * 0.1)) & 0xFF;
+                int r = (x * 2 + random.nextInt(16)) & 0xFF;
+                int g = (y * 2 + random.nextInt(16)) & 0xFF;
+                int b = (x + y + random.nextInt(16)) & 0xFF;
+                image.setRGB(x, y, a << 24 | r << 16 | g << 8 | b);
+            }
+        }
+        return switch (kind) {
+            case ARGB -> image;
+            case PREMULTIPLIED -> {
+                BufferedImage pre = new BufferedImage(image.getWidth(), image.getHeight(), TYPE_INT_ARGB_PRE);
+                Graphics2D g = pre.createGraphics();
+                g.drawImage(image, 0, 0, null);
+                g.dispose();
+                yield pre;
+            }
+            case SUB_IMAGE -> {
+                BufferedImage parent = new BufferedImage(130, 120, TYPE_INT_ARGB);
+                Graphics2D g = parent.createGraphics();
+                g.drawImage(image, 17, 11, null);
+                g.dispose();
+                yield parent.getSubimage(17, 11, image.getWidth(), image.getHeight());
+            }
+        };
+    }
+
+    private static class TestBrush extends CopyBrush {
+        TestBrush(CopyBrushType type, BufferedImage sourceImage) {
+            super(RADIUS, type, new RadiusRatioSpacing(0.25));
+            this.sourceImage = sourceImage;
+
+            // the brush image isn't created when the superclass
+            // constructor sets the radius, as with the real brushes
+            setRadius(RADIUS);
+        }
+
+        // the original brush image code: drawing the source image
+        // with the given transform between the brush type callbacks
+        void drawWithJava2D(AffineTransform sourceToBrush, boolean bilinear) {
+            type.setSize(diameter);
+            Graphics2D g = brushImage.createGraphics();
+            type.beforeDrawImage(g);
+            if (bilinear) {
+                g.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+            }
+            g.drawImage(sourceImage, sourceToBrush, null);
+            type.afterDrawImage(g);
+            g.dispose();
+        }
+
+        int[] getBrushPixels() {
+            return ImageUtils.getPixels(brushImage).clone();
+        }
+
+        @Override
+        void initBrushStamp(PPoint p) {
+        }
+
+        @Override
+        public void putDab(PPoint currentPoint, double angle) {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.gradient.paints;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pixelitor.tools.util.Drag;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.MultipleGradientPaint.CycleMethod;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("custom gradient paint tests")
+class CustomGradientPaintTest {
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 110;
+
+    static List<Arguments> paints() {
+        Drag drag = new Drag(60.3, 45.7, 97.1, 72.4);
+        Color start = new Color(20, 200, 90);
+        Color end = new Color(230, 40, 150);
+
+        List<Arguments> paints = new ArrayList<>();
+        for (CycleMethod cycle : CycleMethod.values()) {
+            paints.add(Arguments.of(new AngleGradientPaint(drag, start, end, cycle)));
+            paints.add(Arguments.of(new SpiralGradientPaint(true, drag, start, end, cycle)));
+            paints.add(Arguments.of(new SpiralGradientPaint(false, drag, start, end, cycle)));
+            paints.add(Arguments.of(new DiamondGradientPaint(drag, start, end, cycle)));
+        }
+        return paints;
+    }
+
+    @ParameterizedTest
+    @MethodSource("paints")
+    void createdImageMatchesGraphicsFill(CustomGradientPaint paint) {
+        BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = expected.createGraphics();
+        g.setPaint(paint);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+
+        BufferedImage actual = paint.createImage(WIDTH, HEIGHT);
+
+        int numDifferent = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    numDifferent++;
+                }
+            }
+        }
+        assertThat(numDifferent).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("paints")
+    void createdRegionMatchesFullImage(CustomGradientPaint paint) {
+        BufferedImage full = paint.createImage(WIDTH, HEIGHT);
+
+        Rectangle region = new Rectangle(35, 20, 80, 50);
+        BufferedImage actual = paint.createImage(region);
+        assertThat(actual.getWidth()).isEqualTo(region.width);
+        assertThat(actual.getHeight()).isEqualTo(region.height);
+
+        int[] expectedPixels = full.getRGB(region.x, region.y,
+            region.width, region.height, null, 0, region.width);
+        int[] actualPixels = actual.getRGB(0, 0,
+            region.width, region.height, null, 0, region.width);
+        assertThat(actualPixels).isEqualTo(expectedPixels);
+    }
+}
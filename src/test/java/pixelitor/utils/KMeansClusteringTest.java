@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("KMeansClustering tests")
+class KMeansClusteringTest {
+    private static final int NUM_PIXELS = 200 * 150;
+    private static final int MAX_ITERATIONS = 100;
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 5, 10})
+    @DisplayName("the result matches the serial clustering")
+    void matchesSerialClustering(int numClusters) {
+        int[] pixels = createClusteredPixels(new Random(numClusters));
+        long seed = 42 + numClusters;
+
+        int[] expected = clusterSerially(pixels, numClusters, MAX_ITERATIONS, new Random(seed));
+
+        var kmeans = new KMeansClustering(numClusters, MAX_ITERATIONS, new Random(seed));
+        int[] actual = kmeans.cluster(pixels, false, ProgressTracker.NULL_TRACKER);
+
+        assertThat(actual).containsExactly(expected);
+        // the serial version ran all iterations, but it
+        // converged earlier, otherwise the results would differ
+        assertThat(kmeans.getLastTimings().converged()).isTrue();
+        assertThat(kmeans.getLastTimings().numIterations()).isLessThan(MAX_ITERATIONS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    @DisplayName("stopping early gives the same result as the serial clustering")
+    void fewIterations(int numIterations) {
+        int[] pixels = createClusteredPixels(new Random(7));
+
+        int[] expected = clusterSerially(pixels, 6, numIterations, new Random(11));
+        int[] actual = new KMeansClustering(6, numIterations, new Random(11))
+            .cluster(pixels, false, ProgressTracker.NULL_TRACKER);
+
+        assertThat(actual).containsExactly(expected);
+    }
+
+    // RGB pixels (without alpha) around a few random colors
+    private static int[] createClusteredPixels(Random random) {
+        int[] centers = new int[8];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextInt(0x1_00_00_00);
+        }
+        int[] pixels = new int[NUM_PIXELS];
+        for (int i = 0; i < pixels.length; i++) {
+            int center = centers[random.nextInt(centers.length)];
+            int r = jitter((center >> 16) & 0xFF, random);
+            int g = jitter((center >> 8) & 0xFF, random);
+            int b = jitter(center & 0xFF, random);
+            pixels[i] = r << 16 | g << 8 | b;
+        }
+        return pixels;
+    }
+
+    private static int jitter(int value, Random random) {
+        return Math.clamp(value + (int) (random.nextGaussian() * 20), 0, 255);
+    }
+
+    /**
+     * The original serial clustering with random initialization,
+     * which assigns each pixel separately and always runs all iterations.
+     */
+    private static int[] clusterSerially(int[] pixels, int numClusters, int iterations, Random random) {
+        int[] centroids = new int[numClusters];
+        for (int i = 0; i < numClusters; i++) {
+            centroids[i] = pixels[random.nextInt(pixels.length)];
+        }
+
+        for (int it = 0; it < iterations; it++) {
+            long[] sumR = new long[numClusters];
+            long[] sumG = new long[numClusters];
+            long[] sumB = new long[numClusters];
+            int[] sizes = new int[numClusters];
+            for (int rgb : pixels) {
+                int closest = KMeansClustering.findClosestCentroidIndex(rgb, centroids);
+                sumR[closest] += (rgb >> 16) & 0xFF;
+                sumG[closest] += (rgb >> 8) & 0xFF;
+                sumB[closest] += rgb & 0xFF;
+                sizes[closest]++;
+            }
+
+            int[] newCentroids = new int[numClusters];
+            for (int i = 0; i < numClusters; i++) {
+                assertThat(sizes[i]).as("empty cluster").isPositive();
+                int r = (int) (sumR[i] / sizes[i]);
+                int g = (int) (sumG[i] / sizes[i]);
+                int b = (int) (sumB[i] / sizes[i]);
+                newCentroids[i] = r << 16 | g << 8 | b;
+            }
+            centroids = newCentroids;
+        }
+        return centroids;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pixelitor.Canvas;
+import pixelitor.Composition;
+import pixelitor.TestHelper;
+import pixelitor.filters.Invert;
+import pixelitor.layers.AdjustmentLayer;
+import pixelitor.layers.BlendingMode;
+import pixelitor.layers.ImageLayer;
+import pixelitor.layers.Layer;
+import pixelitor.layers.LayerMask;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("region recompositing tests")
+class RecompositeRegionTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 40;
+
+    private final Random random = new Random(42);
+
+    private Composition comp;
+    private Canvas canvas;
+    private List<Layer> layers;
+
+    @BeforeAll
+    static void beforeAllTests() {
+        TestHelper.setUnitTestingMode();
+    }
+
+    @BeforeEach
+    void beforeEachTest() {
+        canvas = new Canvas(WIDTH, HEIGHT);
+        comp = mock(Composition.class);
+        when(comp.getCanvas()).thenReturn(canvas);
+        when(comp.getCanvasWidth()).thenReturn(WIDTH);
+        when(comp.getCanvasHeight()).thenReturn(HEIGHT);
+
+        layers = new ArrayList<>();
+        layers.add(createLayer(0xFF, BlendingMode.NORMAL, 1.0f));
+
+        ImageLayer multiplied = createLayer(0xC0, BlendingMode.MULTIPLY, 0.7f);
+        addMask(multiplied);
+        layers.add(multiplied);
+
+        ImageLayer hidden = createLayer(0xFF, BlendingMode.NORMAL, 1.0f);
+        hidden.setVisible(false);
+        layers.add(hidden);
+
+        layers.add(createLayer(0x80, BlendingMode.SCREEN, 0.9f));
+
+        ImageLayer overlay = createLayer(0x60, BlendingMode.OVERLAY, 1.0f);
+        addMask(overlay);
+        layers.add(overlay);
+
+        layers.add(createLayer(0x50, BlendingMode.DIFFERENCE, 0.5f));
+    }
+
+    @Test
+    @DisplayName("the re-rendered region matches the full composite")
+    void matchesFullComposite() {
+        BufferedImage composite = ImageUtils.calcComposite(layers, canvas);
+        int[] origPixels = ImageUtils.getPixels(composite).clone();
+
+        // paint into some layers and masks, like a brush stroke would
+        Rectangle region = new Rectangle(12, 8, 25, 17);
+        paintRegion(((ImageLayer) layers.get(1)).getImage(), region, Color.RED);
+        paintRegion(layers.get(4).getMask().getImage(), region, Color.DARK_GRAY);
+        paintRegion(((ImageLayer) layers.get(5)).getImage(), region, Color.BLUE);
+
+        BufferedImage updated = ImageUtils.recompositeRegion(layers, composite, region);
+        BufferedImage expected = ImageUtils.calcComposite(layers, canvas);
+
+        assertThat(updated).isNotNull().isNotSameAs(composite);
+        assertThat(ImageUtils.getPixels(updated)).isEqualTo(ImageUtils.getPixels(expected));
+
+        // the original composite can be used as a snapshot
+        assertThat(ImageUtils.getPixels(composite)).isEqualTo(origPixels);
+    }
+
+    @Test
+    @DisplayName("non-local layers require a full recalculation")
+    void adjustmentLayerPreventsRecompositing() {
+        layers.add(new AdjustmentLayer(comp, "invert", new Invert()));
+        BufferedImage composite = ImageUtils.calcComposite(layers, canvas);
+
+        assertThat(ImageUtils.recompositeRegion(layers, composite,
+            new Rectangle(0, 0, 10, 10))).isNull();
+    }
+
+    private ImageLayer createLayer(int maxAlpha, BlendingMode blendingMode, float opacity) {
+        var image = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int alpha = random.nextInt(maxAlpha + 1);
+                image.setRGB(x, y, alpha << 24 | random.nextInt(0x1_00_00_00));
+            }
+        }
+        var layer = new ImageLayer(comp, image, "layer " + layers.size());
+        layer.setBlendingMode(blendingMode);
+        layer.setOpacity(opacity);
+        return layer;
+    }
+
+    private void addMask(ImageLayer layer) {
+        var maskImage = new BufferedImage(WIDTH, HEIGHT, TYPE_BYTE_GRAY);
+        Graphics2D g = maskImage.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.WHITE, WIDTH, HEIGHT, Color.BLACK));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+
+        layer.addConfiguredMask(new LayerMask(comp, maskImage, layer, 0, 0));
+    }
+
+    private static void paintRegion(BufferedImage image, Rectangle region, Color color) {
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillOval(region.x, region.y, region.width, region.height);
+        g.dispose();
+    }
+}
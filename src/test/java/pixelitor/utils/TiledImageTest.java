@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("TiledImage tests")
+class TiledImageTest {
+    @Test
+    @DisplayName("the pixels survive the round trip")
+    void roundTrip() {
+        // not a multiple of the tile size
+        BufferedImage img = createNoiseImage(600, 300, TYPE_INT_ARGB_PRE);
+
+        TiledImage tiled = TiledImage.of(img, null);
+        assertThat(tiled.getNumTiles()).isEqualTo(6);
+        assertThat(tiled.getNumStoredTiles()).isEqualTo(6);
+
+        BufferedImage copy = tiled.toBufferedImage();
+        assertThat(copy.getType()).isEqualTo(TYPE_INT_ARGB_PRE);
+        assertSamePixels(copy, img);
+
+        tiled.release();
+    }
+
+    @Test
+    @DisplayName("uniform tiles aren't stored")
+    void uniformTiles() {
+        BufferedImage img = new BufferedImage(700, 500, TYPE_INT_RGB);
+        img.setRGB(10, 10, 0xFF_FF_00_00);
+
+        TiledImage tiled = TiledImage.of(img, null);
+        assertThat(tiled.getNumTiles()).isEqualTo(6);
+        assertThat(tiled.getNumStoredTiles()).isEqualTo(1);
+        assertSamePixels(tiled.toBufferedImage(), img);
+
+        tiled.release();
+    }
+
+    @Test
+    @DisplayName("unchanged tiles are shared with the base")
+    void sharedTiles() {
+        BufferedImage img = createNoiseImage(512, 512, TYPE_INT_ARGB_PRE);
+        TiledImage base = TiledImage.of(img, null);
+        int usedSlots = TileStorage.get().getNumUsedSlots();
+
+        img.setRGB(300, 300, 0x12_34_56_78);
+        TiledImage changed = TiledImage.of(img, base);
+        assertThat(changed.getNumSharedTiles()).isEqualTo(3);
+        assertThat(changed.getNumStoredTiles()).isEqualTo(1);
+        assertThat(TileStorage.get().getNumUsedSlots()).isEqualTo(usedSlots + 1);
+
+        // only the changed tile of the base is freed, the shared tiles stay valid
+        base.release();
+        assertThat(TileStorage.get().getNumUsedSlots()).isEqualTo(usedSlots);
+        assertSamePixels(changed.toBufferedImage(), img);
+
+        changed.release();
+        assertThat(TileStorage.get().getNumUsedSlots()).isEqualTo(usedSlots - 4);
+    }
+
+    @Test
+    @DisplayName("a region can be read as a raster")
+    void regionData() {
+        BufferedImage img = createNoiseImage(400, 400, TYPE_INT_ARGB_PRE);
+        TiledImage tiled = TiledImage.of(img, null);
+
+        // crosses the tile boundaries
+        Rectangle region = new Rectangle(200, 230, 100, 50);
+        Raster data = tiled.getData(region);
+        assertThat(data.getBounds()).isEqualTo(region);
+        for (int y = region.y; y < region.y + region.height; y++) {
+            for (int x = region.x; x < region.x + region.width; x++) {
+                assertThat(data.getDataElements(x, y, null))
+                    .isEqualTo(img.getRaster().getDataElements(x, y, null));
+            }
+        }
+
+        tiled.release();
+    }
+
+    @Test
+    @DisplayName("released images can't be used")
+    void released() {
+        TiledImage tiled = TiledImage.of(createNoiseImage(10, 10, TYPE_INT_RGB), null);
+        tiled.release();
+        tiled.release(); // second call is ignored
+
+        assertThat(tiled.isReleased()).isTrue();
+        assertThatThrownBy(tiled::toBufferedImage)
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("only packed int images are supported")
+    void unsupportedType() {
+        BufferedImage img = new BufferedImage(10, 10, TYPE_BYTE_GRAY);
+        assertThat(TiledImage.canStore(img)).isFalse();
+        assertThatThrownBy(() -> TiledImage.of(img, null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static BufferedImage createNoiseImage(int width, int height, int type) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        return img;
+    }
+
+    private static void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        assertThat(actual.getRGB(0, 0, width, height, null, 0, width))
+            .isEqualTo(expected.getRGB(0, 0, width, height, null, 0, width));
+    }
+}